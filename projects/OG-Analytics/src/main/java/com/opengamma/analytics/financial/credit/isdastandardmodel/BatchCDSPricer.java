@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Prices a portfolio of CDSs on the ISDA standard model, grouping the trades by yield and credit curves.
+ * <p>
+ * The trades of a portfolio on the same curves usually share their analytic description: the trades on one name have standard IMM
+ * maturities and the same trade date, only their coupon and notional differ. For each pair of curves, the protection leg, the annuity
+ * (RPV01) and their credit curve sensitivities are computed once for each distinct {@link CDSAnalytic} with {@link AnalyticCDSPricer};
+ * the trades are then valued in one pass over primitive arrays. The results are the ones of {@link AnalyticCDSPricer} for each trade.
+ * <p>
+ * The curves are grouped by identity, not by value. The groups are priced in parallel when a pool is provided.
+ */
+public class BatchCDSPricer {
+
+  /** The pricer of the distinct CDSs. */
+  private final AnalyticCDSPricer _pricer;
+  /** The pool in which the groups are priced, null to price them on the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor with the ISDA model (version 1.8.2 and lower) accrual on default formula, pricing on the calling thread.
+   */
+  public BatchCDSPricer() {
+    this(AccrualOnDefaultFormulae.OrignalISDA, null);
+  }
+
+  /**
+   * Constructor.
+   * @param formula The accrual on default formula, not null.
+   * @param pool The pool in which the groups of trades on the same curves are priced in parallel, null to price them on the calling thread.
+   */
+  public BatchCDSPricer(final AccrualOnDefaultFormulae formula, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(formula, "formula");
+    _pricer = new AnalyticCDSPricer(formula);
+    _pool = pool;
+  }
+
+  /**
+   * The measures computed for each distinct CDS.
+   */
+  private enum Measure {
+    /** The present value. */
+    PV,
+    /** The par spread. */
+    PAR_SPREAD,
+    /** The present value sensitivity to the credit curve nodes. */
+    CREDIT_SENSITIVITY
+  }
+
+  //****************************************************************************************************************************
+  // Trades on the same curves
+  //****************************************************************************************************************************
+
+  /**
+   * The present values of CDSs on the same curves, for the payer of premiums (i.e. the buyer of protection) at the cash-settle date.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurve The yield (or discount) curve, not null.
+   * @param creditCurve The credit (or survival) curve, not null.
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS, not null.
+   * @param cleanOrDirty Clean or dirty price, not null.
+   * @return The value of each unit notional payer CDS on its cash-settle date.
+   */
+  public double[] pv(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve creditCurve, final double[] fractionalSpreads,
+      final PriceType cleanOrDirty) {
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.notNull(creditCurve, "creditCurve");
+    return pv(cds, fill(yieldCurve, cds), fill(creditCurve, cds), fractionalSpreads, cleanOrDirty);
+  }
+
+  /**
+   * The par spreads of CDSs on the same curves.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurve The yield (or discount) curve, not null.
+   * @param creditCurve The credit (or survival) curve, not null.
+   * @return The par spread of each CDS.
+   */
+  public double[] parSpread(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve creditCurve) {
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.notNull(creditCurve, "creditCurve");
+    return parSpread(cds, fill(yieldCurve, cds), fill(creditCurve, cds));
+  }
+
+  /**
+   * The sensitivities of the present values of CDSs on the same curves to the zero hazard rates of the credit curve nodes.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurve The yield (or discount) curve, not null.
+   * @param creditCurve The credit (or survival) curve, not null.
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS, not null.
+   * @return The sensitivities, by CDS and credit curve node.
+   */
+  public double[][] pvCreditSensitivity(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve creditCurve,
+      final double[] fractionalSpreads) {
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.notNull(creditCurve, "creditCurve");
+    return pvCreditSensitivity(cds, fill(yieldCurve, cds), fill(creditCurve, cds), fractionalSpreads);
+  }
+
+  //****************************************************************************************************************************
+  // Portfolio
+  //****************************************************************************************************************************
+
+  /**
+   * The present values of a portfolio of CDSs, for the payer of premiums (i.e. the buyer of protection) at the cash-settle date.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurves The yield (or discount) curve of each CDS, not null.
+   * @param creditCurves The credit (or survival) curve of each CDS, not null.
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS, not null.
+   * @param cleanOrDirty Clean or dirty price, not null.
+   * @return The value of each unit notional payer CDS on its cash-settle date.
+   */
+  public double[] pv(final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves, final ISDACompliantCreditCurve[] creditCurves, final double[] fractionalSpreads,
+      final PriceType cleanOrDirty) {
+    ArgumentChecker.notNull(fractionalSpreads, "fractionalSpreads");
+    ArgumentChecker.notNull(cleanOrDirty, "cleanOrDirty");
+    final List<int[]> groups = groups(cds, yieldCurves, creditCurves);
+    ArgumentChecker.isTrue(fractionalSpreads.length == cds.length, "fractionalSpreads length {} does not match cds length {}", fractionalSpreads.length, cds.length);
+    final double[] pv = new double[cds.length];
+    price(groups, Measure.PV, cds, yieldCurves, creditCurves, fractionalSpreads, cleanOrDirty, pv, null);
+    return pv;
+  }
+
+  /**
+   * The par spreads of a portfolio of CDSs.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurves The yield (or discount) curve of each CDS, not null.
+   * @param creditCurves The credit (or survival) curve of each CDS, not null.
+   * @return The par spread of each CDS.
+   */
+  public double[] parSpread(final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves, final ISDACompliantCreditCurve[] creditCurves) {
+    final List<int[]> groups = groups(cds, yieldCurves, creditCurves);
+    for (final CDSAnalytic c : cds) {
+      if (c.getProtectionEnd() <= 0.0) { //short cut already expired CDSs
+        throw new IllegalArgumentException("CDSs has expired - cannot compute a par spread for it");
+      }
+    }
+    final double[] parSpread = new double[cds.length];
+    price(groups, Measure.PAR_SPREAD, cds, yieldCurves, creditCurves, null, null, parSpread, null);
+    return parSpread;
+  }
+
+  /**
+   * The sensitivities of the present values of a portfolio of CDSs to the zero hazard rates of the nodes of their credit curve.
+   * @param cds The analytic descriptions of the CDSs, not null.
+   * @param yieldCurves The yield (or discount) curve of each CDS, not null.
+   * @param creditCurves The credit (or survival) curve of each CDS, not null.
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS, not null.
+   * @return The sensitivities, by CDS and node of the credit curve of the CDS.
+   */
+  public double[][] pvCreditSensitivity(final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves, final ISDACompliantCreditCurve[] creditCurves,
+      final double[] fractionalSpreads) {
+    ArgumentChecker.notNull(fractionalSpreads, "fractionalSpreads");
+    final List<int[]> groups = groups(cds, yieldCurves, creditCurves);
+    ArgumentChecker.isTrue(fractionalSpreads.length == cds.length, "fractionalSpreads length {} does not match cds length {}", fractionalSpreads.length, cds.length);
+    final double[][] sense = new double[cds.length][];
+    price(groups, Measure.CREDIT_SENSITIVITY, cds, yieldCurves, creditCurves, fractionalSpreads, null, null, sense);
+    return sense;
+  }
+
+  //****************************************************************************************************************************
+  // Implementation
+  //****************************************************************************************************************************
+
+  /**
+   * Groups the trades by yield and credit curves, in the order of their first trade.
+   * @return The indexes of the trades of each group.
+   */
+  private static List<int[]> groups(final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves, final ISDACompliantCreditCurve[] creditCurves) {
+    ArgumentChecker.noNulls(cds, "cds");
+    ArgumentChecker.noNulls(yieldCurves, "yieldCurves");
+    ArgumentChecker.noNulls(creditCurves, "creditCurves");
+    final int nCDS = cds.length;
+    ArgumentChecker.isTrue(yieldCurves.length == nCDS, "yieldCurves length {} does not match cds length {}", yieldCurves.length, nCDS);
+    ArgumentChecker.isTrue(creditCurves.length == nCDS, "creditCurves length {} does not match cds length {}", creditCurves.length, nCDS);
+    final Map<CurvePair, IntArrayList> groups = new LinkedHashMap<>();
+    for (int i = 0; i < nCDS; i++) {
+      final CurvePair curves = new CurvePair(yieldCurves[i], creditCurves[i]);
+      IntArrayList group = groups.get(curves);
+      if (group == null) {
+        group = new IntArrayList();
+        groups.put(curves, group);
+      }
+      group.add(i);
+    }
+    final List<int[]> res = new ArrayList<>(groups.size());
+    for (final IntArrayList group : groups.values()) {
+      res.add(group.toIntArray());
+    }
+    return res;
+  }
+
+  private void price(final List<int[]> groups, final Measure measure, final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves,
+      final ISDACompliantCreditCurve[] creditCurves, final double[] fractionalSpreads, final PriceType cleanOrDirty, final double[] values, final double[][] sense) {
+    if (_pool == null || groups.size() < 2) {
+      for (final int[] group : groups) {
+        priceGroup(group, measure, cds, yieldCurves, creditCurves, fractionalSpreads, cleanOrDirty, values, sense);
+      }
+    } else {
+      _pool.invoke(new GroupAction(0, groups.size(), groups, measure, cds, yieldCurves, creditCurves, fractionalSpreads, cleanOrDirty, values, sense));
+    }
+  }
+
+  /**
+   * Prices the trades of one group. The values of the distinct CDSs are computed first, then the values of the trades.
+   */
+  private void priceGroup(final int[] group, final Measure measure, final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves,
+      final ISDACompliantCreditCurve[] creditCurves, final double[] fractionalSpreads, final PriceType cleanOrDirty, final double[] values, final double[][] sense) {
+    final ISDACompliantYieldCurve yieldCurve = yieldCurves[group[0]];
+    final ISDACompliantCreditCurve creditCurve = creditCurves[group[0]];
+    final int nTrades = group.length;
+    // distinct CDSs
+    final Map<CDSAnalytic, Integer> distinct = new HashMap<>();
+    final List<CDSAnalytic> distinctCDS = new ArrayList<>();
+    final int[] cdsIndex = new int[nTrades];
+    for (int i = 0; i < nTrades; i++) {
+      final CDSAnalytic c = cds[group[i]];
+      Integer index = distinct.get(c);
+      if (index == null) {
+        index = distinctCDS.size();
+        distinct.put(c, index);
+        distinctCDS.add(c);
+      }
+      cdsIndex[i] = index;
+    }
+    final int nDistinct = distinctCDS.size();
+    final double[] proLeg = new double[nDistinct];
+    final double[] rpv01 = new double[nDistinct];
+    final boolean[] expired = new boolean[nDistinct];
+    switch (measure) {
+      case PV:
+        for (int k = 0; k < nDistinct; k++) {
+          final CDSAnalytic c = distinctCDS.get(k);
+          expired[k] = c.getProtectionEnd() <= 0.0;
+          if (!expired[k]) {
+            rpv01[k] = _pricer.annuity(c, yieldCurve, creditCurve, cleanOrDirty);
+            proLeg[k] = _pricer.protectionLeg(c, yieldCurve, creditCurve);
+          }
+        }
+        for (int i = 0; i < nTrades; i++) {
+          final int k = cdsIndex[i];
+          values[group[i]] = expired[k] ? 0.0 : proLeg[k] - fractionalSpreads[group[i]] * rpv01[k];
+        }
+        break;
+      case PAR_SPREAD:
+        for (int k = 0; k < nDistinct; k++) {
+          final CDSAnalytic c = distinctCDS.get(k);
+          rpv01[k] = _pricer.annuity(c, yieldCurve, creditCurve, PriceType.CLEAN, 0.0);
+          proLeg[k] = _pricer.protectionLeg(c, yieldCurve, creditCurve, 0.0);
+        }
+        for (int i = 0; i < nTrades; i++) {
+          final int k = cdsIndex[i];
+          values[group[i]] = proLeg[k] / rpv01[k];
+        }
+        break;
+      case CREDIT_SENSITIVITY:
+        final int nNodes = creditCurve.getNumberOfKnots();
+        final double[][] proLegSense = new double[nDistinct][nNodes];
+        final double[][] rpv01Sense = new double[nDistinct][nNodes];
+        for (int k = 0; k < nDistinct; k++) {
+          final CDSAnalytic c = distinctCDS.get(k);
+          expired[k] = c.getProtectionEnd() <= 0.0;
+          if (!expired[k]) {
+            for (int j = 0; j < nNodes; j++) {
+              rpv01Sense[k][j] = _pricer.pvPremiumLegCreditSensitivity(c, yieldCurve, creditCurve, j);
+              proLegSense[k][j] = _pricer.protectionLegCreditSensitivity(c, yieldCurve, creditCurve, j);
+            }
+          }
+        }
+        for (int i = 0; i < nTrades; i++) {
+          final int k = cdsIndex[i];
+          final double spread = fractionalSpreads[group[i]];
+          final double[] res = new double[nNodes];
+          if (!expired[k]) {
+            for (int j = 0; j < nNodes; j++) {
+              res[j] = proLegSense[k][j] - spread * rpv01Sense[k][j];
+            }
+          }
+          sense[group[i]] = res;
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unhandled measure " + measure);
+    }
+  }
+
+  private static ISDACompliantYieldCurve[] fill(final ISDACompliantYieldCurve yieldCurve, final CDSAnalytic[] cds) {
+    ArgumentChecker.notNull(cds, "cds");
+    final ISDACompliantYieldCurve[] res = new ISDACompliantYieldCurve[cds.length];
+    Arrays.fill(res, yieldCurve);
+    return res;
+  }
+
+  private static ISDACompliantCreditCurve[] fill(final ISDACompliantCreditCurve creditCurve, final CDSAnalytic[] cds) {
+    ArgumentChecker.notNull(cds, "cds");
+    final ISDACompliantCreditCurve[] res = new ISDACompliantCreditCurve[cds.length];
+    Arrays.fill(res, creditCurve);
+    return res;
+  }
+
+  /**
+   * A yield curve and a credit curve, compared by identity.
+   */
+  private static final class CurvePair {
+
+    private final ISDACompliantYieldCurve _yieldCurve;
+    private final ISDACompliantCreditCurve _creditCurve;
+
+    CurvePair(final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve creditCurve) {
+      _yieldCurve = yieldCurve;
+      _creditCurve = creditCurve;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(_yieldCurve) + System.identityHashCode(_creditCurve);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CurvePair)) {
+        return false;
+      }
+      final CurvePair other = (CurvePair) obj;
+      return _yieldCurve == other._yieldCurve && _creditCurve == other._creditCurve;
+    }
+  }
+
+  /**
+   * Prices a range of groups, split in halves.
+   */
+  private final class GroupAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _fromGroup;
+    private final int _toGroup;
+    private final List<int[]> _groups;
+    private final Measure _measure;
+    private final CDSAnalytic[] _cds;
+    private final ISDACompliantYieldCurve[] _yieldCurves;
+    private final ISDACompliantCreditCurve[] _creditCurves;
+    private final double[] _fractionalSpreads;
+    private final PriceType _cleanOrDirty;
+    private final double[] _values;
+    private final double[][] _sense;
+
+    GroupAction(final int fromGroup, final int toGroup, final List<int[]> groups, final Measure measure, final CDSAnalytic[] cds, final ISDACompliantYieldCurve[] yieldCurves,
+        final ISDACompliantCreditCurve[] creditCurves, final double[] fractionalSpreads, final PriceType cleanOrDirty, final double[] values, final double[][] sense) {
+      _fromGroup = fromGroup;
+      _toGroup = toGroup;
+      _groups = groups;
+      _measure = measure;
+      _cds = cds;
+      _yieldCurves = yieldCurves;
+      _creditCurves = creditCurves;
+      _fractionalSpreads = fractionalSpreads;
+      _cleanOrDirty = cleanOrDirty;
+      _values = values;
+      _sense = sense;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toGroup - _fromGroup == 1) {
+        priceGroup(_groups.get(_fromGroup), _measure, _cds, _yieldCurves, _creditCurves, _fractionalSpreads, _cleanOrDirty, _values, _sense);
+      } else {
+        final int mid = (_fromGroup + _toGroup) >>> 1;
+        invokeAll(new GroupAction(_fromGroup, mid, _groups, _measure, _cds, _yieldCurves, _creditCurves, _fractionalSpreads, _cleanOrDirty, _values, _sense),
+            new GroupAction(mid, _toGroup, _groups, _measure, _cds, _yieldCurves, _creditCurves, _fractionalSpreads, _cleanOrDirty, _values, _sense));
+      }
+    }
+  }
+
+}
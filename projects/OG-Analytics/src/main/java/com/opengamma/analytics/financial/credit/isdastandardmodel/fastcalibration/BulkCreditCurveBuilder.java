@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel.fastcalibration;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.AccrualOnDefaultFormulae;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.AnalyticCDSPricer;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.CDSAnalytic;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurve;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurveBuilder.ArbitrageHandling;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantYieldCurve;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.PriceType;
+import com.opengamma.analytics.math.MathException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calibrates the credit curves of several names, typically the constituents of an index, with {@link CreditCurveCalibrator}.
+ * <p>
+ * The yield curve dependent part of the calibration (the premium and protection leg elements with their discount factors) only depends on
+ * the calibration CDSs and the yield curve. The names with equal calibration CDSs and the same yield curve (compared by identity) share one
+ * calibrator; the names are then calibrated independently, in parallel when a pool is provided. The failure of a name does not stop the
+ * calibration of the other names; it is reported in the {@link BulkCreditCurveCalibration}.
+ */
+public class BulkCreditCurveBuilder {
+
+  /** The logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(BulkCreditCurveBuilder.class);
+
+  /** The accrual on default formula. */
+  private final AccrualOnDefaultFormulae _formula;
+  /** The arbitrage handling. */
+  private final ArbitrageHandling _arbHandle;
+  /** The pricer used to compute the repricing errors. */
+  private final AnalyticCDSPricer _pricer;
+  /** The pool in which the names are calibrated, null to calibrate them on the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor with the ISDA model (version 1.8.2 and lower) accrual on default formula, ignoring arbitrages and calibrating on the calling thread.
+   */
+  public BulkCreditCurveBuilder() {
+    this(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Ignore, null);
+  }
+
+  /**
+   * Constructor.
+   * @param formula The accrual on default formula, not null.
+   * @param arbHandle The arbitrage handling, not null.
+   * @param pool The pool in which the names are calibrated in parallel, null to calibrate them on the calling thread.
+   */
+  public BulkCreditCurveBuilder(final AccrualOnDefaultFormulae formula, final ArbitrageHandling arbHandle, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(formula, "formula");
+    ArgumentChecker.notNull(arbHandle, "arbHandle");
+    _formula = formula;
+    _arbHandle = arbHandle;
+    _pricer = new AnalyticCDSPricer(formula);
+    _pool = pool;
+  }
+
+  /**
+   * Calibrates the credit curves of several names to par spreads.
+   * @param calibrationCDSs The calibration CDSs of each name, not null.
+   * @param parSpreads The par spreads of the calibration CDSs of each name, not null.
+   * @param yieldCurves The yield curve of each name, not null.
+   * @return The calibrated curves and the calibration diagnostics.
+   */
+  public BulkCreditCurveCalibration calibrateCreditCurves(final CDSAnalytic[][] calibrationCDSs, final double[][] parSpreads, final ISDACompliantYieldCurve[] yieldCurves) {
+    return calibrateCreditCurves(calibrationCDSs, parSpreads, yieldCurves, null);
+  }
+
+  /**
+   * Calibrates the credit curves of several names to premiums and points up-front.
+   * @param calibrationCDSs The calibration CDSs of each name, not null.
+   * @param premiums The premiums of the calibration CDSs of each name, not null.
+   * @param yieldCurves The yield curve of each name, not null.
+   * @param pointsUpfront The points up-front of the calibration CDSs of each name; null for par spreads.
+   * @return The calibrated curves and the calibration diagnostics.
+   */
+  public BulkCreditCurveCalibration calibrateCreditCurves(final CDSAnalytic[][] calibrationCDSs, final double[][] premiums, final ISDACompliantYieldCurve[] yieldCurves,
+      final double[][] pointsUpfront) {
+    ArgumentChecker.notNull(calibrationCDSs, "calibrationCDSs");
+    ArgumentChecker.notNull(premiums, "premiums");
+    ArgumentChecker.noNulls(yieldCurves, "yieldCurves");
+    final int nNames = calibrationCDSs.length;
+    ArgumentChecker.isTrue(premiums.length == nNames, "premiums length {} does not match number of names {}", premiums.length, nNames);
+    ArgumentChecker.isTrue(yieldCurves.length == nNames, "yieldCurves length {} does not match number of names {}", yieldCurves.length, nNames);
+    ArgumentChecker.isTrue(pointsUpfront == null || pointsUpfront.length == nNames, "pointsUpfront length does not match number of names {}", nNames);
+    final double[][] puf = new double[nNames][];
+    for (int i = 0; i < nNames; i++) {
+      ArgumentChecker.noNulls(calibrationCDSs[i], "calibrationCDSs");
+      ArgumentChecker.notNull(premiums[i], "premiums");
+      final int nCDS = calibrationCDSs[i].length;
+      ArgumentChecker.isTrue(premiums[i].length == nCDS, "name {}: premiums length {} does not match number of CDSs {}", i, premiums[i].length, nCDS);
+      if (pointsUpfront == null) {
+        puf[i] = new double[nCDS];
+      } else {
+        ArgumentChecker.isTrue(pointsUpfront[i].length == nCDS, "name {}: pointsUpfront length {} does not match number of CDSs {}", i, pointsUpfront[i].length, nCDS);
+        puf[i] = pointsUpfront[i];
+      }
+    }
+    final long startTime = System.nanoTime();
+    // one calibrator by distinct calibration CDSs and yield curve
+    final Map<CalibratorKey, Integer> keys = new LinkedHashMap<>();
+    final int[] calibratorIndex = new int[nNames];
+    for (int i = 0; i < nNames; i++) {
+      final CalibratorKey key = new CalibratorKey(calibrationCDSs[i], yieldCurves[i]);
+      Integer index = keys.get(key);
+      if (index == null) {
+        index = keys.size();
+        keys.put(key, index);
+      }
+      calibratorIndex[i] = index;
+    }
+    final int nCalibrators = keys.size();
+    final CalibratorKey[] calibratorKeys = keys.keySet().toArray(new CalibratorKey[nCalibrators]);
+    final CreditCurveCalibrator[] calibrators = new CreditCurveCalibrator[nCalibrators];
+    final String[] calibratorFailures = new String[nCalibrators];
+    final ISDACompliantCreditCurve[] curves = new ISDACompliantCreditCurve[nNames];
+    final String[] failures = new String[nNames];
+    final double[] repricingErrors = new double[nNames];
+    final long[] calibrationTimes = new long[nNames];
+    final CalibrationData data = new CalibrationData(calibrationCDSs, premiums, puf, yieldCurves, calibratorKeys, calibrators, calibratorFailures, calibratorIndex,
+        curves, failures, repricingErrors, calibrationTimes);
+    if (_pool == null) {
+      for (int k = 0; k < nCalibrators; k++) {
+        buildCalibrator(k, data);
+      }
+      for (int i = 0; i < nNames; i++) {
+        calibrateName(i, data);
+      }
+    } else {
+      if (nCalibrators > 0) {
+        _pool.invoke(new CalibrationAction(0, nCalibrators, true, data));
+      }
+      if (nNames > 0) {
+        _pool.invoke(new CalibrationAction(0, nNames, false, data));
+      }
+    }
+    final BulkCreditCurveCalibration calibration = new BulkCreditCurveCalibration(curves, failures, repricingErrors, calibrationTimes, nCalibrators,
+        System.nanoTime() - startTime);
+    s_logger.debug("{}", calibration);
+    return calibration;
+  }
+
+  /**
+   * Builds the calibrator of a set of calibration CDSs and yield curve.
+   */
+  private void buildCalibrator(final int index, final CalibrationData data) {
+    final CalibratorKey key = data._calibratorKeys[index];
+    try {
+      data._calibrators[index] = new CreditCurveCalibrator(key._cds, key._yieldCurve, _formula, _arbHandle);
+    } catch (final IllegalArgumentException e) {
+      data._calibratorFailures[index] = e.getMessage();
+    }
+  }
+
+  /**
+   * Calibrates the curve of one name with its calibrator and computes the repricing error.
+   */
+  private void calibrateName(final int name, final CalibrationData data) {
+    final long startTime = System.nanoTime();
+    final int index = data._calibratorIndex[name];
+    final CreditCurveCalibrator calibrator = data._calibrators[index];
+    if (calibrator == null) {
+      data._failures[name] = data._calibratorFailures[index];
+      data._repricingErrors[name] = Double.NaN;
+    } else {
+      try {
+        final ISDACompliantCreditCurve curve = calibrator.calibrate(data._premiums[name], data._puf[name]);
+        final CDSAnalytic[] cds = data._calibrationCDSs[name];
+        double error = 0.0;
+        for (int j = 0; j < cds.length; j++) {
+          final double pv = _pricer.pv(cds[j], data._yieldCurves[name], curve, data._premiums[name][j], PriceType.CLEAN);
+          error = Math.max(error, Math.abs(pv - data._puf[name][j]));
+        }
+        data._curves[name] = curve;
+        data._repricingErrors[name] = error;
+      } catch (final IllegalArgumentException e) {
+        data._failures[name] = e.getMessage();
+        data._repricingErrors[name] = Double.NaN;
+      } catch (final MathException e) {
+        data._failures[name] = e.getMessage();
+        data._repricingErrors[name] = Double.NaN;
+      }
+    }
+    if (data._failures[name] != null) {
+      s_logger.debug("Calibration of name {} failed: {}", name, data._failures[name]);
+    }
+    data._calibrationTimes[name] = System.nanoTime() - startTime;
+  }
+
+  /**
+   * The calibration CDSs, compared by value, and the yield curve, compared by identity, of a calibrator.
+   */
+  private static final class CalibratorKey {
+
+    private final CDSAnalytic[] _cds;
+    private final ISDACompliantYieldCurve _yieldCurve;
+    private final int _hashCode;
+
+    CalibratorKey(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve) {
+      _cds = cds;
+      _yieldCurve = yieldCurve;
+      _hashCode = 31 * Arrays.hashCode(cds) + System.identityHashCode(yieldCurve);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CalibratorKey)) {
+        return false;
+      }
+      final CalibratorKey other = (CalibratorKey) obj;
+      return _yieldCurve == other._yieldCurve && Arrays.equals(_cds, other._cds);
+    }
+  }
+
+  /**
+   * The inputs and outputs of a calibration, shared by the actions.
+   */
+  private static final class CalibrationData {
+
+    private final CDSAnalytic[][] _calibrationCDSs;
+    private final double[][] _premiums;
+    private final double[][] _puf;
+    private final ISDACompliantYieldCurve[] _yieldCurves;
+    private final CalibratorKey[] _calibratorKeys;
+    private final CreditCurveCalibrator[] _calibrators;
+    private final String[] _calibratorFailures;
+    private final int[] _calibratorIndex;
+    private final ISDACompliantCreditCurve[] _curves;
+    private final String[] _failures;
+    private final double[] _repricingErrors;
+    private final long[] _calibrationTimes;
+
+    CalibrationData(final CDSAnalytic[][] calibrationCDSs, final double[][] premiums, final double[][] puf, final ISDACompliantYieldCurve[] yieldCurves,
+        final CalibratorKey[] calibratorKeys, final CreditCurveCalibrator[] calibrators, final String[] calibratorFailures, final int[] calibratorIndex,
+        final ISDACompliantCreditCurve[] curves, final String[] failures, final double[] repricingErrors, final long[] calibrationTimes) {
+      _calibrationCDSs = calibrationCDSs;
+      _premiums = premiums;
+      _puf = puf;
+      _yieldCurves = yieldCurves;
+      _calibratorKeys = calibratorKeys;
+      _calibrators = calibrators;
+      _calibratorFailures = calibratorFailures;
+      _calibratorIndex = calibratorIndex;
+      _curves = curves;
+      _failures = failures;
+      _repricingErrors = repricingErrors;
+      _calibrationTimes = calibrationTimes;
+    }
+  }
+
+  /**
+   * Builds a range of calibrators or calibrates a range of names, split in halves.
+   */
+  private final class CalibrationAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _from;
+    private final int _to;
+    private final boolean _buildCalibrators;
+    private final CalibrationData _data;
+
+    CalibrationAction(final int from, final int to, final boolean buildCalibrators, final CalibrationData data) {
+      _from = from;
+      _to = to;
+      _buildCalibrators = buildCalibrators;
+      _data = data;
+    }
+
+    @Override
+    protected void compute() {
+      if (_to - _from == 1) {
+        if (_buildCalibrators) {
+          buildCalibrator(_from, _data);
+        } else {
+          calibrateName(_from, _data);
+        }
+      } else {
+        final int mid = (_from + _to) >>> 1;
+        invokeAll(new CalibrationAction(_from, mid, _buildCalibrators, _data), new CalibrationAction(mid, _to, _buildCalibrators, _data));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel.fastcalibration;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurve;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The result of the calibration of the credit curves of several names by {@link BulkCreditCurveBuilder}, with diagnostics for each name.
+ * <p>
+ * For each name, the result contains the calibrated curve, or the reason of the failure of the calibration, the largest absolute
+ * difference between the clean present value of a calibration CDS on the calibrated curve and its points up-front (on a unit notional),
+ * and the time spent in the calibration.
+ */
+public class BulkCreditCurveCalibration {
+
+  /** The calibrated curves, null for the names that failed. */
+  private final ISDACompliantCreditCurve[] _curves;
+  /** The failure messages, null for the names calibrated. */
+  private final String[] _failures;
+  /** The largest repricing error of the calibration CDSs of each name. */
+  private final double[] _repricingErrors;
+  /** The time spent in the calibration of each name, in nanoseconds. */
+  private final long[] _calibrationTimes;
+  /** The number of calibrators built, i.e. of distinct sets of calibration CDSs and yield curve. */
+  private final int _nbCalibrators;
+  /** The time spent in the calibration of all the names, in nanoseconds. */
+  private final long _totalTime;
+
+  /**
+   * Constructor. The arrays are used directly.
+   * @param curves The calibrated curves, null for the names that failed.
+   * @param failures The failure messages, null for the names calibrated.
+   * @param repricingErrors The largest repricing error of the calibration CDSs of each name.
+   * @param calibrationTimes The time spent in the calibration of each name, in nanoseconds.
+   * @param nbCalibrators The number of calibrators built.
+   * @param totalTime The time spent in the calibration of all the names, in nanoseconds.
+   */
+  BulkCreditCurveCalibration(final ISDACompliantCreditCurve[] curves, final String[] failures, final double[] repricingErrors, final long[] calibrationTimes,
+      final int nbCalibrators, final long totalTime) {
+    _curves = curves;
+    _failures = failures;
+    _repricingErrors = repricingErrors;
+    _calibrationTimes = calibrationTimes;
+    _nbCalibrators = nbCalibrators;
+    _totalTime = totalTime;
+  }
+
+  /**
+   * Returns the number of names.
+   * @return The number of names.
+   */
+  public int getNumberOfNames() {
+    return _curves.length;
+  }
+
+  /**
+   * Checks if the curve of a name has been calibrated.
+   * @param name The name index.
+   * @return True if the curve has been calibrated.
+   */
+  public boolean isCalibrated(final int name) {
+    return _curves[name] != null;
+  }
+
+  /**
+   * Returns the calibrated curve of a name.
+   * @param name The name index.
+   * @return The curve.
+   * @throws IllegalArgumentException if the calibration of the name failed.
+   */
+  public ISDACompliantCreditCurve getCurve(final int name) {
+    ArgumentChecker.isTrue(_curves[name] != null, "Calibration of name {} failed: {}", name, _failures[name]);
+    return _curves[name];
+  }
+
+  /**
+   * Returns the calibrated curves, null for the names that failed.
+   * @return The curves.
+   */
+  public ISDACompliantCreditCurve[] getCurves() {
+    return _curves.clone();
+  }
+
+  /**
+   * Returns the reason of the failure of the calibration of a name.
+   * @param name The name index.
+   * @return The failure message, null if the curve has been calibrated.
+   */
+  public String getFailure(final int name) {
+    return _failures[name];
+  }
+
+  /**
+   * Returns the number of names whose calibration failed.
+   * @return The number of failures.
+   */
+  public int getNumberOfFailures() {
+    int nbFailures = 0;
+    for (final ISDACompliantCreditCurve curve : _curves) {
+      if (curve == null) {
+        nbFailures++;
+      }
+    }
+    return nbFailures;
+  }
+
+  /**
+   * Returns the largest absolute difference between the clean present value of a calibration CDS of a name on its calibrated curve
+   * and its points up-front, on a unit notional.
+   * @param name The name index.
+   * @return The repricing error, NaN if the calibration failed.
+   */
+  public double getRepricingError(final int name) {
+    return _repricingErrors[name];
+  }
+
+  /**
+   * Returns the time spent in the calibration of a name.
+   * @param name The name index.
+   * @return The time, in nanoseconds.
+   */
+  public long getCalibrationTime(final int name) {
+    return _calibrationTimes[name];
+  }
+
+  /**
+   * Returns the number of calibrators built, i.e. of distinct sets of calibration CDSs and yield curve.
+   * @return The number of calibrators.
+   */
+  public int getNumberOfCalibrators() {
+    return _nbCalibrators;
+  }
+
+  /**
+   * Returns the time spent in the calibration of all the names.
+   * @return The time, in nanoseconds.
+   */
+  public long getTotalTime() {
+    return _totalTime;
+  }
+
+  @Override
+  public String toString() {
+    double maxError = 0.0;
+    for (final double error : _repricingErrors) {
+      if (error > maxError) {
+        maxError = error;
+      }
+    }
+    return "BulkCreditCurveCalibration[" + getNumberOfNames() + " names, " + getNumberOfFailures() + " failures, " + _nbCalibrators + " calibrators, "
+        + _totalTime / 1000 + " us, max repricing error " + maxError + "]";
+  }
+
+}
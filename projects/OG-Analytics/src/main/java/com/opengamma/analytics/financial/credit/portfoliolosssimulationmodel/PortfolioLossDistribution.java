@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The statistics of the simulated loss of a credit portfolio at a set of horizons, computed by {@link PortfolioLossSimulationEngine}.
+ * <p>
+ * The statistics are accumulated scenario by scenario; the scenarios are not stored. The loss quantiles are read from a histogram of
+ * the portfolio loss: the quantile is the largest loss simulated in the histogram bin containing the quantile. It is exact when the
+ * losses in a bin are all equal, for example for a portfolio with equal loss given default amounts and at least one bin by possible loss.
+ */
+public class PortfolioLossDistribution {
+
+  /** The number of scenarios. */
+  private final int _nbScenarios;
+  /** The horizons. */
+  private final double[] _horizons;
+  /** The tranche attachment points, as amounts. */
+  private final double[] _attachments;
+  /** The tranche detachment points, as amounts. */
+  private final double[] _detachments;
+  /** The sum over the scenarios of the portfolio loss, by horizon. */
+  private final double[] _lossSum;
+  /** The sum over the scenarios of the square of the portfolio loss, by horizon. */
+  private final double[] _lossSquareSum;
+  /** The sum over the scenarios of the tranche losses, by horizon and tranche. */
+  private final double[][] _trancheLossSum;
+  /** The number of scenarios in which each obligor defaulted before each horizon, by horizon and obligor. */
+  private final long[][] _defaultCount;
+  /** The number of scenarios in each bin of the loss histogram, by horizon and bin. */
+  private final long[][] _binCount;
+  /** The largest loss in each bin of the loss histogram, by horizon and bin. */
+  private final double[][] _binMaxLoss;
+
+  /**
+   * Constructor. The arrays are used directly.
+   * @param nbScenarios The number of scenarios.
+   * @param horizons The horizons.
+   * @param attachments The tranche attachment points, as amounts.
+   * @param detachments The tranche detachment points, as amounts.
+   * @param lossSum The sum of the portfolio loss, by horizon.
+   * @param lossSquareSum The sum of the square of the portfolio loss, by horizon.
+   * @param trancheLossSum The sum of the tranche losses, by horizon and tranche.
+   * @param defaultCount The number of defaults, by horizon and obligor.
+   * @param binCount The number of scenarios in each bin of the loss histogram, by horizon and bin.
+   * @param binMaxLoss The largest loss in each bin of the loss histogram, by horizon and bin.
+   */
+  PortfolioLossDistribution(final int nbScenarios, final double[] horizons, final double[] attachments, final double[] detachments, final double[] lossSum,
+      final double[] lossSquareSum, final double[][] trancheLossSum, final long[][] defaultCount, final long[][] binCount, final double[][] binMaxLoss) {
+    _nbScenarios = nbScenarios;
+    _horizons = horizons;
+    _attachments = attachments;
+    _detachments = detachments;
+    _lossSum = lossSum;
+    _lossSquareSum = lossSquareSum;
+    _trancheLossSum = trancheLossSum;
+    _defaultCount = defaultCount;
+    _binCount = binCount;
+    _binMaxLoss = binMaxLoss;
+  }
+
+  /**
+   * Returns the number of scenarios.
+   * @return The number of scenarios.
+   */
+  public int getNumberOfScenarios() {
+    return _nbScenarios;
+  }
+
+  /**
+   * Returns the horizons.
+   * @return The horizons.
+   */
+  public double[] getHorizons() {
+    return _horizons.clone();
+  }
+
+  /**
+   * Returns the number of tranches.
+   * @return The number of tranches.
+   */
+  public int getNumberOfTranches() {
+    return _attachments.length;
+  }
+
+  /**
+   * Returns the expected loss of the portfolio at a horizon.
+   * @param horizon The horizon index.
+   * @return The expected loss.
+   */
+  public double getExpectedLoss(final int horizon) {
+    return _lossSum[horizon] / _nbScenarios;
+  }
+
+  /**
+   * Returns the standard deviation of the loss of the portfolio at a horizon.
+   * @param horizon The horizon index.
+   * @return The standard deviation.
+   */
+  public double getLossStandardDeviation(final int horizon) {
+    final double mean = getExpectedLoss(horizon);
+    return Math.sqrt(Math.max(0.0, _lossSquareSum[horizon] / _nbScenarios - mean * mean));
+  }
+
+  /**
+   * Returns the expected loss of a tranche at a horizon, as an amount.
+   * @param horizon The horizon index.
+   * @param tranche The tranche index.
+   * @return The expected tranche loss.
+   */
+  public double getExpectedTrancheLoss(final int horizon, final int tranche) {
+    return _trancheLossSum[horizon][tranche] / _nbScenarios;
+  }
+
+  /**
+   * Returns the expected loss of a tranche at a horizon, as a fraction of the tranche notional.
+   * @param horizon The horizon index.
+   * @param tranche The tranche index.
+   * @return The expected tranche loss fraction.
+   */
+  public double getExpectedTrancheLossFraction(final int horizon, final int tranche) {
+    return getExpectedTrancheLoss(horizon, tranche) / (_detachments[tranche] - _attachments[tranche]);
+  }
+
+  /**
+   * Returns the simulated probability that an obligor defaults before a horizon.
+   * @param horizon The horizon index.
+   * @param obligor The obligor index.
+   * @return The default frequency.
+   */
+  public double getDefaultFrequency(final int horizon, final int obligor) {
+    return ((double) _defaultCount[horizon][obligor]) / _nbScenarios;
+  }
+
+  /**
+   * Returns a quantile of the loss of the portfolio at a horizon, i.e. the smallest simulated loss L (up to the histogram resolution)
+   * such that the fraction of scenarios with a loss lower or equal to L is at least the level.
+   * @param horizon The horizon index.
+   * @param level The level, between 0 and 1.
+   * @return The loss quantile.
+   */
+  public double getLossQuantile(final int horizon, final double level) {
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0.0, 1.0, level), "level should be between 0 and 1; have {}", level);
+    final long[] count = _binCount[horizon];
+    final long target = Math.max(1L, (long) Math.ceil(level * _nbScenarios));
+    long cumulative = 0;
+    for (int loopbin = 0; loopbin < count.length; loopbin++) {
+      cumulative += count[loopbin];
+      if (cumulative >= target) {
+        return _binMaxLoss[horizon][loopbin];
+      }
+    }
+    return _binMaxLoss[horizon][count.length - 1];
+  }
+
+  /**
+   * Returns the probability that the loss of the portfolio at a horizon exceeds a level, up to the histogram resolution: the scenarios in
+   * the bin containing the level are counted when the largest loss of the bin exceeds the level.
+   * @param horizon The horizon index.
+   * @param loss The loss level.
+   * @return The probability.
+   */
+  public double getLossExceedanceProbability(final int horizon, final double loss) {
+    final long[] count = _binCount[horizon];
+    long exceed = 0;
+    for (int loopbin = count.length - 1; loopbin >= 0; loopbin--) {
+      if (count[loopbin] > 0 && _binMaxLoss[horizon][loopbin] <= loss) {
+        break;
+      }
+      exceed += count[loopbin];
+    }
+    return ((double) exceed) / _nbScenarios;
+  }
+
+  @Override
+  public String toString() {
+    final int last = _horizons.length - 1;
+    return "PortfolioLossDistribution[" + _nbScenarios + " scenarios, " + _horizons.length + " horizons, " + _attachments.length + " tranches, expected loss at "
+        + _horizons[last] + ": " + getExpectedLoss(last) + "]";
+  }
+
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurve;
+import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberStreams;
+import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
+import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Simulates the loss of a portfolio of obligors in a one-factor Gaussian copula model and computes the statistics of the loss
+ * distribution at a set of horizons, {@link PortfolioLossDistribution}.
+ * <p>
+ * In each scenario, the latent variable of obligor i is $X_i = \sqrt{\rho_i} M + \sqrt{1 - \rho_i} \epsilon_i$, with M and the $\epsilon_i$
+ * independent standard normal. The obligor defaults before the horizon h when $X_i$ is below $N^{-1}(p_{i,h})$, where $p_{i,h}$ is its
+ * cumulative default probability to h. The default times are discretised on the horizons: the thresholds are computed once, and a scenario
+ * only compares the latent variables with them, in primitive arrays.
+ * <p>
+ * The scenarios are divided in blocks of fixed size; block b draws its normal numbers from the stream b of the {@link RandomNumberStreams}.
+ * Each block accumulates its own statistics, without storing the scenarios, and the block statistics are merged in block order. The
+ * results are therefore the same whether the blocks are run in the calling thread or in parallel in a fork-join pool.
+ */
+public class PortfolioLossSimulationEngine {
+
+  /** The default number of scenarios in a block. */
+  public static final int DEFAULT_BLOCK_SIZE = 10000;
+  /** The standard normal distribution. */
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+
+  /** The streams of standard normal random numbers. */
+  private final RandomNumberStreams _numberStreams;
+  /** The number of scenarios. */
+  private final int _nbScenarios;
+  /** The number of scenarios in a block. */
+  private final int _blockSize;
+  /** The pool in which the blocks are run, null to run them in the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor with the default block size.
+   * @param numberStreams The streams of standard normal random numbers, not null.
+   * @param nbScenarios The number of scenarios, positive.
+   * @param pool The pool in which to run the blocks, null to run them in the calling thread.
+   */
+  public PortfolioLossSimulationEngine(final RandomNumberStreams numberStreams, final int nbScenarios, final ForkJoinPool pool) {
+    this(numberStreams, nbScenarios, DEFAULT_BLOCK_SIZE, pool);
+  }
+
+  /**
+   * Constructor.
+   * @param numberStreams The streams of standard normal random numbers, not null.
+   * @param nbScenarios The number of scenarios, positive.
+   * @param blockSize The number of scenarios in a block, positive. The results depend on the block size.
+   * @param pool The pool in which to run the blocks, null to run them in the calling thread.
+   */
+  public PortfolioLossSimulationEngine(final RandomNumberStreams numberStreams, final int nbScenarios, final int blockSize, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(numberStreams, "numberStreams");
+    ArgumentChecker.notNegativeOrZero(nbScenarios, "number of scenarios");
+    ArgumentChecker.notNegativeOrZero(blockSize, "block size");
+    _numberStreams = numberStreams;
+    _nbScenarios = nbScenarios;
+    _blockSize = blockSize;
+    _pool = pool;
+  }
+
+  /**
+   * Simulates the loss of a portfolio with the default probabilities given by credit curves.
+   * @param notionals The notional of each obligor, not null.
+   * @param recoveryRates The recovery rate of each obligor, not null.
+   * @param creditCurves The credit curve of each obligor, not null.
+   * @param correlations The correlation of each obligor with the common factor, between 0 and 1, not null.
+   * @param horizons The horizons, increasing, not null.
+   * @param attachments The tranche attachment points, as fractions of the total notional, not null.
+   * @param detachments The tranche detachment points, as fractions of the total notional, not null.
+   * @param nbBins The number of bins of the loss histograms, positive.
+   * @return The loss distribution.
+   */
+  public PortfolioLossDistribution simulate(final double[] notionals, final double[] recoveryRates, final ISDACompliantCreditCurve[] creditCurves, final double[] correlations,
+      final double[] horizons, final double[] attachments, final double[] detachments, final int nbBins) {
+    ArgumentChecker.noNulls(creditCurves, "creditCurves");
+    ArgumentChecker.notNull(horizons, "horizons");
+    final double[][] defaultProbabilities = new double[creditCurves.length][horizons.length];
+    for (int loopobl = 0; loopobl < creditCurves.length; loopobl++) {
+      for (int looph = 0; looph < horizons.length; looph++) {
+        defaultProbabilities[loopobl][looph] = 1.0 - creditCurves[loopobl].getSurvivalProbability(horizons[looph]);
+      }
+    }
+    return simulate(notionals, recoveryRates, defaultProbabilities, correlations, horizons, attachments, detachments, nbBins);
+  }
+
+  /**
+   * Simulates the loss of a portfolio.
+   * @param notionals The notional of each obligor, not null.
+   * @param recoveryRates The recovery rate of each obligor, not null.
+   * @param defaultProbabilities The cumulative default probability of each obligor to each horizon, non-decreasing with the horizon, not null.
+   * @param correlations The correlation of each obligor with the common factor, between 0 and 1, not null.
+   * @param horizons The horizons, increasing, not null.
+   * @param attachments The tranche attachment points, as fractions of the total notional, not null.
+   * @param detachments The tranche detachment points, as fractions of the total notional, not null.
+   * @param nbBins The number of bins of the loss histograms, positive.
+   * @return The loss distribution.
+   */
+  public PortfolioLossDistribution simulate(final double[] notionals, final double[] recoveryRates, final double[][] defaultProbabilities, final double[] correlations,
+      final double[] horizons, final double[] attachments, final double[] detachments, final int nbBins) {
+    ArgumentChecker.notNull(notionals, "notionals");
+    ArgumentChecker.notNull(recoveryRates, "recoveryRates");
+    ArgumentChecker.notNull(defaultProbabilities, "defaultProbabilities");
+    ArgumentChecker.notNull(correlations, "correlations");
+    ArgumentChecker.notEmpty(horizons, "horizons");
+    ArgumentChecker.notNull(attachments, "attachments");
+    ArgumentChecker.notNull(detachments, "detachments");
+    ArgumentChecker.notNegativeOrZero(nbBins, "number of bins");
+    final int nbObligors = notionals.length;
+    final int nbHorizons = horizons.length;
+    final int nbTranches = attachments.length;
+    ArgumentChecker.isTrue(recoveryRates.length == nbObligors, "recoveryRates length {} does not match number of obligors {}", recoveryRates.length, nbObligors);
+    ArgumentChecker.isTrue(defaultProbabilities.length == nbObligors, "defaultProbabilities length {} does not match number of obligors {}", defaultProbabilities.length,
+        nbObligors);
+    ArgumentChecker.isTrue(correlations.length == nbObligors, "correlations length {} does not match number of obligors {}", correlations.length, nbObligors);
+    ArgumentChecker.isTrue(detachments.length == nbTranches, "detachments length {} does not match attachments length {}", detachments.length, nbTranches);
+    for (int looph = 1; looph < nbHorizons; looph++) {
+      ArgumentChecker.isTrue(horizons[looph] > horizons[looph - 1], "horizons should be increasing");
+    }
+    final Model model = new Model(nbObligors, nbHorizons, nbTranches, nbBins);
+    double totalNotional = 0.0;
+    double maxLoss = 0.0;
+    for (int loopobl = 0; loopobl < nbObligors; loopobl++) {
+      ArgumentChecker.isTrue(correlations[loopobl] >= 0.0 && correlations[loopobl] <= 1.0, "correlation of obligor {} should be between 0 and 1", loopobl);
+      ArgumentChecker.isTrue(defaultProbabilities[loopobl].length == nbHorizons, "obligor {}: defaultProbabilities length does not match number of horizons", loopobl);
+      model._lossGivenDefault[loopobl] = notionals[loopobl] * (1.0 - recoveryRates[loopobl]);
+      model._factorWeight[loopobl] = Math.sqrt(correlations[loopobl]);
+      model._idiosyncraticWeight[loopobl] = Math.sqrt(1.0 - correlations[loopobl]);
+      for (int looph = 0; looph < nbHorizons; looph++) {
+        final double p = defaultProbabilities[loopobl][looph];
+        ArgumentChecker.isTrue(p >= 0.0 && p <= 1.0, "default probability of obligor {} should be between 0 and 1", loopobl);
+        ArgumentChecker.isTrue(looph == 0 || p >= defaultProbabilities[loopobl][looph - 1], "default probabilities of obligor {} should be non-decreasing", loopobl);
+        model._threshold[loopobl][looph] = threshold(p);
+      }
+      totalNotional += notionals[loopobl];
+      maxLoss += model._lossGivenDefault[loopobl];
+    }
+    for (int looptr = 0; looptr < nbTranches; looptr++) {
+      ArgumentChecker.isTrue(0.0 <= attachments[looptr] && attachments[looptr] < detachments[looptr] && detachments[looptr] <= 1.0,
+          "tranche {} should have 0 <= attachment < detachment <= 1", looptr);
+      model._attachment[looptr] = attachments[looptr] * totalNotional;
+      model._detachment[looptr] = detachments[looptr] * totalNotional;
+    }
+    model._binScale = maxLoss > 0.0 ? nbBins / maxLoss : 0.0;
+    // blocks
+    final int nbBlocks = (_nbScenarios + _blockSize - 1) / _blockSize;
+    final BlockStatistics[] blocks = new BlockStatistics[nbBlocks];
+    if (_pool == null) {
+      for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+        blocks[loopblock] = simulateBlock(loopblock, model);
+      }
+    } else {
+      _pool.invoke(new BlockAction(0, nbBlocks, model, blocks));
+    }
+    // merge in block order
+    final BlockStatistics total = new BlockStatistics(model);
+    for (final BlockStatistics block : blocks) {
+      total.merge(block);
+    }
+    for (int looph = 1; looph < nbHorizons; looph++) {
+      for (int loopobl = 0; loopobl < nbObligors; loopobl++) {
+        total._defaultCount[looph][loopobl] += total._defaultCount[looph - 1][loopobl];
+      }
+    }
+    return new PortfolioLossDistribution(_nbScenarios, horizons.clone(), model._attachment, model._detachment, total._lossSum, total._lossSquareSum,
+        total._trancheLossSum, total._defaultCount, total._binCount, total._binMaxLoss);
+  }
+
+  /**
+   * Returns the default threshold of the latent variable for a default probability.
+   * @param p The probability.
+   * @return The threshold.
+   */
+  private static double threshold(final double p) {
+    if (p <= 0.0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    if (p >= 1.0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return NORMAL.getInverseCDF(p);
+  }
+
+  /**
+   * Simulates the scenarios of one block.
+   * @param block The block index.
+   * @param model The model.
+   * @return The statistics of the block.
+   */
+  private BlockStatistics simulateBlock(final int block, final Model model) {
+    final int nbScenarios = Math.min(_blockSize, _nbScenarios - block * _blockSize);
+    final RandomNumberGenerator numberGenerator = _numberStreams.getStream(block);
+    final int nbObligors = model._lossGivenDefault.length;
+    final int nbHorizons = model._nbHorizons;
+    final int lastHorizon = nbHorizons - 1;
+    final BlockStatistics statistics = new BlockStatistics(model);
+    final double[] lossIncrement = new double[nbHorizons];
+    for (int loopsc = 0; loopsc < nbScenarios; loopsc++) {
+      final double[] z = numberGenerator.getVector(nbObligors + 1);
+      final double factor = z[0];
+      Arrays.fill(lossIncrement, 0.0);
+      for (int loopobl = 0; loopobl < nbObligors; loopobl++) {
+        final double x = model._factorWeight[loopobl] * factor + model._idiosyncraticWeight[loopobl] * z[loopobl + 1];
+        final double[] threshold = model._threshold[loopobl];
+        if (x < threshold[lastHorizon]) { // default before the last horizon
+          int horizon = 0;
+          while (x >= threshold[horizon]) {
+            horizon++;
+          }
+          lossIncrement[horizon] += model._lossGivenDefault[loopobl];
+          statistics._defaultCount[horizon][loopobl]++;
+        }
+      }
+      double loss = 0.0;
+      for (int looph = 0; looph < nbHorizons; looph++) {
+        loss += lossIncrement[looph];
+        statistics.add(looph, loss);
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * The portfolio description in primitive arrays.
+   */
+  private static final class Model {
+
+    private final int _nbHorizons;
+    private final int _nbBins;
+    private final double[] _lossGivenDefault;
+    private final double[] _factorWeight;
+    private final double[] _idiosyncraticWeight;
+    private final double[][] _threshold;
+    private final double[] _attachment;
+    private final double[] _detachment;
+    private double _binScale;
+
+    Model(final int nbObligors, final int nbHorizons, final int nbTranches, final int nbBins) {
+      _nbHorizons = nbHorizons;
+      _nbBins = nbBins;
+      _lossGivenDefault = new double[nbObligors];
+      _factorWeight = new double[nbObligors];
+      _idiosyncraticWeight = new double[nbObligors];
+      _threshold = new double[nbObligors][nbHorizons];
+      _attachment = new double[nbTranches];
+      _detachment = new double[nbTranches];
+    }
+  }
+
+  /**
+   * The statistics accumulated over the scenarios of a block.
+   */
+  private static final class BlockStatistics {
+
+    private final Model _model;
+    private final double[] _lossSum;
+    private final double[] _lossSquareSum;
+    private final double[][] _trancheLossSum;
+    /** The number of defaults, by first horizon after the default and obligor. */
+    private final long[][] _defaultCount;
+    private final long[][] _binCount;
+    private final double[][] _binMaxLoss;
+
+    BlockStatistics(final Model model) {
+      _model = model;
+      final int nbHorizons = model._nbHorizons;
+      _lossSum = new double[nbHorizons];
+      _lossSquareSum = new double[nbHorizons];
+      _trancheLossSum = new double[nbHorizons][model._attachment.length];
+      _defaultCount = new long[nbHorizons][model._lossGivenDefault.length];
+      _binCount = new long[nbHorizons][model._nbBins];
+      _binMaxLoss = new double[nbHorizons][model._nbBins];
+    }
+
+    void add(final int horizon, final double loss) {
+      _lossSum[horizon] += loss;
+      _lossSquareSum[horizon] += loss * loss;
+      final double[] trancheLossSum = _trancheLossSum[horizon];
+      for (int looptr = 0; looptr < trancheLossSum.length; looptr++) {
+        trancheLossSum[looptr] += Math.min(Math.max(loss - _model._attachment[looptr], 0.0), _model._detachment[looptr] - _model._attachment[looptr]);
+      }
+      final int bin = Math.min((int) (loss * _model._binScale), _model._nbBins - 1);
+      _binCount[horizon][bin]++;
+      if (loss > _binMaxLoss[horizon][bin]) {
+        _binMaxLoss[horizon][bin] = loss;
+      }
+    }
+
+    void merge(final BlockStatistics other) {
+      for (int looph = 0; looph < _lossSum.length; looph++) {
+        _lossSum[looph] += other._lossSum[looph];
+        _lossSquareSum[looph] += other._lossSquareSum[looph];
+        for (int looptr = 0; looptr < _trancheLossSum[looph].length; looptr++) {
+          _trancheLossSum[looph][looptr] += other._trancheLossSum[looph][looptr];
+        }
+        for (int loopobl = 0; loopobl < _defaultCount[looph].length; loopobl++) {
+          _defaultCount[looph][loopobl] += other._defaultCount[looph][loopobl];
+        }
+        for (int loopbin = 0; loopbin < _binCount[looph].length; loopbin++) {
+          _binCount[looph][loopbin] += other._binCount[looph][loopbin];
+          _binMaxLoss[looph][loopbin] = Math.max(_binMaxLoss[looph][loopbin], other._binMaxLoss[looph][loopbin]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs a range of blocks, splitting it in halves.
+   */
+  private final class BlockAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _fromBlock;
+    private final int _toBlock;
+    private final Model _model;
+    private final BlockStatistics[] _blocks;
+
+    BlockAction(final int fromBlock, final int toBlock, final Model model, final BlockStatistics[] blocks) {
+      _fromBlock = fromBlock;
+      _toBlock = toBlock;
+      _model = model;
+      _blocks = blocks;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toBlock - _fromBlock == 1) {
+        _blocks[_fromBlock] = simulateBlock(_fromBlock, _model);
+      } else {
+        final int mid = (_fromBlock + _toBlock) >>> 1;
+        invokeAll(new BlockAction(_fromBlock, mid, _model, _blocks), new BlockAction(mid, _toBlock, _model, _blocks));
+      }
+    }
+  }
+
+}
@@ -48,6 +48,11 @@ public class MultiCapFloorPricer {
   //this maps from a cap to a set of SimpleOptionData - the same thing can be achieved by using _capToCapletsMap on _capletsArray
   private final SimpleOptionData[][] _capToOptionsMap;
 
+  //the unique caplets as arrays, for the batched Black formulas
+  private final OptionArrays _caplets;
+  //the caplets of all the caps, cap after cap, as arrays
+  private final OptionArrays _capsCaplets;
+
   /**
    * 
    * @param caps List of cap or floors (as {@link CapFloor}). The order is not important and will be retained by methods
@@ -111,6 +116,69 @@ public class MultiCapFloorPricer {
         _capToOptionsMap[i][j] = _capletsArray[index];
       }
     }
+    _caplets = new OptionArrays(_capletsArray);
+    int nCapsCaplets = 0;
+    for (int i = 0; i < _nCaps; i++) {
+      nCapsCaplets += _capToOptionsMap[i].length;
+    }
+    SimpleOptionData[] capsCaplets = new SimpleOptionData[nCapsCaplets];
+    int pos = 0;
+    for (int i = 0; i < _nCaps; i++) {
+      System.arraycopy(_capToOptionsMap[i], 0, capsCaplets, pos, _capToOptionsMap[i].length);
+      pos += _capToOptionsMap[i].length;
+    }
+    _capsCaplets = new OptionArrays(capsCaplets);
+  }
+
+  /**
+   * A set of options stored as one array by property, the form used by the batched Black formulas of {@link BlackFormulaRepository}.
+   */
+  private static final class OptionArrays {
+    private final double[] _forward;
+    private final double[] _strike;
+    private final double[] _timeToExpiry;
+    private final double[] _discountFactor;
+    private final boolean[] _isCall;
+
+    OptionArrays(SimpleOptionData[] options) {
+      int n = options.length;
+      _forward = new double[n];
+      _strike = new double[n];
+      _timeToExpiry = new double[n];
+      _discountFactor = new double[n];
+      _isCall = new boolean[n];
+      for (int i = 0; i < n; i++) {
+        _forward[i] = options[i].getForward();
+        _strike[i] = options[i].getStrike();
+        _timeToExpiry[i] = options[i].getTimeToExpiry();
+        _discountFactor[i] = options[i].getDiscountFactor();
+        _isCall[i] = options[i].isCall();
+      }
+    }
+
+    /**
+     * The (discounted) prices of the options.
+     * @param vols The (Black) volatility of each option
+     * @param output The array receiving the prices
+     */
+    void price(double[] vols, double[] output) {
+      BlackFormulaRepository.price(_forward, _strike, _timeToExpiry, vols, _isCall, output);
+      for (int i = 0; i < output.length; i++) {
+        output[i] = _discountFactor[i] * output[i];
+      }
+    }
+
+    /**
+     * The (discounted) vegas of the options.
+     * @param vols The (Black) volatility of each option
+     * @param output The array receiving the vegas
+     */
+    void vega(double[] vols, double[] output) {
+      BlackFormulaRepository.vega(_forward, _strike, _timeToExpiry, vols, output);
+      for (int i = 0; i < output.length; i++) {
+        output[i] = _discountFactor[i] * output[i];
+      }
+    }
   }
 
   /**
@@ -166,9 +234,7 @@ public class MultiCapFloorPricer {
     ArgumentChecker.notEmpty(capletVols, "null caplet volatilities");
     ArgumentChecker.isTrue(_nCaplets == capletVols.length, "Expected {} caplet vols but given ", _nCaplets, capletVols.length);
     double[] capletPrices = new double[_nCaplets];
-    for (int i = 0; i < _nCaplets; i++) {
-      capletPrices[i] = BlackFormulaRepository.price(_capletsArray[i], capletVols[i]);
-    }
+    _caplets.price(capletVols, capletPrices);
     return priceFromCapletPrices(capletPrices);
   }
 
@@ -182,11 +248,9 @@ public class MultiCapFloorPricer {
   public double[] price(double[] capVolatilities) {
     ArgumentChecker.notEmpty(capVolatilities, "null cap volatilities");
     ArgumentChecker.isTrue(_nCaps == capVolatilities.length, "capVolatilities wrong length");
-    double[] res = new double[_nCaps];
-    for (int i = 0; i < _nCaps; i++) {
-      res[i] = BlackFormulaRepository.price(_capToOptionsMap[i], capVolatilities[i]);
-    }
-    return res;
+    double[] capletPrices = new double[_capsCaplets._forward.length];
+    _capsCaplets.price(capVolsByCaplet(capVolatilities), capletPrices);
+    return sumByCap(capletPrices);
   }
 
   /**
@@ -237,12 +301,41 @@ public class MultiCapFloorPricer {
   public double[] vega(double[] capVolatilities) {
     ArgumentChecker.notEmpty(capVolatilities, "null cap volatilities");
     ArgumentChecker.isTrue(_nCaps == capVolatilities.length, "capVolatilities wrong length");
+    double[] capletVega = new double[_capsCaplets._forward.length];
+    _capsCaplets.vega(capVolsByCaplet(capVolatilities), capletVega);
+    return sumByCap(capletVega);
+  }
+
+  /**
+   * Spread the volatility of each cap to its caplets.
+   * @param capVolatilities the cap/floor (Black) volatilities
+   * @return the volatilities of the caplets of all the caps, cap after cap
+   */
+  private double[] capVolsByCaplet(double[] capVolatilities) {
+    double[] vols = new double[_capsCaplets._forward.length];
+    int pos = 0;
+    for (int i = 0; i < _nCaps; i++) {
+      int n = _capToCapletsMap[i].length;
+      for (int j = 0; j < n; j++) {
+        vols[pos++] = capVolatilities[i];
+      }
+    }
+    return vols;
+  }
+
+  /**
+   * Sum the values of the caplets of each cap.
+   * @param capletValues the values of the caplets of all the caps, cap after cap
+   * @return the cap values
+   */
+  private double[] sumByCap(double[] capletValues) {
     double[] res = new double[_nCaps];
+    int pos = 0;
     for (int i = 0; i < _nCaps; i++) {
       int n = _capToCapletsMap[i].length;
       double sum = 0.0;
       for (int j = 0; j < n; j++) {
-        sum += BlackFormulaRepository.vega(_capToOptionsMap[i][j], capVolatilities[i]);
+        sum += capletValues[pos++];
       }
       res[i] = sum;
     }
@@ -260,9 +353,7 @@ public class MultiCapFloorPricer {
     ArgumentChecker.isTrue(_nCaplets == capletVols.length, "Expected {} caplet vols but given ", _nCaplets, capletVols.length);
 
     double[] capletVega = new double[_nCaplets];
-    for (int i = 0; i < _nCaplets; i++) {
-      capletVega[i] = BlackFormulaRepository.vega(_capletsArray[i], capletVols[i]);
-    }
+    _caplets.vega(capletVols, capletVega);
 
     DoubleMatrix2D jac = new DoubleMatrix2D(_nCaps, _nCaplets);
     for (int i = 0; i < _nCaps; i++) {
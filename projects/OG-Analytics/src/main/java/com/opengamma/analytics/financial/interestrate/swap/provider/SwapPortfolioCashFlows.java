@@ -0,0 +1,364 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate.swap.provider;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIbor;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIborSpread;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapMultileg;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+/**
+ * The cash flows of a portfolio of swaps and annuities compiled into primitive arrays, for the valuation of the whole portfolio in one pass
+ * by {@link SwapPortfolioDiscountingMethod}.
+ * <p>
+ * The legs made only of fixed payments, fixed coupons and Ibor coupons (with or without spread) in one currency are compiled. Each cash flow
+ * is described by a fixed amount, paid at the payment time, and for Ibor coupons a factor (notional times payment year fraction) applied to
+ * the forward rate of the fixing period. The times are not stored by cash flow: the distinct times of each discounting currency and of
+ * each Ibor index are sorted once, and the cash flows refer to them by index. The valuation computes the discount factors of each curve at
+ * all its times in one call, then values each cash flow without dispatch.
+ * <p>
+ * The instruments with a leg that cannot be compiled are kept as they are and valued by {@link com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator}.
+ * The object is immutable; it depends only on the instruments and can be valued with any number of curve providers.
+ */
+public final class SwapPortfolioCashFlows {
+
+  /** The instruments. */
+  private final InstrumentDerivative[] _instruments;
+  /** The index of the first leg of each instrument; the legs of instrument i are between _instrumentLegStart[i] and _instrumentLegStart[i + 1]. */
+  private final int[] _instrumentLegStart;
+  /** Whether each instrument is compiled. */
+  private final boolean[] _compiled;
+  /** The index of the first cash flow of each leg; the cash flows of leg i are between _legCashFlowStart[i] and _legCashFlowStart[i + 1]. */
+  private final int[] _legCashFlowStart;
+  /** The currency group of each leg. */
+  private final int[] _legCurrency;
+  /** The currencies of the discounting groups. */
+  private final Currency[] _currencies;
+  /** The sorted distinct payment times of each currency group. */
+  private final double[][] _discountingTimes;
+  /** The Ibor indexes of the forward groups. */
+  private final IborIndex[] _indexes;
+  /** The sorted distinct fixing period start and end times of each index group. */
+  private final double[][] _forwardTimes;
+  /** The index of the payment time of each cash flow in the times of the currency group of its leg. */
+  private final int[] _paymentTime;
+  /** The fixed amount of each cash flow: amount of fixed cash flows, spread amount of Ibor coupons. */
+  private final double[] _amount;
+  /** The forward group of each cash flow, -1 for fixed cash flows. */
+  private final int[] _forwardIndex;
+  /** The index of the fixing period start time of each Ibor cash flow in the times of its forward group. */
+  private final int[] _fixingStartTime;
+  /** The index of the fixing period end time of each Ibor cash flow in the times of its forward group. */
+  private final int[] _fixingEndTime;
+  /** The fixing period accrual factor of each Ibor cash flow. */
+  private final double[] _fixingAccrualFactor;
+  /** The factor (notional times payment year fraction) applied to the forward rate of each Ibor cash flow. */
+  private final double[] _forwardFactor;
+
+  /**
+   * Compiles the cash flows of a portfolio.
+   * @param instruments The instruments, not null.
+   * @return The compiled portfolio.
+   */
+  public static SwapPortfolioCashFlows from(final InstrumentDerivative... instruments) {
+    ArgumentChecker.noNulls(instruments, "instruments");
+    return new SwapPortfolioCashFlows(instruments);
+  }
+
+  /**
+   * Constructor.
+   * @param instruments The instruments.
+   */
+  private SwapPortfolioCashFlows(final InstrumentDerivative[] instruments) {
+    final int nbInstruments = instruments.length;
+    _instruments = instruments.clone();
+    _instrumentLegStart = new int[nbInstruments + 1];
+    _compiled = new boolean[nbInstruments];
+    final Map<Currency, Integer> currencies = new LinkedHashMap<>();
+    final Map<IborIndex, Integer> indexes = new LinkedHashMap<>();
+    final List<DoubleArrayList> discountingTimes = new ArrayList<>();
+    final List<DoubleArrayList> forwardTimes = new ArrayList<>();
+    final IntArrayList legCashFlowStart = new IntArrayList();
+    final IntArrayList legCurrency = new IntArrayList();
+    final DoubleArrayList paymentTime = new DoubleArrayList();
+    final DoubleArrayList amount = new DoubleArrayList();
+    final IntArrayList forwardIndex = new IntArrayList();
+    final DoubleArrayList fixingStartTime = new DoubleArrayList();
+    final DoubleArrayList fixingEndTime = new DoubleArrayList();
+    final DoubleArrayList fixingAccrualFactor = new DoubleArrayList();
+    final DoubleArrayList forwardFactor = new DoubleArrayList();
+    int nbLegs = 0;
+    for (int loopins = 0; loopins < nbInstruments; loopins++) {
+      _instrumentLegStart[loopins] = nbLegs;
+      final Annuity<?>[] legs = legs(instruments[loopins]);
+      if (legs == null) {
+        continue;
+      }
+      _compiled[loopins] = true;
+      for (final Annuity<?> leg : legs) {
+        final Currency ccy = leg.getNthPayment(0).getCurrency();
+        Integer ccyGroup = currencies.get(ccy);
+        if (ccyGroup == null) {
+          ccyGroup = currencies.size();
+          currencies.put(ccy, ccyGroup);
+          discountingTimes.add(new DoubleArrayList());
+        }
+        legCashFlowStart.add(paymentTime.size());
+        legCurrency.add(ccyGroup);
+        nbLegs++;
+        for (int looppay = 0; looppay < leg.getNumberOfPayments(); looppay++) {
+          final Payment payment = leg.getNthPayment(looppay);
+          paymentTime.add(payment.getPaymentTime());
+          discountingTimes.get(ccyGroup).add(payment.getPaymentTime());
+          if (payment.getClass() == PaymentFixed.class) {
+            addFixed(((PaymentFixed) payment).getAmount(), amount, forwardIndex, fixingStartTime, fixingEndTime, fixingAccrualFactor, forwardFactor);
+          } else if (payment.getClass() == CouponFixed.class) {
+            addFixed(((CouponFixed) payment).getAmount(), amount, forwardIndex, fixingStartTime, fixingEndTime, fixingAccrualFactor, forwardFactor);
+          } else if (payment.getClass() == CouponIbor.class) {
+            final CouponIbor coupon = (CouponIbor) payment;
+            amount.add(0.0);
+            forwardIndex.add(forwardGroup(coupon.getIndex(), indexes, forwardTimes, coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime()));
+            fixingStartTime.add(coupon.getFixingPeriodStartTime());
+            fixingEndTime.add(coupon.getFixingPeriodEndTime());
+            fixingAccrualFactor.add(coupon.getFixingAccrualFactor());
+            forwardFactor.add(coupon.getNotional() * coupon.getPaymentYearFraction());
+          } else {
+            final CouponIborSpread coupon = (CouponIborSpread) payment;
+            amount.add(coupon.getSpreadAmount());
+            forwardIndex.add(forwardGroup(coupon.getIndex(), indexes, forwardTimes, coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime()));
+            fixingStartTime.add(coupon.getFixingPeriodStartTime());
+            fixingEndTime.add(coupon.getFixingPeriodEndTime());
+            fixingAccrualFactor.add(coupon.getFixingAccrualFactor());
+            forwardFactor.add(coupon.getNotional() * coupon.getPaymentYearFraction());
+          }
+        }
+      }
+    }
+    _instrumentLegStart[nbInstruments] = nbLegs;
+    legCashFlowStart.add(paymentTime.size());
+    _legCashFlowStart = legCashFlowStart.toIntArray();
+    _legCurrency = legCurrency.toIntArray();
+    _currencies = currencies.keySet().toArray(new Currency[currencies.size()]);
+    _indexes = indexes.keySet().toArray(new IborIndex[indexes.size()]);
+    _discountingTimes = sortedDistinct(discountingTimes);
+    _forwardTimes = sortedDistinct(forwardTimes);
+    final int nbCashFlows = paymentTime.size();
+    _paymentTime = new int[nbCashFlows];
+    _fixingStartTime = new int[nbCashFlows];
+    _fixingEndTime = new int[nbCashFlows];
+    _forwardIndex = forwardIndex.toIntArray();
+    for (int loopleg = 0; loopleg < nbLegs; loopleg++) {
+      final double[] times = _discountingTimes[_legCurrency[loopleg]];
+      for (int loopcf = _legCashFlowStart[loopleg]; loopcf < _legCashFlowStart[loopleg + 1]; loopcf++) {
+        _paymentTime[loopcf] = Arrays.binarySearch(times, paymentTime.getDouble(loopcf));
+        if (_forwardIndex[loopcf] >= 0) {
+          final double[] fwdTimes = _forwardTimes[_forwardIndex[loopcf]];
+          _fixingStartTime[loopcf] = Arrays.binarySearch(fwdTimes, fixingStartTime.getDouble(loopcf));
+          _fixingEndTime[loopcf] = Arrays.binarySearch(fwdTimes, fixingEndTime.getDouble(loopcf));
+        }
+      }
+    }
+    _amount = amount.toDoubleArray();
+    _fixingAccrualFactor = fixingAccrualFactor.toDoubleArray();
+    _forwardFactor = forwardFactor.toDoubleArray();
+  }
+
+  /**
+   * Returns the legs of an instrument if all of them can be compiled, null otherwise.
+   * @param instrument The instrument.
+   * @return The legs.
+   */
+  private static Annuity<?>[] legs(final InstrumentDerivative instrument) {
+    final Annuity<?>[] legs;
+    if (instrument instanceof Swap) {
+      legs = new Annuity<?>[] {((Swap<?, ?>) instrument).getFirstLeg(), ((Swap<?, ?>) instrument).getSecondLeg() };
+    } else if (instrument instanceof SwapMultileg) {
+      legs = ((SwapMultileg) instrument).getLegs();
+    } else if (instrument instanceof Annuity) {
+      legs = new Annuity<?>[] {(Annuity<?>) instrument };
+    } else {
+      return null;
+    }
+    for (final Annuity<?> leg : legs) {
+      if (!isCompilable(leg)) {
+        return null;
+      }
+    }
+    return legs;
+  }
+
+  /**
+   * Checks if a leg is not empty and made only of the supported payments, in one currency.
+   * @param leg The leg.
+   * @return True if the leg can be compiled.
+   */
+  private static boolean isCompilable(final Annuity<?> leg) {
+    final int nbPayments = leg.getNumberOfPayments();
+    if (nbPayments == 0) {
+      return false;
+    }
+    final Currency ccy = leg.getNthPayment(0).getCurrency();
+    for (int looppay = 0; looppay < nbPayments; looppay++) {
+      final Payment payment = leg.getNthPayment(looppay);
+      final Class<?> type = payment.getClass();
+      if (!payment.getCurrency().equals(ccy)
+          || (type != PaymentFixed.class && type != CouponFixed.class && type != CouponIbor.class && type != CouponIborSpread.class)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addFixed(final double fixedAmount, final DoubleArrayList amount, final IntArrayList forwardIndex, final DoubleArrayList fixingStartTime,
+      final DoubleArrayList fixingEndTime, final DoubleArrayList fixingAccrualFactor, final DoubleArrayList forwardFactor) {
+    amount.add(fixedAmount);
+    forwardIndex.add(-1);
+    fixingStartTime.add(0.0);
+    fixingEndTime.add(0.0);
+    fixingAccrualFactor.add(0.0);
+    forwardFactor.add(0.0);
+  }
+
+  private static int forwardGroup(final IborIndex index, final Map<IborIndex, Integer> indexes, final List<DoubleArrayList> forwardTimes, final double startTime,
+      final double endTime) {
+    Integer group = indexes.get(index);
+    if (group == null) {
+      group = indexes.size();
+      indexes.put(index, group);
+      forwardTimes.add(new DoubleArrayList());
+    }
+    forwardTimes.get(group).add(startTime);
+    forwardTimes.get(group).add(endTime);
+    return group;
+  }
+
+  private static double[][] sortedDistinct(final List<DoubleArrayList> times) {
+    final double[][] result = new double[times.size()][];
+    for (int loopg = 0; loopg < result.length; loopg++) {
+      final double[] sorted = times.get(loopg).toDoubleArray();
+      Arrays.sort(sorted);
+      int nbDistinct = 0;
+      for (int loopt = 0; loopt < sorted.length; loopt++) {
+        if (nbDistinct == 0 || sorted[loopt] != sorted[nbDistinct - 1]) {
+          sorted[nbDistinct++] = sorted[loopt];
+        }
+      }
+      result[loopg] = Arrays.copyOf(sorted, nbDistinct);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of instruments.
+   * @return The number of instruments.
+   */
+  public int getNumberOfInstruments() {
+    return _instruments.length;
+  }
+
+  /**
+   * Returns an instrument.
+   * @param index The instrument index.
+   * @return The instrument.
+   */
+  public InstrumentDerivative getInstrument(final int index) {
+    return _instruments[index];
+  }
+
+  /**
+   * Returns whether an instrument is compiled; the instruments that are not compiled are valued by the calculators.
+   * @param index The instrument index.
+   * @return True if the instrument is compiled.
+   */
+  public boolean isCompiled(final int index) {
+    return _compiled[index];
+  }
+
+  /**
+   * Returns the number of compiled cash flows.
+   * @return The number of cash flows.
+   */
+  public int getNumberOfCashFlows() {
+    return _amount.length;
+  }
+
+  //-------------------------------------------------------------------------
+  // Package-private accessors to the arrays, used by the valuation without copy.
+
+  int[] getInstrumentLegStart() {
+    return _instrumentLegStart;
+  }
+
+  int[] getLegCashFlowStart() {
+    return _legCashFlowStart;
+  }
+
+  int[] getLegCurrency() {
+    return _legCurrency;
+  }
+
+  Currency[] getCurrencies() {
+    return _currencies;
+  }
+
+  double[][] getDiscountingTimes() {
+    return _discountingTimes;
+  }
+
+  IborIndex[] getIndexes() {
+    return _indexes;
+  }
+
+  double[][] getForwardTimes() {
+    return _forwardTimes;
+  }
+
+  int[] getPaymentTime() {
+    return _paymentTime;
+  }
+
+  double[] getAmount() {
+    return _amount;
+  }
+
+  int[] getForwardIndex() {
+    return _forwardIndex;
+  }
+
+  int[] getFixingStartTime() {
+    return _fixingStartTime;
+  }
+
+  int[] getFixingEndTime() {
+    return _fixingEndTime;
+  }
+
+  double[] getFixingAccrualFactor() {
+    return _fixingAccrualFactor;
+  }
+
+  double[] getForwardFactor() {
+    return _forwardFactor;
+  }
+
+}
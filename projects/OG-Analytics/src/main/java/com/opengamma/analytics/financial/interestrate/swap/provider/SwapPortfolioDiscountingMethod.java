@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate.swap.provider;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+/**
+ * Computes the present value by discounting of a portfolio of swaps and annuities compiled in {@link SwapPortfolioCashFlows}.
+ * <p>
+ * The discount factors of each discounting curve and each forward curve are computed once, at all the sorted times of the portfolio, with
+ * {@link com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve#getDiscountFactors(double[])}. The cash flows are
+ * then valued in one loop over primitive arrays, without visitor dispatch. The result for each instrument is the one of
+ * {@link PresentValueDiscountingCalculator}, with the same operations in the same order.
+ */
+public final class SwapPortfolioDiscountingMethod {
+
+  /**
+   * The method unique instance.
+   */
+  private static final SwapPortfolioDiscountingMethod INSTANCE = new SwapPortfolioDiscountingMethod();
+
+  /**
+   * Return the unique instance of the class.
+   * @return The instance.
+   */
+  public static SwapPortfolioDiscountingMethod getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Private constructor.
+   */
+  private SwapPortfolioDiscountingMethod() {
+  }
+
+  /**
+   * The calculator for the instruments that are not compiled.
+   */
+  private static final PresentValueDiscountingCalculator PVDC = PresentValueDiscountingCalculator.getInstance();
+
+  /**
+   * Computes the present value of each instrument of a portfolio.
+   * @param portfolio The compiled portfolio.
+   * @param multicurves The multi-curve provider.
+   * @return The present values, in the order of the instruments.
+   */
+  public MultipleCurrencyAmount[] presentValue(final SwapPortfolioCashFlows portfolio, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.notNull(portfolio, "portfolio");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    final double[] legPv = presentValueLegs(portfolio, multicurves);
+    final int[] instrumentLegStart = portfolio.getInstrumentLegStart();
+    final int[] legCurrency = portfolio.getLegCurrency();
+    final Currency[] currencies = portfolio.getCurrencies();
+    final int nbInstruments = portfolio.getNumberOfInstruments();
+    final MultipleCurrencyAmount[] pv = new MultipleCurrencyAmount[nbInstruments];
+    for (int loopins = 0; loopins < nbInstruments; loopins++) {
+      if (!portfolio.isCompiled(loopins)) {
+        pv[loopins] = portfolio.getInstrument(loopins).accept(PVDC, multicurves);
+        continue;
+      }
+      final int firstLeg = instrumentLegStart[loopins];
+      MultipleCurrencyAmount pvInstrument = MultipleCurrencyAmount.of(currencies[legCurrency[firstLeg]], legPv[firstLeg]);
+      for (int loopleg = firstLeg + 1; loopleg < instrumentLegStart[loopins + 1]; loopleg++) {
+        pvInstrument = pvInstrument.plus(currencies[legCurrency[loopleg]], legPv[loopleg]);
+      }
+      pv[loopins] = pvInstrument;
+    }
+    return pv;
+  }
+
+  /**
+   * Computes the present value of the portfolio, i.e. the sum of the present values of the instruments.
+   * @param portfolio The compiled portfolio.
+   * @param multicurves The multi-curve provider.
+   * @return The present value.
+   */
+  public MultipleCurrencyAmount presentValueTotal(final SwapPortfolioCashFlows portfolio, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.notNull(portfolio, "portfolio");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    final double[] legPv = presentValueLegs(portfolio, multicurves);
+    final int[] legCurrency = portfolio.getLegCurrency();
+    final Currency[] currencies = portfolio.getCurrencies();
+    final double[] total = new double[currencies.length];
+    for (int loopleg = 0; loopleg < legPv.length; loopleg++) {
+      total[legCurrency[loopleg]] += legPv[loopleg];
+    }
+    MultipleCurrencyAmount pv = MultipleCurrencyAmount.of(currencies, total);
+    for (int loopins = 0; loopins < portfolio.getNumberOfInstruments(); loopins++) {
+      if (!portfolio.isCompiled(loopins)) {
+        pv = pv.plus(portfolio.getInstrument(loopins).accept(PVDC, multicurves));
+      }
+    }
+    return pv;
+  }
+
+  /**
+   * Computes the present value of each compiled leg, in the currency of the leg.
+   * @param portfolio The compiled portfolio.
+   * @param multicurves The multi-curve provider.
+   * @return The present values of the legs.
+   */
+  private static double[] presentValueLegs(final SwapPortfolioCashFlows portfolio, final MulticurveProviderDiscount multicurves) {
+    final Currency[] currencies = portfolio.getCurrencies();
+    final double[][] discountingTimes = portfolio.getDiscountingTimes();
+    final double[][] discountFactors = new double[currencies.length][];
+    for (int loopccy = 0; loopccy < currencies.length; loopccy++) {
+      discountFactors[loopccy] = multicurves.getCurve(currencies[loopccy]).getDiscountFactors(discountingTimes[loopccy]);
+    }
+    final IborIndex[] indexes = portfolio.getIndexes();
+    final double[][] forwardTimes = portfolio.getForwardTimes();
+    final double[][] forwardDiscountFactors = new double[indexes.length][];
+    for (int loopidx = 0; loopidx < indexes.length; loopidx++) {
+      forwardDiscountFactors[loopidx] = multicurves.getCurve(indexes[loopidx]).getDiscountFactors(forwardTimes[loopidx]);
+    }
+    final int[] legCashFlowStart = portfolio.getLegCashFlowStart();
+    final int[] legCurrency = portfolio.getLegCurrency();
+    final int[] paymentTime = portfolio.getPaymentTime();
+    final double[] amount = portfolio.getAmount();
+    final int[] forwardIndex = portfolio.getForwardIndex();
+    final int[] fixingStartTime = portfolio.getFixingStartTime();
+    final int[] fixingEndTime = portfolio.getFixingEndTime();
+    final double[] fixingAccrualFactor = portfolio.getFixingAccrualFactor();
+    final double[] forwardFactor = portfolio.getForwardFactor();
+    final int nbLegs = legCurrency.length;
+    final double[] legPv = new double[nbLegs];
+    for (int loopleg = 0; loopleg < nbLegs; loopleg++) {
+      final double[] df = discountFactors[legCurrency[loopleg]];
+      double pv = 0.0;
+      for (int loopcf = legCashFlowStart[loopleg]; loopcf < legCashFlowStart[loopleg + 1]; loopcf++) {
+        final int index = forwardIndex[loopcf];
+        if (index < 0) {
+          pv += amount[loopcf] * df[paymentTime[loopcf]];
+        } else {
+          final double[] dfForward = forwardDiscountFactors[index];
+          final double forward = (dfForward[fixingStartTime[loopcf]] / dfForward[fixingEndTime[loopcf]] - 1) / fixingAccrualFactor[loopcf];
+          pv += (forwardFactor[loopcf] * forward + amount[loopcf]) * df[paymentTime[loopcf]];
+        }
+      }
+      legPv[loopleg] = pv;
+    }
+    return legPv;
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Applies an operation to independent lines of the grid of an alternating direction implicit (ADI) scheme, in the calling thread or in
+ * parallel in a fork-join pool.
+ * <p>
+ * The lines are divided in as many contiguous chunks as the parallelism of the pool, and each chunk uses its own {@link ADILineSystem},
+ * allocated once when the sweeper is created. As the lines are independent, the results do not depend on the pool.
+ */
+final class ADILineSweeper {
+
+  /**
+   * An operation on one line of the grid.
+   */
+  abstract static class LineOperation {
+
+    /**
+     * Applies the operation to a line.
+     * @param line The line index.
+     * @param system The linear system to use for the line.
+     */
+    abstract void apply(int line, ADILineSystem system);
+  }
+
+  /** The pool in which the chunks are run, null to run them in the calling thread. */
+  private final ForkJoinPool _pool;
+  /** The linear systems, one by chunk. */
+  private final ADILineSystem[] _systems;
+
+  /**
+   * Creates a sweeper.
+   * @param pool The pool in which to run the chunks, null to run them in the calling thread.
+   * @param maxSteps The largest number of steps of a line.
+   */
+  ADILineSweeper(final ForkJoinPool pool, final int maxSteps) {
+    _pool = pool;
+    final int nbChunks = (pool == null ? 1 : pool.getParallelism());
+    _systems = new ADILineSystem[nbChunks];
+    for (int loopchunk = 0; loopchunk < nbChunks; loopchunk++) {
+      _systems[loopchunk] = new ADILineSystem(maxSteps);
+    }
+  }
+
+  /**
+   * Applies an operation to a range of lines.
+   * @param fromLine The first line, inclusive.
+   * @param toLine The last line, exclusive.
+   * @param operation The operation.
+   */
+  void sweep(final int fromLine, final int toLine, final LineOperation operation) {
+    if (_systems.length == 1 || toLine - fromLine < 2) {
+      for (int line = fromLine; line < toLine; line++) {
+        operation.apply(line, _systems[0]);
+      }
+    } else {
+      _pool.invoke(new SweepAction(0, _systems.length, fromLine, toLine, operation));
+    }
+  }
+
+  /**
+   * Runs a range of chunks, splitting it in halves.
+   */
+  private final class SweepAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _fromChunk;
+    private final int _toChunk;
+    private final int _fromLine;
+    private final int _toLine;
+    private final LineOperation _operation;
+
+    SweepAction(final int fromChunk, final int toChunk, final int fromLine, final int toLine, final LineOperation operation) {
+      _fromChunk = fromChunk;
+      _toChunk = toChunk;
+      _fromLine = fromLine;
+      _toLine = toLine;
+      _operation = operation;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toChunk - _fromChunk == 1) {
+        final int nbLines = _toLine - _fromLine;
+        final int nbChunks = _systems.length;
+        final int start = _fromLine + (int) (((long) _fromChunk * nbLines) / nbChunks);
+        final int end = _fromLine + (int) (((long) _toChunk * nbLines) / nbChunks);
+        final ADILineSystem system = _systems[_fromChunk];
+        for (int line = start; line < end; line++) {
+          _operation.apply(line, system);
+        }
+      } else {
+        final int mid = (_fromChunk + _toChunk) >>> 1;
+        invokeAll(new SweepAction(_fromChunk, mid, _fromLine, _toLine, _operation), new SweepAction(mid, _toChunk, _fromLine, _toLine, _operation));
+      }
+    }
+  }
+
+}
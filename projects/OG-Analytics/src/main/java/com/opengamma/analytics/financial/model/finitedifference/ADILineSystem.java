@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import java.util.Arrays;
+
+/**
+ * The linear system of one line of an alternating direction implicit (ADI) scheme, solved by SOR. The interior rows of the system are
+ * tri-diagonal; the first and last rows are set by the boundary conditions and are stored in full.
+ * <p>
+ * The arrays are allocated once, for the largest line, and reused for every line and time step. A system must only be used by one thread
+ * at a time.
+ */
+final class ADILineSystem {
+
+  /** The sub-diagonal of the interior rows, by row. */
+  private final double[] _lower;
+  /** The diagonal of the interior rows, by row. */
+  private final double[] _diagonal;
+  /** The super-diagonal of the interior rows, by row. */
+  private final double[] _upper;
+  /** The first row. */
+  private final double[] _firstRow;
+  /** The last row. */
+  private final double[] _lastRow;
+  /** The right-hand side. */
+  private final double[] _rhs;
+  /** A buffer for the values of a line that is not contiguous in the grid. */
+  private final double[] _line;
+
+  /**
+   * Creates a system.
+   * @param maxSteps The largest number of steps of a line, i.e. the number of nodes minus one.
+   */
+  ADILineSystem(final int maxSteps) {
+    _lower = new double[maxSteps + 1];
+    _diagonal = new double[maxSteps + 1];
+    _upper = new double[maxSteps + 1];
+    _firstRow = new double[maxSteps + 1];
+    _lastRow = new double[maxSteps + 1];
+    _rhs = new double[maxSteps + 1];
+    _line = new double[maxSteps + 1];
+  }
+
+  /**
+   * Sets an interior row.
+   * @param row The row index.
+   * @param lower The sub-diagonal element.
+   * @param diagonal The diagonal element.
+   * @param upper The super-diagonal element.
+   */
+  void setRow(final int row, final double lower, final double diagonal, final double upper) {
+    _lower[row] = lower;
+    _diagonal[row] = diagonal;
+    _upper[row] = upper;
+  }
+
+  /**
+   * Sets the first and last rows from the left matrix conditions of the boundaries.
+   * @param steps The number of steps of the line.
+   * @param lowerCondition The lower boundary condition, applied from the first node.
+   * @param upperCondition The upper boundary condition, applied from the last node backward.
+   */
+  void setBoundaryRows(final int steps, final double[] lowerCondition, final double[] upperCondition) {
+    Arrays.fill(_firstRow, 0, steps + 1, 0.0);
+    Arrays.fill(_lastRow, 0, steps + 1, 0.0);
+    for (int k = 0; k < lowerCondition.length; k++) {
+      _firstRow[k] = lowerCondition[k];
+    }
+    for (int k = 0; k < upperCondition.length; k++) {
+      _lastRow[steps - k] = upperCondition[k];
+    }
+  }
+
+  /**
+   * Sets an element of the right-hand side.
+   * @param row The row index.
+   * @param value The value.
+   */
+  void setRhs(final int row, final double value) {
+    _rhs[row] = value;
+  }
+
+  /**
+   * Copies a column of a grid, i.e. a line in the first dimension, to the line buffer.
+   * @param grid The grid.
+   * @param column The column index.
+   * @param steps The number of steps of the line.
+   * @return The line buffer.
+   */
+  double[] gatherColumn(final double[][] grid, final int column, final int steps) {
+    for (int l = 0; l <= steps; l++) {
+      _line[l] = grid[l][column];
+    }
+    return _line;
+  }
+
+  /**
+   * Copies the line buffer to a column of a grid.
+   * @param grid The grid.
+   * @param column The column index.
+   * @param steps The number of steps of the line.
+   */
+  void scatterColumn(final double[][] grid, final int column, final int steps) {
+    for (int l = 0; l <= steps; l++) {
+      grid[l][column] = _line[l];
+    }
+  }
+
+  /**
+   * Solves the system by successive over-relaxation, starting from and updating the given values.
+   * @param x The values, updated in place.
+   * @param steps The number of steps of the line.
+   * @param omega The relaxation parameter.
+   * @param maxIterations The maximum number of iterations.
+   * @return The number of iterations.
+   */
+  int sor(final double[] x, final int steps, final double omega, final int maxIterations) {
+    double sum;
+    int count = 0;
+    double scale = 1.0;
+    double errorSqr = Double.POSITIVE_INFINITY;
+    while (errorSqr / (scale + 1e-10) > 1e-18 && count < maxIterations) {
+      errorSqr = 0.0;
+      scale = 0.0;
+      for (int l = 0; l <= steps; l++) {
+        final double diagonal;
+        sum = 0;
+        if (l == 0 || l == steps) {
+          final double[] row = (l == 0 ? _firstRow : _lastRow);
+          for (int k = 0; k <= steps; k++) {
+            sum += row[k] * x[k];
+          }
+          diagonal = row[l];
+        } else { // interior rows are tri-diagonal so only need 3 steps here
+          sum += _lower[l] * x[l - 1];
+          sum += _diagonal[l] * x[l];
+          sum += _upper[l] * x[l + 1];
+          diagonal = _diagonal[l];
+        }
+        final double correction = omega / diagonal * (_rhs[l] - sum);
+        errorSqr += correction * correction;
+        x[l] += correction;
+        scale += x[l] * x[l];
+      }
+      count++;
+    }
+    return count;
+  }
+
+}
@@ -5,14 +5,19 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.analytics.financial.model.finitedifference.ADILineSweeper.LineOperation;
 import com.opengamma.analytics.math.cube.Cube;
 
 /**
  * Craig-Sneyd splitting
  * <b>Note</b> this is for testing purposes and is not recommended for actual use
- *
+ * <p>
+ * The lines of each stage are independent; they can be solved in parallel in a fork-join pool, each thread reusing its own
+ * linear system.
  */
 @SuppressWarnings("deprecation")
 public class CraigSneydFiniteDifference2D implements ConvectionDiffusionPDESolver2D {
@@ -20,6 +25,26 @@ public class CraigSneydFiniteDifference2D implements ConvectionDiffusionPDESolve
   // private static final Decomposition<?> DCOMP = new LUDecompositionCommons();
   // Theta = 0 - explicit
   private static final double THETA = 0.5;
+  private static final double OMEGA = 1.5;
+  private static final int SOR_MAX = 1000;
+
+  /** The pool in which the lines are solved, null to solve them in the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Solves the lines in the calling thread.
+   */
+  public CraigSneydFiniteDifference2D() {
+    this(null);
+  }
+
+  /**
+   * Solves the independent lines of each stage in parallel.
+   * @param pool The pool in which to solve the lines, null to solve them in the calling thread.
+   */
+  public CraigSneydFiniteDifference2D(final ForkJoinPool pool) {
+    _pool = pool;
+  }
 
   @Override
   public double[][] solve(final ConvectionDiffusion2DPDEDataBundle pdeData, final int tSteps, final int xSteps, final int ySteps, final double tMax, final BoundaryCondition2D xLowerBoundary,
@@ -46,45 +71,45 @@ public class CraigSneydFiniteDifference2D implements ConvectionDiffusionPDESolve
     final double[] x = new double[xSteps + 1];
     final double[] y = new double[ySteps + 1];
 
-    final double[] q = new double[xSteps + 1];
-    final double[] r = new double[ySteps + 1];
-    final double[][] mx = new double[xSteps + 1][xSteps + 1];
-    final double[][] my = new double[ySteps + 1][ySteps + 1];
+    final ADILineSweeper sweeper = new ADILineSweeper(_pool, Math.max(xSteps, ySteps));
     initializeMatrices(pdeData, xSteps, ySteps, xLowerBoundary, yLowerBoundary, dx, dy, v, x, y);
 
     double t = 0.0;
-    double a, b, c, d, e, f;
 
     for (int n = 0; n < tSteps; n++) {
 
       // stag 1 full Explicit
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          e = pdeData.getE(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          vt[i][j] = (1 - dt * (1 - 0.5 * THETA) * c) * v[i][j];
-          vt[i][j] -= dtdx2 * a * (1 - THETA) * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
-          vt[i][j] -= 0.5 * dtdx * b * (1 - THETA) * (v[i + 1][j] - v[i - 1][j]);
-          vt[i][j] -= dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
-          // upwind
-          // if (f > 0) {
-          // vt[i][j] -= dtdy * f * (v[i][j] - v[i][j - 1]);
-          // } else if (f < 0) {
-          // vt[i][j] -= dtdy * f * (v[i][j + 1] - v[i][j]);
-          // }
-          vt[i][j] -= 0.5 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
-          vt[i][j] -= 0.25 * dtdxdy * e * (v[i + 1][j + 1] + v[i - 1][j - 1] - v[i + 1][j - 1] - v[i - 1][j + 1]);
-        }
+      final double tStart = t;
+      sweeper.sweep(1, xSteps, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
+            final double a = pdeData.getA(tStart, x[i], y[j]);
+            final double b = pdeData.getB(tStart, x[i], y[j]);
+            final double c = pdeData.getC(tStart, x[i], y[j]);
+            final double d = pdeData.getD(tStart, x[i], y[j]);
+            final double e = pdeData.getE(tStart, x[i], y[j]);
+            final double f = pdeData.getF(tStart, x[i], y[j]);
+
+            vt[i][j] = (1 - dt * (1 - 0.5 * THETA) * c) * v[i][j];
+            vt[i][j] -= dtdx2 * a * (1 - THETA) * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
+            vt[i][j] -= 0.5 * dtdx * b * (1 - THETA) * (v[i + 1][j] - v[i - 1][j]);
+            vt[i][j] -= dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
+            // upwind
+            // if (f > 0) {
+            // vt[i][j] -= dtdy * f * (v[i][j] - v[i][j - 1]);
+            // } else if (f < 0) {
+            // vt[i][j] -= dtdy * f * (v[i][j + 1] - v[i][j]);
+            // }
+            vt[i][j] -= 0.5 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+            vt[i][j] -= 0.25 * dtdxdy * e * (v[i + 1][j + 1] + v[i - 1][j - 1] - v[i + 1][j - 1] - v[i - 1][j + 1]);
+          }
 
-        // really not sure what to do with boundary conditions in these intermediate steps
-        vt[i][0] = v[i][0];
-        vt[i][ySteps] = v[i][ySteps];
-      }
+          // really not sure what to do with boundary conditions in these intermediate steps
+          vt[i][0] = v[i][0];
+          vt[i][ySteps] = v[i][ySteps];
+        }
+      });
 
       // for (int i = 0; i <= xSteps; i++) {
       // double[] temp = yLowerBoundary.getRightMatrixCondition(pdeData, t, x[i]);
@@ -144,213 +169,118 @@ public class CraigSneydFiniteDifference2D implements ConvectionDiffusionPDESolve
 
       // stag 2 implicit in x
       t += dt / 2;
-      for (int j = 0; j <= ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          mx[i][i - 1] = THETA * (dtdx2 * a - 0.5 * dtdx * b);
-          mx[i][i] = 1 + THETA * (-2 * dtdx2 * a + 0.5 * dt * c);
-          mx[i][i + 1] = THETA * (dtdx2 * a + 0.5 * dtdx * b);
-
-          q[i] = vt[i][j];
-        }
+      final double tHalf = t;
+      sweeper.sweep(0, ySteps + 1, new LineOperation() {
+        @Override
+        void apply(final int j, final ADILineSystem system) {
+          for (int i = 1; i < xSteps; i++) {
+            final double a = pdeData.getA(tHalf, x[i], y[j]);
+            final double b = pdeData.getB(tHalf, x[i], y[j]);
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+            system.setRow(i, THETA * (dtdx2 * a - 0.5 * dtdx * b), 1 + THETA * (-2 * dtdx2 * a + 0.5 * dt * c), THETA * (dtdx2 * a + 0.5 * dtdx * b));
+            system.setRhs(i, vt[i][j]);
+          }
+          system.setBoundaryRows(xSteps, xLowerBoundary.getLeftMatrixCondition(tHalf, y[j]), xUpperBoundary.getLeftMatrixCondition(tHalf, y[j]));
 
-        double[] temp = xLowerBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[0][k] = temp[k];
-        }
-        temp = xUpperBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[xSteps][xSteps - k] = temp[k];
-        }
+          double[] temp = xLowerBoundary.getRightMatrixCondition(tHalf, y[j]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[k][j];
+          }
+          system.setRhs(0, sum + xLowerBoundary.getConstant(tHalf, y[j], dx));
 
-        temp = xLowerBoundary.getRightMatrixCondition(t, y[j]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[k][j];
-        }
-        q[0] = sum + xLowerBoundary.getConstant(t, y[j], dx);
+          temp = xUpperBoundary.getRightMatrixCondition(tHalf, y[j]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[xSteps - k][j];
+          }
+          system.setRhs(xSteps, sum + xUpperBoundary.getConstant(tHalf, y[j], dx));
 
-        temp = xUpperBoundary.getRightMatrixCondition(t, y[j]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[xSteps - k][j];
+          // SOR
+          final int count = system.sor(system.gatherColumn(vt, j, xSteps), xSteps, OMEGA, SOR_MAX);
+          system.scatterColumn(vt, j, xSteps);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max iterations");
         }
-        q[xSteps] = sum + xUpperBoundary.getConstant(t, y[j], dx);
-
-        // SOR
-        final double omega = 1.5;
-        final int count = sor(xSteps, vt, q, mx, j, omega);
-        Validate.isTrue(count < 1000, "SOR exceeded max iterations");
-      }
+      });
 
       // stag 3 explicit in y
-      for (int i = 0; i <= xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          vt[i][j] += THETA * 0.5 * dt * c * v[i][j];
-          vt[i][j] += THETA * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
-
-          // upwind
-          // if (f > 0) {
-          // vt[i][j] += THETA * dtdy * f * (v[i][j] - v[i][j - 1]);
-          // } else if (f < 0) {
-          // vt[i][j] += THETA * dtdy * f * (v[i][j + 1] - v[i][j]);
-          // }
-          vt[i][j] += THETA * 0.5 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+      sweeper.sweep(0, xSteps + 1, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
+
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+            final double d = pdeData.getD(tHalf, x[i], y[j]);
+            final double f = pdeData.getF(tHalf, x[i], y[j]);
+
+            vt[i][j] += THETA * 0.5 * dt * c * v[i][j];
+            vt[i][j] += THETA * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
+
+            // upwind
+            // if (f > 0) {
+            // vt[i][j] += THETA * dtdy * f * (v[i][j] - v[i][j - 1]);
+            // } else if (f < 0) {
+            // vt[i][j] += THETA * dtdy * f * (v[i][j + 1] - v[i][j]);
+            // }
+            vt[i][j] += THETA * 0.5 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+          }
         }
-
-        // double[] temp = yLowerBoundary.getRightMatrixCondition(pdeData, t, x[i]);
-        // double sum = 0;
-        // for (int k = 0; k < temp.length; k++) {
-        // sum += temp[k] * v[i][k];
-        // }
-        // sum += yLowerBoundary.getConstant(pdeData, t, x[i], dy);
-        //
-        // temp = yLowerBoundary.getLeftMatrixCondition(pdeData, t, x[i]);
-        // for (int k = 1; k < temp.length; k++) {
-        // sum -= temp[k] * vt[i][k];
-        // }
-        // vt[i][0] = sum / temp[0];
-        //
-        // temp = yUpperBoundary.getRightMatrixCondition(pdeData, t, x[i]);
-        // sum = 0;
-        // for (int k = 0; k < temp.length; k++) {
-        // sum += temp[k] * v[i][ySteps - k];
-        // }
-        // sum += yUpperBoundary.getConstant(pdeData, t, x[i], dy);
-        //
-        // temp = yUpperBoundary.getLeftMatrixCondition(pdeData, t, x[i]);
-        // for (int k = 1; k < temp.length; k++) {
-        // sum -= temp[k] * vt[i][ySteps - k];
-        // }
-        // vt[i][ySteps] = sum / temp[0];
-      }
+      });
 
       // The y = 0 and y = yStep boundary values are assumed the same as the previous sub-step
       // Again we could apply the y boundary conditions here
 
       // stag 4 implicit in y
-      for (int i = 0; i <= xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          // upwind
-          // if (f > 0) {
-          // my[j][j - 1] = THETA * (dtdy2 * d - dtdy * f);
-          // my[j][j] = 1 + THETA * (-2 * dtdy2 * d + dtdy * f + 0.5 * dt * c);
-          // my[j][j + 1] = THETA * (dtdy2 * d);
-          // } else if (f < 0) {
-          // my[j][j - 1] = THETA * (dtdy2 * d);
-          // my[j][j] = 1 + THETA * (-2 * dtdy2 * d - dtdy * f + 0.5 * dt * c);
-          // my[j][j + 1] = THETA * (dtdy2 * d + dtdy * f);
-          // }
-          my[j][j - 1] = THETA * (dtdy2 * d - 0.5 * dtdy * f);
-          my[j][j] = 1 + THETA * (-2 * dtdy2 * d + 0.5 * dt * c);
-          my[j][j + 1] = THETA * (dtdy2 * d + 0.5 * dtdy * f);
-
-          r[j] = vt[i][j];
-        }
-
-        double[] temp = yLowerBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[0][k] = temp[k];
-        }
-        temp = yUpperBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[ySteps][ySteps - k] = temp[k];
-        }
+      sweeper.sweep(0, xSteps + 1, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
+
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+            final double d = pdeData.getD(tHalf, x[i], y[j]);
+            final double f = pdeData.getF(tHalf, x[i], y[j]);
+
+            // upwind
+            // if (f > 0) {
+            // my[j][j - 1] = THETA * (dtdy2 * d - dtdy * f);
+            // my[j][j] = 1 + THETA * (-2 * dtdy2 * d + dtdy * f + 0.5 * dt * c);
+            // my[j][j + 1] = THETA * (dtdy2 * d);
+            // } else if (f < 0) {
+            // my[j][j - 1] = THETA * (dtdy2 * d);
+            // my[j][j] = 1 + THETA * (-2 * dtdy2 * d - dtdy * f + 0.5 * dt * c);
+            // my[j][j + 1] = THETA * (dtdy2 * d + dtdy * f);
+            // }
+            system.setRow(j, THETA * (dtdy2 * d - 0.5 * dtdy * f), 1 + THETA * (-2 * dtdy2 * d + 0.5 * dt * c), THETA * (dtdy2 * d + 0.5 * dtdy * f));
+            system.setRhs(j, vt[i][j]);
+          }
+          system.setBoundaryRows(ySteps, yLowerBoundary.getLeftMatrixCondition(tHalf, x[i]), yUpperBoundary.getLeftMatrixCondition(tHalf, x[i]));
 
-        temp = yLowerBoundary.getRightMatrixCondition(t, x[i]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][k];
-        }
-        r[0] = sum + yLowerBoundary.getConstant(t, x[i], dy);
+          double[] temp = yLowerBoundary.getRightMatrixCondition(tHalf, x[i]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[i][k];
+          }
+          system.setRhs(0, sum + yLowerBoundary.getConstant(tHalf, x[i], dy));
 
-        temp = yUpperBoundary.getRightMatrixCondition(t, x[i]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][ySteps - k];
-        }
-        r[ySteps] = sum + yUpperBoundary.getConstant(t, x[i], dy);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          int min, max;
-          for (int l = 0; l <= ySteps; l++) {
-            min = (l == ySteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? ySteps : Math.min(ySteps, l + 1));
-            sum = 0;
-            // for (int k = 0; k <= ySteps; k++) {
-            for (int k = min; k <= max; k++) {
-              sum += my[l][k] * v[i][k];
-            }
-            final double correction = omega / my[l][l] * (r[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[i][l] += correction;
-            scale += v[i][l] * v[i][l];
+          temp = yUpperBoundary.getRightMatrixCondition(tHalf, x[i]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[i][ySteps - k];
           }
-          count++;
+          system.setRhs(ySteps, sum + yUpperBoundary.getConstant(tHalf, x[i], dy));
+
+          // SOR
+          final int count = system.sor(v[i], ySteps, OMEGA, SOR_MAX);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
         }
-        Validate.isTrue(count < 1000, "SOR exceeded max interations");
-      }
+      });
 
     } // time loop
     return v;
 
   }
 
-  // TODO there is almost identical code lines 297-319
-  private int sor(final int steps, final double[][] v, final double[] q, final double[][] mx, final int j, final double omega) {
-    double sum;
-    int min;
-    int max;
-    int count = 0;
-    double scale = 1.0;
-    double errorSqr = Double.POSITIVE_INFINITY;
-    while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-      errorSqr = 0.0;
-      scale = 0.0;
-      for (int l = 0; l <= steps; l++) {
-        min = (l == steps ? 0 : Math.max(0, l - 1));
-        max = (l == 0 ? steps : Math.min(steps, l + 1));
-        sum = 0;
-        // for (int k = 0; k <= xSteps; k++) {
-        for (int k = min; k <= max; k++) { // mx is tri-diagonal so only need 3 steps here
-          sum += mx[l][k] * v[k][j];
-        }
-        final double correction = omega / mx[l][l] * (q[l] - sum);
-        // if (freeBoundary != null) {
-        // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-        // }
-        errorSqr += correction * correction;
-        v[l][j] += correction;
-        scale += v[l][j] * v[l][j];
-      }
-      count++;
-    }
-    return count;
-  }
-
   private void initializeMatrices(final ConvectionDiffusion2DPDEDataBundle pdeData, final int xSteps, final int ySteps, final BoundaryCondition2D xLowerBoundary,
       final BoundaryCondition2D yLowerBoundary, final double dx, final double dy, final double[][] v, final double[] x, final double[] y) {
     double currentX = 0;
@@ -5,13 +5,19 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.analytics.financial.model.finitedifference.ADILineSweeper.LineOperation;
 import com.opengamma.analytics.math.cube.Cube;
 
 /**
  *  Operating splitting (as in Duffy chapter 22) with boundary conditions applied at each of the 4 steps
  * <b>Note</b> this is for testing purposes and is not recommended for actual use
+ * <p>
+ * The lines of each step are independent; they can be solved in parallel in a fork-join pool, each thread reusing its own
+ * linear system.
  */
 @SuppressWarnings("deprecation")
 public class OperatorSplittingFiniteDifference2D implements ConvectionDiffusionPDESolver2D {
@@ -20,6 +26,25 @@ public class OperatorSplittingFiniteDifference2D implements ConvectionDiffusionP
   // Theta = 0 - explicit
   // private static final double THETA = 0.5;
   private static final int SOR_MAX = 5000;
+  private static final double OMEGA = 1.5;
+
+  /** The pool in which the lines are solved, null to solve them in the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Solves the lines in the calling thread.
+   */
+  public OperatorSplittingFiniteDifference2D() {
+    this(null);
+  }
+
+  /**
+   * Solves the independent lines of each step in parallel.
+   * @param pool The pool in which to solve the lines, null to solve them in the calling thread.
+   */
+  public OperatorSplittingFiniteDifference2D(final ForkJoinPool pool) {
+    _pool = pool;
+  }
 
   @Override
   public double[][] solve(final ConvectionDiffusion2DPDEDataBundle pdeData, final int tSteps, final int xSteps, final int ySteps, final double tMax, final BoundaryCondition2D xLowerBoundary,
@@ -46,10 +71,7 @@ public class OperatorSplittingFiniteDifference2D implements ConvectionDiffusionP
     final double[] x = new double[xSteps + 1];
     final double[] y = new double[ySteps + 1];
 
-    final double[] q = new double[xSteps + 1];
-    final double[] r = new double[ySteps + 1];
-    final double[][] mx = new double[xSteps + 1][xSteps + 1];
-    final double[][] my = new double[ySteps + 1][ySteps + 1];
+    final ADILineSweeper sweeper = new ADILineSweeper(_pool, Math.max(xSteps, ySteps));
 
     double currentX = 0;
     double currentY = 0;
@@ -66,171 +88,112 @@ public class OperatorSplittingFiniteDifference2D implements ConvectionDiffusionP
       }
     }
 
-    double t;
-    double a, b, c, d, e, f;
-
     for (int n = 0; n < tSteps; n++) {
 
-      t = n * dt;
+      final double tStart = n * dt;
       // stag 1 Explicit in the cross
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-          e = pdeData.getE(t, x[i], y[j]);
-          vt[i][j] = v[i][j];
-          vt[i][j] -= 0.125 * dtdxdy * e * (v[i + 1][j + 1] + v[i - 1][j - 1] - v[i + 1][j - 1] - v[i - 1][j + 1]);
+      sweeper.sweep(1, xSteps, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
+            final double e = pdeData.getE(tStart, x[i], y[j]);
+            vt[i][j] = v[i][j];
+            vt[i][j] -= 0.125 * dtdxdy * e * (v[i + 1][j + 1] + v[i - 1][j - 1] - v[i + 1][j - 1] - v[i - 1][j + 1]);
+          }
+          // the explicit intermediate stag vt is missed the boundary
+          vt[i][0] = v[i][0];
+          vt[i][ySteps] = v[i][ySteps];
         }
-        // the explicit intermediate stag vt is missed the boundary
-        vt[i][0] = v[i][0];
-        vt[i][ySteps] = v[i][ySteps];
-      }
+      });
 
       // stag 2 - Implicit in x
-      t += 0.5 * dt;
-      for (int j = 0; j <= ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          mx[i][i - 1] = (dtdx2 * a - 0.5 * dtdx * b);
-          mx[i][i] = 1 + (-2 * dtdx2 * a + dt * c);
-          mx[i][i + 1] = (dtdx2 * a + 0.5 * dtdx * b);
+      final double tHalf = tStart + 0.5 * dt;
+      sweeper.sweep(0, ySteps + 1, new LineOperation() {
+        @Override
+        void apply(final int j, final ADILineSystem system) {
+          for (int i = 1; i < xSteps; i++) {
+            final double a = pdeData.getA(tHalf, x[i], y[j]);
+            final double b = pdeData.getB(tHalf, x[i], y[j]);
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+            system.setRow(i, (dtdx2 * a - 0.5 * dtdx * b), 1 + (-2 * dtdx2 * a + dt * c), (dtdx2 * a + 0.5 * dtdx * b));
+            system.setRhs(i, vt[i][j]);
+          }
 
-          q[i] = vt[i][j];
-        }
+          // it is not clear that these boundary conditions apply in the intermediate stage of operator splitting
+          system.setBoundaryRows(xSteps, xLowerBoundary.getLeftMatrixCondition(tHalf, y[j]), xUpperBoundary.getLeftMatrixCondition(tHalf, y[j]));
 
-        // it is not clear that these boundary conditions apply in the intermediate stage of operator splitting
-        double[] temp = xLowerBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[0][k] = temp[k];
-        }
-        temp = xUpperBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[xSteps][xSteps - k] = temp[k];
-        }
+          double[] temp = xLowerBoundary.getRightMatrixCondition(tHalf, y[j]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[k][j];
+          }
+          system.setRhs(0, sum + xLowerBoundary.getConstant(tHalf, y[j], dx));
 
-        temp = xLowerBoundary.getRightMatrixCondition(t, y[j]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[k][j];
-        }
-        q[0] = sum + xLowerBoundary.getConstant(t, y[j], dx);
+          temp = xUpperBoundary.getRightMatrixCondition(tHalf, y[j]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[xSteps - k][j];
+          }
+          system.setRhs(xSteps, sum + xUpperBoundary.getConstant(tHalf, y[j], dx));
 
-        temp = xUpperBoundary.getRightMatrixCondition(t, y[j]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[xSteps - k][j];
+          // SOR
+          final int count = system.sor(system.gatherColumn(vt, j, xSteps), xSteps, OMEGA, SOR_MAX);
+          system.scatterColumn(vt, j, xSteps);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
         }
-        q[xSteps] = sum + xUpperBoundary.getConstant(t, y[j], dx);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int min, max;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < SOR_MAX) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          for (int l = 0; l <= xSteps; l++) {
-            min = (l == xSteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? xSteps : Math.min(xSteps, l + 1));
-            sum = 0;
-            // for (int k = 0; k <= xSteps; k++) {
-            for (int k = min; k <= max; k++) { // mx is tri-diagonal so only need 3 steps here
-              sum += mx[l][k] * vt[k][j];
-            }
-            final double correction = omega / mx[l][l] * (q[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            vt[l][j] += correction;
-            scale += vt[l][j] * vt[l][j];
+      });
+
+      // stag 3 Explicit in the cross
+      sweeper.sweep(1, ySteps, new LineOperation() {
+        @Override
+        void apply(final int j, final ADILineSystem system) {
+          for (int i = 1; i < xSteps; i++) {
+            final double e = pdeData.getE(tHalf, x[i], y[j]);
+            v[i][j] = vt[i][j];
+            v[i][j] -= 0.125 * dtdxdy * e * (vt[i + 1][j + 1] + vt[i - 1][j - 1] - vt[i + 1][j - 1] - vt[i - 1][j + 1]);
           }
-          count++;
-        }
-        Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
-      }
-
-      for (int j = 1; j < ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-          e = pdeData.getE(t, x[i], y[j]);
-          v[i][j] = vt[i][j];
-          v[i][j] -= 0.125 * dtdxdy * e * (vt[i + 1][j + 1] + vt[i - 1][j - 1] - vt[i + 1][j - 1] - vt[i - 1][j + 1]);
+          // again now v on the boundary is undefined
+          v[0][j] = vt[0][j];
+          v[xSteps][j] = vt[xSteps][j];
         }
-        // again now v on the boundary is undefined
-        v[0][j] = vt[0][j];
-        v[xSteps][j] = vt[xSteps][j];
-      }
+      });
 
       // stag 4 - implicit in y
-      t = (n + 1) * dt;
-      for (int i = 0; i <= xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
+      final double tEnd = (n + 1) * dt;
+      sweeper.sweep(0, xSteps + 1, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
 
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
+            final double d = pdeData.getD(tEnd, x[i], y[j]);
+            final double f = pdeData.getF(tEnd, x[i], y[j]);
 
-          my[j][j - 1] = (dtdy2 * d - 0.5 * dtdy * f);
-          my[j][j] = 1 + (-2 * dtdy2 * d);
-          my[j][j + 1] = (dtdy2 * d + 0.5 * dtdy * f);
-
-          r[j] = v[i][j];
-        }
+            system.setRow(j, (dtdy2 * d - 0.5 * dtdy * f), 1 + (-2 * dtdy2 * d), (dtdy2 * d + 0.5 * dtdy * f));
+            system.setRhs(j, v[i][j]);
+          }
 
-        double[] temp = yLowerBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[0][k] = temp[k];
-        }
-        temp = yUpperBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[ySteps][ySteps - k] = temp[k];
-        }
+          system.setBoundaryRows(ySteps, yLowerBoundary.getLeftMatrixCondition(tEnd, x[i]), yUpperBoundary.getLeftMatrixCondition(tEnd, x[i]));
 
-        temp = yLowerBoundary.getRightMatrixCondition(t, x[i]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * vt[i][k];
-        }
-        r[0] = sum + yLowerBoundary.getConstant(t, x[i], dy);
+          double[] temp = yLowerBoundary.getRightMatrixCondition(tEnd, x[i]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * vt[i][k];
+          }
+          system.setRhs(0, sum + yLowerBoundary.getConstant(tEnd, x[i], dy));
 
-        temp = yUpperBoundary.getRightMatrixCondition(t, x[i]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * vt[i][ySteps - k];
-        }
-        r[ySteps] = sum + yUpperBoundary.getConstant(t, x[i], dy);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < SOR_MAX) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          int min, max;
-          for (int l = 0; l <= ySteps; l++) {
-            min = (l == ySteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? ySteps : Math.min(ySteps, l + 1));
-            sum = 0;
-            // for (int k = 0; k <= ySteps; k++) {
-            for (int k = min; k <= max; k++) {
-              sum += my[l][k] * v[i][k];
-            }
-            final double correction = omega / my[l][l] * (r[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[i][l] += correction;
-            scale += v[i][l] * v[i][l];
+          temp = yUpperBoundary.getRightMatrixCondition(tEnd, x[i]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * vt[i][ySteps - k];
           }
-          count++;
+          system.setRhs(ySteps, sum + yUpperBoundary.getConstant(tEnd, x[i], dy));
+
+          // SOR
+          final int count = system.sor(v[i], ySteps, OMEGA, SOR_MAX);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
         }
-        Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
-      }
+      });
 
     } // time loop
     return v;
@@ -5,13 +5,19 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.analytics.financial.model.finitedifference.ADILineSweeper.LineOperation;
 import com.opengamma.analytics.math.cube.Cube;
 
 /**
  * Peaceman-Rachford splitting
  * <b>Note</b> this is for testing purposes and is not recommended for actual use
+ * <p>
+ * The lines of each half-step are independent; they can be solved in parallel in a fork-join pool, each thread reusing its own
+ * linear system.
  */
 @SuppressWarnings("deprecation")
 public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPDESolver2D {
@@ -19,6 +25,26 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
   //private static final Decomposition<?> DCOMP = new LUDecompositionCommons();
   // Theta = 0 - explicit
   // private static final double THETA = 0.5;
+  private static final double OMEGA = 1.5;
+  private static final int SOR_MAX = 1000;
+
+  /** The pool in which the lines are solved, null to solve them in the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Solves the lines in the calling thread.
+   */
+  public PeacemanRachfordFiniteDifference2D() {
+    this(null);
+  }
+
+  /**
+   * Solves the independent lines of each half-step in parallel.
+   * @param pool The pool in which to solve the lines, null to solve them in the calling thread.
+   */
+  public PeacemanRachfordFiniteDifference2D(final ForkJoinPool pool) {
+    _pool = pool;
+  }
 
   @Override
   public double[][] solve(final ConvectionDiffusion2DPDEDataBundle pdeData, final int tSteps, final int xSteps, final int ySteps, final double tMax, final BoundaryCondition2D xLowerBoundary,
@@ -45,10 +71,7 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
     final double[] x = new double[xSteps + 1];
     final double[] y = new double[ySteps + 1];
 
-    final double[] q = new double[xSteps + 1];
-    final double[] r = new double[ySteps + 1];
-    final double[][] mx = new double[xSteps + 1][xSteps + 1];
-    final double[][] my = new double[ySteps + 1][ySteps + 1];
+    final ADILineSweeper sweeper = new ADILineSweeper(_pool, Math.max(xSteps, ySteps));
 
     double currentX = 0;
     double currentY = 0;
@@ -66,91 +89,62 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
     }
 
     double t = 0.0;
-    double a, b, c, d, f;
 
     for (int n = 0; n < tSteps; n++) {
-      // t += dt / 2;
 
       // stag 1 Explicit in y, implicit in x
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
-          vRight[i][j] -= 0.5 * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
-          vRight[i][j] -= 0.25 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+      final double tStart = t;
+      sweeper.sweep(1, xSteps, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
+            final double c = pdeData.getC(tStart, x[i], y[j]);
+            final double d = pdeData.getD(tStart, x[i], y[j]);
+            final double f = pdeData.getF(tStart, x[i], y[j]);
+
+            vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
+            vRight[i][j] -= 0.5 * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
+            vRight[i][j] -= 0.25 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+          }
         }
-      }
+      });
 
       t += dt / 2;
+      final double tHalf = t;
+
+      sweeper.sweep(1, ySteps, new LineOperation() {
+        @Override
+        void apply(final int j, final ADILineSystem system) {
+          for (int i = 1; i < xSteps; i++) {
+            final double a = pdeData.getA(tHalf, x[i], y[j]);
+            final double b = pdeData.getB(tHalf, x[i], y[j]);
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+            system.setRow(i, 0.5 * (dtdx2 * a - 0.5 * dtdx * b), 1 + 0.5 * (-2 * dtdx2 * a + 0.5 * dt * c), 0.5 * (dtdx2 * a + 0.5 * dtdx * b));
+            system.setRhs(i, vRight[i][j]);
+          }
+          system.setBoundaryRows(xSteps, xLowerBoundary.getLeftMatrixCondition(tHalf, y[j]), xUpperBoundary.getLeftMatrixCondition(tHalf, y[j]));
 
-      for (int j = 1; j < ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          mx[i][i - 1] = 0.5 * (dtdx2 * a - 0.5 * dtdx * b);
-          mx[i][i] = 1 + 0.5 * (-2 * dtdx2 * a + 0.5 * dt * c);
-          mx[i][i + 1] = 0.5 * (dtdx2 * a + 0.5 * dtdx * b);
-
-          q[i] = vRight[i][j];
-        }
-
-        double[] temp = xLowerBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[0][k] = temp[k];
-        }
-        temp = xUpperBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[xSteps][xSteps - k] = temp[k];
-        }
-
-        temp = xLowerBoundary.getRightMatrixCondition(t, y[j]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[k][j];
-        }
-        q[0] = sum + xLowerBoundary.getConstant(t, y[j], dx);
+          double[] temp = xLowerBoundary.getRightMatrixCondition(tHalf, y[j]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[k][j];
+          }
+          system.setRhs(0, sum + xLowerBoundary.getConstant(tHalf, y[j], dx));
 
-        temp = xUpperBoundary.getRightMatrixCondition(t, y[j]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[xSteps - k][j];
-        }
-        q[xSteps] = sum + xUpperBoundary.getConstant(t, y[j], dx);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int min, max;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          for (int l = 0; l <= xSteps; l++) {
-            min = (l == xSteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? xSteps : Math.min(xSteps, l + 1));
-            sum = 0;
-            // for (int k = 0; k <= xSteps; k++) {
-            for (int k = min; k <= max; k++) { // mx is tri-diagonal so only need 3 steps here
-              sum += mx[l][k] * v[k][j];
-            }
-            final double correction = omega / mx[l][l] * (q[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[l][j] += correction;
-            scale += v[l][j] * v[l][j];
+          temp = xUpperBoundary.getRightMatrixCondition(tHalf, y[j]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[xSteps - k][j];
           }
-          count++;
+          system.setRhs(xSteps, sum + xUpperBoundary.getConstant(tHalf, y[j], dx));
+
+          // SOR
+          final int count = system.sor(system.gatherColumn(v, j, xSteps), xSteps, OMEGA, SOR_MAX);
+          system.scatterColumn(v, j, xSteps);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
         }
-        Validate.isTrue(count < 1000, "SOR exceeded max interations");
-      }
+      });
 
       // get the y = 0 and y = yStep boundaries
       for (int i = 0; i <= xSteps; i++) {
@@ -182,94 +176,59 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
         v[i][ySteps] = sum / temp[0];
       }
 
-      // // copy the boundary points from the previous level
-      // for (int i = 0; i <= xSteps; i++) {
-      // vStar[i][0] = v[i][0];
-      // vStar[i][ySteps] = v[i][ySteps];
-      // }
-
       // stag 2 explicit in x, implicit in y
-      for (int j = 1; j < ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
-          vRight[i][j] -= 0.5 * dtdx2 * a * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
-          vRight[i][j] -= 0.25 * dtdx * b * (v[i + 1][j] - v[i - 1][j]);
+      sweeper.sweep(1, ySteps, new LineOperation() {
+        @Override
+        void apply(final int j, final ADILineSystem system) {
+          for (int i = 1; i < xSteps; i++) {
+
+            final double a = pdeData.getA(tHalf, x[i], y[j]);
+            final double b = pdeData.getB(tHalf, x[i], y[j]);
+            final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+            vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
+            vRight[i][j] -= 0.5 * dtdx2 * a * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
+            vRight[i][j] -= 0.25 * dtdx * b * (v[i + 1][j] - v[i - 1][j]);
+          }
         }
-      }
+      });
 
       t += dt / 2;
+      final double tEnd = t;
 
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
+      sweeper.sweep(1, xSteps, new LineOperation() {
+        @Override
+        void apply(final int i, final ADILineSystem system) {
+          for (int j = 1; j < ySteps; j++) {
 
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
+            final double c = pdeData.getC(tEnd, x[i], y[j]);
+            final double d = pdeData.getD(tEnd, x[i], y[j]);
+            final double f = pdeData.getF(tEnd, x[i], y[j]);
 
-          my[j][j - 1] = 0.5 * (dtdy2 * d - 0.5 * dtdy * f);
-          my[j][j] = 1 + 0.5 * (-2 * dtdy2 * d + 0.5 * dt * c);
-          my[j][j + 1] = 0.5 * (dtdy2 * d + 0.5 * dtdy * f);
-
-          r[j] = vRight[i][j];
-        }
-
-        double[] temp = yLowerBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[0][k] = temp[k];
-        }
-        temp = yUpperBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[ySteps][ySteps - k] = temp[k];
-        }
+            system.setRow(j, 0.5 * (dtdy2 * d - 0.5 * dtdy * f), 1 + 0.5 * (-2 * dtdy2 * d + 0.5 * dt * c), 0.5 * (dtdy2 * d + 0.5 * dtdy * f));
+            system.setRhs(j, vRight[i][j]);
+          }
+          system.setBoundaryRows(ySteps, yLowerBoundary.getLeftMatrixCondition(tEnd, x[i]), yUpperBoundary.getLeftMatrixCondition(tEnd, x[i]));
 
-        temp = yLowerBoundary.getRightMatrixCondition(t, x[i]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][k];
-        }
-        r[0] = sum + yLowerBoundary.getConstant(t, x[i], dy);
+          double[] temp = yLowerBoundary.getRightMatrixCondition(tEnd, x[i]);
+          double sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[i][k];
+          }
+          system.setRhs(0, sum + yLowerBoundary.getConstant(tEnd, x[i], dy));
 
-        temp = yUpperBoundary.getRightMatrixCondition(t, x[i]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][ySteps - k];
-        }
-        r[ySteps] = sum + yUpperBoundary.getConstant(t, x[i], dy);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          int min, max;
-          for (int l = 0; l <= ySteps; l++) {
-            min = (l == ySteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? ySteps : Math.min(ySteps, l + 1));
-            sum = 0;
-            // for (int k = 0; k <= ySteps; k++) {
-            for (int k = min; k <= max; k++) {
-              sum += my[l][k] * v[i][k];
-            }
-            final double correction = omega / my[l][l] * (r[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[i][l] += correction;
-            scale += v[i][l] * v[i][l];
+          temp = yUpperBoundary.getRightMatrixCondition(tEnd, x[i]);
+          sum = 0;
+          for (int k = 0; k < temp.length; k++) {
+            sum += temp[k] * v[i][ySteps - k];
           }
-          count++;
+          system.setRhs(ySteps, sum + yUpperBoundary.getConstant(tEnd, x[i], dy));
+
+          // SOR
+          final int count = system.sor(v[i], ySteps, OMEGA, SOR_MAX);
+          Validate.isTrue(count < SOR_MAX, "SOR exceeded max interations");
         }
-        Validate.isTrue(count < 1000, "SOR exceeded max interations");
-      }
+      });
 
       // still have to handle the i = 0 and i = xSteps boundary
       for (int j = 0; j <= ySteps; j++) {
@@ -306,5 +265,4 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
 
   }
 
-  // private double[][] solveSOR(double[][] m, double[][] v)
 }
@@ -154,6 +154,16 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         full[0] = _initial;
       }
       double[] h = _initial;
+      // the system and the solution are allocated once; the solution alternates between two buffers so that the initial condition and the
+      // solution of the previous time step are never overwritten
+      final double[] y = new double[_nNodesX]; //RHS of system
+      final double[] d = new double[_nNodesX]; //main diag
+      final double[] u = new double[_nNodesX - 1]; //upper
+      final double[] l = new double[_nNodesX - 1]; //lower
+      final double[] work = new double[_nNodesX];
+      final double[][] solutions = new double[][] {new double[_nNodesX], new double[_nNodesX] };
+      final double[] free = (_mode == SolverMode.psor ? new double[_nNodesX] : null);
+      final double[] invD = (_mode == SolverMode.psor ? new double[_nNodesX] : null);
 
       double t = _grid.getTimeNode(0);
 
@@ -175,8 +185,6 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       for (int jj = 0; jj < _nNodesT - 1; jj++) {
         final double dt = _dt[jj];
 
-        //RHS of system
-        final double[] y = new double[_nNodesX];
         //main part of RHS
         for (int ii = 1; ii < _nNodesX - 1; ii++) { //tri-diagonal form
           y[ii] = (1 - (1 - _theta) * dt * cDag[ii - 1]) * h[ii] - (1 - _theta) * dt * (lDag[ii - 1] * h[ii - 1] + +uDag[ii - 1] * h[ii + 1]);
@@ -188,13 +196,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         y[_nNodesX - 1] = _upper.getConstant(_coeff, t);
 
         //put the LHS of system in tri-diagonal form
-        final double[] d = new double[_nNodesX]; //main diag
-        final double[] u = new double[_nNodesX - 1]; //upper
-        final double[] l = new double[_nNodesX - 1]; //lower
         //lower boundary conditions
         topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
         final int p2 = topRow.length;
         d[0] = topRow[0];
+        u[0] = 0.0;
         if (p2 > 1) {
           u[0] = topRow[1];
           //Review do we need this?
@@ -203,6 +209,7 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
         final int q2 = bottomRow.length;
         d[_nNodesX - 1] = bottomRow[q2 - 1];
+        l[_nNodesX - 2] = 0.0;
         if (q2 > 1) {
           l[_nNodesX - 2] = bottomRow[q2 - 2];
           ArgumentChecker.isFalse(q2 > 2, "Boundary condition means that system is not tri-diagonal");
@@ -226,24 +233,24 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
           u[ii] = _theta * dt * uDag[ii - 1];
           l[ii - 1] = _theta * dt * lDag[ii - 1];
         }
-        final TridiagonalMatrix lhs = new TridiagonalMatrix(d, u, l);
 
         //solve the system (update h)
+        final double[] hNext = solutions[jj % 2];
         switch (_mode) {
           case tridiagonal:
-            h = solvTriDag(lhs, y);
+            solvTriDag(d, u, l, y, hNext, work);
+            h = hNext;
             break;
           case luDecomp:
-            h = solveLU(lhs, y);
+            h = solveLU(new TridiagonalMatrix(d, u, l), y);
             break;
           case psor:
-            h = solvTriDag(lhs, y);
-            final double[] free = new double[_nNodesX];
+            solvTriDag(d, u, l, y, hNext, work);
             for (int ii = 0; ii < _nNodesX; ii++) {
               final double x = _grid.getSpaceNode(ii);
               free[ii] = _freeB.getZValue(t, x);
             }
-            h = solvePSOR(lhs, y, h, free);
+            h = solvePSOR(d, u, l, y, hNext, free, invD);
             break;
           default:
             throw new NotImplementedException("SolverMode " + _mode.toString() + " not implemented");
@@ -268,15 +275,10 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       return res.solve(y);
     }
 
-    private double[] solvePSOR(final TridiagonalMatrix lM, final double[] b, final double[] x, final double[] minVal) {
-
-      final double[] d = lM.getDiagonalData();
-      final double[] u = lM.getUpperSubDiagonalData();
-      final double[] l = lM.getLowerSubDiagonalData();
+    private double[] solvePSOR(final double[] d, final double[] u, final double[] l, final double[] b, final double[] x, final double[] minVal, final double[] invD) {
 
       final int maxInt = 100000;
       final double omega = 1.0;
-      final double[] invD = new double[_nNodesX];
       for (int ii = 0; ii < _nNodesX; ii++) {
         if (d[ii] == 0.0) {
           throw new MathException("Cannot solve by PSOR - zero on diagonal");
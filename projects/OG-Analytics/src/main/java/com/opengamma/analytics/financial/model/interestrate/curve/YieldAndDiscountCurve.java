@@ -57,6 +57,35 @@ public abstract class YieldAndDiscountCurve implements InterestRateModel<Double>
     return Math.exp(-t * getInterestRate(t));
   }
 
+  /**
+   * Returns the interest rates (continuously compounded) at sorted times. The default implementation computes each rate separately;
+   * the curves based on an interpolated curve compute them in one pass over the nodes.
+   * @param sortedTimes The times, in ascending order.
+   * @return The interest rates.
+   */
+  public double[] getInterestRates(final double[] sortedTimes) {
+    ArgumentChecker.notNull(sortedTimes, "times");
+    final double[] rates = new double[sortedTimes.length];
+    for (int loopt = 0; loopt < sortedTimes.length; loopt++) {
+      rates[loopt] = getInterestRate(sortedTimes[loopt]);
+    }
+    return rates;
+  }
+
+  /**
+   * Returns the discount factors at sorted times. The default implementation computes each discount factor separately.
+   * @param sortedTimes The times, in ascending order.
+   * @return The discount factors.
+   */
+  public double[] getDiscountFactors(final double[] sortedTimes) {
+    ArgumentChecker.notNull(sortedTimes, "times");
+    final double[] discountFactors = new double[sortedTimes.length];
+    for (int loopt = 0; loopt < sortedTimes.length; loopt++) {
+      discountFactors[loopt] = getDiscountFactor(sortedTimes[loopt]);
+    }
+    return discountFactors;
+  }
+
   /**
    * Gets the forward rate at a given time.
    * @param t The time
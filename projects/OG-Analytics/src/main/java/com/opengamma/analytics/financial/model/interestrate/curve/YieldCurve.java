@@ -70,6 +70,31 @@ public class YieldCurve extends YieldAndDiscountCurve {
     return getCurve().getYValue(t);
   }
 
+  /**
+   * {@inheritDoc}
+   * When the underlying curve is interpolated, the rates are interpolated in one pass over the nodes.
+   */
+  @Override
+  public double[] getInterestRates(final double[] sortedTimes) {
+    if (_curve instanceof InterpolatedDoublesCurve) {
+      return ((InterpolatedDoublesCurve) _curve).getYValues(sortedTimes);
+    }
+    return super.getInterestRates(sortedTimes);
+  }
+
+  /**
+   * {@inheritDoc}
+   * The discount factors are computed from the rates of {@link #getInterestRates(double[])}.
+   */
+  @Override
+  public double[] getDiscountFactors(final double[] sortedTimes) {
+    final double[] discountFactors = getInterestRates(sortedTimes);
+    for (int loopt = 0; loopt < sortedTimes.length; loopt++) {
+      discountFactors[loopt] = sortedTimes[loopt] == 0 ? 1.0 : Math.exp(-sortedTimes[loopt] * discountFactors[loopt]);
+    }
+    return discountFactors;
+  }
+
   @Override
   public double getForwardRate(final double t) {
     final DoublesCurve curve = getCurve();
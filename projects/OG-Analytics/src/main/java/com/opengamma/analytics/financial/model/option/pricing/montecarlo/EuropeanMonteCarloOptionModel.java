@@ -16,7 +16,11 @@ import com.opengamma.analytics.math.function.Function2D;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
 
 /**
- * 
+ * Monte Carlo pricing of European options.
+ * <p>
+ * The variance of the estimate can be reduced with antithetic variates, with the final value of the process as control variate (when its expectation is
+ * known in closed form) and with a quasi-random generator such as {@link com.opengamma.analytics.math.random.SobolRandomNumberGenerator}, which is asked for
+ * one vector by path.
  */
 public class EuropeanMonteCarloOptionModel extends MonteCarloOptionModel<OptionDefinition, StandardOptionDataBundle> {
 
@@ -24,6 +28,19 @@ public class EuropeanMonteCarloOptionModel extends MonteCarloOptionModel<OptionD
     super(n, steps, process, generator);
   }
 
+  /**
+   * @param n The number of paths, even if antithetic variates are used
+   * @param steps The number of steps in each path
+   * @param process The stochastic process
+   * @param generator The random number generator
+   * @param antithetic Whether each draw of random numbers is also used with the opposite sign
+   * @param controlVariate Whether the final value of the process is used as a control variate
+   */
+  public EuropeanMonteCarloOptionModel(final int n, final int steps, final StochasticProcess<OptionDefinition, StandardOptionDataBundle> process, final RandomNumberGenerator generator,
+      final boolean antithetic, final boolean controlVariate) {
+    super(n, steps, process, generator, antithetic, controlVariate);
+  }
+
   @Override
   public Function1D<StandardOptionDataBundle, Double> getPricingFunction(final OptionDefinition definition) {
     Validate.notNull(definition, "definition");
@@ -33,23 +50,54 @@ public class EuropeanMonteCarloOptionModel extends MonteCarloOptionModel<OptionD
     final RandomNumberGenerator randomNumbers = getGenerator();
     final StochasticProcess<OptionDefinition, StandardOptionDataBundle> process = getProcess();
     final Function2D<Double, Double> accumulator = process.getPathAccumulationFunction();
+    final boolean antithetic = isAntithetic();
+    final boolean controlVariate = isControlVariate();
     return new Function1D<StandardOptionDataBundle, Double>() {
 
       @Override
       public Double evaluate(final StandardOptionDataBundle data) {
         Validate.notNull(data, "data");
         final Function1D<Double, Double> generator = process.getPathGeneratingFunction(definition, data, steps);
+        final Double finalExpectation = controlVariate ? process.getFinalValueExpectation(definition, data) : null;
+        Validate.isTrue(!controlVariate || finalExpectation != null, "The process has no closed form expectation to use as control variate");
         double[] e;
         final double s0 = process.getInitialValue(definition, data);
         double st;
         double sum = 0;
-        for (int i = 0; i < n; i++) {
+        double sumFinal = 0;
+        double sumFinal2 = 0;
+        double sumPayoffFinal = 0;
+        final int nbDraw = antithetic ? n / 2 : n;
+        for (int i = 0; i < nbDraw; i++) {
           e = randomNumbers.getVector(steps);
-          st = s0;
-          for (int j = 0; j < steps; j++) {
-            st = accumulator.evaluate(generator.evaluate(e[j]), st);
+          for (int loopsign = 0; loopsign < (antithetic ? 2 : 1); loopsign++) {
+            if (loopsign == 1) {
+              for (int j = 0; j < steps; j++) {
+                e[j] = -e[j];
+              }
+            }
+            st = s0;
+            for (int j = 0; j < steps; j++) {
+              st = accumulator.evaluate(generator.evaluate(e[j]), st);
+            }
+            final double finalValue = process.getFinalValue(st);
+            final double payoff = payoffFunction.getPayoff(data.withSpot(finalValue), 0.);
+            sum += payoff;
+            if (controlVariate) {
+              sumFinal += finalValue;
+              sumFinal2 += finalValue * finalValue;
+              sumPayoffFinal += payoff * finalValue;
+            }
+          }
+        }
+        if (controlVariate) {
+          final double mean = sum / n;
+          final double meanFinal = sumFinal / n;
+          final double varianceFinal = sumFinal2 / n - meanFinal * meanFinal;
+          if (varianceFinal > 0) {
+            final double beta = (sumPayoffFinal / n - mean * meanFinal) / varianceFinal;
+            sum -= n * beta * (meanFinal - finalExpectation);
           }
-          sum += payoffFunction.getPayoff(data.withSpot(process.getFinalValue(st)), 0.);
         }
         final double t = definition.getTimeToExpiry(data.getDate());
         final double r = data.getInterestRate(t);
@@ -32,16 +32,34 @@ public abstract class MonteCarloOptionModel<T extends OptionDefinition, U extend
   private final int _steps;
   private final StochasticProcess<T, U> _process;
   private final RandomNumberGenerator _generator;
+  private final boolean _antithetic;
+  private final boolean _controlVariate;
 
   public MonteCarloOptionModel(final int n, final int steps, final StochasticProcess<T, U> process, final RandomNumberGenerator generator) {
+    this(n, steps, process, generator, false, false);
+  }
+
+  /**
+   * @param n The number of paths
+   * @param steps The number of steps in each path
+   * @param process The stochastic process
+   * @param generator The random number generator
+   * @param antithetic Whether each draw of random numbers is also used with the opposite sign; the number of paths must be even
+   * @param controlVariate Whether the final value of the process is used as a control variate
+   */
+  public MonteCarloOptionModel(final int n, final int steps, final StochasticProcess<T, U> process, final RandomNumberGenerator generator, final boolean antithetic,
+      final boolean controlVariate) {
     ArgumentChecker.notNegativeOrZero(n, "n");
     ArgumentChecker.notNegativeOrZero(steps, "steps");
     Validate.notNull(process, "process");
     Validate.notNull(generator, "generator");
+    ArgumentChecker.isTrue(!antithetic || n % 2 == 0, "Number of paths must be even for antithetic variates, have {}", n);
     _n = n;
     _steps = steps;
     _process = process;
     _generator = generator;
+    _antithetic = antithetic;
+    _controlVariate = controlVariate;
   }
 
   @Override
@@ -81,4 +99,12 @@ public abstract class MonteCarloOptionModel<T extends OptionDefinition, U extend
     return _generator;
   }
 
+  protected boolean isAntithetic() {
+    return _antithetic;
+  }
+
+  protected boolean isControlVariate() {
+    return _controlVariate;
+  }
+
 }
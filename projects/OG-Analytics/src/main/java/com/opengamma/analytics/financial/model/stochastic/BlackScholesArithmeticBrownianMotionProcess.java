@@ -48,6 +48,13 @@ public class BlackScholesArithmeticBrownianMotionProcess<T extends OptionDefinit
     return u.getSpot();
   }
 
+  @Override
+  public Double getFinalValueExpectation(final T t, final U u) {
+    Validate.notNull(t);
+    Validate.notNull(u);
+    return u.getSpot() * Math.exp(u.getCostOfCarry() * t.getTimeToExpiry(u.getDate()));
+  }
+
   @Override
   public Double getFinalValue(final Double x) {
     return x;
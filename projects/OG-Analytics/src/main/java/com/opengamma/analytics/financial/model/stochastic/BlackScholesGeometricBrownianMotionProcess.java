@@ -48,6 +48,13 @@ public class BlackScholesGeometricBrownianMotionProcess<T extends OptionDefiniti
     return Math.log(u.getSpot());
   }
 
+  @Override
+  public Double getFinalValueExpectation(final T t, final U u) {
+    Validate.notNull(t);
+    Validate.notNull(u);
+    return u.getSpot() * Math.exp(u.getCostOfCarry() * t.getTimeToExpiry(u.getDate()));
+  }
+
   @Override
   public Double getFinalValue(final Double x) {
     return Math.exp(x);
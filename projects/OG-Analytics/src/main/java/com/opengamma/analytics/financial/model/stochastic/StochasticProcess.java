@@ -43,6 +43,16 @@ public abstract class StochasticProcess<T, U> {
 
   public abstract Double getInitialValue(T t, U u);
 
+  /**
+   * Gets the expectation of the final value of the process, for use as a control variate.
+   * @param t The definition
+   * @param u The data
+   * @return The expectation, null if it is not known in closed form
+   */
+  public Double getFinalValueExpectation(final T t, final U u) {
+    return null;
+  }
+
   public abstract Function1D<Double, Double> getPathGeneratingFunction(T t, U u, int steps);
 
   public abstract Function2D<Double, Double> getPathAccumulationFunction();
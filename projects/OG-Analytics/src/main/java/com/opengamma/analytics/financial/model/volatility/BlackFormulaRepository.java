@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
 import com.opengamma.lang.annotation.ExternalFunction;
 import com.opengamma.util.ArgumentChecker;
 
@@ -34,6 +35,8 @@ public abstract class BlackFormulaRepository {
   private static final double EPS = 1e-15;
   private static final int MAX_ITERATIONS = 20; // something's wrong if Newton-Raphson taking longer than this
   private static final double VOL_TOL = 1e-9; // 1 part in 100,000 basis points will do for implied vol
+  private static final double ROOT2 = Math.sqrt(2);
+  private static final double INV_ROOT_2PI = 1.0 / Math.sqrt(2.0 * Math.PI);
 
   /**
    * The <b>forward</b> price of an option using the Black formula
@@ -51,7 +54,11 @@ public abstract class BlackFormulaRepository {
     ArgumentChecker.isTrue(strike >= 0.0, "negative/NaN strike; have {}", strike);
     ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
     ArgumentChecker.isTrue(lognormalVol >= 0.0, "negative/NaN lognormalVol; have {}", lognormalVol);
+    return priceKernel(forward, strike, timeToExpiry, lognormalVol, isCall);
+  }
 
+  private static double priceKernel(final double forward, final double strike, final double timeToExpiry,
+      final double lognormalVol, final boolean isCall) {
     double sigmaRootT = lognormalVol * Math.sqrt(timeToExpiry);
     if (Double.isNaN(sigmaRootT)) {
       s_logger.info("lognormalVol * Math.sqrt(timeToExpiry) ambiguous");
@@ -79,8 +86,8 @@ public abstract class BlackFormulaRepository {
       d2 = d1 - sigmaRootT;
     }
 
-    final double nF = NORMAL.getCDF(sign * d1);
-    final double nS = NORMAL.getCDF(sign * d2);
+    final double nF = cdf(sign * d1);
+    final double nS = cdf(sign * d2);
     final double first = nF == 0. ? 0. : forward * nF;
     final double second = nS == 0. ? 0. : strike * nS;
 
@@ -119,6 +126,26 @@ public abstract class BlackFormulaRepository {
     return sum;
   }
 
+  /**
+   * The <b>forward</b> prices of a batch of options using the Black formula. Element i of the output is the price of
+   * the option described by element i of the inputs, as computed by {@link #price(double, double, double, double, boolean)},
+   * and no object is allocated for each option.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param lognormalVol The log-normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the <b>forward</b> prices, same length as the inputs
+   */
+  public static void price(final double[] forward, final double[] strike, final double[] timeToExpiry,
+      final double[] lognormalVol, final boolean[] isCall, final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, lognormalVol, output);
+    ArgumentChecker.isTrue(isCall.length == n, "isCall has length {}, expected {}", isCall.length, n);
+    for (int i = 0; i < n; i++) {
+      output[i] = priceKernel(forward[i], strike[i], timeToExpiry[i], lognormalVol[i], isCall[i]);
+    }
+  }
+
   /**
    * The forward (i.e. driftless) delta
    * @param forward The forward value of the underlying
@@ -135,6 +162,11 @@ public abstract class BlackFormulaRepository {
     ArgumentChecker.isTrue(strike >= 0.0, "negative/NaN strike; have {}", strike);
     ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
     ArgumentChecker.isTrue(lognormalVol >= 0.0, "negative/NaN lognormalVol; have {}", lognormalVol);
+    return deltaKernel(forward, strike, timeToExpiry, lognormalVol, isCall);
+  }
+
+  private static double deltaKernel(final double forward, final double strike, final double timeToExpiry,
+      final double lognormalVol, final boolean isCall) {
 
     double sigmaRootT = lognormalVol * Math.sqrt(timeToExpiry);
     if (Double.isNaN(sigmaRootT)) {
@@ -164,7 +196,26 @@ public abstract class BlackFormulaRepository {
       d1 = Math.log(forward / strike) / sigmaRootT + 0.5 * sigmaRootT;
     }
 
-    return sign * NORMAL.getCDF(sign * d1);
+    return sign * cdf(sign * d1);
+  }
+
+  /**
+   * The forward (i.e. driftless) deltas of a batch of options, computed element by element as
+   * {@link #delta(double, double, double, double, boolean)} without allocating an object for each option.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param lognormalVol The log-normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the forward deltas, same length as the inputs
+   */
+  public static void delta(final double[] forward, final double[] strike, final double[] timeToExpiry,
+      final double[] lognormalVol, final boolean[] isCall, final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, lognormalVol, output);
+    ArgumentChecker.isTrue(isCall.length == n, "isCall has length {}, expected {}", isCall.length, n);
+    for (int i = 0; i < n; i++) {
+      output[i] = deltaKernel(forward[i], strike[i], timeToExpiry[i], lognormalVol[i], isCall[i]);
+    }
   }
 
   public static double strikeForDelta(final double forward, final double forwardDelta, final double timeToExpiry,
@@ -646,6 +697,11 @@ public abstract class BlackFormulaRepository {
     ArgumentChecker.isTrue(strike >= 0.0, "negative/NaN strike; have {}", strike);
     ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
     ArgumentChecker.isTrue(lognormalVol >= 0.0, "negative/NaN lognormalVol; have {}", lognormalVol);
+    return vegaKernel(forward, strike, timeToExpiry, lognormalVol);
+  }
+
+  private static double vegaKernel(final double forward, final double strike, final double timeToExpiry,
+      final double lognormalVol) {
 
     final double rootT = Math.sqrt(timeToExpiry);
     double sigmaRootT = lognormalVol * rootT;
@@ -666,7 +722,7 @@ public abstract class BlackFormulaRepository {
         return 0.;
       }
       s_logger.info("log(1)/0 ambiguous");
-      return (rootT < SMALL && forward > LARGE) ? NORMAL.getPDF(0.) : forward * rootT * NORMAL.getPDF(0.);
+      return (rootT < SMALL && forward > LARGE) ? pdf(0.) : forward * rootT * pdf(0.);
     }
     if (Math.abs(forward - strike) < SMALL | (bFwd && bStr)) {
       d1 = 0.5 * sigmaRootT;
@@ -674,7 +730,7 @@ public abstract class BlackFormulaRepository {
       d1 = Math.log(forward / strike) / sigmaRootT + 0.5 * sigmaRootT;
     }
 
-    final double nVal = NORMAL.getPDF(d1);
+    final double nVal = pdf(d1);
     return nVal == 0. ? 0. : forward * rootT * nVal;
   }
 
@@ -684,6 +740,23 @@ public abstract class BlackFormulaRepository {
     return data.getDiscountFactor() * vega(data.getForward(), data.getStrike(), data.getTimeToExpiry(), lognormalVol);
   }
 
+  /**
+   * The forward vegas of a batch of options, computed element by element as {@link #vega(double, double, double, double)}
+   * without allocating an object for each option.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param lognormalVol The log-normal volatilities
+   * @param output The array receiving the forward vegas, same length as the inputs
+   */
+  public static void vega(final double[] forward, final double[] strike, final double[] timeToExpiry,
+      final double[] lognormalVol, final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, lognormalVol, output);
+    for (int i = 0; i < n; i++) {
+      output[i] = vegaKernel(forward[i], strike[i], timeToExpiry[i], lognormalVol[i]);
+    }
+  }
+
   /**
    * The driftless vanna of an option, i.e. second order derivative of the option value, once to the underlying forward
    * and once to volatility.
@@ -1013,6 +1086,25 @@ public abstract class BlackFormulaRepository {
     return solver.impliedVolatility(price, sigma);
   }
 
+  /**
+   * The log-normal (Black) implied volatilities of a batch of European options, computed element by element as
+   * {@link #impliedVolatility(double, double, double, double, boolean)}.
+   * @param price The <b>forward</b> prices
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the implied volatilities, same length as the inputs
+   */
+  public static void impliedVolatility(final double[] price, final double[] forward, final double[] strike,
+      final double[] timeToExpiry, final boolean[] isCall, final double[] output) {
+    final int n = checkBatch(price, forward, strike, timeToExpiry, output);
+    ArgumentChecker.isTrue(isCall.length == n, "isCall has length {}, expected {}", isCall.length, n);
+    for (int i = 0; i < n; i++) {
+      output[i] = impliedVolatility(price[i], forward[i], strike[i], timeToExpiry[i], isCall[i]);
+    }
+  }
+
   /**
    * Computes the implied strike from delta and volatility in the Black formula.
    * @param delta The option delta
@@ -1068,4 +1160,50 @@ public abstract class BlackFormulaRepository {
     return strike;
   }
 
+  /**
+   * Checks the arrays of a batch computation: not null, of the same length and, for the inputs, not negative or NaN.
+   * The inputs are checked before any computation, so that an invalid element does not leave the output partially written.
+   * @param input1 The first input
+   * @param input2 The second input
+   * @param input3 The third input
+   * @param input4 The fourth input
+   * @param output The output
+   * @return The length of the arrays
+   */
+  private static int checkBatch(final double[] input1, final double[] input2, final double[] input3, final double[] input4,
+      final double[] output) {
+    ArgumentChecker.notNull(input1, "input");
+    ArgumentChecker.notNull(input2, "input");
+    ArgumentChecker.notNull(input3, "input");
+    ArgumentChecker.notNull(input4, "input");
+    ArgumentChecker.notNull(output, "output");
+    final int n = input1.length;
+    ArgumentChecker.isTrue(input2.length == n && input3.length == n && input4.length == n && output.length == n,
+        "arrays of a batch must have the same length");
+    for (int i = 0; i < n; i++) {
+      if (!(input1[i] >= 0.0 && input2[i] >= 0.0 && input3[i] >= 0.0 && input4[i] >= 0.0)) {
+        throw new IllegalArgumentException("negative/NaN input at index " + i);
+      }
+    }
+    return n;
+  }
+
+  /**
+   * The standard normal cumulative distribution, as {@link NormalDistribution#getCDF(Double)} without boxing.
+   * @param x The value
+   * @return The cumulative distribution
+   */
+  private static double cdf(final double x) {
+    return DERFC.getErfc(-x / ROOT2) / 2;
+  }
+
+  /**
+   * The standard normal density, without boxing.
+   * @param x The value
+   * @return The density
+   */
+  private static double pdf(final double x) {
+    return INV_ROOT_2PI * Math.exp(-(x * x) / 2.0);
+  }
+
 }
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility;
+
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Repository for the normal (Bachelier) formulas: the price, delta and vega of European options when the underlying is
+ * normally distributed. The formulas are the ones of {@link com.opengamma.analytics.financial.model.option.pricing.analytic.formula.NormalPriceFunction}
+ * with a unit numeraire, so all prices, input/output, are <b>forward</b> prices.
+ * <p>
+ * Each formula also exists in a batched form, which reads the options from arrays and writes the results into a
+ * caller-provided array without allocating an object for each option.
+ */
+public final class NormalFormulaRepository {
+
+  private static final double SMALL = 1e-16;
+  private static final double ROOT2 = Math.sqrt(2);
+  private static final double INV_ROOT_2PI = 1.0 / Math.sqrt(2.0 * Math.PI);
+
+  /**
+   * Restricted constructor.
+   */
+  private NormalFormulaRepository() {
+  }
+
+  /**
+   * The <b>forward</b> price of an option using the normal (Bachelier) formula.
+   * @param forward The forward value of the underlying
+   * @param strike The strike
+   * @param timeToExpiry The time-to-expiry
+   * @param normalVol The normal volatility
+   * @param isCall True for calls, false for puts
+   * @return The <b>forward</b> price
+   */
+  public static double price(final double forward, final double strike, final double timeToExpiry, final double normalVol,
+      final boolean isCall) {
+    ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
+    ArgumentChecker.isTrue(normalVol >= 0.0, "negative/NaN normalVol; have {}", normalVol);
+    return priceKernel(forward, strike, timeToExpiry, normalVol, isCall);
+  }
+
+  /**
+   * The forward delta of an option using the normal (Bachelier) formula.
+   * @param forward The forward value of the underlying
+   * @param strike The strike
+   * @param timeToExpiry The time-to-expiry
+   * @param normalVol The normal volatility
+   * @param isCall True for calls, false for puts
+   * @return The forward delta
+   */
+  public static double delta(final double forward, final double strike, final double timeToExpiry, final double normalVol,
+      final boolean isCall) {
+    ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
+    ArgumentChecker.isTrue(normalVol >= 0.0, "negative/NaN normalVol; have {}", normalVol);
+    return deltaKernel(forward, strike, timeToExpiry, normalVol, isCall);
+  }
+
+  /**
+   * The forward vega of an option using the normal (Bachelier) formula.
+   * @param forward The forward value of the underlying
+   * @param strike The strike
+   * @param timeToExpiry The time-to-expiry
+   * @param normalVol The normal volatility
+   * @return The forward vega
+   */
+  public static double vega(final double forward, final double strike, final double timeToExpiry, final double normalVol) {
+    ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
+    ArgumentChecker.isTrue(normalVol >= 0.0, "negative/NaN normalVol; have {}", normalVol);
+    return vegaKernel(forward, strike, timeToExpiry, normalVol);
+  }
+
+  /**
+   * The <b>forward</b> prices of a batch of options, computed element by element as
+   * {@link #price(double, double, double, double, boolean)}.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param normalVol The normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the <b>forward</b> prices, same length as the inputs
+   */
+  public static void price(final double[] forward, final double[] strike, final double[] timeToExpiry, final double[] normalVol,
+      final boolean[] isCall, final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, normalVol, output);
+    ArgumentChecker.isTrue(isCall.length == n, "isCall has length {}, expected {}", isCall.length, n);
+    for (int i = 0; i < n; i++) {
+      output[i] = priceKernel(forward[i], strike[i], timeToExpiry[i], normalVol[i], isCall[i]);
+    }
+  }
+
+  /**
+   * The forward deltas of a batch of options, computed element by element as
+   * {@link #delta(double, double, double, double, boolean)}.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param normalVol The normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the forward deltas, same length as the inputs
+   */
+  public static void delta(final double[] forward, final double[] strike, final double[] timeToExpiry, final double[] normalVol,
+      final boolean[] isCall, final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, normalVol, output);
+    ArgumentChecker.isTrue(isCall.length == n, "isCall has length {}, expected {}", isCall.length, n);
+    for (int i = 0; i < n; i++) {
+      output[i] = deltaKernel(forward[i], strike[i], timeToExpiry[i], normalVol[i], isCall[i]);
+    }
+  }
+
+  /**
+   * The forward vegas of a batch of options, computed element by element as {@link #vega(double, double, double, double)}.
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param normalVol The normal volatilities
+   * @param output The array receiving the forward vegas, same length as the inputs
+   */
+  public static void vega(final double[] forward, final double[] strike, final double[] timeToExpiry, final double[] normalVol,
+      final double[] output) {
+    final int n = checkBatch(forward, strike, timeToExpiry, normalVol, output);
+    for (int i = 0; i < n; i++) {
+      output[i] = vegaKernel(forward[i], strike[i], timeToExpiry[i], normalVol[i]);
+    }
+  }
+
+  private static double priceKernel(final double forward, final double strike, final double timeToExpiry, final double normalVol,
+      final boolean isCall) {
+    final double sigmaRootT = normalVol * Math.sqrt(timeToExpiry);
+    final int sign = isCall ? 1 : -1;
+    if (sigmaRootT < SMALL) {
+      final double x = sign * (forward - strike);
+      return x > 0 ? x : 0.0;
+    }
+    final double arg = sign * (forward - strike) / sigmaRootT;
+    return sign * (forward - strike) * cdf(arg) + sigmaRootT * pdf(arg);
+  }
+
+  private static double deltaKernel(final double forward, final double strike, final double timeToExpiry, final double normalVol,
+      final boolean isCall) {
+    final double sigmaRootT = normalVol * Math.sqrt(timeToExpiry);
+    final int sign = isCall ? 1 : -1;
+    if (sigmaRootT < SMALL) {
+      final double x = sign * (forward - strike);
+      if (Math.abs(x) <= SMALL) {
+        return sign * 0.5; // ambiguous if x and sigmaRootT are tiny, then reference number is returned
+      }
+      return x > 0 ? sign : 0.0;
+    }
+    final double arg = sign * (forward - strike) / sigmaRootT;
+    return sign * cdf(arg);
+  }
+
+  private static double vegaKernel(final double forward, final double strike, final double timeToExpiry, final double normalVol) {
+    final double rootT = Math.sqrt(timeToExpiry);
+    final double sigmaRootT = normalVol * rootT;
+    if (sigmaRootT < SMALL) {
+      // ambiguous if x and sigmaRootT are tiny, then reference number is returned
+      return Math.abs(forward - strike) > SMALL ? 0.0 : rootT * INV_ROOT_2PI;
+    }
+    final double arg = (forward - strike) / sigmaRootT;
+    return pdf(arg) * rootT;
+  }
+
+  /**
+   * Checks the arrays of a batch computation: not null, of the same length and with times-to-expiry and volatilities
+   * not negative or NaN.
+   * @param forward The forwards
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param normalVol The volatilities
+   * @param output The output
+   * @return The length of the arrays
+   */
+  private static int checkBatch(final double[] forward, final double[] strike, final double[] timeToExpiry, final double[] normalVol,
+      final double[] output) {
+    ArgumentChecker.notNull(forward, "forward");
+    ArgumentChecker.notNull(strike, "strike");
+    ArgumentChecker.notNull(timeToExpiry, "timeToExpiry");
+    ArgumentChecker.notNull(normalVol, "normalVol");
+    ArgumentChecker.notNull(output, "output");
+    final int n = forward.length;
+    ArgumentChecker.isTrue(strike.length == n && timeToExpiry.length == n && normalVol.length == n && output.length == n,
+        "arrays of a batch must have the same length");
+    for (int i = 0; i < n; i++) {
+      if (!(timeToExpiry[i] >= 0.0 && normalVol[i] >= 0.0)) {
+        throw new IllegalArgumentException("negative/NaN timeToExpiry or normalVol at index " + i);
+      }
+    }
+    return n;
+  }
+
+  private static double cdf(final double x) {
+    return DERFC.getErfc(-x / ROOT2) / 2;
+  }
+
+  private static double pdf(final double x) {
+    return INV_ROOT_2PI * Math.exp(-(x * x) / 2.0);
+  }
+
+}
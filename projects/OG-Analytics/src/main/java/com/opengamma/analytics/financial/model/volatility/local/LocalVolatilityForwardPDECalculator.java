@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.volatility.local;
 
+import java.util.Arrays;
+
 import com.opengamma.analytics.financial.model.finitedifference.BoundaryCondition;
 import com.opengamma.analytics.financial.model.finitedifference.ConvectionDiffusionPDE1DCoefficients;
 import com.opengamma.analytics.financial.model.finitedifference.DirichletBoundaryCondition;
@@ -13,11 +15,15 @@ import com.opengamma.analytics.financial.model.finitedifference.HyperbolicMeshin
 import com.opengamma.analytics.financial.model.finitedifference.MeshingFunction;
 import com.opengamma.analytics.financial.model.finitedifference.NeumannBoundaryCondition;
 import com.opengamma.analytics.financial.model.finitedifference.PDE1DDataBundle;
+import com.opengamma.analytics.financial.model.finitedifference.PDEFullResults1D;
 import com.opengamma.analytics.financial.model.finitedifference.PDEGrid1D;
 import com.opengamma.analytics.financial.model.finitedifference.PDETerminalResults1D;
+import com.opengamma.analytics.financial.model.finitedifference.ThetaMethodFiniteDifference;
 import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
 import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.math.FunctionUtils;
 import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * 
@@ -29,6 +35,7 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
   private final double _spaceMeshBunching;
   private final double _maxProxyDelta;
   private final double _centreMoneyness;
+  private final ThetaMethodFiniteDifference _fullResultsSolver;
 
   public LocalVolatilityForwardPDECalculator(final double theta, final int nTimeSteps, final int nSpaceSteps, final double timeMeshLambda, final double spaceMeshBunching,
       final double maxProxyDelta, final double centreMoneyness) {
@@ -39,6 +46,7 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
     _spaceMeshBunching = spaceMeshBunching;
     _maxProxyDelta = maxProxyDelta;
     _centreMoneyness = centreMoneyness;
+    _fullResultsSolver = new ThetaMethodFiniteDifference(theta, true);
   }
 
   @Override
@@ -48,8 +56,8 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
     final double minMoneyness = Math.exp(-_maxProxyDelta * Math.sqrt(expiry));
     final double maxMoneyness = 1.0 / minMoneyness;
     final PDEGrid1D grid = getGrid(getTimeMesh(expiry), getSpaceMesh(minMoneyness, maxMoneyness));
-    final BoundaryCondition lower = getLowerBoundaryCondition(option, minMoneyness);
-    final BoundaryCondition upper = getUpperBoundaryCondition(option, maxMoneyness);
+    final BoundaryCondition lower = getLowerBoundaryCondition(isCall, minMoneyness);
+    final BoundaryCondition upper = getUpperBoundaryCondition(isCall, maxMoneyness);
     final ConvectionDiffusionPDE1DCoefficients pde = getPDEProvider().getForwardLocalVol(localVolatility);
     final Function1D<Double, Double> intCond = getInitialConditionProvider().getForwardCallPut(isCall);
     final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> db = new PDE1DDataBundle<>(pde, intCond, lower, upper, grid);
@@ -63,14 +71,43 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
     final double minMoneyness = Math.exp(-_maxProxyDelta * Math.sqrt(expiry));
     final double maxMoneyness = 1.0 / minMoneyness;
     final PDEGrid1D grid = getGrid(getTimeMesh(expiry), getSpaceMesh(minMoneyness, maxMoneyness));
-    final BoundaryCondition lower = getLowerBoundaryCondition(option, minMoneyness);
-    final BoundaryCondition upper = getUpperBoundaryCondition(option, maxMoneyness);
+    final BoundaryCondition lower = getLowerBoundaryCondition(isCall, minMoneyness);
+    final BoundaryCondition upper = getUpperBoundaryCondition(isCall, maxMoneyness);
     final ConvectionDiffusionPDE1DCoefficients pde = getPDEProvider().getForwardLocalVol(forwardCurve, localVolatility);
     final Function1D<Double, Double> intCond = getInitialConditionProvider().getForwardCallPut(isCall);
     final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> db = new PDE1DDataBundle<>(pde, intCond, lower, upper, grid);
     return (PDETerminalResults1D) getSolver().solve(db);
   }
 
+  /**
+   * Runs the forward PDE once for a set of expiries and keeps the (modified) prices at every time node. All the expiries are nodes of the time grid;
+   * the space grid is the one used for the longest expiry.
+   * @param localVolatility The local volatility surface, not null
+   * @param expiries The expiries, not null or empty. They must be positive and there must be at least two more time steps than expiries.
+   * @param isCall True for calls, false for puts
+   * @return The results at every time node
+   */
+  public PDEFullResults1D runPDESolver(final LocalVolatilitySurfaceMoneyness localVolatility, final double[] expiries, final boolean isCall) {
+    ArgumentChecker.notNull(localVolatility, "local volatility");
+    ArgumentChecker.notEmpty(expiries, "expiries");
+    final double[] sortedExpiries = FunctionUtils.unique(expiries.clone());
+    final int nExpiries = sortedExpiries.length;
+    ArgumentChecker.isTrue(sortedExpiries[0] > 0, "expiries must be positive");
+    ArgumentChecker.isTrue(_nTimeSteps >= nExpiries + 1, "need at least {} time steps for {} expiries", nExpiries + 1, nExpiries);
+    final double maxExpiry = sortedExpiries[nExpiries - 1];
+    final double minMoneyness = Math.exp(-_maxProxyDelta * Math.sqrt(maxExpiry));
+    final double maxMoneyness = 1.0 / minMoneyness;
+    final MeshingFunction timeMesh = nExpiries == 1 ? getTimeMesh(maxExpiry) :
+        new ExponentialMeshing(0.0, maxExpiry, _nTimeSteps, _timeMeshLambda, Arrays.copyOf(sortedExpiries, nExpiries - 1));
+    final PDEGrid1D grid = getGrid(timeMesh, getSpaceMesh(minMoneyness, maxMoneyness));
+    final BoundaryCondition lower = getLowerBoundaryCondition(isCall, minMoneyness);
+    final BoundaryCondition upper = getUpperBoundaryCondition(isCall, maxMoneyness);
+    final ConvectionDiffusionPDE1DCoefficients pde = getPDEProvider().getForwardLocalVol(localVolatility);
+    final Function1D<Double, Double> intCond = getInitialConditionProvider().getForwardCallPut(isCall);
+    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> db = new PDE1DDataBundle<>(pde, intCond, lower, upper, grid);
+    return (PDEFullResults1D) _fullResultsSolver.solve(db);
+  }
+
   public int getNTimeSteps() {
     return _nTimeSteps;
   }
@@ -103,14 +140,14 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
     return new HyperbolicMeshing(minMoneyness, maxMoneyness, _centreMoneyness, _nSpaceSteps, _spaceMeshBunching);
   }
 
-  private BoundaryCondition getLowerBoundaryCondition(final EuropeanVanillaOption option, final double minMoneyness) {
+  private BoundaryCondition getLowerBoundaryCondition(final boolean isCall, final double minMoneyness) {
     //call option with strike zero is worth the forward, while a put is worthless
-    return option.isCall() ? new DirichletBoundaryCondition(1.0 - minMoneyness, minMoneyness) : new DirichletBoundaryCondition(0.0, minMoneyness);
+    return isCall ? new DirichletBoundaryCondition(1.0 - minMoneyness, minMoneyness) : new DirichletBoundaryCondition(0.0, minMoneyness);
   }
 
-  private BoundaryCondition getUpperBoundaryCondition(final EuropeanVanillaOption option, final double maxMoneyness) {
+  private BoundaryCondition getUpperBoundaryCondition(final boolean isCall, final double maxMoneyness) {
     //call option with strike zero is worth the forward, while a put is worthless
-    return option.isCall() ? new DirichletBoundaryCondition(0.0, maxMoneyness) : new NeumannBoundaryCondition(1.0, maxMoneyness, false);
+    return isCall ? new DirichletBoundaryCondition(0.0, maxMoneyness) : new NeumannBoundaryCondition(1.0, maxMoneyness, false);
   }
 
 }
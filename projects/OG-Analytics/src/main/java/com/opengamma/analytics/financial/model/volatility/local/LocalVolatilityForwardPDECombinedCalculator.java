@@ -0,0 +1,500 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.local;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.MapMaker;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.model.finitedifference.PDEFullResults1D;
+import com.opengamma.analytics.financial.model.finitedifference.PDETerminalResults1D;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.interpolation.SurfaceArrayUtils;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.StandardSmileSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceMoneyness;
+import com.opengamma.analytics.financial.model.volatility.surface.VolatilitySurfaceInterpolator;
+import com.opengamma.analytics.math.FunctionUtils;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calculates prices, implied volatilities, spot and strike greeks and bucketed vega from a single forward PDE solve.
+ * <p>
+ * The forward PDE gives the (modified) prices of all strikes at once, so one solve for a set of expiries serves every option on
+ * the same underlying with one of those expiries. The full results of each solve are cached against the identity of the local
+ * volatility surface, so that the results requested separately for the same surface (e.g. by different functions in a calculation
+ * cycle) share the solve. An entry is released once its surface is no longer referenced. Concurrent requests for the same solve wait
+ * for the one thread running it, while different solves for the same surface run in parallel.
+ */
+public class LocalVolatilityForwardPDECombinedCalculator {
+  private static final double VEGA_SHIFT = 1e-4;
+  /** The cached solves; the surfaces are weakly referenced and compared by identity */
+  private static final ConcurrentMap<LocalVolatilitySurface<?>, ConcurrentMap<SolveKey, FutureTask<PDEFullResults1D>>> s_cache = new MapMaker().weakKeys().makeMap();
+
+  private final LocalVolatilityForwardPDECalculator _pdeCalculator;
+  private final Interpolator1D _interpolator;
+  private final LocalVolatilityForwardPDESpotGreeksGridCalculator _deltaCalculator;
+  private final LocalVolatilityForwardPDESpotGreeksGridCalculator _gammaCalculator;
+  private final LocalVolatilityForwardPDEStrikeGreeksGridCalculator _dualDeltaCalculator;
+  private final LocalVolatilityForwardPDEStrikeGreeksGridCalculator _dualGammaCalculator;
+
+  /**
+   * The results that can be calculated on a strike grid.
+   */
+  public enum GridResult {
+    /** The price */
+    PRICE,
+    /** The Black implied volatility */
+    IMPLIED_VOLATILITY,
+    /** The delta */
+    DELTA,
+    /** The gamma */
+    GAMMA,
+    /** The dual (strike) delta */
+    DUAL_DELTA,
+    /** The dual (strike) gamma */
+    DUAL_GAMMA
+  }
+
+  /**
+   * @param pdeCalculator The forward PDE calculator, not null
+   * @param interpolator The interpolator used for the results on the strike grid, not null
+   */
+  public LocalVolatilityForwardPDECombinedCalculator(final LocalVolatilityForwardPDECalculator pdeCalculator, final Interpolator1D interpolator) {
+    ArgumentChecker.notNull(pdeCalculator, "PDE calculator");
+    ArgumentChecker.notNull(interpolator, "interpolator");
+    _pdeCalculator = pdeCalculator;
+    _interpolator = interpolator;
+    _deltaCalculator = new LocalVolatilityForwardPDESpotGreeksGridCalculator.DeltaCalculator(pdeCalculator, interpolator);
+    _gammaCalculator = new LocalVolatilityForwardPDESpotGreeksGridCalculator.GammaCalculator(pdeCalculator, interpolator);
+    _dualDeltaCalculator = new LocalVolatilityForwardPDEStrikeGreeksGridCalculator.DualDeltaCalculator(pdeCalculator, interpolator);
+    _dualGammaCalculator = new LocalVolatilityForwardPDEStrikeGreeksGridCalculator.DualGammaCalculator(pdeCalculator, interpolator);
+  }
+
+  /**
+   * Gets the full results of the forward PDE for a set of expiries, solving it only if it has not already been solved for this surface.
+   * @param localVolatility The local volatility surface, not null
+   * @param expiries The expiries, not null or empty
+   * @param isCall True for calls, false for puts
+   * @return The results at every time node; all the expiries are time nodes
+   */
+  public PDEFullResults1D getPDEResults(final LocalVolatilitySurfaceMoneyness localVolatility, final double[] expiries, final boolean isCall) {
+    ArgumentChecker.notNull(localVolatility, "local volatility");
+    ArgumentChecker.notEmpty(expiries, "expiries");
+    final SolveKey key = new SolveKey(null, expiries, isCall, _pdeCalculator);
+    return getCachedPDEResults(localVolatility, key, new Callable<PDEFullResults1D>() {
+      @Override
+      public PDEFullResults1D call() {
+        return _pdeCalculator.runPDESolver(localVolatility, key._expiries, isCall);
+      }
+    });
+  }
+
+  /**
+   * Gets the full results of the forward PDE for a set of expiries, solving it only if it has not already been solved for this surface
+   * and forward curve.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param expiries The expiries, not null or empty
+   * @param isCall True for calls, false for puts
+   * @return The results at every time node; all the expiries are time nodes
+   */
+  public PDEFullResults1D getPDEResults(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve, final double[] expiries, final boolean isCall) {
+    ArgumentChecker.notNull(localVolatility, "local volatility");
+    ArgumentChecker.notNull(forwardCurve, "forward curve");
+    ArgumentChecker.notEmpty(expiries, "expiries");
+    final SolveKey key = new SolveKey(forwardCurve, expiries, isCall, _pdeCalculator);
+    return getCachedPDEResults(localVolatility, key, new Callable<PDEFullResults1D>() {
+      @Override
+      public PDEFullResults1D call() {
+        return _pdeCalculator.runPDESolver(LocalVolatilitySurfaceConverter.toMoneynessSurface(localVolatility, forwardCurve), key._expiries, isCall);
+      }
+    });
+  }
+
+  /**
+   * Calculates a set of results on the strike grid of the option expiry.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param option The option, not null. Its expiry must be one of the expiries.
+   * @param expiries The expiries solved together, not null or empty
+   * @param results The results required, not null
+   * @return The results as functions of strike
+   */
+  public Map<GridResult, Interpolator1DDataBundle> getGridResults(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve,
+      final EuropeanVanillaOption option, final double[] expiries, final Set<GridResult> results) {
+    ArgumentChecker.notNull(forwardCurve, "forward curve");
+    ArgumentChecker.notNull(option, "option");
+    return getGridResults(getPDEResults(localVolatility, expiries, option.isCall()), forwardCurve, option, results);
+  }
+
+  /**
+   * Calculates a set of results on the strike grid of the option expiry.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param option The option, not null. Its expiry must be one of the expiries.
+   * @param expiries The expiries solved together, not null or empty
+   * @param results The results required, not null
+   * @return The results as functions of strike
+   */
+  public Map<GridResult, Interpolator1DDataBundle> getGridResults(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve,
+      final EuropeanVanillaOption option, final double[] expiries, final Set<GridResult> results) {
+    ArgumentChecker.notNull(option, "option");
+    return getGridResults(getPDEResults(localVolatility, forwardCurve, expiries, option.isCall()), forwardCurve, option, results);
+  }
+
+  /**
+   * Calculates all the results on the strike grid of the option expiry, solving the PDE for that expiry only.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param option The option, not null
+   * @return The results as functions of strike
+   */
+  public Map<GridResult, Interpolator1DDataBundle> getGridResults(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve,
+      final EuropeanVanillaOption option) {
+    ArgumentChecker.notNull(option, "option");
+    return getGridResults(localVolatility, forwardCurve, option, new double[] {option.getTimeToExpiry() }, EnumSet.allOf(GridResult.class));
+  }
+
+  /**
+   * Calculates all the results on the strike grid of the option expiry, solving the PDE for that expiry only.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param option The option, not null
+   * @return The results as functions of strike
+   */
+  public Map<GridResult, Interpolator1DDataBundle> getGridResults(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve,
+      final EuropeanVanillaOption option) {
+    ArgumentChecker.notNull(option, "option");
+    return getGridResults(localVolatility, forwardCurve, option, new double[] {option.getTimeToExpiry() }, EnumSet.allOf(GridResult.class));
+  }
+
+  /**
+   * Gets a calculator for a single result that shares its solves with the other results of this class.
+   * @param result The result, not null
+   * @return The calculator
+   */
+  public PDELocalVolatilityCalculator<Interpolator1DDataBundle> getGridCalculator(final GridResult result) {
+    ArgumentChecker.notNull(result, "result");
+    final Set<GridResult> results = EnumSet.of(result);
+    return new PDELocalVolatilityCalculator<Interpolator1DDataBundle>() {
+
+      @Override
+      public Interpolator1DDataBundle getResult(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
+          final YieldAndDiscountCurve discountingCurve) {
+        ArgumentChecker.notNull(option, "option");
+        return getGridResults(localVolatility, forwardCurve, option, new double[] {option.getTimeToExpiry() }, results).get(result);
+      }
+
+      @Override
+      public Interpolator1DDataBundle getResult(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
+          final YieldAndDiscountCurve discountingCurve) {
+        ArgumentChecker.notNull(option, "option");
+        return getGridResults(localVolatility, forwardCurve, option, new double[] {option.getTimeToExpiry() }, results).get(result);
+      }
+    };
+  }
+
+  /**
+   * Calculates the bucketed vega of a set of options, i.e. the sensitivity of their implied volatilities to each of the market implied volatilities.
+   * The unbumped surface is solved once (or taken from the cache) and each bumped surface is solved once for all the options.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param options The options, not null or empty. They must be all calls or all puts.
+   * @param marketData The market data, not null
+   * @param dupireCalculator The calculator of the local volatility of the bumped surfaces, not null
+   * @param surfaceInterpolator The interpolator of the bumped market data, not null
+   * @return The bucketed vega for each option, indexed by option, market expiry and market strike
+   */
+  public double[][][] getBucketedVega(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption[] options,
+      final StandardSmileSurfaceDataBundle marketData, final DupireLocalVolatilityCalculator dupireCalculator, final VolatilitySurfaceInterpolator surfaceInterpolator) {
+    ArgumentChecker.notNull(forwardCurve, "forward curve");
+    ArgumentChecker.notEmpty(options, "options");
+    ArgumentChecker.notNull(marketData, "market data");
+    ArgumentChecker.notNull(dupireCalculator, "Dupire calculator");
+    ArgumentChecker.notNull(surfaceInterpolator, "surface interpolator");
+    final int nOptions = options.length;
+    final boolean isCall = options[0].isCall();
+    final double[] expiries = new double[nOptions];
+    for (int k = 0; k < nOptions; k++) {
+      ArgumentChecker.isTrue(options[k].isCall() == isCall, "options must be all calls or all puts");
+      expiries[k] = options[k].getTimeToExpiry();
+    }
+    final PDEFullResults1D pdeResults = getPDEResults(localVolatility, expiries, isCall);
+    final double[] xNodes = pdeResults.getGrid().getSpaceNodes();
+    final int spaceSteps = xNodes.length - 1;
+    final int[] timeIndices = new int[nOptions];
+    final int[] spaceIndices = new int[nOptions];
+    final double[] x = new double[nOptions];
+    final double[][] moneyness = new double[nOptions][4];
+    final double[] baseVols = new double[nOptions];
+    for (int k = 0; k < nOptions; k++) {
+      timeIndices[k] = getTimeIndex(pdeResults, options[k]);
+      x[k] = options[k].getStrike() / forwardCurve.getForward(expiries[k]);
+      int index = SurfaceArrayUtils.getLowerBoundIndex(xNodes, x[k]);
+      if (index >= 1) {
+        index--;
+      }
+      if (index >= spaceSteps - 1) {
+        index--;
+        if (index >= spaceSteps - 1) {
+          index--;
+        }
+      }
+      spaceIndices[k] = index;
+      System.arraycopy(xNodes, index, moneyness[k], 0, 4);
+      baseVols[k] = getInterpolatedVolatility(pdeResults.getF()[timeIndices[k]], index, moneyness[k], x[k], expiries[k], isCall);
+    }
+    final double[][] strikes = marketData.getStrikes();
+    final int n = marketData.getNumExpiries();
+    final double[][][] res = new double[nOptions][n][];
+    for (int i = 0; i < n; i++) {
+      final int m = strikes[i].length;
+      for (int k = 0; k < nOptions; k++) {
+        res[k][i] = new double[m];
+      }
+      for (int j = 0; j < m; j++) {
+        final BlackVolatilitySurfaceMoneyness bumpedSurface = surfaceInterpolator.getBumpedVolatilitySurface(marketData, i, j, VEGA_SHIFT);
+        final LocalVolatilitySurfaceMoneyness bumpedLV = dupireCalculator.getLocalVolatility(bumpedSurface);
+        final double[][] bumpedPrices = _pdeCalculator.runPDESolver(bumpedLV, expiries, isCall).getF();
+        for (int k = 0; k < nOptions; k++) {
+          final double vol = getInterpolatedVolatility(bumpedPrices[timeIndices[k]], spaceIndices[k], moneyness[k], x[k], expiries[k], isCall);
+          res[k][i][j] = (vol - baseVols[k]) / VEGA_SHIFT;
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Calculates the bucketed vega of a set of options, i.e. the sensitivity of their implied volatilities to each of the market implied volatilities.
+   * The unbumped surface is solved once (or taken from the cache) and each bumped surface is solved once for all the options.
+   * @param localVolatility The local volatility surface, not null
+   * @param forwardCurve The forward curve, not null
+   * @param options The options, not null or empty. They must be all calls or all puts.
+   * @param marketData The market data, not null
+   * @param dupireCalculator The calculator of the local volatility of the bumped surfaces, not null
+   * @param surfaceInterpolator The interpolator of the bumped market data, not null
+   * @return The bucketed vega for each option, indexed by option, market expiry and market strike
+   */
+  public double[][][] getBucketedVega(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption[] options,
+      final StandardSmileSurfaceDataBundle marketData, final DupireLocalVolatilityCalculator dupireCalculator, final VolatilitySurfaceInterpolator surfaceInterpolator) {
+    ArgumentChecker.notNull(localVolatility, "local volatility");
+    ArgumentChecker.notNull(forwardCurve, "forward curve");
+    return getBucketedVega(LocalVolatilitySurfaceConverter.toMoneynessSurface(localVolatility, forwardCurve), forwardCurve, options, marketData, dupireCalculator,
+        surfaceInterpolator);
+  }
+
+  public LocalVolatilityForwardPDECalculator getPDECalculator() {
+    return _pdeCalculator;
+  }
+
+  public Interpolator1D getInterpolator() {
+    return _interpolator;
+  }
+
+  private Map<GridResult, Interpolator1DDataBundle> getGridResults(final PDEFullResults1D pdeResults, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
+      final Set<GridResult> results) {
+    ArgumentChecker.notNull(forwardCurve, "forward curve");
+    ArgumentChecker.notNull(results, "results");
+    final double forward = forwardCurve.getForward(option.getTimeToExpiry());
+    final PDETerminalResults1D pdeGrid = new PDETerminalResults1D(pdeResults.getGrid(), pdeResults.getF()[getTimeIndex(pdeResults, option)]);
+    final Map<GridResult, Interpolator1DDataBundle> res = new EnumMap<>(GridResult.class);
+    for (final GridResult result : results) {
+      switch (result) {
+        case PRICE:
+          res.put(result, LocalVolatilityForwardPDEPriceGridCalculator.getPriceGrid(pdeGrid, forward, option, _interpolator));
+          break;
+        case IMPLIED_VOLATILITY:
+          res.put(result, LocalVolatilityForwardPDEImpliedVolatilityGridCalculator.getImpliedVolatilityGrid(pdeGrid, forward, option, _interpolator));
+          break;
+        case DELTA:
+          res.put(result, getSpotGreekGrid(_deltaCalculator, pdeGrid, forward, option));
+          break;
+        case GAMMA:
+          res.put(result, getSpotGreekGrid(_gammaCalculator, pdeGrid, forward, option));
+          break;
+        case DUAL_DELTA:
+          res.put(result, getStrikeGreekGrid(_dualDeltaCalculator, pdeGrid, forward, option));
+          break;
+        case DUAL_GAMMA:
+          res.put(result, getStrikeGreekGrid(_dualGammaCalculator, pdeGrid, forward, option));
+          break;
+        default:
+          throw new IllegalArgumentException("Cannot handle result " + result);
+      }
+    }
+    return Collections.unmodifiableMap(res);
+  }
+
+  // the forward PDE has no dependence on the spot beyond the moneyness, so the "up" and "down" grids are the unbumped grid, as in
+  // LocalVolatilityForwardPDESpotGreeksGridCalculator
+  private Interpolator1DDataBundle getSpotGreekGrid(final LocalVolatilityForwardPDESpotGreeksGridCalculator calculator, final PDETerminalResults1D pdeGrid,
+      final double forward, final EuropeanVanillaOption option) {
+    final int n = pdeGrid.getNumberSpaceNodes();
+    final double[] strikes = new double[n];
+    final double[] greeks = new double[n];
+    for (int i = 0; i < n; i++) {
+      strikes[i] = pdeGrid.getSpaceValue(i) * forward;
+      greeks[i] = calculator.getResultForMoneyness(pdeGrid, pdeGrid, pdeGrid, i, forward, option);
+    }
+    return _interpolator.getDataBundleFromSortedArrays(strikes, greeks);
+  }
+
+  private Interpolator1DDataBundle getStrikeGreekGrid(final LocalVolatilityForwardPDEStrikeGreeksGridCalculator calculator, final PDETerminalResults1D pdeGrid,
+      final double forward, final EuropeanVanillaOption option) {
+    final int n = pdeGrid.getNumberSpaceNodes();
+    final double[] strikes = new double[n];
+    final double[] greeks = new double[n];
+    for (int i = 0; i < n; i++) {
+      strikes[i] = pdeGrid.getSpaceValue(i) * forward;
+      greeks[i] = calculator.getResultForMoneyness(pdeGrid, pdeGrid, pdeGrid, i, forward, option);
+    }
+    return _interpolator.getDataBundleFromSortedArrays(strikes, greeks);
+  }
+
+  private double getInterpolatedVolatility(final double[] modifiedPrices, final int index, final double[] moneyness, final double x, final double expiry,
+      final boolean isCall) {
+    final double[] vols = new double[4];
+    for (int i = 0; i < 4; i++) {
+      vols[i] = BlackFormulaRepository.impliedVolatility(modifiedPrices[index + i], 1.0, moneyness[i], expiry, isCall);
+    }
+    return _interpolator.interpolate(_interpolator.getDataBundle(moneyness, vols), x);
+  }
+
+  private static int getTimeIndex(final PDEFullResults1D pdeResults, final EuropeanVanillaOption option) {
+    final int index = Arrays.binarySearch(pdeResults.getGrid().getTimeNodes(), option.getTimeToExpiry());
+    ArgumentChecker.isTrue(index >= 0, "option expiry {} is not one of the expiries solved for", option.getTimeToExpiry());
+    return index;
+  }
+
+  /**
+   * Gets the results of a solve from the cache, running it in the calling thread if no other thread has started it. A failed solve is
+   * removed from the cache so that it is attempted again by the next request.
+   */
+  private static PDEFullResults1D getCachedPDEResults(final LocalVolatilitySurface<?> localVolatility, final SolveKey key, final Callable<PDEFullResults1D> solve) {
+    final ConcurrentMap<SolveKey, FutureTask<PDEFullResults1D>> surfaceCache = getSurfaceCache(localVolatility);
+    FutureTask<PDEFullResults1D> task = surfaceCache.get(key);
+    if (task == null) {
+      final FutureTask<PDEFullResults1D> newTask = new FutureTask<>(solve);
+      task = surfaceCache.putIfAbsent(key, newTask);
+      if (task == null) {
+        task = newTask;
+        task.run();
+      }
+    }
+    try {
+      return task.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted waiting for PDE solve", e);
+    } catch (final ExecutionException e) {
+      surfaceCache.remove(key, task);
+      Throwables.propagateIfPossible(e.getCause());
+      throw new OpenGammaRuntimeException("PDE solve failed", e.getCause());
+    }
+  }
+
+  private static ConcurrentMap<SolveKey, FutureTask<PDEFullResults1D>> getSurfaceCache(final LocalVolatilitySurface<?> localVolatility) {
+    ConcurrentMap<SolveKey, FutureTask<PDEFullResults1D>> surfaceCache = s_cache.get(localVolatility);
+    if (surfaceCache == null) {
+      surfaceCache = new ConcurrentHashMap<>();
+      final ConcurrentMap<SolveKey, FutureTask<PDEFullResults1D>> existing = s_cache.putIfAbsent(localVolatility, surfaceCache);
+      if (existing != null) {
+        surfaceCache = existing;
+      }
+    }
+    return surfaceCache;
+  }
+
+  /**
+   * Identifies a solve for a given surface. The forward curve (only used for strike surfaces) is compared by identity, like the surface.
+   */
+  private static final class SolveKey {
+    private final ForwardCurve _forwardCurve;
+    private final double[] _expiries;
+    private final boolean _isCall;
+    private final double _theta;
+    private final int _nTimeSteps;
+    private final int _nSpaceSteps;
+    private final double _timeMeshLambda;
+    private final double _spaceMeshBunching;
+    private final double _maxProxyDelta;
+    private final double _centreMoneyness;
+
+    SolveKey(final ForwardCurve forwardCurve, final double[] expiries, final boolean isCall, final LocalVolatilityForwardPDECalculator pdeCalculator) {
+      _forwardCurve = forwardCurve;
+      _expiries = FunctionUtils.unique(expiries.clone());
+      _isCall = isCall;
+      _theta = pdeCalculator.getSolver().getTheta();
+      _nTimeSteps = pdeCalculator.getNTimeSteps();
+      _nSpaceSteps = pdeCalculator.getNSpaceSteps();
+      _timeMeshLambda = pdeCalculator.getTimeMeshLambda();
+      _spaceMeshBunching = pdeCalculator.getSpaceMeshBunching();
+      _maxProxyDelta = pdeCalculator.getMaxProxyDelta();
+      _centreMoneyness = pdeCalculator.getCentreMoneyness();
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + System.identityHashCode(_forwardCurve);
+      result = prime * result + Arrays.hashCode(_expiries);
+      result = prime * result + (_isCall ? 1231 : 1237);
+      long temp;
+      temp = Double.doubleToLongBits(_theta);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      result = prime * result + _nTimeSteps;
+      result = prime * result + _nSpaceSteps;
+      temp = Double.doubleToLongBits(_timeMeshLambda);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_spaceMeshBunching);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_maxProxyDelta);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_centreMoneyness);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SolveKey)) {
+        return false;
+      }
+      final SolveKey other = (SolveKey) obj;
+      return _forwardCurve == other._forwardCurve &&
+          _isCall == other._isCall &&
+          _nTimeSteps == other._nTimeSteps &&
+          _nSpaceSteps == other._nSpaceSteps &&
+          Double.doubleToLongBits(_theta) == Double.doubleToLongBits(other._theta) &&
+          Double.doubleToLongBits(_timeMeshLambda) == Double.doubleToLongBits(other._timeMeshLambda) &&
+          Double.doubleToLongBits(_spaceMeshBunching) == Double.doubleToLongBits(other._spaceMeshBunching) &&
+          Double.doubleToLongBits(_maxProxyDelta) == Double.doubleToLongBits(other._maxProxyDelta) &&
+          Double.doubleToLongBits(_centreMoneyness) == Double.doubleToLongBits(other._centreMoneyness) &&
+          Arrays.equals(_expiries, other._expiries);
+    }
+  }
+}
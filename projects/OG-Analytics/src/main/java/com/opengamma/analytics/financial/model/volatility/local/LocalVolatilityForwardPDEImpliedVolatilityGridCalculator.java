@@ -32,10 +32,22 @@ public class LocalVolatilityForwardPDEImpliedVolatilityGridCalculator implements
   public Interpolator1DDataBundle getResult(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
       final YieldAndDiscountCurve discountingCurve) {
     final PDETerminalResults1D pdeGrid = _pdeCalculator.runPDESolver(localVolatility, option);
+    return getImpliedVolatilityGrid(pdeGrid, forwardCurve.getForward(option.getTimeToExpiry()), option, _interpolator);
+  }
+
+  /**
+   * Converts the (modified) prices of a forward PDE solve at the expiry of an option to implied volatilities as a function of strike.
+   * @param pdeGrid The PDE results at the option expiry
+   * @param forward The forward at the option expiry
+   * @param option The option
+   * @param interpolator The interpolator
+   * @return The implied volatilities as a function of strike
+   */
+  static Interpolator1DDataBundle getImpliedVolatilityGrid(final PDETerminalResults1D pdeGrid, final double forward, final EuropeanVanillaOption option,
+      final Interpolator1D interpolator) {
     final PDEGrid1D grid = pdeGrid.getGrid();
     final double expiry = option.getTimeToExpiry();
     final boolean isCall = option.isCall();
-    final double forward = forwardCurve.getForward(expiry);
     final double[] moneynesses = grid.getSpaceNodes();
     final double[] modifiedPrices = pdeGrid.getTerminalResults();
     final int n = modifiedPrices.length;
@@ -52,7 +64,7 @@ public class LocalVolatilityForwardPDEImpliedVolatilityGridCalculator implements
     }
     strikes = Arrays.copyOfRange(strikes, 0, count);
     impliedVols = Arrays.copyOfRange(impliedVols, 0, count);
-    return _interpolator.getDataBundleFromSortedArrays(strikes, impliedVols);
+    return interpolator.getDataBundleFromSortedArrays(strikes, impliedVols);
   }
 
   @Override
@@ -32,11 +32,22 @@ public class LocalVolatilityForwardPDEPriceGridCalculator implements PDELocalVol
   public Interpolator1DDataBundle getResult(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
       final YieldAndDiscountCurve discountingCurve) {
     final PDETerminalResults1D pdeGrid = _pdeCalculator.runPDESolver(localVolatility, option);
+    return getPriceGrid(pdeGrid, forwardCurve.getForward(option.getTimeToExpiry()), option, _interpolator);
+  }
+
+  /**
+   * Converts the (modified) prices of a forward PDE solve at the expiry of an option to prices as a function of strike.
+   * @param pdeGrid The PDE results at the option expiry
+   * @param forward The forward at the option expiry
+   * @param option The option
+   * @param interpolator The interpolator
+   * @return The prices as a function of strike
+   */
+  static Interpolator1DDataBundle getPriceGrid(final PDETerminalResults1D pdeGrid, final double forward, final EuropeanVanillaOption option, final Interpolator1D interpolator) {
     final PDEGrid1D grid = pdeGrid.getGrid();
     final double expiry = option.getTimeToExpiry();
     final boolean isCall = option.isCall();
     final double strike = option.getStrike();
-    final double forward = forwardCurve.getForward(expiry);
     final double[] moneynesses = grid.getSpaceNodes();
     final double[] modifiedPrices = pdeGrid.getTerminalResults();
     final int n = modifiedPrices.length;
@@ -50,7 +61,7 @@ public class LocalVolatilityForwardPDEPriceGridCalculator implements PDELocalVol
       } catch (final Exception e) {
       }
     }
-    return _interpolator.getDataBundleFromSortedArrays(strikes.toDoubleArray(), prices.toDoubleArray());
+    return interpolator.getDataBundleFromSortedArrays(strikes.toDoubleArray(), prices.toDoubleArray());
   }
 
   @Override
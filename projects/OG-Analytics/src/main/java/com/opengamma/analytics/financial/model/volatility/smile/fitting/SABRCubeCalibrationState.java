@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.smile.fitting;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The state of the calibration of a SABR cube kept between two calibrations of the same cube, used by {@link SABRModelCubeFitter} to
+ * warm-start each slice from its previous parameters.
+ * <p>
+ * The slices are identified by their expiry and tenor indexes. The state stores, for each slice, the calibrated SABR parameters
+ * (alpha, beta, rho, nu) and the chi-square of the fit, and records for the last calibration whether the slice was started from its previous
+ * parameters, from a neighbouring slice or from the default start, and the time spent in the calibration.
+ * <p>
+ * The state is updated by the fitter. Different slices can be updated by different threads; the same state should not be used by
+ * concurrent calibrations.
+ */
+public class SABRCubeCalibrationState {
+
+  /** Start from the default start. */
+  public static final int START_DEFAULT = 0;
+  /** Start from the parameters of the neighbouring slice with the previous tenor, calibrated in the same calibration. */
+  public static final int START_NEIGHBOUR = 1;
+  /** Start from the parameters of the same slice in the previous calibration. */
+  public static final int START_PREVIOUS = 2;
+
+  /** The parameters of each slice. */
+  private double[][][] _parameters;
+  /** The chi-square of each slice. */
+  private double[][] _chiSquare;
+  /** The start of each slice in the last calibration. */
+  private int[][] _start;
+  /** The time spent in the last calibration, in nanoseconds. */
+  private long _calibrationTime;
+  /** The number of calibrations done with this state. */
+  private int _nbCalibrations;
+
+  /**
+   * Constructor of an empty state; the first calibration starts all the slices from the default start or from their neighbours.
+   */
+  public SABRCubeCalibrationState() {
+    setDimensions(0, 0);
+  }
+
+  /**
+   * Starts a calibration. When the dimensions of the cube have changed, the previous parameters are discarded.
+   * @param nbExpiries The number of expiries.
+   * @param nbTenors The number of tenors.
+   */
+  public void startCalibration(final int nbExpiries, final int nbTenors) {
+    ArgumentChecker.notNegative(nbExpiries, "number of expiries");
+    ArgumentChecker.notNegative(nbTenors, "number of tenors");
+    if (nbExpiries != getNumberOfExpiries() || nbTenors != getNumberOfTenors()) {
+      setDimensions(nbExpiries, nbTenors);
+    } else {
+      for (final int[] start : _start) {
+        Arrays.fill(start, START_DEFAULT);
+      }
+    }
+  }
+
+  /**
+   * Ends a calibration.
+   * @param calibrationTime The time spent in the calibration, in nanoseconds.
+   */
+  public void endCalibration(final long calibrationTime) {
+    _calibrationTime = calibrationTime;
+    _nbCalibrations++;
+  }
+
+  private void setDimensions(final int nbExpiries, final int nbTenors) {
+    _parameters = new double[nbExpiries][nbTenors][];
+    _chiSquare = new double[nbExpiries][nbTenors];
+    _start = new int[nbExpiries][nbTenors];
+  }
+
+  /**
+   * Returns the number of expiries of the cube.
+   * @return The number of expiries.
+   */
+  public int getNumberOfExpiries() {
+    return _parameters.length;
+  }
+
+  /**
+   * Returns the number of tenors of the cube.
+   * @return The number of tenors.
+   */
+  public int getNumberOfTenors() {
+    return _parameters.length == 0 ? 0 : _parameters[0].length;
+  }
+
+  /**
+   * Checks if the parameters of a slice are known.
+   * @param expiry The expiry index.
+   * @param tenor The tenor index.
+   * @return True if the parameters are known.
+   */
+  public boolean hasParameters(final int expiry, final int tenor) {
+    return expiry < _parameters.length && tenor < _parameters[expiry].length && _parameters[expiry][tenor] != null;
+  }
+
+  /**
+   * Returns the parameters of a slice.
+   * @param expiry The expiry index.
+   * @param tenor The tenor index.
+   * @return The parameters (alpha, beta, rho, nu), null if unknown.
+   */
+  public double[] getParameters(final int expiry, final int tenor) {
+    return _parameters[expiry][tenor];
+  }
+
+  /**
+   * Returns the chi-square of the fit of a slice.
+   * @param expiry The expiry index.
+   * @param tenor The tenor index.
+   * @return The chi-square.
+   */
+  public double getChiSquare(final int expiry, final int tenor) {
+    return _chiSquare[expiry][tenor];
+  }
+
+  /**
+   * Returns the start of a slice in the last calibration.
+   * @param expiry The expiry index.
+   * @param tenor The tenor index.
+   * @return One of {@link #START_DEFAULT}, {@link #START_NEIGHBOUR} and {@link #START_PREVIOUS}.
+   */
+  public int getStart(final int expiry, final int tenor) {
+    return _start[expiry][tenor];
+  }
+
+  /**
+   * Returns the number of slices started from their previous parameters in the last calibration.
+   * @return The number of slices.
+   */
+  public int getNumberOfWarmStarts() {
+    int nbWarmStarts = 0;
+    for (final int[] startExpiry : _start) {
+      for (final int start : startExpiry) {
+        if (start == START_PREVIOUS) {
+          nbWarmStarts++;
+        }
+      }
+    }
+    return nbWarmStarts;
+  }
+
+  /**
+   * Stores the calibration of a slice.
+   * @param expiry The expiry index.
+   * @param tenor The tenor index.
+   * @param parameters The parameters (alpha, beta, rho, nu).
+   * @param chiSquare The chi-square of the fit.
+   * @param start The start of the calibration.
+   */
+  public void setCalibration(final int expiry, final int tenor, final double[] parameters, final double chiSquare, final int start) {
+    ArgumentChecker.notNull(parameters, "parameters");
+    _parameters[expiry][tenor] = parameters;
+    _chiSquare[expiry][tenor] = chiSquare;
+    _start[expiry][tenor] = start;
+  }
+
+  /**
+   * Returns the time spent in the last calibration.
+   * @return The time, in nanoseconds.
+   */
+  public long getCalibrationTime() {
+    return _calibrationTime;
+  }
+
+  /**
+   * Returns the number of calibrations done with this state.
+   * @return The number of calibrations.
+   */
+  public int getNumberOfCalibrations() {
+    return _nbCalibrations;
+  }
+
+  @Override
+  public String toString() {
+    return "SABRCubeCalibrationState[calibration " + _nbCalibrations + ": " + _calibrationTime / 1000 + " us, " + getNumberOfExpiries() + " x " + getNumberOfTenors()
+        + " slices, " + getNumberOfWarmStarts() + " warm starts]";
+  }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.smile.fitting;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRFormulaData;
+import com.opengamma.analytics.financial.model.volatility.smile.function.VolatilityFunctionProvider;
+import com.opengamma.analytics.math.MathException;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResultsWithTransform;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calibrates the SABR parameters of each slice (expiry and tenor) of a swaption volatility cube with {@link SABRModelFitter}.
+ * <p>
+ * The expiries are calibrated in parallel when a pool is provided; the tenors of an expiry are calibrated in order. Each slice starts
+ * from its parameters in the previous calibration when they are available in the {@link SABRCubeCalibrationState}, otherwise from the
+ * parameters of the slice with the previous tenor, and for the first tenor from the default start. When a calibration that does not start from
+ * the default start fails, the slice is calibrated again from the default start. The fixed parameters always keep their default value.
+ */
+public class SABRModelCubeFitter {
+
+  /** The logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(SABRModelCubeFitter.class);
+
+  /** The SABR formula. */
+  private final VolatilityFunctionProvider<SABRFormulaData> _model;
+  /** The default start (alpha, beta, rho, nu). */
+  private final double[] _defaultStart;
+  /** The fixed parameters. */
+  private final BitSet _fixed;
+  /** The pool in which the expiries are calibrated, null to calibrate them on the calling thread. */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor calibrating on the calling thread.
+   * @param model The SABR formula, not null.
+   * @param defaultStart The default start (alpha, beta, rho, nu), not null.
+   * @param fixed The fixed parameters, not null.
+   */
+  public SABRModelCubeFitter(final VolatilityFunctionProvider<SABRFormulaData> model, final double[] defaultStart, final BitSet fixed) {
+    this(model, defaultStart, fixed, null);
+  }
+
+  /**
+   * Constructor.
+   * @param model The SABR formula, not null.
+   * @param defaultStart The default start (alpha, beta, rho, nu), not null.
+   * @param fixed The fixed parameters, not null.
+   * @param pool The pool in which the expiries are calibrated in parallel, null to calibrate them on the calling thread.
+   */
+  public SABRModelCubeFitter(final VolatilityFunctionProvider<SABRFormulaData> model, final double[] defaultStart, final BitSet fixed, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(model, "model");
+    ArgumentChecker.notNull(defaultStart, "default start");
+    ArgumentChecker.notNull(fixed, "fixed");
+    ArgumentChecker.isTrue(defaultStart.length == 4, "default start should have 4 parameters; have {}", defaultStart.length);
+    _model = model;
+    _defaultStart = defaultStart.clone();
+    _fixed = (BitSet) fixed.clone();
+    _pool = pool;
+  }
+
+  /**
+   * Calibrates a cube from the default start.
+   * @param expiries The expiry times, not null.
+   * @param forwards The forward of each slice, by expiry and tenor, not null.
+   * @param strikes The strikes of each slice, by expiry and tenor, not null.
+   * @param impliedVols The implied volatilities of each slice, with the same structure as the strikes, not null.
+   * @param errors The errors of each slice, with the same structure as the strikes; null for errors of 1.
+   * @return The SABR parameters by expiry and tenor.
+   */
+  public SABRFormulaData[][] fit(final double[] expiries, final double[][] forwards, final double[][][] strikes, final double[][][] impliedVols,
+      final double[][][] errors) {
+    return fit(expiries, forwards, strikes, impliedVols, errors, new SABRCubeCalibrationState());
+  }
+
+  /**
+   * Calibrates a cube, starting from the previous calibration stored in the state. The state is updated with the new calibration.
+   * @param expiries The expiry times, not null.
+   * @param forwards The forward of each slice, by expiry and tenor, not null.
+   * @param strikes The strikes of each slice, by expiry and tenor, not null.
+   * @param impliedVols The implied volatilities of each slice, with the same structure as the strikes, not null.
+   * @param errors The errors of each slice, with the same structure as the strikes; null for errors of 1.
+   * @param state The calibration state, not null.
+   * @return The SABR parameters by expiry and tenor.
+   */
+  public SABRFormulaData[][] fit(final double[] expiries, final double[][] forwards, final double[][][] strikes, final double[][][] impliedVols,
+      final double[][][] errors, final SABRCubeCalibrationState state) {
+    ArgumentChecker.notNull(expiries, "expiries");
+    ArgumentChecker.notNull(forwards, "forwards");
+    ArgumentChecker.notNull(strikes, "strikes");
+    ArgumentChecker.notNull(impliedVols, "implied volatilities");
+    ArgumentChecker.notNull(state, "state");
+    final int nbExpiries = expiries.length;
+    ArgumentChecker.isTrue(forwards.length == nbExpiries && strikes.length == nbExpiries && impliedVols.length == nbExpiries,
+        "forwards, strikes and implied volatilities should have one entry by expiry");
+    ArgumentChecker.isTrue(errors == null || errors.length == nbExpiries, "errors should have one entry by expiry");
+    final int nbTenors = nbExpiries == 0 ? 0 : forwards[0].length;
+    for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+      ArgumentChecker.isTrue(forwards[loopexp].length == nbTenors && strikes[loopexp].length == nbTenors && impliedVols[loopexp].length == nbTenors,
+          "forwards, strikes and implied volatilities should have {} tenors at expiry {}", nbTenors, loopexp);
+    }
+    final long startTime = System.nanoTime();
+    state.startCalibration(nbExpiries, nbTenors);
+    final SABRFormulaData[][] result = new SABRFormulaData[nbExpiries][nbTenors];
+    if (_pool == null || nbExpiries < 2) {
+      for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+        fitExpiry(loopexp, expiries, forwards, strikes, impliedVols, errors, state, result);
+      }
+    } else {
+      _pool.invoke(new ExpiryAction(0, nbExpiries, expiries, forwards, strikes, impliedVols, errors, state, result));
+    }
+    state.endCalibration(System.nanoTime() - startTime);
+    return result;
+  }
+
+  /**
+   * Calibrates the slices of one expiry, in the order of the tenors.
+   */
+  private void fitExpiry(final int expiry, final double[] expiries, final double[][] forwards, final double[][][] strikes, final double[][][] impliedVols,
+      final double[][][] errors, final SABRCubeCalibrationState state, final SABRFormulaData[][] result) {
+    final int nbTenors = forwards[expiry].length;
+    double[] neighbour = null;
+    for (int looptenor = 0; looptenor < nbTenors; looptenor++) {
+      final double[] strikesSlice = strikes[expiry][looptenor];
+      final double[] errorsSlice;
+      if (errors == null) {
+        errorsSlice = new double[strikesSlice.length];
+        Arrays.fill(errorsSlice, 1.0);
+      } else {
+        errorsSlice = errors[expiry][looptenor];
+      }
+      final SABRModelFitter fitter = new SABRModelFitter(forwards[expiry][looptenor], strikesSlice, expiries[expiry], impliedVols[expiry][looptenor],
+          errorsSlice, _model);
+      final int start;
+      final double[] startParameters;
+      if (state.hasParameters(expiry, looptenor)) {
+        start = SABRCubeCalibrationState.START_PREVIOUS;
+        startParameters = withFixed(state.getParameters(expiry, looptenor));
+      } else if (neighbour != null) {
+        start = SABRCubeCalibrationState.START_NEIGHBOUR;
+        startParameters = withFixed(neighbour);
+      } else {
+        start = SABRCubeCalibrationState.START_DEFAULT;
+        startParameters = _defaultStart;
+      }
+      LeastSquareResultsWithTransform fit = null;
+      int startUsed = start;
+      if (start != SABRCubeCalibrationState.START_DEFAULT) {
+        try {
+          fit = fitter.solve(new DoubleMatrix1D(startParameters), _fixed);
+        } catch (final MathException e) {
+          s_logger.debug("Calibration of slice ({}, {}) failed from a warm start; calibration from the default start", expiry, looptenor);
+        }
+      }
+      if (fit == null) {
+        startUsed = SABRCubeCalibrationState.START_DEFAULT;
+        fit = fitter.solve(new DoubleMatrix1D(_defaultStart), _fixed);
+      }
+      final double[] parameters = fit.getModelParameters().getData();
+      state.setCalibration(expiry, looptenor, parameters, fit.getChiSq(), startUsed);
+      result[expiry][looptenor] = new SABRFormulaData(parameters);
+      neighbour = parameters;
+    }
+  }
+
+  /**
+   * Returns a start with the fixed parameters set to their default value.
+   * @param parameters The parameters.
+   * @return The start.
+   */
+  private double[] withFixed(final double[] parameters) {
+    final double[] start = parameters.clone();
+    for (int i = _fixed.nextSetBit(0); i >= 0 && i < start.length; i = _fixed.nextSetBit(i + 1)) {
+      start[i] = _defaultStart[i];
+    }
+    return start;
+  }
+
+  /**
+   * Calibrates a range of expiries, split in halves.
+   */
+  private final class ExpiryAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _fromExpiry;
+    private final int _toExpiry;
+    private final double[] _expiries;
+    private final double[][] _forwards;
+    private final double[][][] _strikes;
+    private final double[][][] _impliedVols;
+    private final double[][][] _errors;
+    private final SABRCubeCalibrationState _state;
+    private final SABRFormulaData[][] _result;
+
+    ExpiryAction(final int fromExpiry, final int toExpiry, final double[] expiries, final double[][] forwards, final double[][][] strikes,
+        final double[][][] impliedVols, final double[][][] errors, final SABRCubeCalibrationState state, final SABRFormulaData[][] result) {
+      _fromExpiry = fromExpiry;
+      _toExpiry = toExpiry;
+      _expiries = expiries;
+      _forwards = forwards;
+      _strikes = strikes;
+      _impliedVols = impliedVols;
+      _errors = errors;
+      _state = state;
+      _result = result;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toExpiry - _fromExpiry == 1) {
+        fitExpiry(_fromExpiry, _expiries, _forwards, _strikes, _impliedVols, _errors, _state, _result);
+      } else {
+        final int mid = (_fromExpiry + _toExpiry) >>> 1;
+        invokeAll(new ExpiryAction(_fromExpiry, mid, _expiries, _forwards, _strikes, _impliedVols, _errors, _state, _result),
+            new ExpiryAction(mid, _toExpiry, _expiries, _forwards, _strikes, _impliedVols, _errors, _state, _result));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.surface;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import com.opengamma.analytics.math.interpolation.Interpolator2D;
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
+import com.opengamma.analytics.math.surface.InterpolatedDoublesSurface;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Bulk solver for the log-normal (Black) implied volatilities of European options, typically all the quotes of an option chain, and the construction of
+ * the corresponding {@link BlackVolatilitySurfaceStrike}.
+ * <p>
+ * Each option is solved for the total volatility s = sigma * sqrt(T) from its out-of-the-money price normalised by sqrt(FK), which only depends on s and
+ * x = -|ln(F/K)|. The initial guess is the rational approximation of Corrado and Miller, improved below the inflexion point s = sqrt(2|x|) by the small
+ * volatility asymptotic of the price. It is followed by at most four third order Householder steps on the logarithm of the price below the inflexion point,
+ * and on the logarithm of the distance of the price to its upper bound above it; both are close to linear in s, so no bracketing is required. The options
+ * for which the steps have not converged, in practice total volatilities above 7, are solved by
+ * {@link BlackFormulaRepository#impliedVolatility(double, double, double, double, boolean)}.
+ * <p>
+ * The expiries of a surface are solved independently, in parallel when a {@link ForkJoinPool} is provided. The results do not depend on the pool.
+ */
+public class BlackImpliedVolatilityBulkSolver {
+
+  /**
+   * The number of Householder steps after which the solver falls back to the generic root finder.
+   */
+  private static final int NB_STEPS = 4;
+  /**
+   * The relative size of a step below which the total volatility has converged.
+   */
+  private static final double VOL_TOL = 1.0E-9;
+  /**
+   * The relative size of the last step below which the total volatility has converged; the steps converge at fourth order.
+   */
+  private static final double LAST_STEP_TOL = 1.0E-3;
+  private static final double ROOT2 = Math.sqrt(2.0);
+  private static final double ROOT_2PI = Math.sqrt(2.0 * Math.PI);
+  private static final double LOG_ROOT_2PI = Math.log(ROOT_2PI);
+
+  /**
+   * The pool in which the expiries are solved, null if they are solved in the calling thread.
+   */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor solving the expiries in the calling thread.
+   */
+  public BlackImpliedVolatilityBulkSolver() {
+    _pool = null;
+  }
+
+  /**
+   * Constructor solving the expiries in parallel.
+   * @param pool The pool in which the expiries are solved, not null.
+   */
+  public BlackImpliedVolatilityBulkSolver(final ForkJoinPool pool) {
+    ArgumentChecker.notNull(pool, "pool");
+    _pool = pool;
+  }
+
+  /**
+   * Gets the pool in which the expiries are solved.
+   * @return The pool, null if the expiries are solved in the calling thread
+   */
+  public ForkJoinPool getPool() {
+    return _pool;
+  }
+
+  /**
+   * The log-normal (Black) implied volatility of an European option.
+   * @param price The <b>forward</b> price - i.e. the market price divided by the numeraire
+   * @param forward The forward value of the underlying
+   * @param strike The strike
+   * @param timeToExpiry The time-to-expiry
+   * @param isCall True for calls, false for puts
+   * @return The implied volatility
+   */
+  public static double impliedVolatility(final double price, final double forward, final double strike, final double timeToExpiry, final boolean isCall) {
+    ArgumentChecker.isTrue(price >= 0.0, "negative/NaN price; have {}", price);
+    ArgumentChecker.isTrue(forward > 0.0, "negative/NaN forward; have {}", forward);
+    ArgumentChecker.isTrue(strike >= 0.0, "negative/NaN strike; have {}", strike);
+    ArgumentChecker.isTrue(timeToExpiry >= 0.0, "negative/NaN timeToExpiry; have {}", timeToExpiry);
+    ArgumentChecker.isFalse(Double.isInfinite(forward), "forward is Infinity");
+    ArgumentChecker.isFalse(Double.isInfinite(strike), "strike is Infinity");
+    ArgumentChecker.isFalse(Double.isInfinite(timeToExpiry), "timeToExpiry is Infinity");
+    final double otmPrice = price - Math.max(0.0, (isCall ? 1 : -1) * (forward - strike));
+    if (otmPrice == 0.0) {
+      return 0.0;
+    }
+    ArgumentChecker.isTrue(otmPrice > 0.0 && otmPrice < Math.min(forward, strike), "out-of-the-money price of {} outside of the bounds (0, {})", otmPrice,
+        Math.min(forward, strike));
+    ArgumentChecker.isTrue(timeToExpiry > 0.0, "No implied volatility for a time value at expiry; have price {}", price);
+    final double totalVolatility = totalVolatility(-Math.abs(Math.log(forward / strike)), otmPrice / Math.sqrt(forward * strike));
+    if (Double.isNaN(totalVolatility)) {
+      return BlackFormulaRepository.impliedVolatility(price, forward, strike, timeToExpiry, isCall);
+    }
+    return totalVolatility / Math.sqrt(timeToExpiry);
+  }
+
+  /**
+   * The log-normal (Black) implied volatilities of a batch of European options, computed element by element as
+   * {@link #impliedVolatility(double, double, double, double, boolean)} in the calling thread.
+   * @param price The <b>forward</b> prices
+   * @param forward The forward values of the underlying
+   * @param strike The strikes
+   * @param timeToExpiry The times-to-expiry
+   * @param isCall True for calls, false for puts
+   * @param output The array receiving the implied volatilities, same length as the inputs
+   */
+  public static void impliedVolatility(final double[] price, final double[] forward, final double[] strike, final double[] timeToExpiry,
+      final boolean[] isCall, final double[] output) {
+    ArgumentChecker.notNull(price, "price");
+    ArgumentChecker.notNull(forward, "forward");
+    ArgumentChecker.notNull(strike, "strike");
+    ArgumentChecker.notNull(timeToExpiry, "timeToExpiry");
+    ArgumentChecker.notNull(isCall, "isCall");
+    ArgumentChecker.notNull(output, "output");
+    final int n = price.length;
+    ArgumentChecker.isTrue(forward.length == n && strike.length == n && timeToExpiry.length == n && isCall.length == n && output.length == n,
+        "arrays of a batch must have the same length");
+    for (int i = 0; i < n; i++) {
+      output[i] = impliedVolatility(price[i], forward[i], strike[i], timeToExpiry[i], isCall[i]);
+    }
+  }
+
+  /**
+   * The log-normal (Black) implied volatilities of the options of a surface, the expiries being solved independently.
+   * @param timeToExpiry The times-to-expiry, not null
+   * @param forward The forward value of the underlying by expiry, not null
+   * @param strike The strikes by expiry, not null
+   * @param price The <b>forward</b> prices by expiry and strike, not null
+   * @param isCall True for calls, false for puts, by expiry and strike, not null
+   * @return The implied volatilities by expiry and strike
+   */
+  public double[][] impliedVolatility(final double[] timeToExpiry, final double[] forward, final double[][] strike, final double[][] price,
+      final boolean[][] isCall) {
+    ArgumentChecker.notNull(timeToExpiry, "timeToExpiry");
+    ArgumentChecker.notNull(forward, "forward");
+    ArgumentChecker.notNull(strike, "strike");
+    ArgumentChecker.notNull(price, "price");
+    ArgumentChecker.notNull(isCall, "isCall");
+    final int nbExpiry = timeToExpiry.length;
+    ArgumentChecker.isTrue(forward.length == nbExpiry && strike.length == nbExpiry && price.length == nbExpiry && isCall.length == nbExpiry,
+        "forward, strike, price and isCall must have one element by expiry");
+    final double[][] result = new double[nbExpiry][];
+    for (int loopexp = 0; loopexp < nbExpiry; loopexp++) {
+      ArgumentChecker.notNull(strike[loopexp], "strike");
+      ArgumentChecker.notNull(price[loopexp], "price");
+      ArgumentChecker.notNull(isCall[loopexp], "isCall");
+      final int nbStrike = strike[loopexp].length;
+      ArgumentChecker.isTrue(price[loopexp].length == nbStrike && isCall[loopexp].length == nbStrike, "price and isCall must have one element by strike at expiry {}",
+          loopexp);
+      result[loopexp] = new double[nbStrike];
+    }
+    if (nbExpiry == 0) {
+      return result;
+    }
+    if (_pool == null) {
+      for (int loopexp = 0; loopexp < nbExpiry; loopexp++) {
+        solveExpiry(timeToExpiry, forward, strike, price, isCall, result, loopexp);
+      }
+    } else {
+      _pool.invoke(new ExpiryAction(timeToExpiry, forward, strike, price, isCall, result, 0, nbExpiry));
+    }
+    return result;
+  }
+
+  /**
+   * Solves the implied volatilities of the options of one expiry.
+   */
+  private static void solveExpiry(final double[] timeToExpiry, final double[] forward, final double[][] strike, final double[][] price, final boolean[][] isCall,
+      final double[][] result, final int index) {
+    final double[] strikes = strike[index];
+    for (int loopstr = 0; loopstr < strikes.length; loopstr++) {
+      result[index][loopstr] = impliedVolatility(price[index][loopstr], forward[index], strikes[loopstr], timeToExpiry[index], isCall[index][loopstr]);
+    }
+  }
+
+  /**
+   * The Black volatility surface interpolating the implied volatilities of the options of a surface.
+   * @param timeToExpiry The times-to-expiry, not null
+   * @param forward The forward value of the underlying by expiry, not null
+   * @param strike The strikes by expiry, not null
+   * @param price The <b>forward</b> prices by expiry and strike, not null
+   * @param isCall True for calls, false for puts, by expiry and strike, not null
+   * @param interpolator The interpolator in time-to-expiry (first coordinate) and strike (second coordinate), not null
+   * @return The volatility surface
+   */
+  public BlackVolatilitySurfaceStrike getSurface(final double[] timeToExpiry, final double[] forward, final double[][] strike, final double[][] price,
+      final boolean[][] isCall, final Interpolator2D interpolator) {
+    ArgumentChecker.notNull(interpolator, "interpolator");
+    final double[][] vols = impliedVolatility(timeToExpiry, forward, strike, price, isCall);
+    int n = 0;
+    for (final double[] v : vols) {
+      n += v.length;
+    }
+    final double[] t = new double[n];
+    final double[] k = new double[n];
+    final double[] z = new double[n];
+    int i = 0;
+    for (int loopexp = 0; loopexp < vols.length; loopexp++) {
+      for (int loopstr = 0; loopstr < vols[loopexp].length; loopstr++) {
+        t[i] = timeToExpiry[loopexp];
+        k[i] = strike[loopexp][loopstr];
+        z[i] = vols[loopexp][loopstr];
+        i++;
+      }
+    }
+    return new BlackVolatilitySurfaceStrike(InterpolatedDoublesSurface.from(t, k, z, interpolator));
+  }
+
+  /**
+   * Solves the total volatility from the normalised out-of-the-money price.
+   * @param x Minus the absolute value of the log-moneyness
+   * @param c The normalised out-of-the-money price, in (0, exp(x / 2))
+   * @return The total volatility, NaN if the Householder steps have not converged
+   */
+  private static double totalVolatility(final double x, final double c) {
+    final double expHalfX = Math.exp(0.5 * x);
+    final double inflexion = Math.sqrt(-2.0 * x);
+    final boolean lower = x < 0.0 && c < normalisedPrice(x, inflexion, expHalfX);
+    // Corrado-Miller, with the normalised forward and strike exp(x / 2) and exp(-x / 2)
+    final double diff = 2.0 * Math.sinh(0.5 * x);
+    final double a = c - 0.5 * diff;
+    double s = ROOT_2PI / (2.0 * Math.cosh(0.5 * x)) * (a + Math.sqrt(Math.max(a * a - diff * diff / Math.PI, 0.0)));
+    final double target;
+    if (lower) {
+      s = Math.max(s, asymptoticGuess(x, c));
+      s = s > 0.0 ? Math.min(s, inflexion) : inflexion;
+      target = Math.log(c);
+    } else {
+      s = Math.max(s, inflexion);
+      target = Math.log(expHalfX - c);
+    }
+    for (int loopstep = 0; loopstep < NB_STEPS; loopstep++) {
+      final double d1 = x / s + 0.5 * s;
+      final double d2 = d1 - s;
+      final double vega = expHalfX * pdf(d1);
+      // The objective function is ln(b) or ln(b_max - b); ratio is its derivative
+      final double value;
+      final double ratio;
+      if (lower) {
+        final double b = expHalfX * cdf(d1) - cdf(d2) / expHalfX;
+        value = Math.log(b) - target;
+        ratio = vega / b;
+      } else {
+        final double q = expHalfX * cdf(-d1) + cdf(d2) / expHalfX;
+        value = Math.log(q) - target;
+        ratio = -vega / q;
+      }
+      // Second and third derivatives of the price divided by the first
+      final double gamma = d1 * d2 / s;
+      final double delta = gamma * gamma - (d1 * d1 + d2 * d2 + d1 * d2) / (s * s);
+      final double gammaObjective = gamma - ratio;
+      final double deltaObjective = delta - 3.0 * ratio * gamma + 2.0 * ratio * ratio;
+      final double newton = -value / ratio;
+      final double step = newton * (1.0 + 0.5 * gammaObjective * newton) / (1.0 + gammaObjective * newton + deltaObjective * newton * newton / 6.0);
+      final double previous = s;
+      s = s + step > 0.0 ? s + step : 0.5 * s;
+      if (Math.abs(step) < VOL_TOL * previous || (loopstep == NB_STEPS - 1 && Math.abs(step) < LAST_STEP_TOL * s)) {
+        return s;
+      }
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * The small volatility asymptotic b ~ s^3 / (x^2 sqrt(2 pi)) exp(-x^2 / (2 s^2)) of the normalised price, inverted by fixed point.
+   * @param x Minus the absolute value of the log-moneyness, negative
+   * @param c The normalised out-of-the-money price, below the price at the inflexion point
+   * @return The guess of the total volatility
+   */
+  private static double asymptoticGuess(final double x, final double c) {
+    final double logC = Math.log(c);
+    final double logAbsX = Math.log(-x);
+    double s = -x / Math.sqrt(-2.0 * logC);
+    for (int loop = 0; loop < 2; loop++) {
+      final double den = 2.0 * (3.0 * Math.log(s) - 2.0 * logAbsX - LOG_ROOT_2PI - logC);
+      if (den > 0.0) {
+        s = -x / Math.sqrt(den);
+      }
+    }
+    return s;
+  }
+
+  private static double normalisedPrice(final double x, final double s, final double expHalfX) {
+    final double d1 = x / s + 0.5 * s;
+    return expHalfX * cdf(d1) - cdf(d1 - s) / expHalfX;
+  }
+
+  private static double cdf(final double x) {
+    return DERFC.getErfc(-x / ROOT2) / 2;
+  }
+
+  private static double pdf(final double x) {
+    return Math.exp(-(x * x) / 2.0) / ROOT_2PI;
+  }
+
+  /**
+   * Solves a range of expiries, splitting it in two until a single expiry is left.
+   */
+  private static final class ExpiryAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] _timeToExpiry;
+    private final double[] _forward;
+    private final double[][] _strike;
+    private final double[][] _price;
+    private final boolean[][] _isCall;
+    private final double[][] _result;
+    private final int _start;
+    private final int _end;
+
+    ExpiryAction(final double[] timeToExpiry, final double[] forward, final double[][] strike, final double[][] price, final boolean[][] isCall,
+        final double[][] result, final int start, final int end) {
+      _timeToExpiry = timeToExpiry;
+      _forward = forward;
+      _strike = strike;
+      _price = price;
+      _isCall = isCall;
+      _result = result;
+      _start = start;
+      _end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (_end - _start == 1) {
+        solveExpiry(_timeToExpiry, _forward, _strike, _price, _isCall, _result, _start);
+      } else {
+        final int mid = (_start + _end) >>> 1;
+        invokeAll(new ExpiryAction(_timeToExpiry, _forward, _strike, _price, _isCall, _result, _start, mid),
+            new ExpiryAction(_timeToExpiry, _forward, _strike, _price, _isCall, _result, mid, _end));
+      }
+    }
+
+  }
+
+}
@@ -6,9 +6,11 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.HullWhiteOneFactorPiecewiseConstantInterestRateModel;
@@ -25,7 +27,9 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.QuasiRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberStreams;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 import com.opengamma.util.tuple.DoublesPair;
@@ -69,6 +73,15 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * @param numberStreams The random number streams, one for each block of paths.
+   * @param nbPath The number of paths.
+   * @param pool The pool in which to run the blocks of paths, null to run them in the calling thread.
+   */
+  public HullWhiteMonteCarloMethod(final RandomNumberStreams numberStreams, final int nbPath, final ForkJoinPool pool) {
+    super(numberStreams, nbPath, pool);
+  }
+
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
@@ -136,26 +149,20 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    // The factor is a Brownian motion in its variance, which is the time scale of the jumps with a non-zero variance
+    final double[] variance = Arrays.copyOfRange(gamma, nbZero, nbJump);
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
+    final List<Double> pvBlock = evaluateBlocks(BLOCK_SIZE, new PathBlock<Double>() {
+      @Override
+      public Double evaluate(final int nbPath, final RandomNumberGenerator numberGenerator) {
+        final double[][] y = correlatedNormalArray(numberGenerator, covCD, variance, nbPath);
+        final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+        return instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath;
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
+    });
+    double pv = 0;
+    for (final Double pvB : pvBlock) {
+      pv += pvB;
     }
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
     return MultipleCurrencyAmount.of(ccy, pv);
@@ -228,21 +235,13 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    // The factor is a Brownian motion in its variance, which is the time scale of the jumps with a non-zero variance
+    final double[] variance = Arrays.copyOfRange(gamma, nbZero, nbJump);
     final double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
-    final double[] pvBlock = new double[nbBlock];
     // Backward sweep (init)
     final double pvBar = 1.0;
-    final double[] pvBlockBar = new double[nbBlock];
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      pvBlockBar[loopblock] = pDN / getNbPath() * pvBar;
-    }
+    final double pvBlockBar = pDN / getNbPath() * pvBar;
     final double[][] impactAmountBar = new double[nbJump][];
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       impactAmountBar[loopjump] = new double[impactAmount[loopjump].length];
@@ -252,39 +251,42 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
     }
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
-      pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
-      pv += pvBlock[loopblock];
-      // Backward sweep (in block loop)
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
-        }
-      }
-      final Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+    final List<BlockSensitivity> blocks = evaluateBlocks(BLOCK_SIZE, new PathBlock<BlockSensitivity>() {
+      @Override
+      public BlockSensitivity evaluate(final int nbPath, final RandomNumberGenerator numberGenerator) {
+        final double[][] y = correlatedNormalArray(numberGenerator, covCD, variance, nbPath);
+        final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+        final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
+        final BlockSensitivity block = new BlockSensitivity();
+        block._pv = instrument.accept(MCDC, mcdDB) * nbPath;
+        // Backward sweep (in block)
+        block._impactAmountBar = new double[nbJump][];
         for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-          pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
+          block._impactAmountBar[loopjump] = new double[impactAmount[loopjump].length];
           for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-            pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+            block._impactAmountBar[loopjump][loopimp] = mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath * pvBlockBar;
+          }
+        }
+        final Double[][][] pDBar = new Double[nbPath][nbJump][];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+            pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
+            for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+              pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath * pvBlockBar;
+            }
           }
         }
+        block._pDIBar = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar);
+        return block;
       }
-      final double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar);
+    });
+    // The block contributions are added in block order so the result does not depend on how the blocks were run
+    for (final BlockSensitivity block : blocks) {
+      pv += block._pv;
       for (int loopjump = 0; loopjump < nbJump; loopjump++) {
         for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
+          impactAmountBar[loopjump][loopimp] += block._impactAmountBar[loopjump][loopimp];
+          pDIBar[loopjump][loopimp] += block._pDIBar[loopjump][loopimp];
         }
       }
     }
@@ -321,17 +323,49 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
+   * The contribution of one block of paths to the present value and its adjoints.
+   */
+  private static final class BlockSensitivity {
+    private double _pv;
+    private double[][] _impactAmountBar;
+    private double[][] _pDIBar;
+  }
+
+  /**
+   * Gets a 2D-array of correlated normally distributed variables.
+   * <p>
+   * The Cholesky decomposition of the covariance turns the independent variables into the increments of the factor, whose time scale is its variance. A
+   * {@link QuasiRandomNumberGenerator} is asked for the increments at the variances of the jumps, so that a Brownian bridge is built on that time scale.
+   * The jumps with no variance are not drawn as they have no effect.
+   * @param numberGenerator The random number generator.
+   * @param covCD The Cholesky decomposition of the covariance matrix.
+   * @param variance The variances of the factor at the jumps with a non-zero variance, which are the last jumps.
    * @param nbPath The number of paths.
-   * @return The array of variables.
+   * @return The array of variables (jump/path).
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+  private static double[][] correlatedNormalArray(final RandomNumberGenerator numberGenerator, final double[][] covCD, final double[] variance,
+      final int nbPath) {
+    final int nbJump = covCD.length;
+    final double[][] x;
+    if (numberGenerator instanceof QuasiRandomNumberGenerator) {
+      final int nbZero = nbJump - variance.length;
+      x = new double[nbJump][];
+      for (int loopjump = 0; loopjump < nbZero; loopjump++) {
+        x[loopjump] = new double[nbPath];
+      }
+      System.arraycopy(getNormalArray(numberGenerator, variance, nbPath), 0, x, nbZero, variance.length);
+    } else {
+      x = getNormalArray(numberGenerator, nbJump, nbPath);
+    }
+    final double[][] y = new double[nbJump][nbPath]; // jump/path
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      for (int i = 0; i < nbJump; i++) {
+        for (int j = 0; j < nbJump; j++) {
+          y[i][looppath] += x[j][looppath] * covCD[i][j];
+        }
+      }
     }
-    return result;
+    return y;
   }
 
   /**
@@ -6,6 +6,8 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.definition.LiborMarketModelDisplacedDiffusionParameters;
@@ -16,7 +18,10 @@ import com.opengamma.analytics.financial.provider.description.interestrate.Multi
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.random.QuasiRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberStreams;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 
@@ -54,6 +59,7 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    */
   public LiborMarketModelMonteCarloMethod(final RandomNumberGenerator numberGenerator, final int nbPath) {
     super(numberGenerator, nbPath);
+    ArgumentChecker.isFalse(numberGenerator instanceof QuasiRandomNumberGenerator, "The paths are drawn jump by jump; quasi-random numbers are not supported");
     _maxJump = MAX_JUMP_DEFAULT;
   }
 
@@ -65,6 +71,19 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    */
   public LiborMarketModelMonteCarloMethod(final RandomNumberGenerator numberGenerator, final int nbPath, final double maxJump) {
     super(numberGenerator, nbPath);
+    ArgumentChecker.isFalse(numberGenerator instanceof QuasiRandomNumberGenerator, "The paths are drawn jump by jump; quasi-random numbers are not supported");
+    _maxJump = maxJump;
+  }
+
+  /**
+   * Constructor.
+   * @param numberStreams The random number streams, one for each block of paths. Generate Normally distributed numbers.
+   * @param nbPath The number of paths.
+   * @param maxJump The maximum length of a jump in the path generation.
+   * @param pool The pool in which to run the blocks of paths, null to run them in the calling thread.
+   */
+  public LiborMarketModelMonteCarloMethod(final RandomNumberStreams numberStreams, final int nbPath, final double maxJump, final ForkJoinPool pool) {
+    super(numberStreams, nbPath, pool);
     _maxJump = maxJump;
   }
 
@@ -86,23 +105,22 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       initL[loopper] = (dfL[loopper] / dfL[loopper + 1] - 1.0) / deltaLMM[loopper];
     }
 
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
-
-    double price = 0.0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] initLPath = new double[nbPeriodLMM][nbPath2[loopblock]];
-      for (int loopper = 0; loopper < nbPeriodLMM; loopper++) {
-        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-          initLPath[loopper][looppath] = initL[loopper];
+    final List<Double> priceBlock = evaluateBlocks(BLOCK_SIZE, new PathBlock<Double>() {
+      @Override
+      public Double evaluate(final int nbPath, final RandomNumberGenerator numberGenerator) {
+        final double[][] initLPath = new double[nbPeriodLMM][nbPath];
+        for (int loopper = 0; loopper < nbPeriodLMM; loopper++) {
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            initLPath[loopper][looppath] = initL[loopper];
+          }
         }
+        final double[][][] pathIbor = pathgeneratorlibor(numberGenerator, decision.getDecisionTime(), initLPath, parameters);
+        return instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex));
       }
-      final double[][][] pathIbor = pathgeneratorlibor(decision.getDecisionTime(), initLPath, parameters);
-      price += instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex));
+    });
+    double price = 0.0;
+    for (final Double priceB : priceBlock) {
+      price += priceB;
     }
     price *= multicurves.getDiscountFactor(ccy, parameters.getIborTime()[parameters.getIborTime().length - 1]) / getNbPath();
     return MultipleCurrencyAmount.of(ccy, price);
@@ -121,11 +139,12 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
 
   /**
    * Create one step in the LMM diffusion. The step is done through several jump times. The diffusion is approximated with a predictor-corrector approach.
+   * @param numberGenerator The random number generator.
    * @param jumpTime The jump times.
    * @param initIbor Rate at the start of the period. Size: nbPeriodLMM x nbPath.
    * @return The Ibor rates at the end of the jump period. Size: nbPeriodLMM x nbPath.
    */
-  private double[][] stepPC(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
+  private double[][] stepPC(final RandomNumberGenerator numberGenerator, final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
     final double amr = lmm.getMeanReversion();
     final double[] iborTime = lmm.getIborTime();
     final double[] almm = lmm.getDisplacement();
@@ -164,7 +183,7 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       }
       final DoubleMatrix2D salpha2 = new DoubleMatrix2D(salpha2Array);
       // Random seed
-      final double[][] dw = getNormalArray(nbFactorLMM, nbPath);
+      final double[][] dw = getNormalArray(numberGenerator, nbFactorLMM, nbPath);
       // Common figures
       final double[] dr1 = new double[nI];
       for (int loopn = 0; loopn < nI; loopn++) {
@@ -214,12 +233,13 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
 
   /**
    *
+   * @param numberGenerator The random number generator.
    * @param jumpTime The time of the mandatory jumps.
    * @param initIbor The Ibor rates at the start. nbPeriodLMM x nbPath
    * @param lmm The LMM parameters.
    * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
    */
-  private double[][][] pathgeneratorlibor(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
+  private double[][][] pathgeneratorlibor(final RandomNumberGenerator numberGenerator, final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
     final int nbPeriod = initIbor.length;
     final int nbPath = initIbor[0].length;
     final int nbJump = jumpTime.length;
@@ -246,7 +266,7 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
           jumpIn[loopJumpIn] = jumpTimeA[loopjump] + loopJumpIn * jump / nbJumpIn;
         }
       }
-      initTmp = stepPC(jumpIn, initTmp, lmm);
+      initTmp = stepPC(numberGenerator, jumpIn, initTmp, lmm);
       for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
         System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
       }
@@ -254,18 +274,4 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
     return result;
   }
 
-  /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
-   */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
-    }
-    return result;
-  }
-
 }
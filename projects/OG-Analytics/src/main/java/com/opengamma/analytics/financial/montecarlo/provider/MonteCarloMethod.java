@@ -1,14 +1,28 @@
 /**
  * Copyright (C) 2011 - present by OpenGamma Inc. and the OpenGamma group of companies
- * 
+ *
  * Please see distribution for license.
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.analytics.math.random.QuasiRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberStreams;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Generic Monte-Carlo pricing method.
+ * <p>
+ * The paths are simulated in blocks. By default the blocks are run one after the other, drawing from a single random number generator. When constructed with
+ * {@link RandomNumberStreams}, each block draws from its own stream, indexed by the block number, so the blocks can be run in any order; if a fork-join pool
+ * is also given they are run in parallel. The block results are always combined in block order, so the price is identical whatever the number of threads.
+ * <p>
+ * A {@link QuasiRandomNumberGenerator}, such as a Sobol sequence, can be used as the single generator; it then provides one point by path.
  */
 public abstract class MonteCarloMethod {
 
@@ -16,6 +30,14 @@ public abstract class MonteCarloMethod {
    * The random number generator.
    */
   private final RandomNumberGenerator _numberGenerator;
+  /**
+   * The random number streams, one for each block. Null if the blocks use the single generator.
+   */
+  private final RandomNumberStreams _numberStreams;
+  /**
+   * The pool in which the blocks are run. Null if the blocks are run in the calling thread.
+   */
+  private final ForkJoinPool _pool;
   /**
    * The number of paths.
    */
@@ -28,17 +50,49 @@ public abstract class MonteCarloMethod {
    */
   public MonteCarloMethod(RandomNumberGenerator numberGenerator, int nbPath) {
     _numberGenerator = numberGenerator;
+    _numberStreams = null;
+    _pool = null;
+    _nbPath = nbPath;
+  }
+
+  /**
+   * Constructor for a method with a random number stream for each block.
+   * @param numberStreams The random number streams, not null.
+   * @param nbPath The number of paths.
+   * @param pool The pool in which to run the blocks, null to run them in the calling thread.
+   */
+  public MonteCarloMethod(RandomNumberStreams numberStreams, int nbPath, ForkJoinPool pool) {
+    ArgumentChecker.notNull(numberStreams, "numberStreams");
+    _numberGenerator = null;
+    _numberStreams = numberStreams;
+    _pool = pool;
     _nbPath = nbPath;
   }
 
   /**
    * Gets the _numberGenerator field.
-   * @return the _numberGenerator
+   * @return the _numberGenerator, null if the method uses random number streams
    */
   public RandomNumberGenerator getNumberGenerator() {
     return _numberGenerator;
   }
 
+  /**
+   * Gets the _numberStreams field.
+   * @return the _numberStreams, null if the method uses a single random number generator
+   */
+  public RandomNumberStreams getNumberStreams() {
+    return _numberStreams;
+  }
+
+  /**
+   * Gets the _pool field.
+   * @return the _pool, null if the blocks are run in the calling thread
+   */
+  public ForkJoinPool getPool() {
+    return _pool;
+  }
+
   /**
    * Gets the _nbPath field.
    * @return the _nbPath
@@ -47,4 +101,139 @@ public abstract class MonteCarloMethod {
     return _nbPath;
   }
 
+  /**
+   * The simulation of one block of paths.
+   * @param <T> The type of the block result.
+   */
+  protected interface PathBlock<T> {
+
+    /**
+     * Simulates the paths of a block.
+     * @param nbPath The number of paths in the block.
+     * @param numberGenerator The random number generator for the block.
+     * @return The block result.
+     */
+    T evaluate(int nbPath, RandomNumberGenerator numberGenerator);
+
+  }
+
+  /**
+   * Divides the paths in blocks of maximum size blockSize, the last block taking the remainder, and simulates each block.
+   * @param <T> The type of the block result.
+   * @param blockSize The maximum number of paths in a block.
+   * @param block The block simulation.
+   * @return The block results, in block order.
+   */
+  protected <T> List<T> evaluateBlocks(final int blockSize, final PathBlock<T> block) {
+    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) blockSize)));
+    final int[] nbPath = new int[nbBlock];
+    for (int i = 0; i < nbBlock - 1; i++) {
+      nbPath[i] = blockSize;
+    }
+    nbPath[nbBlock - 1] = getNbPath() - (nbBlock - 1) * blockSize;
+    final Object[] results = new Object[nbBlock];
+    if (_numberStreams == null) {
+      for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
+        results[loopblock] = block.evaluate(nbPath[loopblock], _numberGenerator);
+      }
+    } else if (_pool == null) {
+      for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
+        results[loopblock] = block.evaluate(nbPath[loopblock], _numberStreams.getStream(loopblock));
+      }
+    } else {
+      _pool.invoke(new BlockAction<>(block, _numberStreams, nbPath, results, 0, nbBlock));
+    }
+    @SuppressWarnings("unchecked")
+    final List<T> list = (List<T>) Arrays.asList(results);
+    return list;
+  }
+
+  /**
+   * Runs a range of blocks, splitting it in two until a single block is left.
+   * @param <T> The type of the block result.
+   */
+  private static final class BlockAction<T> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PathBlock<T> _block;
+    private final RandomNumberStreams _numberStreams;
+    private final int[] _nbPath;
+    private final Object[] _results;
+    private final int _start;
+    private final int _end;
+
+    BlockAction(final PathBlock<T> block, final RandomNumberStreams numberStreams, final int[] nbPath, final Object[] results, final int start, final int end) {
+      _block = block;
+      _numberStreams = numberStreams;
+      _nbPath = nbPath;
+      _results = results;
+      _start = start;
+      _end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (_end - _start == 1) {
+        _results[_start] = _block.evaluate(_nbPath[_start], _numberStreams.getStream(_start));
+      } else {
+        final int mid = (_start + _end) >>> 1;
+        invokeAll(new BlockAction<>(_block, _numberStreams, _nbPath, _results, _start, mid), new BlockAction<>(_block, _numberStreams, _nbPath, _results, mid, _end));
+      }
+    }
+
+  }
+
+  /**
+   * Gets a 2D-array of independent normally distributed variables.
+   * <p>
+   * A pseudo-random generator is asked for one vector by jump. A {@link QuasiRandomNumberGenerator} is asked for one point by path, the jumps being the
+   * dimensions of the point.
+   * @param numberGenerator The random number generator.
+   * @param nbJump The number of jumps.
+   * @param nbPath The number of paths.
+   * @return The array of variables, by jump and path.
+   */
+  protected static double[][] getNormalArray(final RandomNumberGenerator numberGenerator, final int nbJump, final int nbPath) {
+    final double[][] result = new double[nbJump][nbPath];
+    if (numberGenerator instanceof QuasiRandomNumberGenerator) {
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        final double[] point = numberGenerator.getVector(nbJump);
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          result[loopjump][looppath] = point[loopjump];
+        }
+      }
+      return result;
+    }
+    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      result[loopjump] = numberGenerator.getVector(nbPath);
+    }
+    return result;
+  }
+
+  /**
+   * Gets a 2D-array of independent normally distributed variables that are the normalised increments of a Brownian path observed at the given times.
+   * <p>
+   * A {@link QuasiRandomNumberGenerator} receives the times, so that a Brownian bridge construction of the path is built on them rather than on equally
+   * spaced steps. A pseudo-random generator is used as by {@link #getNormalArray(RandomNumberGenerator, int, int)}.
+   * @param numberGenerator The random number generator.
+   * @param times The times of the points of the path, increasing and strictly positive.
+   * @param nbPath The number of paths.
+   * @return The array of variables, by time and path.
+   */
+  protected static double[][] getNormalArray(final RandomNumberGenerator numberGenerator, final double[] times, final int nbPath) {
+    if (!(numberGenerator instanceof QuasiRandomNumberGenerator)) {
+      return getNormalArray(numberGenerator, times.length, nbPath);
+    }
+    final int nbJump = times.length;
+    final double[][] result = new double[nbJump][nbPath];
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      final double[] point = ((QuasiRandomNumberGenerator) numberGenerator).getVector(times);
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        result[loopjump][looppath] = point[loopjump];
+      }
+    }
+    return result;
+  }
+
 }
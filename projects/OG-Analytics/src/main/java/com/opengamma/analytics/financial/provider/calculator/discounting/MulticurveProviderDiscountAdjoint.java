@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.discounting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * The curves of a multi-curve provider recorded on an adjoint algorithmic differentiation tape.
+ * <p>
+ * The parameters of each curve are inputs of the tape, recorded the first time the curve is used. The discount factors and forward rates are
+ * recorded as nodes depending directly on the curve parameters, with the partial derivatives given by the curve parameter sensitivity.
+ * The sensitivity of any value computed on the tape to the parameters of all the curves used is obtained in one backward sweep.
+ * <p>
+ * The object is not thread safe; use one object per thread.
+ */
+public class MulticurveProviderDiscountAdjoint {
+
+  /** The multi-curve provider. */
+  private final MulticurveProviderDiscount _multicurves;
+  /** The tape. */
+  private final AdjointTape _tape;
+  /** The index on the tape of the first parameter of each curve used so far, by curve name. */
+  private final Map<String, Integer> _parameterStart = new LinkedHashMap<>();
+  /** Work arrays for the nodes depending on the curve parameters. */
+  private int[] _parents = new int[16];
+  private double[] _partials = new double[16];
+
+  /**
+   * Constructor.
+   * @param multicurves The multi-curve provider, not null.
+   */
+  public MulticurveProviderDiscountAdjoint(final MulticurveProviderDiscount multicurves) {
+    this(multicurves, new AdjointTape());
+  }
+
+  /**
+   * Constructor.
+   * @param multicurves The multi-curve provider, not null.
+   * @param tape The tape, not null.
+   */
+  public MulticurveProviderDiscountAdjoint(final MulticurveProviderDiscount multicurves, final AdjointTape tape) {
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    ArgumentChecker.notNull(tape, "tape");
+    _multicurves = multicurves;
+    _tape = tape;
+  }
+
+  /**
+   * Returns the multi-curve provider.
+   * @return The provider.
+   */
+  public MulticurveProviderDiscount getMulticurveProvider() {
+    return _multicurves;
+  }
+
+  /**
+   * Returns the tape.
+   * @return The tape.
+   */
+  public AdjointTape getTape() {
+    return _tape;
+  }
+
+  /**
+   * Records the discount factor of a currency at a given time.
+   * @param ccy The currency.
+   * @param time The time.
+   * @return The node of the discount factor.
+   */
+  public int getDiscountFactor(final Currency ccy, final double time) {
+    return discountFactor(_multicurves.getName(ccy), _multicurves.getCurve(ccy), time);
+  }
+
+  /**
+   * Records the simply compounded forward rate of an Ibor index, computed as in {@link MulticurveProviderDiscount}, from the pseudo-discount
+   * factors of the forward curve.
+   * @param index The index.
+   * @param startTime The start time.
+   * @param endTime The end time.
+   * @param accrualFactor The accrual factor.
+   * @return The node of the forward rate.
+   */
+  public int getSimplyCompoundForwardRate(final IborIndex index, final double startTime, final double endTime, final double accrualFactor) {
+    final String name = _multicurves.getName(index);
+    final YieldAndDiscountCurve curve = _multicurves.getCurve(index);
+    final int dfStart = discountFactor(name, curve, startTime);
+    final int dfEnd = discountFactor(name, curve, endTime);
+    final double dfStartValue = _tape.getValue(dfStart);
+    final double dfEndValue = _tape.getValue(dfEnd);
+    final double forward = (dfStartValue / dfEndValue - 1) / accrualFactor;
+    return _tape.record(forward, dfStart, 1.0 / (dfEndValue * accrualFactor), dfEnd, -dfStartValue / (dfEndValue * dfEndValue * accrualFactor));
+  }
+
+  /**
+   * Computes the sensitivity of a value to the parameters of the curves used, in one backward sweep over the tape.
+   * @param node The node of the value.
+   * @param ccy The currency of the value.
+   * @return The sensitivity to the parameters of each curve used on the tape.
+   */
+  public MultipleCurrencyParameterSensitivity parameterSensitivity(final int node, final Currency ccy) {
+    ArgumentChecker.notNull(ccy, "currency");
+    final double[] adjoints = _tape.backward(node);
+    final LinkedHashMap<Pair<String, Currency>, DoubleMatrix1D> result = new LinkedHashMap<>();
+    for (final Map.Entry<String, Integer> entry : _parameterStart.entrySet()) {
+      final int nbParameters = _multicurves.getCurve(entry.getKey()).getNumberOfParameters();
+      final double[] sensitivity = new double[nbParameters];
+      System.arraycopy(adjoints, entry.getValue(), sensitivity, 0, nbParameters);
+      result.put(Pairs.of(entry.getKey(), ccy), new DoubleMatrix1D(sensitivity));
+    }
+    return MultipleCurrencyParameterSensitivity.of(result);
+  }
+
+  /**
+   * Clears the tape and the curves recorded on it.
+   */
+  public void clear() {
+    _tape.clear();
+    _parameterStart.clear();
+  }
+
+  /**
+   * Records a discount factor of a curve: a node depending on the curve parameters with a non-zero sensitivity.
+   * @param name The curve name.
+   * @param curve The curve.
+   * @param time The time.
+   * @return The node of the discount factor.
+   */
+  private int discountFactor(final String name, final YieldAndDiscountCurve curve, final double time) {
+    final int start = parameterStart(name, curve);
+    final double df = curve.getDiscountFactor(time);
+    final double[] rateSensitivity = curve.getInterestRateParameterSensitivity(time);
+    if (rateSensitivity.length > _parents.length) {
+      _parents = new int[rateSensitivity.length];
+      _partials = new double[rateSensitivity.length];
+    }
+    int nbParents = 0;
+    for (int loopp = 0; loopp < rateSensitivity.length; loopp++) {
+      if (rateSensitivity[loopp] != 0.0) {
+        _parents[nbParents] = start + loopp;
+        _partials[nbParents] = -time * df * rateSensitivity[loopp];
+        nbParents++;
+      }
+    }
+    return _tape.record(df, _parents, _partials, nbParents);
+  }
+
+  /**
+   * Returns the node of the first parameter of a curve, recording the parameters when the curve is used for the first time.
+   * The parameters are inputs of the tape; their values are not used.
+   * @param name The curve name.
+   * @param curve The curve.
+   * @return The node of the first parameter.
+   */
+  private int parameterStart(final String name, final YieldAndDiscountCurve curve) {
+    final Integer start = _parameterStart.get(name);
+    if (start != null) {
+      return start;
+    }
+    final int nbParameters = curve.getNumberOfParameters();
+    final int first = _tape.getNumberOfNodes();
+    for (int loopp = 0; loopp < nbParameters; loopp++) {
+      _tape.variable(0.0);
+    }
+    _parameterStart.put(name, first);
+    return first;
+  }
+
+}
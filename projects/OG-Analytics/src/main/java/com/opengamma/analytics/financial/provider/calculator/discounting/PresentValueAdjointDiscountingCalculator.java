@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.discounting;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitorAdapter;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.fra.derivative.ForwardRateAgreement;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIbor;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIborSpread;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calculates the present value of an instrument by discounting, as {@link PresentValueDiscountingCalculator}, recorded on an adjoint
+ * tape. The result is the node of the present value, in the currency of the instrument; its value is available from the tape and its
+ * sensitivity to the curve parameters from {@link MulticurveProviderDiscountAdjoint#parameterSensitivity(int, com.opengamma.util.money.Currency)}.
+ * <p>
+ * The fixed payments and coupons, the Ibor coupons (with or without spread), the FRAs and the annuities and swaps made of them are
+ * supported. The legs of a swap should be in the same currency.
+ */
+public final class PresentValueAdjointDiscountingCalculator extends InstrumentDerivativeVisitorAdapter<MulticurveProviderDiscountAdjoint, Integer> {
+
+  /**
+   * The unique instance of the calculator.
+   */
+  private static final PresentValueAdjointDiscountingCalculator INSTANCE = new PresentValueAdjointDiscountingCalculator();
+
+  /**
+   * Gets the calculator instance.
+   * @return The calculator.
+   */
+  public static PresentValueAdjointDiscountingCalculator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor.
+   */
+  private PresentValueAdjointDiscountingCalculator() {
+  }
+
+  // -----     Payment/Coupon     ------
+
+  @Override
+  public Integer visitFixedPayment(final PaymentFixed payment, final MulticurveProviderDiscountAdjoint multicurve) {
+    final int df = multicurve.getDiscountFactor(payment.getCurrency(), payment.getPaymentTime());
+    return multicurve.getTape().multiply(df, payment.getAmount());
+  }
+
+  @Override
+  public Integer visitCouponFixed(final CouponFixed coupon, final MulticurveProviderDiscountAdjoint multicurve) {
+    final int df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    return multicurve.getTape().multiply(df, coupon.getAmount());
+  }
+
+  @Override
+  public Integer visitCouponIbor(final CouponIbor coupon, final MulticurveProviderDiscountAdjoint multicurve) {
+    final AdjointTape tape = multicurve.getTape();
+    final int forward = multicurve.getSimplyCompoundForwardRate(coupon.getIndex(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(),
+        coupon.getFixingAccrualFactor());
+    final int df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    final double factor = coupon.getNotional() * coupon.getPaymentYearFraction();
+    final double forwardValue = tape.getValue(forward);
+    final double dfValue = tape.getValue(df);
+    return tape.record(factor * forwardValue * dfValue, forward, factor * dfValue, df, factor * forwardValue);
+  }
+
+  @Override
+  public Integer visitCouponIborSpread(final CouponIborSpread coupon, final MulticurveProviderDiscountAdjoint multicurve) {
+    final AdjointTape tape = multicurve.getTape();
+    final int forward = multicurve.getSimplyCompoundForwardRate(coupon.getIndex(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(),
+        coupon.getFixingAccrualFactor());
+    final int df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    final double factor = coupon.getNotional() * coupon.getPaymentYearFraction();
+    final double forwardValue = tape.getValue(forward);
+    final double dfValue = tape.getValue(df);
+    final double amount = factor * forwardValue + coupon.getSpreadAmount();
+    return tape.record(amount * dfValue, forward, factor * dfValue, df, amount);
+  }
+
+  @Override
+  public Integer visitForwardRateAgreement(final ForwardRateAgreement fra, final MulticurveProviderDiscountAdjoint multicurve) {
+    final AdjointTape tape = multicurve.getTape();
+    final int df = multicurve.getDiscountFactor(fra.getCurrency(), fra.getPaymentTime());
+    final int forward = multicurve.getSimplyCompoundForwardRate(fra.getIndex(), fra.getFixingPeriodStartTime(), fra.getFixingPeriodEndTime(),
+        fra.getFixingYearFraction());
+    final double dfValue = tape.getValue(df);
+    final double forwardValue = tape.getValue(forward);
+    final double factor = fra.getPaymentYearFraction() * fra.getNotional();
+    final double denominator = 1.0 / (1 + fra.getPaymentYearFraction() * forwardValue);
+    final double amount = factor * (forwardValue - fra.getRate()) * denominator;
+    // Derivative of the amount with respect to the forward: factor * (1 + delta * K) / (1 + delta * F)^2
+    final double amountDForward = factor * (1 + fra.getPaymentYearFraction() * fra.getRate()) * denominator * denominator;
+    return tape.record(dfValue * amount, df, amount, forward, dfValue * amountDForward);
+  }
+
+  // -----     Annuity     ------
+
+  @Override
+  public Integer visitGenericAnnuity(final Annuity<? extends Payment> annuity, final MulticurveProviderDiscountAdjoint multicurve) {
+    ArgumentChecker.notNull(annuity, "Annuity");
+    ArgumentChecker.notNull(multicurve, "multicurve");
+    final int nbPayments = annuity.getNumberOfPayments();
+    final int[] pv = new int[nbPayments];
+    for (int looppay = 0; looppay < nbPayments; looppay++) {
+      pv[looppay] = annuity.getNthPayment(looppay).accept(this, multicurve);
+    }
+    return multicurve.getTape().sum(pv, nbPayments);
+  }
+
+  @Override
+  public Integer visitFixedCouponAnnuity(final AnnuityCouponFixed annuity, final MulticurveProviderDiscountAdjoint multicurve) {
+    return visitGenericAnnuity(annuity, multicurve);
+  }
+
+  // -----     Swap     ------
+
+  @Override
+  public Integer visitSwap(final Swap<?, ?> swap, final MulticurveProviderDiscountAdjoint multicurve) {
+    ArgumentChecker.isTrue(swap.getFirstLeg().getCurrency().equals(swap.getSecondLeg().getCurrency()), "Legs of the swap should be in the same currency");
+    final int pv1 = swap.getFirstLeg().accept(this, multicurve);
+    final int pv2 = swap.getSecondLeg().accept(this, multicurve);
+    return multicurve.getTape().add(pv1, pv2);
+  }
+
+  @Override
+  public Integer visitFixedCouponSwap(final SwapFixedCoupon<?> swap, final MulticurveProviderDiscountAdjoint multicurve) {
+    return visitSwap(swap, multicurve);
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.discounting;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+/**
+ * Calculates the sensitivity of the present value by discounting to the curve parameters with adjoint algorithmic differentiation.
+ * <p>
+ * The result is the one of the {@link com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator}
+ * with the {@link PresentValueCurveSensitivityDiscountingCalculator}, but the present value is recorded on a tape with the discount factors
+ * and forward rates depending directly on the curve parameters. The sensitivity to all the parameters is obtained in one backward sweep,
+ * without the intermediary point sensitivities. The instruments supported are the ones of {@link PresentValueAdjointDiscountingCalculator}.
+ */
+public final class PresentValueCurveSensitivityAdjointDiscountingCalculator {
+
+  /**
+   * The unique instance of the calculator.
+   */
+  private static final PresentValueCurveSensitivityAdjointDiscountingCalculator INSTANCE = new PresentValueCurveSensitivityAdjointDiscountingCalculator();
+
+  /**
+   * Gets the calculator instance.
+   * @return The calculator.
+   */
+  public static PresentValueCurveSensitivityAdjointDiscountingCalculator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor.
+   */
+  private PresentValueCurveSensitivityAdjointDiscountingCalculator() {
+  }
+
+  /** The present value calculator recording on the tape. */
+  private static final PresentValueAdjointDiscountingCalculator PVADC = PresentValueAdjointDiscountingCalculator.getInstance();
+
+  /**
+   * Computes the sensitivity of the present value of an instrument to the parameters of the curves.
+   * @param instrument The instrument.
+   * @param multicurves The multi-curve provider.
+   * @return The sensitivity, in the currency of the instrument.
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative instrument, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.notNull(instrument, "instrument");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    final MulticurveProviderDiscountAdjoint adjoint = new MulticurveProviderDiscountAdjoint(multicurves);
+    final int pv = instrument.accept(PVADC, adjoint);
+    return adjoint.parameterSensitivity(pv, currency(instrument));
+  }
+
+  /**
+   * Computes the sensitivity of the total present value of a portfolio to the parameters of the curves. The present values of the
+   * instruments in each currency are recorded on one tape and summed; the sensitivity is obtained with one backward sweep by currency.
+   * @param instruments The instruments.
+   * @param multicurves The multi-curve provider.
+   * @return The sensitivity, by currency of the instruments.
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative[] instruments, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.noNulls(instruments, "instruments");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    final int nbInstruments = instruments.length;
+    final Currency[] ccys = new Currency[nbInstruments];
+    final Set<Currency> ccySet = new LinkedHashSet<>();
+    for (int loopins = 0; loopins < nbInstruments; loopins++) {
+      ccys[loopins] = currency(instruments[loopins]);
+      ccySet.add(ccys[loopins]);
+    }
+    final MulticurveProviderDiscountAdjoint adjoint = new MulticurveProviderDiscountAdjoint(multicurves, new AdjointTape(64 * nbInstruments + 1));
+    final int[] pv = new int[nbInstruments];
+    MultipleCurrencyParameterSensitivity result = new MultipleCurrencyParameterSensitivity();
+    for (final Currency ccy : ccySet) {
+      adjoint.clear();
+      int nbPv = 0;
+      for (int loopins = 0; loopins < nbInstruments; loopins++) {
+        if (ccys[loopins].equals(ccy)) {
+          pv[nbPv++] = instruments[loopins].accept(PVADC, adjoint);
+        }
+      }
+      result = result.plus(adjoint.parameterSensitivity(adjoint.getTape().sum(pv, nbPv), ccy));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the currency of the present value of an instrument.
+   * @param instrument The instrument.
+   * @return The currency.
+   */
+  private static Currency currency(final InstrumentDerivative instrument) {
+    if (instrument instanceof Payment) {
+      return ((Payment) instrument).getCurrency();
+    }
+    if (instrument instanceof Annuity) {
+      return ((Annuity<?>) instrument).getCurrency();
+    }
+    if (instrument instanceof Swap) {
+      return ((Swap<?, ?>) instrument).getFirstLeg().getCurrency();
+    }
+    throw new UnsupportedOperationException("Adjoint present value not supported for " + instrument.getClass().getSimpleName());
+  }
+
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.curve;
+
+import java.util.Arrays;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The state of a curve calibration kept between two rebuilds of the same curves, used for incremental calibration.
+ * <p>
+ * For each unit of curves, the state stores the calibrated parameters and the Jacobian matrix at those parameters. When the curves are
+ * rebuilt after a small market move, the root finder starts from the previous parameters with the previous Jacobian, updated with
+ * Broyden rank-one updates, instead of starting from the initial guess with a new Jacobian. A unit is calibrated from the initial guess when
+ * its previous state is missing, has a different number of parameters or when the incremental calibration fails.
+ * <p>
+ * The state also records, for the last rebuild, the number of iterations and of Jacobian calculations of each unit, whether the unit was
+ * calibrated incrementally and the time spent in the rebuild.
+ * <p>
+ * The units are identified by their index in the curve bundles; the same state should only be used for the rebuilds of the same
+ * curves. The state is updated by the curve building repositories and is not thread safe: the same state should not be used by
+ * concurrent rebuilds.
+ */
+public class CurveCalibrationState {
+
+  /**
+   * The calibrated parameters of each unit.
+   */
+  private double[][] _parameters;
+  /**
+   * The Jacobian matrix of each unit at the calibrated parameters.
+   */
+  private DoubleMatrix2D[] _jacobians;
+  /**
+   * The number of root finder iterations of each unit in the last rebuild.
+   */
+  private int[] _nbIterations;
+  /**
+   * The number of Jacobian calculations by the root finder of each unit in the last rebuild.
+   */
+  private int[] _nbJacobianCalculations;
+  /**
+   * Whether each unit was calibrated incrementally in the last rebuild.
+   */
+  private boolean[] _incremental;
+  /**
+   * The time spent in the last rebuild, in nanoseconds.
+   */
+  private long _rebuildTime;
+  /**
+   * The number of rebuilds done with this state.
+   */
+  private int _nbRebuilds;
+
+  /**
+   * Constructor of an empty state; the first rebuild calibrates all the units from their initial guess.
+   */
+  public CurveCalibrationState() {
+    setNumberOfUnits(0);
+  }
+
+  /**
+   * Starts a rebuild: resets the statistics of the previous rebuild. When the number of units has changed, the previous calibration is discarded.
+   * @param nbUnits The number of units in the rebuild.
+   */
+  public void startRebuild(final int nbUnits) {
+    ArgumentChecker.notNegative(nbUnits, "number of units");
+    if (nbUnits != _parameters.length) {
+      setNumberOfUnits(nbUnits);
+    } else {
+      Arrays.fill(_nbIterations, 0);
+      Arrays.fill(_nbJacobianCalculations, 0);
+      Arrays.fill(_incremental, false);
+    }
+  }
+
+  /**
+   * Ends a rebuild.
+   * @param rebuildTime The time spent in the rebuild, in nanoseconds.
+   */
+  public void endRebuild(final long rebuildTime) {
+    _rebuildTime = rebuildTime;
+    _nbRebuilds++;
+  }
+
+  private void setNumberOfUnits(final int nbUnits) {
+    _parameters = new double[nbUnits][];
+    _jacobians = new DoubleMatrix2D[nbUnits];
+    _nbIterations = new int[nbUnits];
+    _nbJacobianCalculations = new int[nbUnits];
+    _incremental = new boolean[nbUnits];
+  }
+
+  /**
+   * Returns the number of units of the last rebuild.
+   * @return The number of units.
+   */
+  public int getNumberOfUnits() {
+    return _parameters.length;
+  }
+
+  /**
+   * Checks if a unit can be calibrated incrementally, i.e. if its parameters and Jacobian are known with the given number of parameters.
+   * @param unit The unit index.
+   * @param nbParameters The number of parameters of the unit.
+   * @return True if the unit can be calibrated incrementally.
+   */
+  public boolean hasCalibration(final int unit, final int nbParameters) {
+    return unit < _parameters.length && _parameters[unit] != null && _parameters[unit].length == nbParameters && _jacobians[unit] != null
+        && _jacobians[unit].getNumberOfRows() == nbParameters && _jacobians[unit].getNumberOfColumns() == nbParameters;
+  }
+
+  /**
+   * Returns the calibrated parameters of a unit.
+   * @param unit The unit index.
+   * @return The parameters, null if unknown.
+   */
+  public double[] getParameters(final int unit) {
+    return _parameters[unit];
+  }
+
+  /**
+   * Returns the Jacobian matrix of a unit at its calibrated parameters.
+   * @param unit The unit index.
+   * @return The Jacobian, null if unknown.
+   */
+  public DoubleMatrix2D getJacobian(final int unit) {
+    return _jacobians[unit];
+  }
+
+  /**
+   * Stores the calibration of a unit and its statistics. The Jacobian is reset until {@link #setJacobian(int, DoubleMatrix2D)} is called.
+   * @param unit The unit index.
+   * @param parameters The calibrated parameters.
+   * @param nbIterations The number of root finder iterations.
+   * @param nbJacobianCalculations The number of Jacobian calculations by the root finder.
+   * @param incremental Whether the unit was calibrated incrementally.
+   */
+  public void setCalibration(final int unit, final double[] parameters, final int nbIterations, final int nbJacobianCalculations, final boolean incremental) {
+    ArgumentChecker.notNull(parameters, "parameters");
+    _parameters[unit] = parameters;
+    _jacobians[unit] = null;
+    _nbIterations[unit] = nbIterations;
+    _nbJacobianCalculations[unit] = nbJacobianCalculations;
+    _incremental[unit] = incremental;
+  }
+
+  /**
+   * Stores the Jacobian matrix of a unit at its calibrated parameters.
+   * @param unit The unit index.
+   * @param jacobian The Jacobian.
+   */
+  public void setJacobian(final int unit, final DoubleMatrix2D jacobian) {
+    ArgumentChecker.notNull(jacobian, "jacobian");
+    _jacobians[unit] = jacobian;
+  }
+
+  /**
+   * Returns the number of root finder iterations of a unit in the last rebuild.
+   * @param unit The unit index.
+   * @return The number of iterations.
+   */
+  public int getNumberOfIterations(final int unit) {
+    return _nbIterations[unit];
+  }
+
+  /**
+   * Returns the total number of root finder iterations in the last rebuild.
+   * @return The number of iterations.
+   */
+  public int getNumberOfIterations() {
+    int total = 0;
+    for (final int nbIterations : _nbIterations) {
+      total += nbIterations;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of Jacobian calculations by the root finder of a unit in the last rebuild.
+   * @param unit The unit index.
+   * @return The number of Jacobian calculations.
+   */
+  public int getNumberOfJacobianCalculations(final int unit) {
+    return _nbJacobianCalculations[unit];
+  }
+
+  /**
+   * Returns whether a unit was calibrated incrementally in the last rebuild.
+   * @param unit The unit index.
+   * @return True if calibrated incrementally, false if calibrated from the initial guess.
+   */
+  public boolean isIncremental(final int unit) {
+    return _incremental[unit];
+  }
+
+  /**
+   * Returns the time spent in the last rebuild.
+   * @return The time, in nanoseconds.
+   */
+  public long getRebuildTime() {
+    return _rebuildTime;
+  }
+
+  /**
+   * Returns the number of rebuilds done with this state.
+   * @return The number of rebuilds.
+   */
+  public int getNumberOfRebuilds() {
+    return _nbRebuilds;
+  }
+
+  @Override
+  public String toString() {
+    return "CurveCalibrationState[rebuild " + _nbRebuilds + ": " + _rebuildTime / 1000 + " us, iterations " + Arrays.toString(_nbIterations) + ", Jacobian calculations "
+        + Arrays.toString(_nbJacobianCalculations) + ", incremental " + Arrays.toString(_incremental) + "]";
+  }
+
+}
@@ -6,14 +6,20 @@
 package com.opengamma.analytics.financial.provider.curve.multicurve;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Multimap;
 import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
@@ -23,12 +29,14 @@ import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
 import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlock;
 import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle;
+import com.opengamma.analytics.financial.provider.curve.CurveCalibrationState;
 import com.opengamma.analytics.financial.provider.curve.MultiCurveBundle;
 import com.opengamma.analytics.financial.provider.curve.SingleCurveBundle;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
 import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveUnderlyingMatrixCalculator;
+import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.linearalgebra.DecompositionFactory;
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
@@ -36,11 +44,11 @@ import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
 import com.opengamma.analytics.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.analytics.math.rootfinding.newton.NewtonVectorRootFinderResult;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.tuple.ObjectsPair;
 import com.opengamma.util.tuple.Pair;
-import com.opengamma.util.tuple.Pairs;
 
 /**
  * Functions to build curves.
@@ -48,6 +56,8 @@ import com.opengamma.util.tuple.Pairs;
 // TODO: REVIEW: Embed in a better object.
 public class MulticurveDiscountBuildingRepository {
 
+  /** The logger */
+  private static final Logger s_logger = LoggerFactory.getLogger(MulticurveDiscountBuildingRepository.class);
   /**
    * The absolute tolerance for the root finder.
    */
@@ -68,6 +78,10 @@ public class MulticurveDiscountBuildingRepository {
    * The matrix algebra used for matrix inversion.
    */
   private static final MatrixAlgebra MATRIX_ALGEBRA = new CommonsMatrixAlgebra();
+  /**
+   * The pool in which the independent units are calibrated, null if the units are calibrated in sequence in the calling thread.
+   */
+  private final ForkJoinPool _pool;
 
   /**
    * Constructor.
@@ -76,10 +90,26 @@ public class MulticurveDiscountBuildingRepository {
    * @param stepMaximum The maximum number of step for the root finder.
    */
   public MulticurveDiscountBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum) {
+    this(toleranceAbs, toleranceRel, stepMaximum, null);
+  }
+
+  /**
+   * Constructor calibrating the independent units concurrently.
+   * <p>
+   * A unit depends on a previous unit when its instruments or its curves use the curves of that unit. The units which only depend on units
+   * already calibrated are calibrated concurrently in the pool. The curves and the CurveBuildingBlockBundle are the same as the ones of the
+   * sequential calibration.
+   * @param toleranceAbs The absolute tolerance for the root finder.
+   * @param toleranceRel The relative tolerance for the root finder.
+   * @param stepMaximum The maximum number of step for the root finder.
+   * @param pool The pool in which the independent units are calibrated, null to calibrate the units in sequence in the calling thread.
+   */
+  public MulticurveDiscountBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum, final ForkJoinPool pool) {
     _toleranceAbs = toleranceAbs;
     _toleranceRel = toleranceRel;
     _stepMaximum = stepMaximum;
     _rootFinder = new BroydenVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
+    _pool = pool;
     // TODO: [PLAT-5761] make the root finder flexible.
     // TODO: create a way to select the SensitivityMatrixMulticurve calculator (with underlying curve or not)
   }
@@ -95,22 +125,39 @@ public class MulticurveDiscountBuildingRepository {
    * @param generatorsMap The generators map.
    * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
    * @param sensitivityCalculator The parameter sensitivity calculator.
-   * @return The new curves and the calibrated parameters.
+   * @param state The state of the previous calibration, used to calibrate the unit incrementally and updated with the new calibration. Null
+   * to calibrate from the initial guess.
+   * @param unit The index of the unit in the state.
+   * @return The calibrated parameters.
    */
-  private MulticurveProviderDiscount makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, 
+  private double[] makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, 
       final MulticurveProviderDiscount knownData,
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, 
       final LinkedHashMap<String, IndexON[]> forwardONMap,
       final LinkedHashMap<String, GeneratorYDCurve> generatorsMap, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
-      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state,
+      final int unit) {
     final GeneratorMulticurveProviderDiscount generator = new GeneratorMulticurveProviderDiscount(knownData, discountingMap, forwardIborMap, forwardONMap, generatorsMap);
     final MulticurveDiscountBuildingData data = new MulticurveDiscountBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MulticurveDiscountFinderFunction(calculator, data);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveDiscountFinderJacobian(
         new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator), data);
-    final double[] parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
-    final MulticurveProviderDiscount newCurves = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
-    return newCurves;
+    if (state == null) {
+      return _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
+    }
+    if (state.hasCalibration(unit, initGuess.length)) {
+      try {
+        final NewtonVectorRootFinderResult result = _rootFinder.getRootResult(curveCalculator, jacobianCalculator, new DoubleMatrix1D(state.getParameters(unit)),
+            state.getJacobian(unit));
+        state.setCalibration(unit, result.getRoot().getData(), result.getNumberOfIterations(), result.getNumberOfMatrixCalculations(), true);
+        return result.getRoot().getData();
+      } catch (final MathException e) {
+        s_logger.debug("Incremental calibration of unit {} failed, calibrating from the initial guess: {}", unit, e.getMessage());
+      }
+    }
+    final NewtonVectorRootFinderResult result = _rootFinder.getRootResult(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess), null);
+    state.setCalibration(unit, result.getRoot().getData(), result.getNumberOfIterations(), result.getNumberOfMatrixCalculations(), false);
+    return result.getRoot().getData();
   }
 
   /**
@@ -121,10 +168,9 @@ public class MulticurveDiscountBuildingRepository {
    * @param blockBundle
    * @param sensitivityCalculator The parameter sensitivity calculator for the value on which the calibration is done
   (usually ParSpreadMarketQuoteDiscountingProviderCalculator (recommended) or converted present value).
-   * @return The part of the inverse Jacobian matrix associated to each curve. Only the part for the curve in the current unit (not the previous units).
-   * The Jacobian matrix is the transition matrix between the curve parameters and the par spread.
+   * @return The Jacobian matrix of the current unit with respect to its own parameters.
    */
-  private void updateBlockBundle(final InstrumentDerivative[] instruments, final MulticurveProviderDiscount multicurves, final List<String> currentCurvesList,
+  private DoubleMatrix2D updateBlockBundle(final InstrumentDerivative[] instruments, final MulticurveProviderDiscount multicurves, final List<String> currentCurvesList,
       final CurveBuildingBlockBundle blockBundle, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
     // Sensitivity calculator
     final ParameterSensitivityMulticurveUnderlyingMatrixCalculator parameterSensitivityCalculator = new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator);
@@ -176,7 +222,8 @@ public class MulticurveDiscountBuildingRepository {
     for (int loopp = 0; loopp < nbIns; loopp++) {
       System.arraycopy(res[loopp], nbParametersBeforeTotal, direct[loopp], 0, nbParametersCurrentTotal);
     }
-    final DoubleMatrix2D pDmCurrentMatrix = MATRIX_ALGEBRA.getInverse(new DoubleMatrix2D(direct));
+    final DoubleMatrix2D directMatrix = new DoubleMatrix2D(direct);
+    final DoubleMatrix2D pDmCurrentMatrix = MATRIX_ALGEBRA.getInverse(directMatrix);
     // Jacobian indirect: when nbBefor
     double[][] pDmBeforeArray = new double[0][0];
     if (nbParametersBeforeTotal > 0) {
@@ -197,31 +244,39 @@ public class MulticurveDiscountBuildingRepository {
         tempNbParam += nbParametersBefore[loopc];
         loopc++;
       }
-      // Transition Matrix: all curves before current
-      final double[][] transition = new double[nbParametersBeforeTotal][nbParametersBeforeTotal];
+      // Product with the transition matrix between the parameters of the curves before current and the market quotes, made of the inverse
+      // Jacobian blocks of the curves. The blocks are used in place; the curves on which the current unit does not depend are skipped.
+      final double[][] pDpBeforeArray = pDpBeforeMatrix.getData();
+      pDmBeforeArray = new double[nbParametersCurrentTotal][nbParametersBeforeTotal];
       loopc = 0;
       int loopc2 = 0;
       for (final String name : beforeCurveName) { // l
-        final Pair<CurveBuildingBlock, DoubleMatrix2D> thisPair = blockBundle.getBlock(name);
-        final CurveBuildingBlock thisBlock = thisPair.getFirst();
-        final Set<String> thisBlockCurves = thisBlock.getAllNames();
-        final double[][] thisMatrix = thisPair.getSecond().getData();
-        loopc2 = 0;
-        for (final String name2 : beforeCurveName) { // k
-          if (thisBlockCurves.contains(name2)) { // If not, the matrix stay with 0
-            final Integer start = thisBlock.getStart(name2);
-            for (int loopp = 0; loopp < nbParametersBefore[loopc]; loopp++) {
-              System.arraycopy(thisMatrix[loopp], start, transition[startIndexBefore[loopc] + loopp], startIndexBefore[loopc2], thisBlock.getNbParameters(name2));
+        if (!isZero(pDpBeforeArray, startIndexBefore[loopc], nbParametersBefore[loopc])) {
+          final Pair<CurveBuildingBlock, DoubleMatrix2D> thisPair = blockBundle.getBlock(name);
+          final CurveBuildingBlock thisBlock = thisPair.getFirst();
+          final Set<String> thisBlockCurves = thisBlock.getAllNames();
+          final double[][] thisMatrix = thisPair.getSecond().getData();
+          loopc2 = 0;
+          for (final String name2 : beforeCurveName) { // k
+            if (thisBlockCurves.contains(name2)) { // If not, the transition matrix is 0
+              final int start = thisBlock.getStart(name2);
+              final int nbParameters2 = thisBlock.getNbParameters(name2);
+              for (int loopr = 0; loopr < nbParametersCurrentTotal; loopr++) {
+                final double[] pDmRow = pDmBeforeArray[loopr];
+                for (int loopp = 0; loopp < nbParametersBefore[loopc]; loopp++) {
+                  final double factor = pDpBeforeArray[loopr][startIndexBefore[loopc] + loopp];
+                  final double[] thisRow = thisMatrix[loopp];
+                  for (int loopk = 0; loopk < nbParameters2; loopk++) {
+                    pDmRow[startIndexBefore[loopc2] + loopk] += factor * thisRow[start + loopk];
+                  }
+                }
+              }
             }
+            loopc2++;
           }
-          loopc2++;
         }
         loopc++;
       }
-      final DoubleMatrix2D transitionMatrix = new DoubleMatrix2D(transition);
-      DoubleMatrix2D pDmBeforeMatrix;
-      pDmBeforeMatrix = (DoubleMatrix2D) MATRIX_ALGEBRA.multiply(pDpBeforeMatrix, transitionMatrix);
-      pDmBeforeArray = pDmBeforeMatrix.getData();
       loopc = 0;
       for (final String name : beforeCurveName) {
         mapBlockOut.put(name, ObjectsPair.of((Integer) startIndexBefore[loopc], (Integer) nbParametersBefore[loopc]));
@@ -250,6 +305,7 @@ public class MulticurveDiscountBuildingRepository {
       blockBundle.add(name, blockOut, pDmCurveMatrix);
       loopc++;
     }
+    return directMatrix;
   }
 
   /**
@@ -341,6 +397,32 @@ public class MulticurveDiscountBuildingRepository {
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    return makeCurvesFromDerivatives(curveBundles, knownData, knownBlockBundle, discountingMap, forwardIborMap, forwardONMap, calculator, sensitivityCalculator, null);
+  }
+
+  /**
+   * Build a block of curves with a known CurveBuildingBlockBundle, incrementally from a previous calibration of the same curves.
+   * <p>
+   * Each unit is calibrated starting from its parameters in the state, with the Jacobian of the previous calibration updated by Broyden rank-one
+   * updates. The units without a previous calibration, or for which the incremental calibration fails, are calibrated from the initial guess.
+   * The state is updated with the new calibration and the statistics of the rebuild (iterations, Jacobian calculations and time).
+   * The CurveBuildingBlockBundle is computed with the exact Jacobian at the new parameters, as in the calibration from the initial guess.
+   * @param curveBundles The bundles of curve data used in construction.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param knownBlockBundle The already build CurveBuildingBlockBundle.
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @param state The state of the previous calibration, updated with the new one. Null to calibrate all the units from the initial guess.
+   * @return A pair with the calibrated yield curve bundle (including the known data) and the CurveBuildingBlockBundle with the relevant inverse Jacobian Matrix.
+   */
+  public Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> makeCurvesFromDerivatives(final MultiCurveBundle<GeneratorYDCurve>[] curveBundles,
+      final MulticurveProviderDiscount knownData, final CurveBuildingBlockBundle knownBlockBundle,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state) {
     ArgumentChecker.notNull(curveBundles, "curve bundles");
     ArgumentChecker.notNull(knownData, "known data");
     ArgumentChecker.notNull(discountingMap, "discounting map");
@@ -348,15 +430,18 @@ public class MulticurveDiscountBuildingRepository {
     ArgumentChecker.notNull(forwardONMap, "forward overnight map");
     ArgumentChecker.notNull(calculator, "calculator");
     ArgumentChecker.notNull(sensitivityCalculator, "sensitivity calculator");
+    final long startTime = System.nanoTime();
     final int nbUnits = curveBundles.length;
+    if (state != null) {
+      state.startRebuild(nbUnits);
+    }
     MulticurveProviderDiscount knownSoFarData = knownData.copy();
     final CurveBuildingBlockBundle totalBundle = new CurveBuildingBlockBundle();
     totalBundle.addAll(knownBlockBundle);
 
-    final List<InstrumentDerivative> instrumentsSoFar = new ArrayList<>();
-    final LinkedHashMap<String, GeneratorYDCurve> generatorsSoFar = new LinkedHashMap<>();
-    final LinkedHashMap<String, Pair<Integer, Integer>> unitMap = new LinkedHashMap<>();
-    int startUnit = 0;
+    final InstrumentDerivative[][] instrumentsUnits = new InstrumentDerivative[nbUnits][];
+    final double[][] parametersGuess = new double[nbUnits][];
+    final List<LinkedHashMap<String, GeneratorYDCurve>> generatorsUnits = new ArrayList<>();
     for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
       final MultiCurveBundle<GeneratorYDCurve> curveBundle = curveBundles[iUnits];
       final int nbCurve = curveBundle.size();
@@ -369,27 +454,234 @@ public class MulticurveDiscountBuildingRepository {
         startCurve[iCurve] = nbInsUnit;
         nbIns[iCurve] = singleCurve.size();
         nbInsUnit += nbIns[iCurve];
-        instrumentsSoFar.addAll(Arrays.asList(singleCurve.getDerivatives()));
       }
-      final InstrumentDerivative[] instrumentsUnit = new InstrumentDerivative[nbInsUnit];
-      final double[] parametersGuess = new double[nbInsUnit];
+      instrumentsUnits[iUnits] = new InstrumentDerivative[nbInsUnit];
+      parametersGuess[iUnits] = new double[nbInsUnit];
       for (int iCurve = 0; iCurve < nbCurve; iCurve++) {
         final SingleCurveBundle<GeneratorYDCurve> singleCurve = curveBundle.getCurveBundle(iCurve);
         final InstrumentDerivative[] derivatives = singleCurve.getDerivatives();
-        System.arraycopy(derivatives, 0, instrumentsUnit, startCurve[iCurve], nbIns[iCurve]);
-        System.arraycopy(singleCurve.getStartingPoint(), 0, parametersGuess, startCurve[iCurve], nbIns[iCurve]);
-        final GeneratorYDCurve tmp = singleCurve.getCurveGenerator().finalGenerator(derivatives);
-        final String curveName = singleCurve.getCurveName();
-        gen.put(curveName, tmp);
-        generatorsSoFar.put(curveName, tmp);
-        unitMap.put(curveName, Pairs.of(startUnit + startCurve[iCurve], nbIns[iCurve]));
+        System.arraycopy(derivatives, 0, instrumentsUnits[iUnits], startCurve[iCurve], nbIns[iCurve]);
+        System.arraycopy(singleCurve.getStartingPoint(), 0, parametersGuess[iUnits], startCurve[iCurve], nbIns[iCurve]);
+        gen.put(singleCurve.getCurveName(), singleCurve.getCurveGenerator().finalGenerator(derivatives));
       }
-      knownSoFarData = makeUnit(instrumentsUnit, parametersGuess, knownSoFarData,
-          discountingMap, forwardIborMap, forwardONMap, gen, calculator, sensitivityCalculator);
-      updateBlockBundle(instrumentsUnit, knownSoFarData, curveBundle.getNames(), totalBundle, sensitivityCalculator);
-      startUnit = startUnit + nbInsUnit;
+      generatorsUnits.add(gen);
+    }
+    if (_pool == null) {
+      for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+        final double[] parameters = makeUnit(instrumentsUnits[iUnits], parametersGuess[iUnits], knownSoFarData,
+            discountingMap, forwardIborMap, forwardONMap, generatorsUnits.get(iUnits), calculator, sensitivityCalculator, state, iUnits);
+        knownSoFarData = new GeneratorMulticurveProviderDiscount(knownSoFarData, discountingMap, forwardIborMap, forwardONMap, generatorsUnits.get(iUnits))
+            .evaluate(new DoubleMatrix1D(parameters));
+        final DoubleMatrix2D jacobian = updateBlockBundle(instrumentsUnits[iUnits], knownSoFarData, curveBundles[iUnits].getNames(), totalBundle, sensitivityCalculator);
+        if (state != null) {
+          state.setJacobian(iUnits, jacobian);
+        }
+      }
+    } else {
+      final double[][] parameters = makeUnitsByLevel(instrumentsUnits, parametersGuess, knownData, discountingMap, forwardIborMap, forwardONMap, generatorsUnits,
+          calculator, sensitivityCalculator, state);
+      // The curves are added and the blocks built in the order of the units, as in the sequential calibration.
+      for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+        knownSoFarData = new GeneratorMulticurveProviderDiscount(knownSoFarData, discountingMap, forwardIborMap, forwardONMap, generatorsUnits.get(iUnits))
+            .evaluate(new DoubleMatrix1D(parameters[iUnits]));
+        final DoubleMatrix2D jacobian = updateBlockBundle(instrumentsUnits[iUnits], knownSoFarData, curveBundles[iUnits].getNames(), totalBundle, sensitivityCalculator);
+        if (state != null) {
+          state.setJacobian(iUnits, jacobian);
+        }
+      }
+    }
+    if (state != null) {
+      state.endRebuild(System.nanoTime() - startTime);
+      s_logger.debug("Curve rebuild: {}", state);
     }
     return ObjectsPair.of(knownSoFarData, totalBundle);
   }
 
+  /**
+   * Calibrates the units by level of dependency. The units of the first level do not depend on any other unit; the units of the next level only
+   * depend on the units of the previous levels, and so on. The units of a level are calibrated concurrently in the pool, with the known data and the
+   * curves of the previous levels.
+   * @param instruments The instruments of each unit.
+   * @param parametersGuess The initial parameters guess of each unit.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param generators The generators of each unit.
+   * @param calculator The calculator of the value on which the calibration is done.
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @param state The state of the previous calibration, updated with the new one. Null to calibrate from the initial guess.
+   * @return The calibrated parameters of each unit.
+   */
+  private double[][] makeUnitsByLevel(final InstrumentDerivative[][] instruments, final double[][] parametersGuess, final MulticurveProviderDiscount knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+      final List<LinkedHashMap<String, GeneratorYDCurve>> generators, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state) {
+    final int nbUnits = instruments.length;
+    final int[] level = unitLevels(instruments, parametersGuess, knownData, discountingMap, forwardIborMap, forwardONMap, generators, sensitivityCalculator);
+    int nbLevels = 0;
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      nbLevels = Math.max(nbLevels, level[iUnits] + 1);
+    }
+    final double[][] parameters = new double[nbUnits][];
+    MulticurveProviderDiscount levelData = knownData.copy();
+    for (int iLevel = 0; iLevel < nbLevels; iLevel++) {
+      final List<Integer> units = new ArrayList<>();
+      for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+        if (level[iUnits] == iLevel) {
+          units.add(iUnits);
+        }
+      }
+      _pool.invoke(new UnitAction(units, instruments, parametersGuess, levelData, discountingMap, forwardIborMap, forwardONMap, generators, calculator,
+          sensitivityCalculator, state, parameters));
+      for (final Integer iUnits : units) {
+        levelData = new GeneratorMulticurveProviderDiscount(levelData, discountingMap, forwardIborMap, forwardONMap, generators.get(iUnits))
+            .evaluate(new DoubleMatrix1D(parameters[iUnits]));
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Computes the level of dependency of each unit.
+   * <p>
+   * The dependencies are found on the curves of all the units at their initial guess, added in the order of the units as in the sequential
+   * calibration. A unit depends on a previous unit if its instruments are sensitive to, or its curves are built on, the curves of that unit. It also
+   * depends on a previous unit using a curve it replaces in the provider.
+   * @param instruments The instruments of each unit.
+   * @param parametersGuess The initial parameters guess of each unit.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param generators The generators of each unit.
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @return The level of each unit, 0 for the units which do not depend on any other unit.
+   */
+  private static int[] unitLevels(final InstrumentDerivative[][] instruments, final double[][] parametersGuess, final MulticurveProviderDiscount knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+      final List<LinkedHashMap<String, GeneratorYDCurve>> generators, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    final int nbUnits = instruments.length;
+    final int[] level = new int[nbUnits];
+    final List<Set<String>> usedNames = new ArrayList<>();
+    MulticurveProviderDiscount guessData = knownData.copy();
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      final Set<String> unitNames = generators.get(iUnits).keySet();
+      // Names of the curves replaced by the unit
+      final Set<String> replacedNames = new HashSet<>();
+      for (final String name : unitNames) {
+        if (discountingMap.containsKey(name) && guessData.getCurrencies().contains(discountingMap.get(name))) {
+          replacedNames.add(guessData.getName(discountingMap.get(name)));
+        }
+        if (forwardIborMap.containsKey(name)) {
+          for (final IborIndex index : forwardIborMap.get(name)) {
+            if (guessData.getIndexesIbor().contains(index)) {
+              replacedNames.add(guessData.getName(index));
+            }
+          }
+        }
+        if (forwardONMap.containsKey(name)) {
+          for (final IndexON index : forwardONMap.get(name)) {
+            if (guessData.getIndexesON().contains(index)) {
+              replacedNames.add(guessData.getName(index));
+            }
+          }
+        }
+      }
+      guessData = new GeneratorMulticurveProviderDiscount(guessData, discountingMap, forwardIborMap, forwardONMap, generators.get(iUnits))
+          .evaluate(new DoubleMatrix1D(parametersGuess[iUnits]));
+      // Names of the curves used by the unit
+      final Set<String> used = new HashSet<>();
+      for (final InstrumentDerivative instrument : instruments[iUnits]) {
+        final MulticurveSensitivity sensitivity = instrument.accept(sensitivityCalculator, guessData);
+        used.addAll(sensitivity.getYieldDiscountingSensitivities().keySet());
+        used.addAll(sensitivity.getForwardSensitivities().keySet());
+      }
+      for (final String name : unitNames) {
+        used.addAll(guessData.getUnderlyingCurvesNames(name));
+      }
+      for (int iPrevious = 0; iPrevious < iUnits; iPrevious++) {
+        if (!Collections.disjoint(used, generators.get(iPrevious).keySet()) || !Collections.disjoint(usedNames.get(iPrevious), replacedNames)) {
+          level[iUnits] = Math.max(level[iUnits], level[iPrevious] + 1);
+        }
+      }
+      usedNames.add(used);
+    }
+    return level;
+  }
+
+  /**
+   * Checks if the columns of a matrix are all 0.
+   * @param matrix The matrix.
+   * @param start The index of the first column.
+   * @param nbColumns The number of columns.
+   * @return True if all the elements in the columns are 0.
+   */
+  private static boolean isZero(final double[][] matrix, final int start, final int nbColumns) {
+    for (final double[] row : matrix) {
+      for (int loopcol = start; loopcol < start + nbColumns; loopcol++) {
+        if (row[loopcol] != 0.0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Calibrates a list of units, splitting it in two until a single unit is left.
+   */
+  private final class UnitAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Integer> _units;
+    private final InstrumentDerivative[][] _instruments;
+    private final double[][] _parametersGuess;
+    private final MulticurveProviderDiscount _knownData;
+    private final LinkedHashMap<String, Currency> _discountingMap;
+    private final LinkedHashMap<String, IborIndex[]> _forwardIborMap;
+    private final LinkedHashMap<String, IndexON[]> _forwardONMap;
+    private final List<LinkedHashMap<String, GeneratorYDCurve>> _generators;
+    private final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> _calculator;
+    private final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> _sensitivityCalculator;
+    private final CurveCalibrationState _state;
+    private final double[][] _parameters;
+
+    UnitAction(final List<Integer> units, final InstrumentDerivative[][] instruments, final double[][] parametersGuess, final MulticurveProviderDiscount knownData,
+        final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+        final List<LinkedHashMap<String, GeneratorYDCurve>> generators, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+        final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state,
+        final double[][] parameters) {
+      _units = units;
+      _instruments = instruments;
+      _parametersGuess = parametersGuess;
+      _knownData = knownData;
+      _discountingMap = discountingMap;
+      _forwardIborMap = forwardIborMap;
+      _forwardONMap = forwardONMap;
+      _generators = generators;
+      _calculator = calculator;
+      _sensitivityCalculator = sensitivityCalculator;
+      _state = state;
+      _parameters = parameters;
+    }
+
+    @Override
+    protected void compute() {
+      if (_units.size() == 1) {
+        final int iUnits = _units.get(0);
+        _parameters[iUnits] = makeUnit(_instruments[iUnits], _parametersGuess[iUnits], _knownData, _discountingMap, _forwardIborMap, _forwardONMap,
+            _generators.get(iUnits), _calculator, _sensitivityCalculator, _state, iUnits);
+      } else {
+        final int mid = _units.size() >>> 1;
+        invokeAll(new UnitAction(_units.subList(0, mid), _instruments, _parametersGuess, _knownData, _discountingMap, _forwardIborMap, _forwardONMap, _generators,
+            _calculator, _sensitivityCalculator, _state, _parameters),
+            new UnitAction(_units.subList(mid, _units.size()), _instruments, _parametersGuess, _knownData, _discountingMap, _forwardIborMap, _forwardONMap,
+                _generators, _calculator, _sensitivityCalculator, _state, _parameters));
+      }
+    }
+
+  }
+
 }
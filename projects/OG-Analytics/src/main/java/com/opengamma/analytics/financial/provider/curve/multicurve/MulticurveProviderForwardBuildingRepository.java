@@ -11,6 +11,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
 import com.opengamma.analytics.financial.instrument.index.IborIndex;
@@ -19,10 +21,12 @@ import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
 import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlock;
 import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle;
+import com.opengamma.analytics.financial.provider.curve.CurveCalibrationState;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderForward;
 import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveMatrixCalculator;
+import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.linearalgebra.DecompositionFactory;
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
@@ -30,6 +34,7 @@ import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
 import com.opengamma.analytics.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.analytics.math.rootfinding.newton.NewtonVectorRootFinderResult;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.tuple.Pair;
 import com.opengamma.util.tuple.Pairs;
@@ -40,6 +45,8 @@ import com.opengamma.util.tuple.Pairs;
 //TODO: REVIEW: Embed in a better object.
 public class MulticurveProviderForwardBuildingRepository {
 
+  /** The logger */
+  private static final Logger s_logger = LoggerFactory.getLogger(MulticurveProviderForwardBuildingRepository.class);
   /**
    * The absolute tolerance for the root finder.
    */
@@ -86,18 +93,40 @@ public class MulticurveProviderForwardBuildingRepository {
    * @param generatorsMap The generators map.
    * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
    * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @param state The state of the previous calibration, used to calibrate the unit incrementally and updated with the new calibration. Null
+   * to calibrate from the initial guess.
+   * @param unit The index of the unit in the state.
    * @return The new curves and the calibrated parameters.
    */
   private Pair<MulticurveProviderForward, Double[]> makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, final MulticurveProviderForward knownData,
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex> forwardIborMap, final LinkedHashMap<String, IndexON> forwardONMap,
       final LinkedHashMap<String, GeneratorYDCurve> generatorsMap, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
-      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state, final int unit) {
     final GeneratorMulticurveProviderForward generator = new GeneratorMulticurveProviderForward(knownData, discountingMap, forwardIborMap, forwardONMap, generatorsMap);
     final MulticurveProviderForwardBuildingData data = new MulticurveProviderForwardBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MulticurveProviderForwardFinderFunction(calculator, data);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveProviderForwardFinderJacobian(
         new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data);
-    final double[] parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
+    double[] parameters = null;
+    if (state == null) {
+      parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
+    } else {
+      if (state.hasCalibration(unit, initGuess.length)) {
+        try {
+          final NewtonVectorRootFinderResult result = _rootFinder.getRootResult(curveCalculator, jacobianCalculator, new DoubleMatrix1D(state.getParameters(unit)),
+              state.getJacobian(unit));
+          parameters = result.getRoot().getData();
+          state.setCalibration(unit, parameters, result.getNumberOfIterations(), result.getNumberOfMatrixCalculations(), true);
+        } catch (final MathException e) {
+          s_logger.debug("Incremental calibration of unit {} failed, calibrating from the initial guess: {}", unit, e.getMessage());
+        }
+      }
+      if (parameters == null) {
+        final NewtonVectorRootFinderResult result = _rootFinder.getRootResult(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess), null);
+        parameters = result.getRoot().getData();
+        state.setCalibration(unit, parameters, result.getNumberOfIterations(), result.getNumberOfMatrixCalculations(), false);
+      }
+    }
     final MulticurveProviderForward newCurves = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
     return Pairs.of(newCurves, ArrayUtils.toObject(parameters));
   }
@@ -115,6 +144,8 @@ public class MulticurveProviderForwardBuildingRepository {
    * @param generatorsMap The generators map.
    * @param sensitivityCalculator The parameter sensitivity calculator for the value on which the calibration is done
   (usually ParSpreadMarketQuoteDiscountingProviderCalculator (recommended) or converted present value).
+   * @param state The calibration state in which the Jacobian of the unit with respect to its own parameters is stored, null if not required.
+   * @param unit The index of the unit in the state.
    * @return The part of the inverse Jacobian matrix associated to each curve.
    * The Jacobian matrix is the transition matrix between the curve parameters and the par spread.
    * TODO: Currently only for the ParSpreadMarketQuoteDiscountingProviderCalculator.
@@ -122,12 +153,21 @@ public class MulticurveProviderForwardBuildingRepository {
   private DoubleMatrix2D[] makeCurveMatrix(final InstrumentDerivative[] instruments, final int startBlock, final int[] nbParameters, final Double[] parameters,
       final MulticurveProviderForward knownData, final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex> forwardIborMap,
       final LinkedHashMap<String, IndexON> forwardONMap, final LinkedHashMap<String, GeneratorYDCurve> generatorsMap,
-      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final CurveCalibrationState state, final int unit) {
     final GeneratorMulticurveProviderForward generator = new GeneratorMulticurveProviderForward(knownData, discountingMap, forwardIborMap, forwardONMap, generatorsMap);
     final MulticurveProviderForwardBuildingData data = new MulticurveProviderForwardBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveProviderForwardFinderJacobian(
         new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data);
     final DoubleMatrix2D jacobian = jacobianCalculator.evaluate(new DoubleMatrix1D(parameters));
+    if (state != null) {
+      // The rows and columns of the unit are the last ones.
+      final int nbParametersUnit = jacobian.getNumberOfRows() - startBlock;
+      final double[][] jacobianUnit = new double[nbParametersUnit][nbParametersUnit];
+      for (int loopparam = 0; loopparam < nbParametersUnit; loopparam++) {
+        System.arraycopy(jacobian.getData()[startBlock + loopparam], startBlock, jacobianUnit[loopparam], 0, nbParametersUnit);
+      }
+      state.setJacobian(unit, new DoubleMatrix2D(jacobianUnit));
+    }
     final DoubleMatrix2D inverseJacobian = MATRIX_ALGEBRA.getInverse(jacobian);
     final double[][] matrixTotal = inverseJacobian.getData();
     final DoubleMatrix2D[] result = new DoubleMatrix2D[nbParameters.length];
@@ -161,7 +201,39 @@ public class MulticurveProviderForwardBuildingRepository {
       final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final double[][] parametersGuess, final MulticurveProviderForward knownData,
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex> forwardIborMap, final LinkedHashMap<String, IndexON> forwardONMap,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    return makeCurvesFromDerivatives(instruments, curveGenerators, curveNames, parametersGuess, knownData, discountingMap, forwardIborMap, forwardONMap, calculator,
+        sensitivityCalculator, null);
+  }
+
+  /**
+   * Build a block of curves, incrementally from a previous calibration of the same curves.
+   * <p>
+   * Each unit is calibrated starting from its parameters in the state, with the Jacobian of the previous calibration updated by Broyden rank-one
+   * updates. The units without a previous calibration, or for which the incremental calibration fails, are calibrated from the initial guess.
+   * The state is updated with the new calibration and the statistics of the rebuild (iterations, Jacobian calculations and time).
+   * @param instruments The instruments used for the block calibration.
+   * @param curveGenerators The curve generators (final version). As an array of arrays, representing the units and the curves within the units.
+   * @param curveNames The names of the different curves. As an array of arrays, representing the units and the curves within the units.
+   * @param parametersGuess The initial guess for the parameters. As an array of arrays, representing the units and the parameters for one unit (all the curves of the unit concatenated).
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @param state The state of the previous calibration, updated with the new one. Null to calibrate all the units from the initial guess.
+   * @return A pair with the calibrated yield curve bundle (including the known data) and the CurveBuildingBlckBundle with the relevant inverse Jacobian Matrix.
+   */
+  public Pair<MulticurveProviderForward, CurveBuildingBlockBundle> makeCurvesFromDerivatives(final InstrumentDerivative[][][] instruments,
+      final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final double[][] parametersGuess, final MulticurveProviderForward knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex> forwardIborMap, final LinkedHashMap<String, IndexON> forwardONMap,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator,
+      final CurveCalibrationState state) {
+    final long startTime = System.nanoTime();
     final int nbUnits = curveGenerators.length;
+    if (state != null) {
+      state.startRebuild(nbUnits);
+    }
     final MulticurveProviderForward knownSoFarData = knownData.copy();
     final List<InstrumentDerivative> instrumentsSoFar = new ArrayList<>();
     final LinkedHashMap<String, GeneratorYDCurve> generatorsSoFar = new LinkedHashMap<>();
@@ -193,16 +265,20 @@ public class MulticurveProviderForwardBuildingRepository {
         unitMap.put(curveNames[loopunit][loopcurve], Pairs.of(startUnit + startCurve[loopcurve], nbIns[loopcurve]));
       }
       final Pair<MulticurveProviderForward, Double[]> unitCal = makeUnit(instrumentsUnit, parametersGuess[loopunit], knownSoFarData, discountingMap, forwardIborMap, forwardONMap, gen, calculator,
-          sensitivityCalculator);
+          sensitivityCalculator, state, loopunit);
       parametersSoFar.addAll(Arrays.asList(unitCal.getSecond()));
       final DoubleMatrix2D[] mat = makeCurveMatrix(instrumentsSoFarArray, startUnit, nbIns, parametersSoFar.toArray(new Double[parametersSoFar.size()]), knownData,
-          discountingMap, forwardIborMap, forwardONMap, generatorsSoFar, sensitivityCalculator);
+          discountingMap, forwardIborMap, forwardONMap, generatorsSoFar, sensitivityCalculator, state, loopunit);
       for (int loopcurve = 0; loopcurve < curveGenerators[loopunit].length; loopcurve++) {
         unitBundleSoFar.put(curveNames[loopunit][loopcurve], Pairs.of(new CurveBuildingBlock(unitMap), mat[loopcurve]));
       }
       knownSoFarData.setAll(unitCal.getFirst());
       startUnit = startUnit + nbInsUnit;
     }
+    if (state != null) {
+      state.endRebuild(System.nanoTime() - startTime);
+      s_logger.debug("Curve rebuild: {}", state);
+    }
     return Pairs.of(knownSoFarData, new CurveBuildingBlockBundle(unitBundleSoFar));
   }
 
@@ -540,6 +540,17 @@ public class InterpolatedDoublesCurve extends ArraysDoublesCurve {
     return _interpolator.interpolate(_dataBundle, x);
   }
 
+  /**
+   * Computes the <i>y</i> values at sorted <i>x</i> values in one pass over the curve data, see
+   * {@link Interpolator1D#interpolateSorted(Interpolator1DDataBundle, double[])}.
+   * @param sortedX The <i>x</i> values, in ascending order, not null
+   * @return The <i>y</i> values
+   */
+  public double[] getYValues(final double[] sortedX) {
+    ArgumentChecker.notNull(sortedX, "x");
+    return _interpolator.interpolateSorted(_dataBundle, sortedX);
+  }
+
   @Override
   public Double[] getYValueParameterSensitivity(final Double x) {
     ArgumentChecker.notNull(x, "x");
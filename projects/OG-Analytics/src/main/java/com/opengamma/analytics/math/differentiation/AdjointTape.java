@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.differentiation;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Tape for reverse mode (adjoint) algorithmic differentiation.
+ * <p>
+ * The computation is recorded as a sequence of nodes. Each node has a value and the partial derivatives of that value with respect to
+ * the nodes it is computed from (its parents), which are always recorded before it. The inputs are recorded as nodes without parents.
+ * The derivatives of one output with respect to all the nodes are computed in a single backward sweep over the tape
+ * (see {@link #backward(int)}).
+ * <p>
+ * The nodes and the partial derivatives are stored in growable primitive arrays, so recording a node does not create any object. The tape
+ * can be cleared and reused. The tape is not thread safe.
+ */
+public final class AdjointTape {
+
+  /** The default initial number of nodes. */
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  /** The value of each node. */
+  private double[] _values;
+  /** The index in the edge arrays of the first parent of each node; the parents of node i are between _edgeStart[i] and _edgeStart[i + 1]. */
+  private int[] _edgeStart;
+  /** The parent of each edge. */
+  private int[] _parents;
+  /** The partial derivative of each edge: derivative of the node value with respect to the parent value. */
+  private double[] _partials;
+  /** The number of nodes. */
+  private int _nbNodes;
+  /** The number of edges. */
+  private int _nbEdges;
+
+  /**
+   * Constructor with a default initial capacity.
+   */
+  public AdjointTape() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   * @param initialCapacity The initial number of nodes; the tape grows when required.
+   */
+  public AdjointTape(final int initialCapacity) {
+    ArgumentChecker.isTrue(initialCapacity > 0, "initial capacity must be positive; have {}", initialCapacity);
+    _values = new double[initialCapacity];
+    _edgeStart = new int[initialCapacity + 1];
+    _parents = new int[2 * initialCapacity];
+    _partials = new double[2 * initialCapacity];
+  }
+
+  /**
+   * Records an input (or a constant): a node without parent.
+   * @param value The value.
+   * @return The node index.
+   */
+  public int variable(final double value) {
+    ensureCapacity(0);
+    return addNode(value);
+  }
+
+  /**
+   * Records a node depending on one parent.
+   * @param value The value of the node.
+   * @param parent The parent node.
+   * @param partial The derivative of the value with respect to the parent.
+   * @return The node index.
+   */
+  public int record(final double value, final int parent, final double partial) {
+    ensureCapacity(1);
+    addEdge(parent, partial);
+    return addNode(value);
+  }
+
+  /**
+   * Records a node depending on two parents.
+   * @param value The value of the node.
+   * @param parent1 The first parent node.
+   * @param partial1 The derivative of the value with respect to the first parent.
+   * @param parent2 The second parent node.
+   * @param partial2 The derivative of the value with respect to the second parent.
+   * @return The node index.
+   */
+  public int record(final double value, final int parent1, final double partial1, final int parent2, final double partial2) {
+    ensureCapacity(2);
+    addEdge(parent1, partial1);
+    addEdge(parent2, partial2);
+    return addNode(value);
+  }
+
+  /**
+   * Records a node depending on any number of parents.
+   * @param value The value of the node.
+   * @param parents The parent nodes. Only the first nbParents are used.
+   * @param partials The derivatives of the value with respect to the parents. Only the first nbParents are used.
+   * @param nbParents The number of parents.
+   * @return The node index.
+   */
+  public int record(final double value, final int[] parents, final double[] partials, final int nbParents) {
+    ArgumentChecker.isTrue(nbParents <= parents.length && nbParents <= partials.length, "not enough parents or partials");
+    ensureCapacity(nbParents);
+    for (int i = 0; i < nbParents; i++) {
+      addEdge(parents[i], partials[i]);
+    }
+    return addNode(value);
+  }
+
+  /**
+   * Records the sum of two nodes.
+   * @param a The first node.
+   * @param b The second node.
+   * @return The node index.
+   */
+  public int add(final int a, final int b) {
+    return record(_values[a] + _values[b], a, 1.0, b, 1.0);
+  }
+
+  /**
+   * Records the difference of two nodes.
+   * @param a The first node.
+   * @param b The second node.
+   * @return The node index.
+   */
+  public int subtract(final int a, final int b) {
+    return record(_values[a] - _values[b], a, 1.0, b, -1.0);
+  }
+
+  /**
+   * Records the product of two nodes.
+   * @param a The first node.
+   * @param b The second node.
+   * @return The node index.
+   */
+  public int multiply(final int a, final int b) {
+    return record(_values[a] * _values[b], a, _values[b], b, _values[a]);
+  }
+
+  /**
+   * Records the product of a node by a constant.
+   * @param a The node.
+   * @param factor The constant.
+   * @return The node index.
+   */
+  public int multiply(final int a, final double factor) {
+    return record(_values[a] * factor, a, factor);
+  }
+
+  /**
+   * Records the ratio of two nodes.
+   * @param a The numerator node.
+   * @param b The denominator node.
+   * @return The node index.
+   */
+  public int divide(final int a, final int b) {
+    final double inverse = 1.0 / _values[b];
+    final double ratio = _values[a] * inverse;
+    return record(ratio, a, inverse, b, -ratio * inverse);
+  }
+
+  /**
+   * Records the exponential of a node.
+   * @param a The node.
+   * @return The node index.
+   */
+  public int exp(final int a) {
+    final double value = Math.exp(_values[a]);
+    return record(value, a, value);
+  }
+
+  /**
+   * Records the sum of nodes.
+   * @param nodes The nodes. Only the first nbNodes are used.
+   * @param nbNodes The number of nodes.
+   * @return The node index.
+   */
+  public int sum(final int[] nodes, final int nbNodes) {
+    ArgumentChecker.isTrue(nbNodes <= nodes.length, "not enough nodes");
+    ensureCapacity(nbNodes);
+    double value = 0.0;
+    for (int i = 0; i < nbNodes; i++) {
+      value += _values[nodes[i]];
+      addEdge(nodes[i], 1.0);
+    }
+    return addNode(value);
+  }
+
+  /**
+   * Returns the value of a node.
+   * @param node The node index.
+   * @return The value.
+   */
+  public double getValue(final int node) {
+    if (node < 0 || node >= _nbNodes) {
+      throw new IllegalArgumentException("node " + node + " not on the tape");
+    }
+    return _values[node];
+  }
+
+  /**
+   * Returns the number of nodes on the tape.
+   * @return The number of nodes.
+   */
+  public int getNumberOfNodes() {
+    return _nbNodes;
+  }
+
+  /**
+   * Returns the number of partial derivatives (edges between nodes) on the tape.
+   * @return The number of edges.
+   */
+  public int getNumberOfEdges() {
+    return _nbEdges;
+  }
+
+  /**
+   * Computes the derivatives of a node with respect to all the nodes recorded before it, in one backward sweep.
+   * @param output The node to differentiate.
+   * @return The adjoints, i.e. the derivatives of the output with respect to each node. The array has the length of the tape
+   * and the entries after the output are 0.
+   */
+  public double[] backward(final int output) {
+    ArgumentChecker.isTrue(output >= 0 && output < _nbNodes, "node {} not on the tape", output);
+    final double[] adjoints = new double[_nbNodes];
+    adjoints[output] = 1.0;
+    for (int node = output; node >= 0; node--) {
+      final double adjoint = adjoints[node];
+      if (adjoint != 0.0) {
+        for (int edge = _edgeStart[node]; edge < _edgeStart[node + 1]; edge++) {
+          adjoints[_parents[edge]] += adjoint * _partials[edge];
+        }
+      }
+    }
+    return adjoints;
+  }
+
+  /**
+   * Removes all the nodes from the tape. The storage is kept for the next recording.
+   */
+  public void clear() {
+    _nbNodes = 0;
+    _nbEdges = 0;
+  }
+
+  private void ensureCapacity(final int nbNewEdges) {
+    if (_nbNodes + 1 >= _values.length) {
+      final int capacity = 2 * _values.length;
+      _values = Arrays.copyOf(_values, capacity);
+      _edgeStart = Arrays.copyOf(_edgeStart, capacity + 1);
+    }
+    if (_nbEdges + nbNewEdges > _parents.length) {
+      final int capacity = Math.max(2 * _parents.length, _nbEdges + nbNewEdges);
+      _parents = Arrays.copyOf(_parents, capacity);
+      _partials = Arrays.copyOf(_partials, capacity);
+    }
+  }
+
+  private void addEdge(final int parent, final double partial) {
+    if (parent < 0 || parent >= _nbNodes) {
+      throw new IllegalArgumentException("parent " + parent + " not on the tape");
+    }
+    _parents[_nbEdges] = parent;
+    _partials[_nbEdges] = partial;
+    _nbEdges++;
+  }
+
+  private int addNode(final double value) {
+    _values[_nbNodes] = value;
+    _nbNodes++;
+    _edgeStart[_nbNodes] = _nbEdges;
+    return _nbNodes - 1;
+  }
+
+}
@@ -81,6 +81,29 @@ public class CombinedInterpolatorExtrapolator extends Interpolator1D {
     return _interpolator.interpolate(data, value);
   }
 
+  /**
+   * {@inheritDoc}
+   * The points before the first key and after the last key are extrapolated; the other points are interpolated together.
+   */
+  @Override
+  protected void interpolateSorted(final Interpolator1DDataBundle data, final double[] sortedValues, final int fromIndex, final int toIndex, final double[] result) {
+    final double firstKey = data.firstKey();
+    final double lastKey = data.lastKey();
+    int start = fromIndex;
+    while (start < toIndex && sortedValues[start] < firstKey && _leftExtrapolator != null) {
+      result[start] = _leftExtrapolator.interpolate(data, sortedValues[start]);
+      start++;
+    }
+    int end = toIndex;
+    while (end > start && sortedValues[end - 1] > lastKey && _rightExtrapolator != null) {
+      result[end - 1] = _rightExtrapolator.interpolate(data, sortedValues[end - 1]);
+      end--;
+    }
+    if (start < end) {
+      _interpolator.interpolateSorted(data, sortedValues, start, end, result);
+    }
+  }
+
   @Override
   public double firstDerivative(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(data, "data");
@@ -16,6 +16,7 @@ import com.opengamma.analytics.math.differentiation.FiniteDifferenceType;
 import com.opengamma.analytics.math.differentiation.ScalarFirstOrderDifferentiator;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * A base class for interpolation in one dimension.
@@ -28,6 +29,63 @@ public abstract class Interpolator1D implements Interpolator<Interpolator1DDataB
   @Override
   public abstract Double interpolate(Interpolator1DDataBundle data, Double value);
 
+  /**
+   * Computes the interpolated values at sorted points, in one pass over the data.
+   * <p>
+   * The points should be in ascending order. The implementations for which it is supported walk through the knots together with
+   * the points instead of searching the interval of each point; the default implementation interpolates each point separately.
+   * @param data The interpolation data.
+   * @param sortedValues The points, in ascending order.
+   * @return The interpolated values.
+   */
+  public double[] interpolateSorted(final Interpolator1DDataBundle data, final double[] sortedValues) {
+    ArgumentChecker.notNull(data, "data");
+    ArgumentChecker.notNull(sortedValues, "values");
+    final int nbValues = sortedValues.length;
+    for (int i = 1; i < nbValues; i++) {
+      ArgumentChecker.isTrue(sortedValues[i - 1] <= sortedValues[i], "values should be sorted in ascending order");
+    }
+    final double[] result = new double[nbValues];
+    if (nbValues > 0) {
+      interpolateSorted(data, sortedValues, 0, nbValues, result);
+    }
+    return result;
+  }
+
+  /**
+   * Computes the interpolated values at a non-empty range of sorted points. The default implementation interpolates each point separately.
+   * @param data The interpolation data.
+   * @param sortedValues The points, in ascending order.
+   * @param fromIndex The index of the first point, inclusive.
+   * @param toIndex The index of the last point, exclusive.
+   * @param result The array in which the interpolated values are stored, at the index of the points.
+   */
+  protected void interpolateSorted(final Interpolator1DDataBundle data, final double[] sortedValues, final int fromIndex, final int toIndex, final double[] result) {
+    for (int i = fromIndex; i < toIndex; i++) {
+      result[i] = interpolate(data, sortedValues[i]);
+    }
+  }
+
+  /**
+   * Returns the index of the lower bound of a point in the keys, searching forward from a known lower bound of a smaller point.
+   * The index is the one of {@link Interpolator1DDataBundle#getLowerBoundIndex(Double)}.
+   * @param keys The keys, sorted.
+   * @param value The point.
+   * @param start The lower bound index of a point smaller than or equal to the point.
+   * @return The index.
+   */
+  protected static int nextLowerBoundIndex(final double[] keys, final double value, final int start) {
+    final int n = keys.length;
+    if (value > keys[n - 1]) {
+      throw new IllegalArgumentException("Could not get lower bound index for " + value + ": highest x-value is " + keys[n - 1]);
+    }
+    int index = start;
+    while (index < n - 1 && keys[index + 1] <= value) {
+      index++;
+    }
+    return index;
+  }
+
   /**
    * Computes the gradient of the interpolant at the value.
    * <p>
@@ -37,6 +37,23 @@ public class LinearInterpolator1D extends Interpolator1D {
     return y1 + (value - x1) / (x2 - x1) * (y2 - y1);
   }
 
+  @Override
+  protected void interpolateSorted(final Interpolator1DDataBundle model, final double[] sortedValues, final int fromIndex, final int toIndex, final double[] result) {
+    final double[] x = model.getKeys();
+    final double[] y = model.getValues();
+    final int n = x.length;
+    int index = model.getLowerBoundIndex(sortedValues[fromIndex]);
+    for (int i = fromIndex; i < toIndex; i++) {
+      final double value = sortedValues[i];
+      index = nextLowerBoundIndex(x, value, index);
+      if (index == n - 1) {
+        result[i] = y[n - 1];
+      } else {
+        result[i] = y[index] + (value - x[index]) / (x[index + 1] - x[index]) * (y[index + 1] - y[index]);
+      }
+    }
+  }
+
   @Override
   public double firstDerivative(final Interpolator1DDataBundle model, final Double value) {
     Validate.notNull(value, "Value to be interpolated must not be null");
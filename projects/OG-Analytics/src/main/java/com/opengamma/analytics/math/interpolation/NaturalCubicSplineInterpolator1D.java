@@ -51,6 +51,32 @@ public class NaturalCubicSplineInterpolator1D extends Interpolator1D {
     return a * yData[low] + b * yData[high] + (a * (a * a - 1) * y2[low] + b * (b * b - 1) * y2[high]) * delta * delta / 6.;
   }
 
+  @Override
+  protected void interpolateSorted(final Interpolator1DDataBundle data, final double[] sortedValues, final int fromIndex, final int toIndex, final double[] result) {
+    Validate.isTrue(data instanceof Interpolator1DCubicSplineDataBundle);
+    final double[] xData = data.getKeys();
+    final double[] yData = data.getValues();
+    final double[] y2 = ((Interpolator1DCubicSplineDataBundle) data).getSecondDerivatives();
+    final int n = data.size() - 1;
+    int low = data.getLowerBoundIndex(sortedValues[fromIndex]);
+    for (int i = fromIndex; i < toIndex; i++) {
+      final double value = sortedValues[i];
+      low = nextLowerBoundIndex(xData, value, low);
+      if (low == n) {
+        result[i] = yData[n];
+        continue;
+      }
+      final int high = low + 1;
+      final double delta = xData[high] - xData[low];
+      if (Math.abs(delta) < _eps) {
+        throw new MathException("x data points were not distinct");
+      }
+      final double a = (xData[high] - value) / delta;
+      final double b = (value - xData[low]) / delta;
+      result[i] = a * yData[low] + b * yData[high] + (a * (a * a - 1) * y2[low] + b * (b * b - 1) * y2[high]) * delta * delta / 6.;
+    }
+  }
+
   @Override
   public double firstDerivative(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(value, "value");
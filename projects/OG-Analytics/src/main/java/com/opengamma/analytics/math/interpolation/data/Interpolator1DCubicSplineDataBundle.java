@@ -22,8 +22,10 @@ import com.opengamma.util.ArgumentChecker;
  */
 public class Interpolator1DCubicSplineDataBundle implements Interpolator1DDataBundle, Serializable {
   private final Interpolator1DDataBundle _underlyingData;
-  private double[] _secondDerivatives;
-  private double[][] _secondDerivativesSensitivities;
+  // The second derivatives and their sensitivities are computed on first use; they are volatile so that a bundle shared between
+  // threads publishes them safely.
+  private volatile double[] _secondDerivatives;
+  private volatile double[][] _secondDerivativesSensitivities;
   private final double _leftFirstDev;
   private final double _rightFirstDev;
   private final boolean _leftNatural;
@@ -154,15 +156,18 @@ public class Interpolator1DCubicSplineDataBundle implements Interpolator1DDataBu
   }
 
   public double[] getSecondDerivatives() {
-    if (_secondDerivatives == null) {
-      _secondDerivatives = calculateSecondDerivative();
+    double[] secondDerivatives = _secondDerivatives;
+    if (secondDerivatives == null) {
+      secondDerivatives = calculateSecondDerivative();
+      _secondDerivatives = secondDerivatives;
     }
-    return _secondDerivatives;
+    return secondDerivatives;
   }
 
   //TODO not ideal that it recomputes the inverse matrix
   public double[][] getSecondDerivativesSensitivities() {
-    if (_secondDerivativesSensitivities == null) {
+    double[][] secondDerivativesSensitivities = _secondDerivativesSensitivities;
+    if (secondDerivativesSensitivities == null) {
       final double[] x = getKeys();
       final double[] y = getValues();
       final int n = x.length;
@@ -178,9 +183,10 @@ public class Interpolator1DCubicSplineDataBundle implements Interpolator1DDataBu
 
       final DoubleMatrix2D inverseTriDiag = getInverseTridiagonalMatrix(deltaX);
       final DoubleMatrix2D rhsMatrix = getRHSMatrix(oneOverDeltaX);
-      _secondDerivativesSensitivities = ((DoubleMatrix2D) OG_ALGEBRA.multiply(inverseTriDiag, rhsMatrix)).getData();
+      secondDerivativesSensitivities = ((DoubleMatrix2D) OG_ALGEBRA.multiply(inverseTriDiag, rhsMatrix)).getData();
+      _secondDerivativesSensitivities = secondDerivativesSensitivities;
     }
-    return _secondDerivativesSensitivities;
+    return secondDerivativesSensitivities;
   }
 
   private DoubleMatrix2D getRHSMatrix(final double[] oneOverDeltaX) {
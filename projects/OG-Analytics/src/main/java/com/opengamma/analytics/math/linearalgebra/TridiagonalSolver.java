@@ -50,6 +50,36 @@ public class TridiagonalSolver {
     return x;
   }
 
+  /**
+   * Solves the system Ax = y for the unknown vector x, where A is a tridiagonal matrix and y is a vector, without allocating any array. The matrix and
+   * the known vector are not modified; the results are the same as {@link #solvTriDag(TridiagonalMatrix, double[])}.
+   * @param d the diagonal of the matrix, length n
+   * @param u the upper sub-diagonal of the matrix, length n-1
+   * @param l the lower sub-diagonal of the matrix, length n-1
+   * @param b known vector, length n
+   * @param x the array in which the solution is written, length n. This must not be b.
+   * @param work work array, length n
+   */
+  public static void solvTriDag(final double[] d, final double[] u, final double[] l, final double[] b, final double[] x, final double[] work) {
+    final int n = d.length;
+    ArgumentChecker.isTrue(n == b.length && n == x.length && n <= work.length, "arrays wrong length for matrix");
+    ArgumentChecker.isTrue(x != b, "solution and known vector must be different arrays");
+    // the forward elimination stores the modified diagonal in work and the modified known vector in x
+    work[0] = d[0];
+    x[0] = b[0];
+    for (int i = 1; i < n; i++) {
+      final double m = l[i - 1] / work[i - 1];
+      work[i] = d[i] - m * u[i - 1];
+      x[i] = b[i] - m * x[i - 1];
+    }
+
+    x[n - 1] = x[n - 1] / work[n - 1];
+
+    for (int i = n - 2; i >= 0; i--) {
+      x[i] = (x[i] - u[i] * x[i + 1]) / work[i];
+    }
+  }
+
   /**
    * Solves the system Ax = y for the unknown vector x, where A is a tridiagonal matrix and y is a vector. This takes order n operations where n is the size of the system
    * (number of linear equations), as opposed to order n^3 for the general problem.
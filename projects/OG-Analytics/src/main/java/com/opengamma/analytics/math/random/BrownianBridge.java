@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Brownian bridge construction of a Brownian path.
+ * <p>
+ * The first normal variable gives the terminal value of the path, the second the value in the middle, and so on by successive bisection. The path is
+ * returned as normalised increments, which are independent standard normal variables like the input, but the large scale features of the path depend on
+ * the first inputs. Used with a low-discrepancy sequence, this concentrates the variance of the payoff in the first dimensions of the sequence, which are the
+ * best distributed ones.
+ */
+public class BrownianBridge {
+
+  /**
+   * The index in the path of the point set by each input.
+   */
+  private final int[] _bridgeIndex;
+  /**
+   * The index of the point to the left of each new point; the point is at time zero if 0, the point index - 1 otherwise.
+   */
+  private final int[] _leftIndex;
+  /**
+   * The index of the point to the right of each new point.
+   */
+  private final int[] _rightIndex;
+  private final double[] _leftWeight;
+  private final double[] _rightWeight;
+  private final double[] _stdDev;
+  /**
+   * The square root of the time increments.
+   */
+  private final double[] _sqrtDt;
+
+  /**
+   * Constructor for equally spaced steps.
+   * @param nbStep The number of steps.
+   */
+  public BrownianBridge(final int nbStep) {
+    this(equalTimes(nbStep));
+  }
+
+  /**
+   * Constructor.
+   * @param times The times of the points of the path, increasing and strictly positive, not null.
+   */
+  public BrownianBridge(final double[] times) {
+    ArgumentChecker.notEmpty(times, "times");
+    final int n = times.length;
+    ArgumentChecker.isTrue(times[0] > 0, "Times must be strictly positive");
+    _sqrtDt = new double[n];
+    _sqrtDt[0] = Math.sqrt(times[0]);
+    for (int i = 1; i < n; i++) {
+      ArgumentChecker.isTrue(times[i] > times[i - 1], "Times must be increasing");
+      _sqrtDt[i] = Math.sqrt(times[i] - times[i - 1]);
+    }
+    _bridgeIndex = new int[n];
+    _leftIndex = new int[n];
+    _rightIndex = new int[n];
+    _leftWeight = new double[n];
+    _rightWeight = new double[n];
+    _stdDev = new double[n];
+    final int[] map = new int[n];
+    map[n - 1] = 1;
+    _bridgeIndex[0] = n - 1;
+    _stdDev[0] = Math.sqrt(times[n - 1]);
+    int j = 0;
+    for (int i = 1; i < n; i++) {
+      while (map[j] != 0) {
+        j++;
+      }
+      int k = j;
+      while (map[k] == 0) {
+        k++;
+      }
+      final int l = j + ((k - 1 - j) >> 1);
+      map[l] = i;
+      _bridgeIndex[i] = l;
+      _leftIndex[i] = j;
+      _rightIndex[i] = k;
+      final double tLeft = j == 0 ? 0.0 : times[j - 1];
+      _leftWeight[i] = (times[k] - times[l]) / (times[k] - tLeft);
+      _rightWeight[i] = (times[l] - tLeft) / (times[k] - tLeft);
+      _stdDev[i] = Math.sqrt((times[l] - tLeft) * (times[k] - times[l]) / (times[k] - tLeft));
+      j = k + 1;
+      if (j >= n) {
+        j = 0;
+      }
+    }
+  }
+
+  private static double[] equalTimes(final int nbStep) {
+    ArgumentChecker.notNegativeOrZero(nbStep, "number of steps");
+    final double[] times = new double[nbStep];
+    for (int i = 0; i < nbStep; i++) {
+      times[i] = i + 1;
+    }
+    return times;
+  }
+
+  /**
+   * Gets the number of steps.
+   * @return The number of steps.
+   */
+  public int getNbStep() {
+    return _sqrtDt.length;
+  }
+
+  /**
+   * Builds a path from standard normal variables.
+   * @param normals The independent standard normal variables, with the number of steps as length.
+   * @return The increments of the path, each divided by the square root of its time increment.
+   */
+  public double[] getIncrements(final double[] normals) {
+    ArgumentChecker.notNull(normals, "normals");
+    final int n = _sqrtDt.length;
+    ArgumentChecker.isTrue(normals.length == n, "Expected {} normal variables, have {}", n, normals.length);
+    final double[] path = new double[n];
+    path[n - 1] = _stdDev[0] * normals[0];
+    for (int i = 1; i < n; i++) {
+      final int j = _leftIndex[i];
+      final int l = _bridgeIndex[i];
+      final double left = j == 0 ? 0.0 : _leftWeight[i] * path[j - 1];
+      path[l] = left + _rightWeight[i] * path[_rightIndex[i]] + _stdDev[i] * normals[i];
+    }
+    final double[] result = new double[n];
+    result[0] = path[0] / _sqrtDt[0];
+    for (int i = 1; i < n; i++) {
+      result[i] = (path[i] - path[i - 1]) / _sqrtDt[i];
+    }
+    return result;
+  }
+
+}
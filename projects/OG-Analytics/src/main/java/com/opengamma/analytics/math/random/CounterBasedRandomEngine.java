@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Counter-based uniform random number engine. The n-th number of a stream is a hash of the seed, the stream index and n, so any number of independent streams
+ * can be created from one seed and each stream can skip ahead in constant time. A stream produces the same numbers whichever thread uses it and in whatever
+ * order the streams are used, which makes it suitable for parallel Monte Carlo simulations that must be reproducible.
+ * <p>
+ * The mixing function is the finalizer of the SplitMix64 generator.
+ */
+public class CounterBasedRandomEngine extends RandomEngine {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The golden ratio increment used by SplitMix64.
+   */
+  private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * The key of the stream, derived from the seed and stream index.
+   */
+  private final long _key;
+  /**
+   * The index of the next number in the stream.
+   */
+  private long _counter;
+
+  /**
+   * Constructor.
+   * @param seed The seed shared by all the streams of a simulation.
+   * @param stream The index of the stream.
+   */
+  public CounterBasedRandomEngine(final long seed, final long stream) {
+    _key = mix(seed ^ mix(stream + GAMMA));
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Skips ahead in the stream.
+   * @param n The number of values to skip, not negative.
+   */
+  public void skip(final long n) {
+    ArgumentChecker.notNegative(n, "n");
+    _counter += n;
+  }
+
+  /**
+   * Gets the index of the next number in the stream.
+   * @return The counter.
+   */
+  public long getCounter() {
+    return _counter;
+  }
+
+  @Override
+  public long nextLong() {
+    return mix(_key + GAMMA * _counter++);
+  }
+
+  @Override
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+}
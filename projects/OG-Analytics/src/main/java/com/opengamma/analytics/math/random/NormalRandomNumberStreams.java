@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streams of normally distributed random numbers, each stream drawing its uniform numbers from a {@link CounterBasedRandomEngine}.
+ */
+public class NormalRandomNumberStreams implements RandomNumberStreams {
+
+  private final double _mean;
+  private final double _sigma;
+  private final long _seed;
+
+  /**
+   * Constructor.
+   * @param mean The mean.
+   * @param sigma The standard deviation, positive.
+   * @param seed The seed.
+   */
+  public NormalRandomNumberStreams(final double mean, final double sigma, final long seed) {
+    ArgumentChecker.notNegativeOrZero(sigma, "standard deviation");
+    _mean = mean;
+    _sigma = sigma;
+    _seed = seed;
+  }
+
+  @Override
+  public RandomNumberGenerator getStream(final long index) {
+    ArgumentChecker.notNegative(index, "index");
+    return new NormalRandomNumberGenerator(_mean, _sigma, new CounterBasedRandomEngine(_seed, index));
+  }
+
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * A generator of low-discrepancy (quasi-random) numbers.
+ * <p>
+ * Each vector returned is one point of a sequence whose dimension is the length of the vector, and successive vectors are successive points. Unlike a
+ * pseudo-random generator, the components of successive vectors are not independent, so a simulation must request one vector per path, containing all
+ * the random variables of that path.
+ */
+public interface QuasiRandomNumberGenerator extends RandomNumberGenerator {
+
+  /**
+   * Gets one point of the sequence for a Brownian path observed at the given times. The components are the normalised increments of the path, that is the
+   * increments divided by the square root of their time increments, so are independent standard normal variables like those of {@link #getVector(int)}.
+   * The times only matter to a generator that constructs the path, for example with a Brownian bridge, which is then built on those times.
+   * @param times The times of the points of the path, increasing and strictly positive, not null.
+   * @return The point, with the number of times as dimension.
+   */
+  double[] getVector(double[] times);
+
+}
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * A source of independent, reproducible random number streams. The numbers produced by a stream depend only on the source and the stream index, not on
+ * which other streams have been used, so work split into indexed pieces gives the same results however the pieces are scheduled.
+ */
+public interface RandomNumberStreams {
+
+  /**
+   * Gets a new generator for a stream. Calling this twice with the same index gives generators producing the same numbers.
+   * @param index The stream index, not negative.
+   * @return The generator.
+   */
+  RandomNumberGenerator getStream(long index);
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
+import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generator of standard normal variables from a Sobol sequence, by inversion of the cumulative distribution function.
+ * <p>
+ * A separate sequence is used for each requested dimension. If the Brownian bridge option is set, the normal variables of each vector are transformed by
+ * a {@link BrownianBridge}, so that the first dimensions of the sequence drive the large scale features of the path. The bridge has equally spaced steps,
+ * unless the vector is requested for the actual times of the path with {@link #getVector(double[])}.
+ * <p>
+ * The dimensions above {@link SobolSequenceGenerator#MAX_DIMENSION} are filled by a pseudo-random generator. With a Brownian bridge, these only drive the
+ * finest details of the path.
+ */
+public class SobolRandomNumberGenerator implements QuasiRandomNumberGenerator {
+
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+
+  /**
+   * Whether the vectors are built with a Brownian bridge.
+   */
+  private final boolean _brownianBridge;
+  /**
+   * The generator of the normal variables of the dimensions above the maximum dimension of the Sobol sequence.
+   */
+  private final RandomNumberGenerator _padding;
+  /**
+   * The sequences, by dimension.
+   */
+  private final Int2ObjectMap<SobolSequenceGenerator> _sequences = new Int2ObjectOpenHashMap<>();
+  /**
+   * The Brownian bridges, by dimension.
+   */
+  private final Int2ObjectMap<BrownianBridge> _bridges = new Int2ObjectOpenHashMap<>();
+  /**
+   * The Brownian bridge for the times of the last {@link #getVector(double[])} request, and those times.
+   */
+  private BrownianBridge _timesBridge;
+  private double[] _bridgeTimes;
+
+  /**
+   * Constructor of a generator without Brownian bridge.
+   */
+  public SobolRandomNumberGenerator() {
+    this(false);
+  }
+
+  /**
+   * Constructor.
+   * @param brownianBridge Whether the vectors are built with a Brownian bridge.
+   */
+  public SobolRandomNumberGenerator(final boolean brownianBridge) {
+    this(brownianBridge, new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()));
+  }
+
+  /**
+   * Constructor.
+   * @param brownianBridge Whether the vectors are built with a Brownian bridge.
+   * @param padding The generator of standard normal variables for the dimensions above {@link SobolSequenceGenerator#MAX_DIMENSION}, not null.
+   */
+  public SobolRandomNumberGenerator(final boolean brownianBridge, final RandomNumberGenerator padding) {
+    ArgumentChecker.notNull(padding, "padding");
+    _brownianBridge = brownianBridge;
+    _padding = padding;
+  }
+
+  /**
+   * Gets the brownianBridge field.
+   * @return Whether the vectors are built with a Brownian bridge.
+   */
+  public boolean isBrownianBridge() {
+    return _brownianBridge;
+  }
+
+  @Override
+  public double[] getVector(final int dimension) {
+    final double[] result = getNormals(dimension);
+    if (!_brownianBridge) {
+      return result;
+    }
+    BrownianBridge bridge = _bridges.get(dimension);
+    if (bridge == null) {
+      bridge = new BrownianBridge(dimension);
+      _bridges.put(dimension, bridge);
+    }
+    return bridge.getIncrements(result);
+  }
+
+  @Override
+  public double[] getVector(final double[] times) {
+    ArgumentChecker.notNull(times, "times");
+    final double[] result = getNormals(times.length);
+    if (!_brownianBridge) {
+      return result;
+    }
+    if (!Arrays.equals(times, _bridgeTimes)) {
+      _timesBridge = new BrownianBridge(times);
+      _bridgeTimes = times.clone();
+    }
+    return _timesBridge.getIncrements(result);
+  }
+
+  /**
+   * Gets the next point of the sequence of a dimension as standard normal variables.
+   * @param dimension The dimension.
+   * @return The normal variables.
+   */
+  private double[] getNormals(final int dimension) {
+    ArgumentChecker.notNegativeOrZero(dimension, "dimension");
+    final int sobolDimension = Math.min(dimension, SobolSequenceGenerator.MAX_DIMENSION);
+    SobolSequenceGenerator sequence = _sequences.get(dimension);
+    if (sequence == null) {
+      sequence = new SobolSequenceGenerator(sobolDimension);
+      _sequences.put(dimension, sequence);
+    }
+    final double[] point = sequence.nextVector();
+    final double[] result;
+    if (dimension > sobolDimension) {
+      result = new double[dimension];
+      System.arraycopy(_padding.getVector(dimension - sobolDimension), 0, result, sobolDimension, dimension - sobolDimension);
+    } else {
+      result = point;
+    }
+    for (int i = 0; i < sobolDimension; i++) {
+      result[i] = NORMAL.getInverseCDF(point[i]);
+    }
+    return result;
+  }
+
+  @Override
+  public List<double[]> getVectors(final int dimension, final int n) {
+    ArgumentChecker.notNegative(n, "n");
+    final List<double[]> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(getVector(dimension));
+    }
+    return result;
+  }
+
+}
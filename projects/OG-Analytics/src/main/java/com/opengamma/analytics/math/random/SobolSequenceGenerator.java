@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.Random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generator of the points of a Sobol low-discrepancy sequence in the unit hypercube.
+ * <p>
+ * The points are generated in Gray code order (Antonov-Saleev) with 32 bits of precision. The first point of the sequence, the origin, is skipped, so all the
+ * coordinates are strictly between 0 and 1. The direction numbers of the first dimension are the van der Corput ones; the following dimensions use the
+ * primitive polynomials and initial direction numbers of S. Joe and F. Y. Kuo, "Constructing Sobol sequences with better two-dimensional projections",
+ * SIAM J. Sci. Comput. 30, 2635-2654 (2008).
+ * <p>
+ * Above the Joe-Kuo table, the following primitive polynomials are enumerated in the same order (by degree, then by coefficients) and the initial
+ * direction numbers are drawn at random from a fixed seed, as proposed in P. Jaeckel, "Monte Carlo Methods in Finance", Wiley (2002), section 8.3. These
+ * dimensions do not have the optimised two-dimensional projections of the first ones, but are still well stratified one dimension at a time. With a
+ * {@link BrownianBridge}, they drive the finest details of the path, which carry little of the variance.
+ */
+public class SobolSequenceGenerator {
+
+  /**
+   * The number of bits of the direction numbers.
+   */
+  private static final int BITS = 32;
+  /**
+   * The scale from the integer representation to [0, 1).
+   */
+  private static final double SCALE = 1.0 / (1L << BITS);
+  /**
+   * The maximum dimension of the sequence; it uses all the primitive polynomials up to degree 13.
+   */
+  public static final int MAX_DIMENSION = 1111;
+  /**
+   * The seed of the initial direction numbers of the dimensions above the Joe-Kuo table.
+   */
+  private static final long SEED = 20150101L;
+  /**
+   * For the second to twenty-first dimensions: the degree s of the primitive polynomial, its coefficients a and the initial direction numbers
+   * m_1, ..., m_s of Joe and Kuo (new-joe-kuo-6).
+   */
+  private static final int[][] JOE_KUO_DATA = new int[][] {
+    {1, 0, 1 },
+    {2, 1, 1, 3 },
+    {3, 1, 1, 3, 1 },
+    {3, 2, 1, 1, 1 },
+    {4, 1, 1, 1, 3, 3 },
+    {4, 4, 1, 3, 5, 13 },
+    {5, 2, 1, 1, 5, 5, 17 },
+    {5, 4, 1, 1, 5, 5, 5 },
+    {5, 7, 1, 1, 7, 11, 19 },
+    {5, 11, 1, 1, 5, 1, 1 },
+    {5, 13, 1, 1, 1, 3, 11 },
+    {5, 14, 1, 3, 5, 5, 31 },
+    {6, 1, 1, 3, 3, 9, 7, 49 },
+    {6, 13, 1, 1, 1, 15, 21, 21 },
+    {6, 16, 1, 3, 1, 13, 27, 49 },
+    {6, 19, 1, 1, 1, 15, 7, 5 },
+    {6, 22, 1, 3, 1, 15, 13, 25 },
+    {6, 25, 1, 1, 5, 5, 19, 61 },
+    {7, 1, 1, 3, 7, 11, 23, 15, 103 },
+    {7, 4, 1, 3, 7, 13, 13, 15, 69 } };
+
+  /**
+   * The direction numbers, by dimension and bit.
+   */
+  private final long[][] _direction;
+  /**
+   * The integer representation of the current point.
+   */
+  private final long[] _x;
+  /**
+   * The index of the current point.
+   */
+  private long _index;
+
+  /**
+   * Constructor.
+   * @param dimension The dimension of the points, between 1 and {@link #MAX_DIMENSION}.
+   */
+  public SobolSequenceGenerator(final int dimension) {
+    ArgumentChecker.isTrue(dimension >= 1 && dimension <= MAX_DIMENSION, "Dimension must be between 1 and {}, have {}", MAX_DIMENSION, dimension);
+    final int[][] directionData = directionData(dimension - 1);
+    _direction = new long[dimension][BITS];
+    for (int loopbit = 0; loopbit < BITS; loopbit++) {
+      _direction[0][loopbit] = 1L << (BITS - 1 - loopbit);
+    }
+    for (int loopdim = 1; loopdim < dimension; loopdim++) {
+      final int[] data = directionData[loopdim - 1];
+      final int s = data[0];
+      final int a = data[1];
+      final long[] v = _direction[loopdim];
+      for (int loopbit = 0; loopbit < s; loopbit++) {
+        v[loopbit] = ((long) data[2 + loopbit]) << (BITS - 1 - loopbit);
+      }
+      for (int loopbit = s; loopbit < BITS; loopbit++) {
+        v[loopbit] = v[loopbit - s] ^ (v[loopbit - s] >>> s);
+        for (int k = 1; k < s; k++) {
+          if (((a >>> (s - 1 - k)) & 1) == 1) {
+            v[loopbit] ^= v[loopbit - k];
+          }
+        }
+      }
+    }
+    _x = new long[dimension];
+  }
+
+  /**
+   * Builds the direction data, from the Joe-Kuo table then from the following primitive polynomials with random initial direction numbers. The data of a
+   * dimension does not depend on the number of dimensions requested.
+   * @param count The number of dimensions after the first.
+   * @return For each dimension: the degree s of the primitive polynomial, its coefficients a and the initial direction numbers m_1, ..., m_s.
+   */
+  private static int[][] directionData(final int count) {
+    final int[][] data = new int[count][];
+    final int[][] polynomials = count > JOE_KUO_DATA.length ? primitivePolynomials(count) : null;
+    final Random random = new Random(SEED);
+    for (int loopdim = 0; loopdim < count; loopdim++) {
+      if (loopdim < JOE_KUO_DATA.length) {
+        data[loopdim] = JOE_KUO_DATA[loopdim];
+      } else {
+        final int s = polynomials[loopdim][0];
+        data[loopdim] = new int[2 + s];
+        data[loopdim][0] = s;
+        data[loopdim][1] = polynomials[loopdim][1];
+        for (int k = 1; k <= s; k++) {
+          // m_k odd and less than 2^k
+          data[loopdim][1 + k] = random.nextInt(1 << k) | 1;
+        }
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Enumerates the primitive polynomials over GF(2), by increasing degree then coefficients, starting at x + 1.
+   * @param count The number of polynomials.
+   * @return The polynomials, each as its degree s and its coefficients a, the bits of a being the coefficients of x^(s-1), ..., x.
+   */
+  /* package */static int[][] primitivePolynomials(final int count) {
+    final int[][] result = new int[count][];
+    int n = 0;
+    for (int s = 1; n < count; s++) {
+      ArgumentChecker.isTrue(s < BITS, "Too many polynomials requested");
+      for (int a = 0; (a < (1 << (s - 1))) && (n < count); a++) {
+        if (isPrimitive(s, a)) {
+          result[n++] = new int[] {s, a };
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Tests if a polynomial is primitive, that is if x has order 2^s - 1 modulo the polynomial.
+   * @param s The degree.
+   * @param a The coefficients of x^(s-1), ..., x.
+   * @return Whether the polynomial is primitive.
+   */
+  private static boolean isPrimitive(final int s, final int a) {
+    final int polynomial = (1 << s) | (a << 1) | 1;
+    final int order = (1 << s) - 1;
+    if (powerOfX(order, polynomial, s) != 1) {
+      return false;
+    }
+    // x must not have a smaller order, so x^(order / q) is not 1 for each prime factor q of the order
+    int remaining = order;
+    for (int q = 2; q * q <= remaining; q++) {
+      if (remaining % q == 0) {
+        if (powerOfX(order / q, polynomial, s) == 1) {
+          return false;
+        }
+        while (remaining % q == 0) {
+          remaining /= q;
+        }
+      }
+    }
+    return (remaining == 1) || (powerOfX(order / remaining, polynomial, s) != 1);
+  }
+
+  /**
+   * Computes x^e modulo a polynomial over GF(2).
+   * @param e The exponent.
+   * @param polynomial The polynomial, with its bits as coefficients.
+   * @param s The degree of the polynomial.
+   * @return x^e modulo the polynomial.
+   */
+  private static int powerOfX(final int e, final int polynomial, final int s) {
+    int result = 1;
+    int power = s == 1 ? 1 : 2;
+    for (int loope = e; loope != 0; loope >>>= 1) {
+      if ((loope & 1) != 0) {
+        result = multiply(result, power, polynomial, s);
+      }
+      power = multiply(power, power, polynomial, s);
+    }
+    return result;
+  }
+
+  /**
+   * Multiplies two polynomials of degree less than s modulo a polynomial of degree s over GF(2).
+   */
+  private static int multiply(final int x, final int y, final int polynomial, final int s) {
+    int result = 0;
+    int a = x;
+    for (int b = y; b != 0; b >>>= 1) {
+      if ((b & 1) != 0) {
+        result ^= a;
+      }
+      a <<= 1;
+      if ((a & (1 << s)) != 0) {
+        a ^= polynomial;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the dimension of the points.
+   * @return The dimension.
+   */
+  public int getDimension() {
+    return _x.length;
+  }
+
+  /**
+   * Gets the number of points already generated.
+   * @return The index of the last point generated, zero if none has been.
+   */
+  public long getIndex() {
+    return _index;
+  }
+
+  /**
+   * Gets the next point of the sequence.
+   * @return The point, with coordinates in (0, 1).
+   */
+  public double[] nextVector() {
+    ArgumentChecker.isTrue(_index < (1L << BITS) - 1, "Sobol sequence exhausted");
+    _index++;
+    final int c = Long.numberOfTrailingZeros(_index);
+    final double[] result = new double[_x.length];
+    for (int loopdim = 0; loopdim < _x.length; loopdim++) {
+      _x[loopdim] ^= _direction[loopdim][c];
+      result[loopdim] = _x[loopdim] * SCALE;
+    }
+    return result;
+  }
+
+  /**
+   * Skips ahead in the sequence, so that the next point generated is the point index + 1.
+   * @param index The index of the last point to skip, not negative.
+   */
+  public void skipTo(final long index) {
+    ArgumentChecker.isTrue(index >= 0 && index < (1L << BITS), "Index must be between 0 and 2^32 - 1, have {}", index);
+    final long gray = index ^ (index >>> 1);
+    for (int loopdim = 0; loopdim < _x.length; loopdim++) {
+      long x = 0;
+      for (int loopbit = 0; loopbit < BITS; loopbit++) {
+        if (((gray >>> loopbit) & 1) == 1) {
+          x ^= _direction[loopdim][loopbit];
+        }
+      }
+      _x[loopdim] = x;
+    }
+    _index = index;
+  }
+
+}
@@ -60,8 +60,24 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
   * @return the vector root of the collection of functions 
    */
 
-  @SuppressWarnings("synthetic-access")
   public DoubleMatrix1D getRoot(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction, final DoubleMatrix1D startPosition) {
+    return getRootResult(function, jacobianFunction, startPosition, null).getRoot();
+  }
+
+  /**
+   * Finds the root starting from a known matrix estimate instead of computing it at the start position. When the function is close to a function
+   * already solved (e.g. a curve calibration after a small market move), the previous root and the last estimate of the previous root finding
+   * are a good starting point and the first full calculation of the matrix is saved.
+   *@param function a vector function (i.e. vector to vector)
+   *@param jacobianFunction calculates the Jacobian
+   *@param startPosition where to start the root finder for
+   *@param initialEstimate the matrix estimate at the start position, in the representation used by the root finder (Jacobian or inverse Jacobian).
+   * If null, the matrix is computed at the start position.
+   *@return the root, the last matrix estimate and the number of iterations
+   */
+  @SuppressWarnings("synthetic-access")
+  public NewtonVectorRootFinderResult getRootResult(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction,
+      final DoubleMatrix1D startPosition, final DoubleMatrix2D initialEstimate) {
     checkInputs(function, startPosition);
 
     final DataBundle data = new DataBundle();
@@ -69,11 +85,20 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
     data.setX(startPosition);
     data.setY(y);
     data.setG0(_algebra.getInnerProduct(y, y));
-    DoubleMatrix2D estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, startPosition);
+    int nbCalculations = 0;
+    DoubleMatrix2D estimate;
+    if (initialEstimate == null) {
+      estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, startPosition);
+      nbCalculations++;
+    } else {
+      ArgumentChecker.isTrue(initialEstimate.getNumberOfRows() == y.getNumberOfElements() && initialEstimate.getNumberOfColumns() == startPosition.getNumberOfElements(),
+          "initial estimate has the wrong size");
+      estimate = initialEstimate;
+    }
 
     if (!getNextPosition(function, estimate, data)) {
       if (isConverged(data)) {
-        return data.getX(); // this can happen if the starting position is the root
+        return new NewtonVectorRootFinderResult(data.getX(), estimate, 1, nbCalculations); // this can happen if the starting position is the root
       }
       throw new MathException("Cannot work with this starting position. Please choose another point");
     }
@@ -84,6 +109,7 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
       // Want to reset the Jacobian every so often even if backtracking is working
       if ((jacReconCount) % FULL_RECALC_FREQ == 0) {
         estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, data.getX());
+        nbCalculations++;
         jacReconCount = 1;
       } else {
         estimate = _updateFunction.getUpdatedMatrix(jacobianFunction, data.getX(), data.getDeltaX(), data.getDeltaY(), estimate);
@@ -92,10 +118,12 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
       // if backtracking fails, could be that Jacobian estimate has drifted too far
       if (!getNextPosition(function, estimate, data)) {
         estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, data.getX());
+        nbCalculations++;
         jacReconCount = 1;
         if (!getNextPosition(function, estimate, data)) {
           if (isConverged(data)) {
-            return data.getX(); //non-standard exit. Cannot find an improvement from this position, so provided we are close enough to the root, exit.
+            //non-standard exit. Cannot find an improvement from this position, so provided we are close enough to the root, exit.
+            return new NewtonVectorRootFinderResult(data.getX(), estimate, count + 2, nbCalculations);
           }
           String msg = "Failed to converge in backtracking, even after a Jacobian recalculation." + getErrorMessage(data, jacobianFunction);
           s_logger.info(msg);
@@ -107,7 +135,7 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
         throw new MathException("Failed to converge - maximum iterations of " + _maxSteps + " reached." + getErrorMessage(data, jacobianFunction));
       }
     }
-    return data.getX();
+    return new NewtonVectorRootFinderResult(data.getX(), estimate, count + 1, nbCalculations);
   }
 
   private String getErrorMessage(final DataBundle data, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction) {
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.rootfinding.newton;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The result of a Newton-Raphson style root finding: the root, the last matrix estimate used by the root finder and the
+ * number of iterations and full matrix calculations needed.
+ * <p>
+ * The matrix estimate can be used to start a new root finding on a nearby function without recomputing the matrix.
+ */
+public class NewtonVectorRootFinderResult {
+
+  /**
+   * The root.
+   */
+  private final DoubleMatrix1D _root;
+  /**
+   * The last matrix estimate (Jacobian or inverse Jacobian, depending on the root finder).
+   */
+  private final DoubleMatrix2D _estimate;
+  /**
+   * The number of iterations.
+   */
+  private final int _nbIterations;
+  /**
+   * The number of full calculations of the matrix.
+   */
+  private final int _nbMatrixCalculations;
+
+  /**
+   * Constructor.
+   * @param root The root, not null.
+   * @param estimate The last matrix estimate, not null.
+   * @param nbIterations The number of iterations.
+   * @param nbMatrixCalculations The number of full calculations of the matrix.
+   */
+  public NewtonVectorRootFinderResult(final DoubleMatrix1D root, final DoubleMatrix2D estimate, final int nbIterations, final int nbMatrixCalculations) {
+    ArgumentChecker.notNull(root, "root");
+    ArgumentChecker.notNull(estimate, "estimate");
+    _root = root;
+    _estimate = estimate;
+    _nbIterations = nbIterations;
+    _nbMatrixCalculations = nbMatrixCalculations;
+  }
+
+  /**
+   * Gets the root.
+   * @return The root.
+   */
+  public DoubleMatrix1D getRoot() {
+    return _root;
+  }
+
+  /**
+   * Gets the last matrix estimate used by the root finder.
+   * @return The estimate.
+   */
+  public DoubleMatrix2D getEstimate() {
+    return _estimate;
+  }
+
+  /**
+   * Gets the number of iterations.
+   * @return The number of iterations.
+   */
+  public int getNumberOfIterations() {
+    return _nbIterations;
+  }
+
+  /**
+   * Gets the number of full calculations of the matrix (the other iterations use an update of the previous estimate).
+   * @return The number of matrix calculations.
+   */
+  public int getNumberOfMatrixCalculations() {
+    return _nbMatrixCalculations;
+  }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Month;
+import org.threeten.bp.Period;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the batch pricing of CDSs against the pricing of each CDS with {@link AnalyticCDSPricer}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BatchCDSPricerTest extends ISDABaseTest {
+
+  private static final CDSAnalyticFactory FACTORY = new CDSAnalyticFactory();
+  private static final LocalDate TRADE_DATE = LocalDate.of(2013, Month.AUGUST, 30);
+  private static final Period[] TENORS = new Period[] {Period.ofMonths(6), Period.ofYears(1), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) };
+  private static final double[] COUPONS = new double[] {0.01, 0.05, 0.0075 };
+
+  private static final ISDACompliantYieldCurve YIELD_CURVE;
+  private static final ISDACompliantCreditCurve[] CREDIT_CURVES;
+
+  static {
+    final double[] yieldCurveNodes = new double[] {1 / 365., 1 / 52., 1 / 12., 1 / 4., 1 / 2., 1., 2., 3., 4., 5., 7., 10, 15, 20, 30 };
+    final double[] zeroRates = new double[] {0.01, 0.011, 0.013, 0.015, 0.02, 0.03, 0.035, 0.04, 0.04, 0.06, 0.06, 0.057, 0.055, 0.05, 0.05 };
+    YIELD_CURVE = new ISDACompliantYieldCurve(yieldCurveNodes, zeroRates);
+    final double[] creditCurveNodes = new double[] {1 / 2., 1, 2, 3, 5, 7, 10 };
+    final int nNames = 4;
+    CREDIT_CURVES = new ISDACompliantCreditCurve[nNames];
+    for (int i = 0; i < nNames; i++) {
+      final double[] zeroHazardRates = new double[] {0.0015, 0.002, 0.0023, 0.0025, 0.0024, 0.0023, 0.002 };
+      for (int j = 0; j < zeroHazardRates.length; j++) {
+        zeroHazardRates[j] *= 1.0 + 2.0 * i;
+      }
+      CREDIT_CURVES[i] = new ISDACompliantCreditCurve(creditCurveNodes, zeroHazardRates);
+    }
+  }
+
+  private static final int NB_TRADES = 150;
+  private static final CDSAnalytic[] CDS = new CDSAnalytic[NB_TRADES];
+  private static final ISDACompliantYieldCurve[] YIELD_CURVES = new ISDACompliantYieldCurve[NB_TRADES];
+  private static final ISDACompliantCreditCurve[] TRADE_CREDIT_CURVES = new ISDACompliantCreditCurve[NB_TRADES];
+  private static final double[] SPREADS = new double[NB_TRADES];
+
+  static {
+    for (int i = 0; i < NB_TRADES; i++) {
+      // a new (but equal) analytic description for each trade
+      CDS[i] = FACTORY.makeIMMCDS(TRADE_DATE, TENORS[i % TENORS.length]);
+      YIELD_CURVES[i] = YIELD_CURVE;
+      TRADE_CREDIT_CURVES[i] = CREDIT_CURVES[(i / 7) % CREDIT_CURVES.length];
+      SPREADS[i] = COUPONS[i % COUPONS.length];
+    }
+  }
+
+  private static final double TOLERANCE = 1.0E-15;
+
+  @Test
+  public void pv() {
+    for (final AccrualOnDefaultFormulae formula : AccrualOnDefaultFormulae.values()) {
+      final AnalyticCDSPricer pricer = new AnalyticCDSPricer(formula);
+      final BatchCDSPricer batchPricer = new BatchCDSPricer(formula, null);
+      for (final PriceType priceType : PriceType.values()) {
+        final double[] pv = batchPricer.pv(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS, priceType);
+        for (int i = 0; i < NB_TRADES; i++) {
+          assertEquals("Batch CDS pricer: pv " + i, pricer.pv(CDS[i], YIELD_CURVE, TRADE_CREDIT_CURVES[i], SPREADS[i], priceType), pv[i], TOLERANCE);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parSpread() {
+    final double[] parSpread = new BatchCDSPricer().parSpread(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES);
+    for (int i = 0; i < NB_TRADES; i++) {
+      assertEquals("Batch CDS pricer: par spread " + i, PRICER.parSpread(CDS[i], YIELD_CURVE, TRADE_CREDIT_CURVES[i]), parSpread[i], TOLERANCE);
+    }
+  }
+
+  @Test
+  public void pvCreditSensitivity() {
+    final double[][] sense = new BatchCDSPricer().pvCreditSensitivity(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS);
+    for (int i = 0; i < NB_TRADES; i++) {
+      final int nNodes = TRADE_CREDIT_CURVES[i].getNumberOfKnots();
+      assertEquals("Batch CDS pricer: credit sensitivity " + i, nNodes, sense[i].length);
+      for (int j = 0; j < nNodes; j++) {
+        assertEquals("Batch CDS pricer: credit sensitivity " + i + ", " + j, PRICER.pvCreditSensitivity(CDS[i], YIELD_CURVE, TRADE_CREDIT_CURVES[i], SPREADS[i], j),
+            sense[i][j], TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void singleCurves() {
+    final BatchCDSPricer batchPricer = new BatchCDSPricer();
+    final ISDACompliantCreditCurve creditCurve = CREDIT_CURVES[1];
+    final double[] pv = batchPricer.pv(CDS, YIELD_CURVE, creditCurve, SPREADS, PriceType.CLEAN);
+    final double[] parSpread = batchPricer.parSpread(CDS, YIELD_CURVE, creditCurve);
+    for (int i = 0; i < NB_TRADES; i++) {
+      assertEquals("Batch CDS pricer: pv " + i, PRICER.pv(CDS[i], YIELD_CURVE, creditCurve, SPREADS[i]), pv[i], TOLERANCE);
+      assertEquals("Batch CDS pricer: par spread " + i, PRICER.parSpread(CDS[i], YIELD_CURVE, creditCurve), parSpread[i], TOLERANCE);
+    }
+  }
+
+  @Test
+  public void parallel() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final BatchCDSPricer batchPricer = new BatchCDSPricer(ORIGINAL_ISDA, null);
+      final BatchCDSPricer batchPricerParallel = new BatchCDSPricer(ORIGINAL_ISDA, pool);
+      final double[] pv = batchPricer.pv(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS, PriceType.DIRTY);
+      final double[] pvParallel = batchPricerParallel.pv(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS, PriceType.DIRTY);
+      final double[][] sense = batchPricer.pvCreditSensitivity(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS);
+      final double[][] senseParallel = batchPricerParallel.pvCreditSensitivity(CDS, YIELD_CURVES, TRADE_CREDIT_CURVES, SPREADS);
+      for (int i = 0; i < NB_TRADES; i++) {
+        assertEquals("Batch CDS pricer: parallel pv " + i, pv[i], pvParallel[i], 0.0);
+        for (int j = 0; j < sense[i].length; j++) {
+          assertEquals("Batch CDS pricer: parallel credit sensitivity " + i, sense[i][j], senseParallel[i][j], 0.0);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongCurves() {
+    new BatchCDSPricer().pv(CDS, YIELD_CURVES, new ISDACompliantCreditCurve[NB_TRADES - 1], SPREADS, PriceType.CLEAN);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the pricing of a portfolio trade by trade and in batch.
+   */
+  public void performance() {
+    final int nbTrades = 40000;
+    final CDSAnalytic[] cds = new CDSAnalytic[nbTrades];
+    final ISDACompliantYieldCurve[] yieldCurves = new ISDACompliantYieldCurve[nbTrades];
+    final ISDACompliantCreditCurve[] creditCurves = new ISDACompliantCreditCurve[nbTrades];
+    final double[] spreads = new double[nbTrades];
+    for (int i = 0; i < nbTrades; i++) {
+      cds[i] = FACTORY.makeIMMCDS(TRADE_DATE, TENORS[i % TENORS.length]);
+      yieldCurves[i] = YIELD_CURVE;
+      creditCurves[i] = CREDIT_CURVES[i % CREDIT_CURVES.length];
+      spreads[i] = COUPONS[i % COUPONS.length];
+    }
+    final BatchCDSPricer batchPricer = new BatchCDSPricer(ORIGINAL_ISDA, new ForkJoinPool());
+    long startTime;
+    double total = 0.0;
+    for (int looptest = 0; looptest < 5; looptest++) {
+      startTime = System.currentTimeMillis();
+      for (int i = 0; i < nbTrades; i++) {
+        total += PRICER.pv(cds[i], yieldCurves[i], creditCurves[i], spreads[i]);
+      }
+      System.out.println("Batch CDS pricer: " + nbTrades + " pv trade by trade in " + (System.currentTimeMillis() - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      final double[] pv = batchPricer.pv(cds, yieldCurves, creditCurves, spreads, PriceType.CLEAN);
+      total += pv[0];
+      System.out.println("Batch CDS pricer: " + nbTrades + " pv in batch in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+    System.out.println(total);
+  }
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel.fastcalibration;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Month;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.AccrualOnDefaultFormulae;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.CDSAnalytic;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.CDSAnalyticFactory;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurve;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurveBuilder.ArbitrageHandling;
+import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantYieldCurve;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the calibration of the credit curves of several names against the calibration name by name.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BulkCreditCurveBuilderTest {
+
+  private static final CDSAnalyticFactory CDS_FACTORY = new CDSAnalyticFactory();
+  private static final LocalDate TRADE_DATE = LocalDate.of(2013, Month.SEPTEMBER, 5);
+  private static final Period[] PILLARS = new Period[] {Period.ofMonths(6), Period.ofYears(1), Period.ofYears(2), Period.ofYears(3), Period.ofYears(4), Period.ofYears(5),
+    Period.ofYears(7), Period.ofYears(10) };
+  private static final double[] SPREADS = new double[] {0.01, 0.012, 0.015, 0.02, 0.023, 0.021, 0.02, 0.019 };
+
+  private static final ISDACompliantYieldCurve YIELD_CURVE = new ISDACompliantYieldCurve(new double[] {1 / 12., 1 / 4., 1 / 2., 1., 2., 3., 5., 7., 10., 20., 30. },
+      new double[] {0.005, 0.0052, 0.0059, 0.0088, 0.0088, 0.012, 0.018, 0.023, 0.028, 0.033, 0.034 });
+  private static final ISDACompliantYieldCurve YIELD_CURVE_2 = new ISDACompliantYieldCurve(new double[] {1 / 12., 1 / 4., 1 / 2., 1., 2., 3., 5., 7., 10., 20., 30. },
+      new double[] {0.01, 0.011, 0.012, 0.015, 0.018, 0.02, 0.025, 0.028, 0.03, 0.032, 0.033 });
+
+  private static final int NB_NAMES = 20;
+  private static final CDSAnalytic[][] CDS = new CDSAnalytic[NB_NAMES][];
+  private static final double[][] PAR_SPREADS = new double[NB_NAMES][PILLARS.length];
+  private static final ISDACompliantYieldCurve[] YIELD_CURVES = new ISDACompliantYieldCurve[NB_NAMES];
+
+  static {
+    final CDSAnalyticFactory factoryLowRecovery = CDS_FACTORY.withRecoveryRate(0.25);
+    for (int i = 0; i < NB_NAMES; i++) {
+      // a new (but equal) set of calibration CDSs for each name; two recovery rates and two yield curves
+      CDS[i] = (i % 4 == 3 ? factoryLowRecovery : CDS_FACTORY).makeIMMCDS(TRADE_DATE, PILLARS);
+      YIELD_CURVES[i] = i % 5 == 4 ? YIELD_CURVE_2 : YIELD_CURVE;
+      for (int j = 0; j < PILLARS.length; j++) {
+        PAR_SPREADS[i][j] = SPREADS[j] * (1.0 + 0.1 * i);
+      }
+    }
+  }
+
+  private static final double TOLERANCE_RATE = 1.0E-15;
+  private static final double TOLERANCE_PV = 1.0E-10;
+
+  @Test
+  public void nameByName() {
+    final SuperFastCreditCurveBuilder builder = new SuperFastCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Ignore);
+    final BulkCreditCurveCalibration calibration = new BulkCreditCurveBuilder().calibrateCreditCurves(CDS, PAR_SPREADS, YIELD_CURVES);
+    assertEquals("Bulk credit curve builder: names", NB_NAMES, calibration.getNumberOfNames());
+    assertEquals("Bulk credit curve builder: failures", 0, calibration.getNumberOfFailures());
+    assertEquals("Bulk credit curve builder: calibrators", 4, calibration.getNumberOfCalibrators());
+    for (int i = 0; i < NB_NAMES; i++) {
+      final ISDACompliantCreditCurve expected = builder.calibrateCreditCurve(CDS[i], PAR_SPREADS[i], YIELD_CURVES[i]);
+      final ISDACompliantCreditCurve curve = calibration.getCurve(i);
+      assertTrue("Bulk credit curve builder: calibrated", calibration.isCalibrated(i));
+      assertNull("Bulk credit curve builder: failure", calibration.getFailure(i));
+      for (int j = 0; j < PILLARS.length; j++) {
+        assertEquals("Bulk credit curve builder: name " + i, expected.getZeroRateAtIndex(j), curve.getZeroRateAtIndex(j), TOLERANCE_RATE);
+      }
+      assertEquals("Bulk credit curve builder: repricing error", 0.0, calibration.getRepricingError(i), TOLERANCE_PV);
+    }
+  }
+
+  @Test
+  public void pointsUpfront() {
+    final double[][] premiums = new double[NB_NAMES][PILLARS.length];
+    final double[][] puf = new double[NB_NAMES][PILLARS.length];
+    for (int i = 0; i < NB_NAMES; i++) {
+      for (int j = 0; j < PILLARS.length; j++) {
+        premiums[i][j] = 0.01;
+        puf[i][j] = 0.002 * j + 0.001 * i;
+      }
+    }
+    final SuperFastCreditCurveBuilder builder = new SuperFastCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Ignore);
+    final BulkCreditCurveCalibration calibration = new BulkCreditCurveBuilder().calibrateCreditCurves(CDS, premiums, YIELD_CURVES, puf);
+    for (int i = 0; i < NB_NAMES; i++) {
+      final ISDACompliantCreditCurve expected = builder.calibrateCreditCurve(CDS[i], premiums[i], YIELD_CURVES[i], puf[i]);
+      for (int j = 0; j < PILLARS.length; j++) {
+        assertEquals("Bulk credit curve builder: name " + i, expected.getZeroRateAtIndex(j), calibration.getCurve(i).getZeroRateAtIndex(j), TOLERANCE_RATE);
+      }
+      assertEquals("Bulk credit curve builder: repricing error", 0.0, calibration.getRepricingError(i), TOLERANCE_PV);
+    }
+  }
+
+  @Test
+  public void parallel() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final BulkCreditCurveCalibration calibration = new BulkCreditCurveBuilder().calibrateCreditCurves(CDS, PAR_SPREADS, YIELD_CURVES);
+      final BulkCreditCurveCalibration calibrationParallel = new BulkCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Ignore, pool)
+          .calibrateCreditCurves(CDS, PAR_SPREADS, YIELD_CURVES);
+      assertEquals("Bulk credit curve builder: calibrators", calibration.getNumberOfCalibrators(), calibrationParallel.getNumberOfCalibrators());
+      for (int i = 0; i < NB_NAMES; i++) {
+        assertEquals("Bulk credit curve builder: parallel", calibration.getCurve(i), calibrationParallel.getCurve(i));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void failure() {
+    // the 3Y spread of the first name is an arbitrage
+    final double[][] spreads = new double[NB_NAMES][];
+    for (int i = 0; i < NB_NAMES; i++) {
+      spreads[i] = PAR_SPREADS[i].clone();
+    }
+    spreads[0][3] = 0.001;
+    final BulkCreditCurveCalibration calibration = new BulkCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Fail, null)
+        .calibrateCreditCurves(CDS, spreads, YIELD_CURVES);
+    assertEquals("Bulk credit curve builder: failures", 1, calibration.getNumberOfFailures());
+    assertFalse("Bulk credit curve builder: failure", calibration.isCalibrated(0));
+    assertTrue("Bulk credit curve builder: failure", calibration.getFailure(0) != null);
+    assertTrue("Bulk credit curve builder: failure", Double.isNaN(calibration.getRepricingError(0)));
+    for (int i = 1; i < NB_NAMES; i++) {
+      assertTrue("Bulk credit curve builder: calibrated", calibration.isCalibrated(i));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void failedCurve() {
+    final double[][] spreads = PAR_SPREADS.clone();
+    spreads[0] = new double[] {0.01, 0.012, 0.015, 0.001, 0.023, 0.021, 0.02, 0.019 };
+    new BulkCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Fail, null).calibrateCreditCurves(CDS, spreads, YIELD_CURVES).getCurve(0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongSpreads() {
+    new BulkCreditCurveBuilder().calibrateCreditCurves(CDS, new double[NB_NAMES - 1][], YIELD_CURVES);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the calibration of the curves of an index name by name and in bulk.
+   */
+  public void performance() {
+    final int nbNames = 125;
+    final CDSAnalytic[][] cds = new CDSAnalytic[nbNames][];
+    final double[][] spreads = new double[nbNames][];
+    final ISDACompliantYieldCurve[] yieldCurves = new ISDACompliantYieldCurve[nbNames];
+    for (int i = 0; i < nbNames; i++) {
+      cds[i] = CDS_FACTORY.makeIMMCDS(TRADE_DATE, PILLARS);
+      spreads[i] = PAR_SPREADS[i % NB_NAMES];
+      yieldCurves[i] = YIELD_CURVE;
+    }
+    final SuperFastCreditCurveBuilder builder = new SuperFastCreditCurveBuilder();
+    final BulkCreditCurveBuilder bulkBuilder = new BulkCreditCurveBuilder(AccrualOnDefaultFormulae.OrignalISDA, ArbitrageHandling.Ignore, new ForkJoinPool());
+    final int nbRep = 100;
+    long startTime;
+    double total = 0.0;
+    for (int looptest = 0; looptest < 5; looptest++) {
+      startTime = System.currentTimeMillis();
+      for (int looprep = 0; looprep < nbRep; looprep++) {
+        for (int i = 0; i < nbNames; i++) {
+          total += builder.calibrateCreditCurve(cds[i], spreads[i], yieldCurves[i]).getZeroRateAtIndex(0);
+        }
+      }
+      System.out.println("Bulk credit curve builder: " + nbRep + " x " + nbNames + " curves name by name in " + (System.currentTimeMillis() - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      BulkCreditCurveCalibration calibration = null;
+      for (int looprep = 0; looprep < nbRep; looprep++) {
+        calibration = bulkBuilder.calibrateCreditCurves(cds, spreads, yieldCurves);
+      }
+      System.out.println("Bulk credit curve builder: " + nbRep + " x " + nbNames + " curves in bulk in " + (System.currentTimeMillis() - startTime) + " ms; " + calibration);
+    }
+    System.out.println(total);
+  }
+
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.random.NormalRandomNumberStreams;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests related to the simulation of the loss of a credit portfolio.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PortfolioLossSimulationEngineTest {
+
+  private static final int NB_OBLIGORS = 50;
+  private static final double NOTIONAL = 10.0;
+  private static final double RECOVERY = 0.4;
+  private static final double[] HORIZONS = new double[] {1.0, 3.0, 5.0 };
+  private static final double[] PROBABILITIES = new double[] {0.01, 0.04, 0.08 };
+  private static final double[] ATTACHMENTS = new double[] {0.0, 0.03, 0.07, 0.15 };
+  private static final double[] DETACHMENTS = new double[] {0.03, 0.07, 0.15, 1.0 };
+  private static final int NB_BINS = NB_OBLIGORS;
+  private static final double[] NOTIONALS = new double[NB_OBLIGORS];
+  private static final double[] RECOVERIES = new double[NB_OBLIGORS];
+  private static final double[][] DEFAULT_PROBABILITIES = new double[NB_OBLIGORS][];
+  private static final double[] NO_CORRELATION = new double[NB_OBLIGORS];
+  private static final double[] CORRELATIONS = new double[NB_OBLIGORS];
+  static {
+    Arrays.fill(NOTIONALS, NOTIONAL);
+    Arrays.fill(RECOVERIES, RECOVERY);
+    Arrays.fill(CORRELATIONS, 0.3);
+    for (int loopobl = 0; loopobl < NB_OBLIGORS; loopobl++) {
+      DEFAULT_PROBABILITIES[loopobl] = PROBABILITIES.clone();
+    }
+  }
+  private static final double UNIT_LOSS = NOTIONAL * (1.0 - RECOVERY);
+  private static final long SEED = 12345L;
+  private static final int NB_SCENARIOS = 20000;
+  private static final int BLOCK_SIZE = 1000;
+
+  private static PortfolioLossDistribution simulate(final double[] correlations, final ForkJoinPool pool) {
+    final PortfolioLossSimulationEngine engine = new PortfolioLossSimulationEngine(new NormalRandomNumberStreams(0.0, 1.0, SEED), NB_SCENARIOS, BLOCK_SIZE, pool);
+    return engine.simulate(NOTIONALS, RECOVERIES, DEFAULT_PROBABILITIES, correlations, HORIZONS, ATTACHMENTS, DETACHMENTS, NB_BINS);
+  }
+
+  @Test
+  /**
+   * Tests that the results are reproducible and do not depend on the pool.
+   */
+  public void reproducible() {
+    final PortfolioLossDistribution sequential = simulate(CORRELATIONS, null);
+    final PortfolioLossDistribution sequential2 = simulate(CORRELATIONS, null);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final PortfolioLossDistribution parallel = simulate(CORRELATIONS, pool);
+      for (int looph = 0; looph < HORIZONS.length; looph++) {
+        assertEquals("Portfolio loss simulation: reproducible", sequential.getExpectedLoss(looph), sequential2.getExpectedLoss(looph), 0.0);
+        assertEquals("Portfolio loss simulation: parallel", sequential.getExpectedLoss(looph), parallel.getExpectedLoss(looph), 0.0);
+        assertEquals("Portfolio loss simulation: parallel", sequential.getLossStandardDeviation(looph), parallel.getLossStandardDeviation(looph), 0.0);
+        assertEquals("Portfolio loss simulation: parallel", sequential.getLossQuantile(looph, 0.99), parallel.getLossQuantile(looph, 0.99), 0.0);
+        for (int looptr = 0; looptr < ATTACHMENTS.length; looptr++) {
+          assertEquals("Portfolio loss simulation: parallel", sequential.getExpectedTrancheLoss(looph, looptr), parallel.getExpectedTrancheLoss(looph, looptr), 0.0);
+        }
+        for (int loopobl = 0; loopobl < NB_OBLIGORS; loopobl++) {
+          assertEquals("Portfolio loss simulation: parallel", sequential.getDefaultFrequency(looph, loopobl), parallel.getDefaultFrequency(looph, loopobl), 0.0);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  /**
+   * Tests the expected loss and the default frequencies against the default probabilities.
+   */
+  public void expectedLoss() {
+    final PortfolioLossDistribution distribution = simulate(NO_CORRELATION, null);
+    assertEquals("Portfolio loss simulation: scenarios", NB_SCENARIOS, distribution.getNumberOfScenarios());
+    for (int looph = 0; looph < HORIZONS.length; looph++) {
+      final double p = PROBABILITIES[looph];
+      final double expected = NB_OBLIGORS * UNIT_LOSS * p;
+      final double error = UNIT_LOSS * Math.sqrt(NB_OBLIGORS * p * (1.0 - p) / NB_SCENARIOS);
+      assertEquals("Portfolio loss simulation: expected loss", expected, distribution.getExpectedLoss(looph), 4.0 * error);
+      assertEquals("Portfolio loss simulation: standard deviation", UNIT_LOSS * Math.sqrt(NB_OBLIGORS * p * (1.0 - p)), distribution.getLossStandardDeviation(looph),
+          0.05 * UNIT_LOSS * Math.sqrt(NB_OBLIGORS * p * (1.0 - p)));
+      final double frequencyError = Math.sqrt(p * (1.0 - p) / NB_SCENARIOS);
+      for (int loopobl = 0; loopobl < NB_OBLIGORS; loopobl++) {
+        assertEquals("Portfolio loss simulation: default frequency", p, distribution.getDefaultFrequency(looph, loopobl), 5.0 * frequencyError);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * Tests that the tranches covering the capital structure add up to the portfolio loss.
+   */
+  public void tranches() {
+    final PortfolioLossDistribution distribution = simulate(CORRELATIONS, null);
+    assertEquals("Portfolio loss simulation: tranches", ATTACHMENTS.length, distribution.getNumberOfTranches());
+    for (int looph = 0; looph < HORIZONS.length; looph++) {
+      double trancheLoss = 0.0;
+      for (int looptr = 0; looptr < ATTACHMENTS.length; looptr++) {
+        trancheLoss += distribution.getExpectedTrancheLoss(looph, looptr);
+        final double fraction = distribution.getExpectedTrancheLossFraction(looph, looptr);
+        assertTrue("Portfolio loss simulation: tranche loss fraction", fraction >= 0.0 && fraction <= 1.0);
+      }
+      assertEquals("Portfolio loss simulation: tranches", distribution.getExpectedLoss(looph), trancheLoss, 1.0E-10);
+      // Equity tranche is riskier than senior
+      assertTrue("Portfolio loss simulation: tranches",
+          distribution.getExpectedTrancheLossFraction(looph, 0) > distribution.getExpectedTrancheLossFraction(looph, ATTACHMENTS.length - 1));
+    }
+  }
+
+  @Test
+  /**
+   * Tests the loss quantiles.
+   */
+  public void quantiles() {
+    final PortfolioLossDistribution distribution = simulate(CORRELATIONS, null);
+    for (int looph = 0; looph < HORIZONS.length; looph++) {
+      double previous = 0.0;
+      for (final double level : new double[] {0.5, 0.9, 0.99, 0.999 }) {
+        final double quantile = distribution.getLossQuantile(looph, level);
+        assertEquals("Portfolio loss simulation: quantile", Math.rint(quantile / UNIT_LOSS) * UNIT_LOSS, quantile, 1.0E-10);
+        assertTrue("Portfolio loss simulation: quantile", quantile >= previous);
+        final double exceedance = distribution.getLossExceedanceProbability(looph, quantile);
+        assertTrue("Portfolio loss simulation: exceedance", exceedance <= 1.0 - level + 1.0E-12);
+        previous = quantile;
+      }
+      assertEquals("Portfolio loss simulation: exceedance", 0.0, distribution.getLossExceedanceProbability(looph, distribution.getLossQuantile(looph, 1.0)), 0.0);
+    }
+    // Correlation fattens the tail
+    final PortfolioLossDistribution independent = simulate(NO_CORRELATION, null);
+    final int last = HORIZONS.length - 1;
+    assertTrue("Portfolio loss simulation: correlation", distribution.getLossQuantile(last, 0.99) > independent.getLossQuantile(last, 0.99));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongCorrelation() {
+    final double[] correlations = CORRELATIONS.clone();
+    correlations[3] = 1.5;
+    simulate(correlations, null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void decreasingProbabilities() {
+    final PortfolioLossSimulationEngine engine = new PortfolioLossSimulationEngine(new NormalRandomNumberStreams(0.0, 1.0, SEED), NB_SCENARIOS, null);
+    final double[][] probabilities = DEFAULT_PROBABILITIES.clone();
+    probabilities[0] = new double[] {0.02, 0.01, 0.03 };
+    engine.simulate(NOTIONALS, RECOVERIES, probabilities, CORRELATIONS, HORIZONS, ATTACHMENTS, DETACHMENTS, NB_BINS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongTranche() {
+    final PortfolioLossSimulationEngine engine = new PortfolioLossSimulationEngine(new NormalRandomNumberStreams(0.0, 1.0, SEED), NB_SCENARIOS, null);
+    engine.simulate(NOTIONALS, RECOVERIES, DEFAULT_PROBABILITIES, CORRELATIONS, HORIZONS, new double[] {0.1 }, new double[] {0.05 }, NB_BINS);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Performance of the simulation, sequential and in a pool. Normally disabled.
+   */
+  public void performance() {
+    final int nbScenarios = 1000000;
+    final int nbObligors = 125;
+    final double[] notionals = new double[nbObligors];
+    final double[] recoveries = new double[nbObligors];
+    final double[] correlations = new double[nbObligors];
+    final double[][] probabilities = new double[nbObligors][];
+    Arrays.fill(notionals, NOTIONAL);
+    Arrays.fill(recoveries, RECOVERY);
+    Arrays.fill(correlations, 0.3);
+    for (int loopobl = 0; loopobl < nbObligors; loopobl++) {
+      probabilities[loopobl] = PROBABILITIES.clone();
+    }
+    final ForkJoinPool pool = new ForkJoinPool();
+    long startTime;
+    long endTime;
+    try {
+      for (final ForkJoinPool p : new ForkJoinPool[] {null, pool }) {
+        final PortfolioLossSimulationEngine engine = new PortfolioLossSimulationEngine(new NormalRandomNumberStreams(0.0, 1.0, SEED), nbScenarios, p);
+        startTime = System.currentTimeMillis();
+        final PortfolioLossDistribution distribution = engine.simulate(notionals, recoveries, probabilities, correlations, HORIZONS, ATTACHMENTS, DETACHMENTS,
+            nbObligors);
+        endTime = System.currentTimeMillis();
+        System.out.println("Portfolio loss simulation (" + (p == null ? "sequential" : "pool") + "): " + nbScenarios + " scenarios, " + nbObligors + " obligors in "
+            + (endTime - startTime) + " ms - " + distribution);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate.swap.provider;
+
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityCouponIborSpreadDefinition;
+import com.opengamma.analytics.financial.instrument.fra.ForwardRateAgreementDefinition;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swap.SwapIborIborDefinition;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.description.MulticurveProviderDiscountDataSets;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.util.time.DateUtils;
+
+/**
+ * Data set of USD swaps and FRAs, with the EUR/USD multi-curve provider, used to test the pricers and sensitivity calculators of portfolios of swaps.
+ */
+public class SwapFraInstrumentsDataSet {
+
+  private SwapFraInstrumentsDataSet() { /* private constructor */ }
+
+  /** The multi-curve provider */
+  public static final MulticurveProviderDiscount MULTICURVES = MulticurveProviderDiscountDataSets.createMulticurveEurUsd();
+  private static final IborIndex[] INDEX_LIST = MulticurveProviderDiscountDataSets.getIndexesIborMulticurveEurUsd();
+  private static final IborIndex USDLIBOR3M = INDEX_LIST[2];
+  private static final IborIndex USDLIBOR6M = INDEX_LIST[3];
+  private static final Calendar NYC = MulticurveProviderDiscountDataSets.getUSDCalendar();
+  private static final GeneratorSwapFixedIbor USD6MLIBOR3M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("USD6MLIBOR3M", NYC);
+  private static final Period SWAP_TENOR = Period.ofYears(10);
+  /** The settlement date of the instruments */
+  public static final ZonedDateTime SETTLEMENT_DATE = DateUtils.getUTCDate(2012, 5, 17);
+  /** The date of the derivatives */
+  public static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2011, 5, 17);
+  private static final double NOTIONAL = 100000000;
+  /** The fixed rate of the instruments */
+  public static final double FIXED_RATE = 0.025;
+
+  /** A 10Y fixed/Ibor payer swap */
+  public static final InstrumentDerivative SWAP_FIXED_IBOR = swapFixedIbor(SWAP_TENOR, true);
+  /** A 10Y USD Libor 3M/6M swap with a spread on each leg */
+  public static final SwapIborIborDefinition SWAP_IBORSPREAD_IBORSPREAD_DEFINITION = new SwapIborIborDefinition(AnnuityCouponIborSpreadDefinition.from(SETTLEMENT_DATE,
+      SWAP_TENOR, NOTIONAL, USDLIBOR3M, 0.001, true, NYC), AnnuityCouponIborSpreadDefinition.from(SETTLEMENT_DATE, SWAP_TENOR, NOTIONAL, USDLIBOR6M, 0.001, false, NYC));
+  /** The Libor 3M/6M swap */
+  public static final InstrumentDerivative SWAP_IBORSPREAD_IBORSPREAD = SWAP_IBORSPREAD_IBORSPREAD_DEFINITION.toDerivative(REFERENCE_DATE);
+  /** A 3M FRA on USD Libor 3M */
+  public static final InstrumentDerivative FRA = ForwardRateAgreementDefinition.from(SETTLEMENT_DATE, SETTLEMENT_DATE.plusMonths(3), NOTIONAL, USDLIBOR3M, FIXED_RATE, NYC)
+      .toDerivative(REFERENCE_DATE);
+
+  /**
+   * Creates a fixed/Ibor swap on USD Libor 3M.
+   * @param tenor The tenor of the swap.
+   * @param isPayer True if the fixed leg is paid.
+   * @return The swap.
+   */
+  public static InstrumentDerivative swapFixedIbor(final Period tenor, final boolean isPayer) {
+    return swapFixedIbor(SETTLEMENT_DATE, tenor, FIXED_RATE, isPayer);
+  }
+
+  /**
+   * Creates a fixed/Ibor swap on USD Libor 3M.
+   * @param settlementDate The settlement date of the swap.
+   * @param tenor The tenor of the swap.
+   * @param fixedRate The fixed rate.
+   * @param isPayer True if the fixed leg is paid.
+   * @return The swap.
+   */
+  public static InstrumentDerivative swapFixedIbor(final ZonedDateTime settlementDate, final Period tenor, final double fixedRate, final boolean isPayer) {
+    return SwapFixedIborDefinition.from(settlementDate, tenor, USD6MLIBOR3M, NOTIONAL, fixedRate, isPayer).toDerivative(REFERENCE_DATE);
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate.swap.provider;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the present value of a compiled portfolio of swaps against the present value calculator.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SwapPortfolioDiscountingMethodTest {
+
+  private static final MulticurveProviderDiscount MULTICURVES = SwapFraInstrumentsDataSet.MULTICURVES;
+  private static final InstrumentDerivative[] INSTRUMENTS = new InstrumentDerivative[] {
+    SwapFraInstrumentsDataSet.swapFixedIbor(Period.ofYears(5), true),
+    SwapFraInstrumentsDataSet.swapFixedIbor(Period.ofYears(15), false),
+    SwapFraInstrumentsDataSet.FRA,
+    SwapFraInstrumentsDataSet.SWAP_IBORSPREAD_IBORSPREAD,
+    SwapFraInstrumentsDataSet.SWAP_IBORSPREAD_IBORSPREAD_DEFINITION.getFirstLeg().toDerivative(SwapFraInstrumentsDataSet.REFERENCE_DATE) };
+
+  private static final PresentValueDiscountingCalculator PVDC = PresentValueDiscountingCalculator.getInstance();
+  private static final SwapPortfolioDiscountingMethod METHOD = SwapPortfolioDiscountingMethod.getInstance();
+
+  private static final double TOLERANCE_PV = 1.0E-6;
+
+  @Test
+  public void compilation() {
+    final SwapPortfolioCashFlows portfolio = SwapPortfolioCashFlows.from(INSTRUMENTS);
+    assertEquals("SwapPortfolioCashFlows: instruments", INSTRUMENTS.length, portfolio.getNumberOfInstruments());
+    assertTrue("SwapPortfolioCashFlows: swap compiled", portfolio.isCompiled(0));
+    assertFalse("SwapPortfolioCashFlows: FRA not compiled", portfolio.isCompiled(2));
+    assertTrue("SwapPortfolioCashFlows: annuity compiled", portfolio.isCompiled(4));
+  }
+
+  @Test
+  public void presentValue() {
+    final MultipleCurrencyAmount[] pv = METHOD.presentValue(SwapPortfolioCashFlows.from(INSTRUMENTS), MULTICURVES);
+    for (int loopins = 0; loopins < INSTRUMENTS.length; loopins++) {
+      final MultipleCurrencyAmount pvExpected = INSTRUMENTS[loopins].accept(PVDC, MULTICURVES);
+      assertEquals("SwapPortfolioDiscountingMethod: present value " + loopins, pvExpected.size(), pv[loopins].size());
+      assertEquals("SwapPortfolioDiscountingMethod: present value " + loopins, pvExpected.getAmount(Currency.USD), pv[loopins].getAmount(Currency.USD), TOLERANCE_PV);
+    }
+  }
+
+  @Test
+  public void presentValueTotal() {
+    double pvExpected = 0.0;
+    for (final InstrumentDerivative instrument : INSTRUMENTS) {
+      pvExpected += instrument.accept(PVDC, MULTICURVES).getAmount(Currency.USD);
+    }
+    final MultipleCurrencyAmount pv = METHOD.presentValueTotal(SwapPortfolioCashFlows.from(INSTRUMENTS), MULTICURVES);
+    assertEquals("SwapPortfolioDiscountingMethod: total present value", pvExpected, pv.getAmount(Currency.USD), TOLERANCE_PV);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the valuation of a portfolio of swaps by the calculator and by the compiled portfolio.
+   */
+  public void performance() {
+    final int nbSwaps = 10000;
+    final InstrumentDerivative[] swaps = new InstrumentDerivative[nbSwaps];
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      swaps[loopswap] = SwapFraInstrumentsDataSet.swapFixedIbor(SwapFraInstrumentsDataSet.SETTLEMENT_DATE.plusDays(loopswap % 250), Period.ofYears(1 + loopswap % 30),
+          SwapFraInstrumentsDataSet.FIXED_RATE, loopswap % 2 == 0);
+    }
+    long startTime;
+    long endTime;
+    startTime = System.currentTimeMillis();
+    final SwapPortfolioCashFlows portfolio = SwapPortfolioCashFlows.from(swaps);
+    endTime = System.currentTimeMillis();
+    System.out.println("Swap portfolio: compilation of " + nbSwaps + " swaps (" + portfolio.getNumberOfCashFlows() + " cash flows) in " + (endTime - startTime) + " ms");
+    double total = 0.0;
+    for (int looptest = 0; looptest < 10; looptest++) {
+      startTime = System.currentTimeMillis();
+      for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+        total += swaps[loopswap].accept(PVDC, MULTICURVES).getAmount(Currency.USD);
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println("Swap portfolio: present value calculator for " + nbSwaps + " swaps in " + (endTime - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      total += METHOD.presentValue(portfolio, MULTICURVES)[0].getAmount(Currency.USD);
+      endTime = System.currentTimeMillis();
+      System.out.println("Swap portfolio: compiled present value for " + nbSwaps + " swaps in " + (endTime - startTime) + " ms");
+    }
+    System.out.println(total);
+  }
+
+}
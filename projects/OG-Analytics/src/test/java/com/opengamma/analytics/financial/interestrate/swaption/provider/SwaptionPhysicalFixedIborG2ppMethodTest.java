@@ -7,6 +7,8 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
 import org.threeten.bp.ZonedDateTime;
@@ -35,6 +37,7 @@ import com.opengamma.analytics.financial.provider.description.interestrate.G2ppP
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.NormalRandomNumberStreams;
 import com.opengamma.financial.convention.calendar.Calendar;
 import com.opengamma.financial.convention.daycount.DayCount;
 import com.opengamma.financial.convention.daycount.DayCounts;
@@ -166,6 +169,27 @@ public class SwaptionPhysicalFixedIborG2ppMethodTest {
     assertEquals("Swaption physical - G2++ - present value - approximation vs Monte Carlo", pvApproximation.getAmount(CUR), pvMC.getAmount(CUR), 2.5E+4);
   }
 
+  @Test
+  /**
+   * Tests that the Monte Carlo approach with random number streams gives the same results whatever the number of threads.
+   */
+  public void presentValueMonteCarloParallel() {
+    final int seed = 12345;
+    final int nbPath = 12500;
+    final G2ppMonteCarloMethod methodSequential = new G2ppMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), nbPath, null);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final G2ppMonteCarloMethod methodParallel = new G2ppMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), nbPath, pool);
+      final MultipleCurrencyAmount pvSequential = methodSequential.presentValue(SWAPTION_LONG_PAYER, CUR, G2PP_MULTICURVES);
+      final MultipleCurrencyAmount pvParallel = methodParallel.presentValue(SWAPTION_LONG_PAYER, CUR, G2PP_MULTICURVES);
+      assertEquals("Swaption physical - G2++ - Monte Carlo - parallel", pvSequential.getAmount(CUR), pvParallel.getAmount(CUR), 0.0);
+      final MultipleCurrencyAmount pvApproximation = METHOD_G2PP_APPROXIMATION.presentValue(SWAPTION_LONG_PAYER, G2PP_MULTICURVES);
+      assertEquals("Swaption physical - G2++ - Monte Carlo - parallel", pvApproximation.getAmount(CUR), pvParallel.getAmount(CUR), 5.0E+4);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test(enabled = false)
   /**
    * Test the present value by approximation vs Monte Carlo: convergence.
@@ -8,6 +8,7 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
@@ -50,6 +51,8 @@ import com.opengamma.analytics.financial.provider.sensitivity.parameter.Paramete
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.NormalRandomNumberStreams;
+import com.opengamma.analytics.math.random.SobolRandomNumberGenerator;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.financial.convention.calendar.Calendar;
@@ -414,6 +417,51 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - presentValueCurveSensitivity - payer/receiver/swap parity", pvcsExplicit, pvcsMC, toleranceDelta);
   }
 
+  @Test
+  /**
+   * Tests the Monte Carlo approach with a Sobol sequence.
+   */
+  public void presentValueMonteCarloSobol() {
+    final HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new SobolRandomNumberGenerator(), NB_PATH);
+    final MultipleCurrencyAmount pvExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+    final MultipleCurrencyAmount pvMC = methodMC.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo - Sobol", pvExplicit.getAmount(EUR), pvMC.getAmount(EUR), 1.0E+4);
+  }
+
+  @Test
+  /**
+   * Tests the Monte Carlo approach with a Sobol sequence and a Brownian bridge built on the variances of the factor at the jumps.
+   */
+  public void presentValueMonteCarloSobolBrownianBridge() {
+    final HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new SobolRandomNumberGenerator(true), NB_PATH);
+    final MultipleCurrencyAmount pvExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+    final MultipleCurrencyAmount pvMC = methodMC.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo - Sobol with Brownian bridge", pvExplicit.getAmount(EUR), pvMC.getAmount(EUR), 1.0E+4);
+  }
+
+  @Test
+  /**
+   * Tests that the Monte Carlo approach with random number streams gives the same results whatever the number of threads.
+   */
+  public void presentValueMonteCarloParallel() {
+    final int seed = 12345;
+    final HullWhiteMonteCarloMethod methodSequential = new HullWhiteMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), NB_PATH, null);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final HullWhiteMonteCarloMethod methodParallel = new HullWhiteMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), NB_PATH, pool);
+      final MultipleCurrencyAmount pvSequential = methodSequential.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvParallel = methodParallel.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - parallel", pvSequential.getAmount(EUR), pvParallel.getAmount(EUR), 0.0);
+      final MultipleCurrencyAmount pvExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - parallel", pvExplicit.getAmount(EUR), pvParallel.getAmount(EUR), 1.0E+4);
+      final MultipleCurrencyMulticurveSensitivity pvcsSequential = methodSequential.presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyMulticurveSensitivity pvcsParallel = methodParallel.presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - Monte Carlo - parallel", pvcsSequential, pvcsParallel, 0.0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test(enabled = false)
   /**
    * Tests of performance. "enabled = false" for the standard testing.
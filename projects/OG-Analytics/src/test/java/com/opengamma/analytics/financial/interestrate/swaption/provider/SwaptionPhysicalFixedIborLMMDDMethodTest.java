@@ -8,6 +8,7 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
@@ -69,6 +70,7 @@ import com.opengamma.analytics.financial.provider.sensitivity.parameter.Paramete
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.NormalRandomNumberStreams;
 import com.opengamma.financial.convention.calendar.Calendar;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
@@ -173,6 +175,26 @@ public class SwaptionPhysicalFixedIborLMMDDMethodTest {
     assertEquals("Swaption physical - LMM - present value Approximation/Monte Carlo", impliedVolMC, impliedVolApprox, 2.0E-3);
   }
 
+  @Test
+  /**
+   * Tests that the Monte Carlo approach with random number streams gives the same results whatever the number of threads.
+   */
+  public void presentValueMCParallel() {
+    final int seed = 12345;
+    final LiborMarketModelMonteCarloMethod methodSequential = new LiborMarketModelMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), NB_PATH, 1.0, null);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final LiborMarketModelMonteCarloMethod methodParallel = new LiborMarketModelMonteCarloMethod(new NormalRandomNumberStreams(0.0, 1.0, seed), NB_PATH, 1.0, pool);
+      final MultipleCurrencyAmount pvSequential = methodSequential.presentValue(SWAPTION_PAYER_LONG, EUR, LMM_MULTICURVES);
+      final MultipleCurrencyAmount pvParallel = methodParallel.presentValue(SWAPTION_PAYER_LONG, EUR, LMM_MULTICURVES);
+      assertEquals("Swaption physical - LMM - present value Monte Carlo - parallel", pvSequential.getAmount(EUR), pvParallel.getAmount(EUR), 0.0);
+      final MultipleCurrencyAmount pvApprox = METHOD_LMM.presentValue(SWAPTION_PAYER_LONG, LMM_MULTICURVES);
+      assertEquals("Swaption physical - LMM - present value Monte Carlo - parallel", pvApprox.getAmount(EUR), pvParallel.getAmount(EUR), 5.0E+4);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test
   /**
    * Tests long/short parity.
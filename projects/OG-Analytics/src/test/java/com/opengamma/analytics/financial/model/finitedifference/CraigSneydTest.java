@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.util.test.TestGroup;
@@ -40,4 +42,19 @@ public class CraigSneydTest {
     HESTON_TESTER.testCallPrice(SOLVER, timeSteps, xSteps, ySteps, print);
   }
 
+  @Test
+  public void testParallel() {
+
+    int timeSteps = 30;
+    int xSteps = 150;
+    int ySteps = 40;
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      HESTON_TESTER.testParallel(SOLVER, new CraigSneydFiniteDifference2D(pool), timeSteps, xSteps, ySteps);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
@@ -162,6 +162,27 @@ public class HestonPDETestCase {
     DATA = new ConvectionDiffusion2DPDEDataBundle(A, B, C, D, E, F, FunctionalDoublesSurface.from(payoff));
   }
 
+  /**
+   * Checks that a solver solving the lines in parallel gives exactly the same grid as the same solver solving the lines in the calling thread.
+   * @param sequential The solver solving the lines in the calling thread
+   * @param parallel The solver solving the lines in parallel
+   * @param timeSteps The number of time steps
+   * @param spotSteps The number of spot steps
+   * @param volSqrSteps The number of variance steps
+   */
+  public void testParallel(final ConvectionDiffusionPDESolver2D sequential, final ConvectionDiffusionPDESolver2D parallel, final int timeSteps, final int spotSteps,
+      final int volSqrSteps) {
+    final double[][] expected = sequential.solve(DATA, timeSteps, spotSteps, volSqrSteps, T, F_LOWER, F_UPPER, V_LOWER, V_UPPER);
+    final double[][] res = parallel.solve(DATA, timeSteps, spotSteps, volSqrSteps, T, F_LOWER, F_UPPER, V_LOWER, V_UPPER);
+    assertEquals(expected.length, res.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].length, res[i].length);
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(expected[i][j], res[i][j], 0.0);
+      }
+    }
+  }
+
   public void testCallPrice(final ConvectionDiffusionPDESolver2D solver, final int timeSteps, final int spotSteps, final int volSqrSteps, final boolean print) {
 
     final double deltaX = (F_UPPER.getLevel() - F_LOWER.getLevel()) / spotSteps;
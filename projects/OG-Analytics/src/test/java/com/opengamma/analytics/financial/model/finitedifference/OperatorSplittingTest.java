@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.util.test.TestGroup;
@@ -41,4 +43,19 @@ public class OperatorSplittingTest {
     HESTON_TESTER.testCallPrice(SOLVER, timeSteps, xSteps, ySteps, print);
   }
 
+  @Test
+  public void testParallel() {
+
+    final int timeSteps = 40;
+    final int xSteps = 150;
+    final int ySteps = 40;
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      HESTON_TESTER.testParallel(SOLVER, new OperatorSplittingFiniteDifference2D(pool), timeSteps, xSteps, ySteps);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.util.test.TestGroup;
@@ -42,4 +44,32 @@ public class PeacemanRachfordTest {
     HESTON_TESTER.testCallPrice(SOLVER, timeSteps, xSteps, ySteps, print);
   }
 
+  @Test
+  public void testParallel() {
+
+    final int timeSteps = 30;
+    final int xSteps = 150;
+    final int ySteps = 40;
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      HESTON_TESTER.testParallel(SOLVER, new PeacemanRachfordFiniteDifference2D(pool), timeSteps, xSteps, ySteps);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * The grids must be identical to those of the solver before the lines were solved through {@link ADILineSweeper}.
+   */
+  @Test
+  public void testUnchanged() {
+
+    final int timeSteps = 30;
+    final int xSteps = 150;
+    final int ySteps = 40;
+
+    HESTON_TESTER.testParallel(new PeacemanRachfordReferenceFiniteDifference2D(), SOLVER, timeSteps, xSteps, ySteps);
+  }
+
 }
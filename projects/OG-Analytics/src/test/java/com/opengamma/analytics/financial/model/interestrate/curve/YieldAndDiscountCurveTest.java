@@ -205,5 +205,21 @@ public class YieldAndDiscountCurveTest {
     assertEquals("YieldPeriodicCurve.fromYieldsInterpolated", INTERPOLATOR, curveInt.getInterpolator());
     assertArrayEquals("YieldPeriodicCurve.fromYieldsInterpolated", TIME, curveInt.getXDataAsPrimitive(), TOLERANCE_RATE);
   }
+  @Test
+  /**
+   * Tests the rates and discount factors at sorted times against the ones computed time by time.
+   */
+  public void sortedTimes() {
+    final double[] times = new double[] {0.0, 1.0, 1.25, 2.0, 2.5, 3.0 };
+    final YieldCurve yield = YieldCurve.from(InterpolatedDoublesCurve.from(new double[] {0, 1, 2, 3}, new double[] {0.02, 0.03, 0.04, 0.05}, INTERPOLATOR));
+    final double[] rates = yield.getInterestRates(times);
+    final double[] df = yield.getDiscountFactors(times);
+    final double[] dfDiscount = DISCOUNT.getDiscountFactors(new double[] {1.0, 1.5, 3.0 });
+    for (int loopt = 0; loopt < times.length; loopt++) {
+      assertEquals("YieldCurve: sorted rates", yield.getInterestRate(times[loopt]), rates[loopt], TOLERANCE_RATE);
+      assertEquals("YieldCurve: sorted discount factors", yield.getDiscountFactor(times[loopt]), df[loopt], TOLERANCE_PV);
+    }
+    assertEquals("DiscountCurve: sorted discount factors", DISCOUNT.getDiscountFactor(1.5), dfDiscount[1], TOLERANCE_PV);
+  }
 
 }
@@ -7,6 +7,8 @@ package com.opengamma.analytics.financial.model.option.pricing.montecarlo;
 
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
+
 import org.testng.annotations.Test;
 import org.threeten.bp.ZonedDateTime;
 
@@ -23,6 +25,8 @@ import com.opengamma.analytics.financial.model.volatility.surface.VolatilitySurf
 import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.SobolRandomNumberGenerator;
+import com.opengamma.analytics.math.random.SobolSequenceGenerator;
 import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
 import com.opengamma.util.test.TestGroup;
 import com.opengamma.util.time.DateUtils;
@@ -48,6 +52,11 @@ public class EuropeanMonteCarloOptionModelTest {
       GENERATOR);
   private static final BlackScholesMertonModel BSM = new BlackScholesMertonModel();
 
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testOddAntithetic() {
+    new EuropeanMonteCarloOptionModel(N + 1, 1, new BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle>(), GENERATOR, true, false);
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testNullDefinition() {
     MODEL.getPricingFunction(null);
@@ -73,4 +82,84 @@ public class EuropeanMonteCarloOptionModelTest {
     x2 = MODEL.getPricingFunction(PUT2).evaluate(DATA);
     assertTrue(Math.abs(x1 - x2) / x1 < EPS);
   }
+
+  /**
+   * Sobol sequence with Brownian bridge: a smaller number of paths for a tighter tolerance.
+   */
+  @Test
+  public void testSobol() {
+    final EuropeanMonteCarloOptionModel model = new EuropeanMonteCarloOptionModel(4096, 16, new BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle>(),
+        new SobolRandomNumberGenerator(true));
+    for (final OptionDefinition option : Arrays.asList(CALL1, CALL2, PUT1, PUT2)) {
+      final double x1 = BSM.getPricingFunction(option).evaluate(DATA);
+      final double x2 = model.getPricingFunction(option).evaluate(DATA);
+      assertTrue(Math.abs(x1 - x2) / x1 < EPS / 5);
+    }
+  }
+
+  /**
+   * Sobol sequence with daily steps, with and without Brownian bridge.
+   */
+  @Test
+  public void testSobolDailySteps() {
+    final BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle> process = new BlackScholesGeometricBrownianMotionProcess<>();
+    final EuropeanMonteCarloOptionModel modelBridge = new EuropeanMonteCarloOptionModel(4096, 252, process, new SobolRandomNumberGenerator(true));
+    final EuropeanMonteCarloOptionModel model = new EuropeanMonteCarloOptionModel(4096, 252, process, new SobolRandomNumberGenerator(false));
+    for (final OptionDefinition option : Arrays.asList(CALL1, CALL2, PUT1, PUT2)) {
+      final double x1 = BSM.getPricingFunction(option).evaluate(DATA);
+      assertTrue(Math.abs(x1 - modelBridge.getPricingFunction(option).evaluate(DATA)) / x1 < EPS / 5);
+      assertTrue(Math.abs(x1 - model.getPricingFunction(option).evaluate(DATA)) / x1 < EPS);
+    }
+  }
+
+  /**
+   * More steps than the Sobol sequence has dimensions: the last ones are pseudo-random.
+   */
+  @Test
+  public void testSobolAboveMaxDimension() {
+    final EuropeanMonteCarloOptionModel model = new EuropeanMonteCarloOptionModel(1024, SobolSequenceGenerator.MAX_DIMENSION + 100,
+        new BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle>(), new SobolRandomNumberGenerator(true));
+    for (final OptionDefinition option : Arrays.asList(CALL1, CALL2, PUT1, PUT2)) {
+      final double x1 = BSM.getPricingFunction(option).evaluate(DATA);
+      final double x2 = model.getPricingFunction(option).evaluate(DATA);
+      assertTrue(Math.abs(x1 - x2) / x1 < EPS);
+    }
+  }
+
+  @Test
+  public void testAntitheticControlVariate() {
+    final EuropeanMonteCarloOptionModel model = new EuropeanMonteCarloOptionModel(N, 1, new BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle>(),
+        new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(MersenneTwister.DEFAULT_SEED)), true, true);
+    for (final OptionDefinition option : Arrays.asList(CALL1, CALL2, PUT1, PUT2)) {
+      final double x1 = BSM.getPricingFunction(option).evaluate(DATA);
+      final double x2 = model.getPricingFunction(option).evaluate(DATA);
+      assertTrue(Math.abs(x1 - x2) / x1 < EPS);
+    }
+  }
+
+  /**
+   * Convergence of the pricing error with the number of paths. "enabled = false" for the standard testing.
+   */
+  @Test(enabled = false)
+  public void convergence() {
+    final int steps = 16;
+    final BlackScholesGeometricBrownianMotionProcess<OptionDefinition, StandardOptionDataBundle> process = new BlackScholesGeometricBrownianMotionProcess<>();
+    final double price = BSM.getPricingFunction(CALL1).evaluate(DATA);
+    System.out.println("Paths\tPseudo-random\tAntithetic\tControl variate\tSobol\tSobol with Brownian bridge");
+    for (int n = 1024; n <= 262144; n *= 4) {
+      final double[] pv = new double[5];
+      pv[0] = new EuropeanMonteCarloOptionModel(n, steps, process, new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(n))).getPricingFunction(CALL1).evaluate(DATA);
+      pv[1] = new EuropeanMonteCarloOptionModel(n, steps, process, new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(n)), true, false).getPricingFunction(CALL1)
+          .evaluate(DATA);
+      pv[2] = new EuropeanMonteCarloOptionModel(n, steps, process, new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(n)), false, true).getPricingFunction(CALL1)
+          .evaluate(DATA);
+      pv[3] = new EuropeanMonteCarloOptionModel(n, steps, process, new SobolRandomNumberGenerator(false)).getPricingFunction(CALL1).evaluate(DATA);
+      pv[4] = new EuropeanMonteCarloOptionModel(n, steps, process, new SobolRandomNumberGenerator(true)).getPricingFunction(CALL1).evaluate(DATA);
+      final StringBuilder line = new StringBuilder().append(n);
+      for (final double e : pv) {
+        line.append('\t').append(Math.abs(e - price) / price);
+      }
+      System.out.println(line);
+    }
+  }
 }
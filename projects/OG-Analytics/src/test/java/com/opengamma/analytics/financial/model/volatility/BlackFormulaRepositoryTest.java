@@ -263,6 +263,128 @@ public class BlackFormulaRepositoryTest {
     // Performance note: strike+derivatives: 18-Jul-12: On Mac Pro 3.2 GHz Quad-Core Intel Xeon: 80 ms for 100000.
   }
 
+  /**
+   * The batched formulas give the same results as the scalar ones.
+   */
+  @Test
+  public void batchTest() {
+    final int nStrikes = STRIKES_INPUT.length;
+    final int n = nStrikes * VOLS.length;
+    final double[] forward = new double[n];
+    final double[] strike = new double[n];
+    final double[] time = new double[n];
+    final double[] vol = new double[n];
+    final boolean[] isCall = new boolean[n];
+    for (int i = 0; i < VOLS.length; i++) {
+      for (int j = 0; j < nStrikes; j++) {
+        final int k = i * nStrikes + j;
+        forward[k] = FORWARD;
+        strike[k] = STRIKES_INPUT[j];
+        time[k] = TIME_TO_EXPIRY * (i + 1) / VOLS.length;
+        vol[k] = VOLS[i];
+        isCall[k] = (k % 2) == 0;
+      }
+    }
+    final double[] price = new double[n];
+    final double[] delta = new double[n];
+    final double[] vega = new double[n];
+    BlackFormulaRepository.price(forward, strike, time, vol, isCall, price);
+    BlackFormulaRepository.delta(forward, strike, time, vol, isCall, delta);
+    BlackFormulaRepository.vega(forward, strike, time, vol, vega);
+    for (int k = 0; k < n; k++) {
+      assertEquals(BlackFormulaRepository.price(forward[k], strike[k], time[k], vol[k], isCall[k]), price[k], 0.0);
+      assertEquals(BlackFormulaRepository.delta(forward[k], strike[k], time[k], vol[k], isCall[k]), delta[k], 0.0);
+      assertEquals(BlackFormulaRepository.vega(forward[k], strike[k], time[k], vol[k]), vega[k], 0.0);
+    }
+  }
+
+  @Test
+  public void batchImpliedVolatilityTest() {
+    final double[] forward = new double[] {FORWARD, FORWARD, FORWARD };
+    final double[] strike = new double[] {95.0, 104.0, 120.0 };
+    final double[] time = new double[] {0.5, 1.0, 4.5 };
+    final double[] vol = new double[] {0.3, 0.2, 0.15 };
+    final boolean[] isCall = new boolean[] {false, true, true };
+    final double[] price = new double[3];
+    final double[] impliedVol = new double[3];
+    BlackFormulaRepository.price(forward, strike, time, vol, isCall, price);
+    BlackFormulaRepository.impliedVolatility(price, forward, strike, time, isCall, impliedVol);
+    for (int k = 0; k < 3; k++) {
+      assertEquals(BlackFormulaRepository.impliedVolatility(price[k], forward[k], strike[k], time[k], isCall[k]), impliedVol[k], 0.0);
+      assertEquals(vol[k], impliedVol[k], 1.0E-8);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchNegativeVolTest() {
+    BlackFormulaRepository.price(new double[] {FORWARD, FORWARD }, new double[] {100, 100 }, new double[] {1, 1 }, new double[] {0.2, -0.2 },
+        new boolean[] {true, true }, new double[2]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchLengthTest() {
+    BlackFormulaRepository.vega(new double[] {FORWARD, FORWARD }, new double[] {100, 100 }, new double[] {1, 1 }, new double[] {0.2 }, new double[2]);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the performance of the scalar and batched formulas.
+   */
+  public void batchPerformance() {
+    final int n = 10000;
+    final double[] forward = new double[n];
+    final double[] strike = new double[n];
+    final double[] time = new double[n];
+    final double[] vol = new double[n];
+    final boolean[] isCall = new boolean[n];
+    for (int k = 0; k < n; k++) {
+      forward[k] = FORWARD;
+      strike[k] = 50.0 + 100.0 * k / n;
+      time[k] = 0.1 + 10.0 * k / n;
+      vol[k] = 0.1 + 0.5 * k / n;
+      isCall[k] = strike[k] >= FORWARD;
+    }
+    final double[] output = new double[n];
+    final int nbTest = 1000;
+    long startTime, endTime;
+    double sum = 0;
+    for (int warm = 0; warm < 2; warm++) {
+      startTime = System.currentTimeMillis();
+      for (int looptest = 0; looptest < nbTest; looptest++) {
+        for (int k = 0; k < n; k++) {
+          output[k] = BlackFormulaRepository.price(forward[k], strike[k], time[k], vol[k], isCall[k]);
+        }
+        sum += output[0];
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println(nbTest + " x " + n + " scalar price: " + (endTime - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int looptest = 0; looptest < nbTest; looptest++) {
+        BlackFormulaRepository.price(forward, strike, time, vol, isCall, output);
+        sum += output[0];
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println(nbTest + " x " + n + " batched price: " + (endTime - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int looptest = 0; looptest < nbTest; looptest++) {
+        for (int k = 0; k < n; k++) {
+          output[k] = BlackFormulaRepository.vega(forward[k], strike[k], time[k], vol[k]);
+        }
+        sum += output[0];
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println(nbTest + " x " + n + " scalar vega: " + (endTime - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int looptest = 0; looptest < nbTest; looptest++) {
+        BlackFormulaRepository.vega(forward, strike, time, vol, output);
+        sum += output[0];
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println(nbTest + " x " + n + " batched vega: " + (endTime - startTime) + " ms");
+    }
+    System.out.println(sum);
+  }
+
   /*
    * 
    * 
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.NormalFunctionData;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.NormalPriceFunction;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests related to the normal (Bachelier) formula repository.
+ */
+@Test(groups = TestGroup.UNIT)
+public class NormalFormulaRepositoryTest {
+
+  private static final NormalPriceFunction FUNCTION = new NormalPriceFunction();
+  private static final double[] FORWARD = new double[] {0.02, 0.02, -0.005, 0.03, 0.01, 0.01 };
+  private static final double[] STRIKE = new double[] {0.01, 0.03, 0.0, 0.03, 0.015, 0.01 };
+  private static final double[] TIME = new double[] {1.0, 5.0, 0.25, 10.0, 0.0, 2.0 };
+  private static final double[] VOL = new double[] {0.01, 0.008, 0.005, 0.012, 0.01, 0.0 };
+  private static final boolean[] IS_CALL = new boolean[] {true, false, true, true, false, true };
+  private static final double TOLERANCE = 1.0E-14;
+
+  public void scalar() {
+    for (int i = 0; i < FORWARD.length; i++) {
+      final EuropeanVanillaOption option = new EuropeanVanillaOption(STRIKE[i], TIME[i], IS_CALL[i]);
+      final NormalFunctionData data = new NormalFunctionData(FORWARD[i], 1.0, VOL[i]);
+      assertEquals("price " + i, FUNCTION.getPriceFunction(option).evaluate(data), NormalFormulaRepository.price(FORWARD[i], STRIKE[i], TIME[i], VOL[i], IS_CALL[i]),
+          TOLERANCE);
+      assertEquals("delta " + i, FUNCTION.getDelta(option, data), NormalFormulaRepository.delta(FORWARD[i], STRIKE[i], TIME[i], VOL[i], IS_CALL[i]), TOLERANCE);
+      assertEquals("vega " + i, FUNCTION.getVega(option, data), NormalFormulaRepository.vega(FORWARD[i], STRIKE[i], TIME[i], VOL[i]), TOLERANCE);
+    }
+  }
+
+  public void batch() {
+    final int n = FORWARD.length;
+    final double[] price = new double[n];
+    final double[] delta = new double[n];
+    final double[] vega = new double[n];
+    NormalFormulaRepository.price(FORWARD, STRIKE, TIME, VOL, IS_CALL, price);
+    NormalFormulaRepository.delta(FORWARD, STRIKE, TIME, VOL, IS_CALL, delta);
+    NormalFormulaRepository.vega(FORWARD, STRIKE, TIME, VOL, vega);
+    for (int i = 0; i < n; i++) {
+      assertEquals(NormalFormulaRepository.price(FORWARD[i], STRIKE[i], TIME[i], VOL[i], IS_CALL[i]), price[i], 0.0);
+      assertEquals(NormalFormulaRepository.delta(FORWARD[i], STRIKE[i], TIME[i], VOL[i], IS_CALL[i]), delta[i], 0.0);
+      assertEquals(NormalFormulaRepository.vega(FORWARD[i], STRIKE[i], TIME[i], VOL[i]), vega[i], 0.0);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchNegativeVol() {
+    NormalFormulaRepository.price(new double[] {0.01 }, new double[] {0.01 }, new double[] {1.0 }, new double[] {-0.01 }, new boolean[] {true }, new double[1]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchWrongLength() {
+    NormalFormulaRepository.vega(FORWARD, STRIKE, TIME, VOL, new double[1]);
+  }
+
+}
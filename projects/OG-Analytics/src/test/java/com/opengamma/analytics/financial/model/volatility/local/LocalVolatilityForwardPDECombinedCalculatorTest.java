@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.local;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.finitedifference.PDEFullResults1D;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDECombinedCalculator.GridResult;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.StandardSmileSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.surface.VolatilitySurfaceInterpolator;
+import com.opengamma.analytics.math.interpolation.DoubleQuadraticInterpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LocalVolatilityForwardPDECombinedCalculatorTest {
+  private static final double VOL = 0.2;
+  private static final ForwardCurve FORWARD_CURVE = new ForwardCurve(1.0);
+  private static final Interpolator1D INTERPOLATOR = new DoubleQuadraticInterpolator1D();
+  private static final LocalVolatilityForwardPDECalculator PDE_CALCULATOR = new LocalVolatilityForwardPDECalculator(0.5, 100, 100, 5.0, 0.05, 3.5, 1.0);
+  private static final LocalVolatilityForwardPDECombinedCalculator CALCULATOR = new LocalVolatilityForwardPDECombinedCalculator(PDE_CALCULATOR, INTERPOLATOR);
+  private static final double[] EXPIRIES = new double[] {0.25, 0.5, 1.0, 2.0 };
+  private static final double EPS = 1e-12;
+
+  private static LocalVolatilitySurfaceMoneyness getSurface() {
+    return new LocalVolatilitySurfaceMoneyness(ConstantDoublesSurface.from(VOL), FORWARD_CURVE);
+  }
+
+  @Test
+  public void testSolveIsShared() {
+    final LocalVolatilitySurfaceMoneyness lv = getSurface();
+    final PDEFullResults1D res = CALCULATOR.getPDEResults(lv, EXPIRIES, true);
+    final double[] expiries = new double[] {2.0, 0.5, 1.0, 0.25, 1.0 };
+    assertSame(res, CALCULATOR.getPDEResults(lv, expiries, true));
+    assertSame(res, new LocalVolatilityForwardPDECombinedCalculator(PDE_CALCULATOR, INTERPOLATOR).getPDEResults(lv, EXPIRIES, true));
+    assertNotSame(res, CALCULATOR.getPDEResults(lv, EXPIRIES, false));
+    assertNotSame(res, CALCULATOR.getPDEResults(getSurface(), EXPIRIES, true));
+    final LocalVolatilityForwardPDECalculator other = new LocalVolatilityForwardPDECalculator(0.5, 100, 50, 5.0, 0.05, 3.5, 1.0);
+    assertNotSame(res, new LocalVolatilityForwardPDECombinedCalculator(other, INTERPOLATOR).getPDEResults(lv, EXPIRIES, true));
+  }
+
+  @Test
+  public void testExpiriesAreTimeNodes() {
+    final PDEFullResults1D res = CALCULATOR.getPDEResults(getSurface(), EXPIRIES, true);
+    final double[] timeNodes = res.getGrid().getTimeNodes();
+    assertEquals(PDE_CALCULATOR.getNTimeSteps(), timeNodes.length);
+    for (final double expiry : EXPIRIES) {
+      assertTrue(Arrays.binarySearch(timeNodes, expiry) >= 0);
+    }
+  }
+
+  @Test
+  public void testSingleExpiry() {
+    final LocalVolatilitySurfaceMoneyness lv = getSurface();
+    final EuropeanVanillaOption option = new EuropeanVanillaOption(1.1, 0.5, true);
+    final Map<GridResult, Interpolator1DDataBundle> res = CALCULATOR.getGridResults(lv, FORWARD_CURVE, option);
+    assertEquals(EnumSet.allOf(GridResult.class), res.keySet());
+    assertGridEquals(new LocalVolatilityForwardPDEPriceGridCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null), res.get(GridResult.PRICE));
+    assertGridEquals(new LocalVolatilityForwardPDEImpliedVolatilityGridCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null),
+        res.get(GridResult.IMPLIED_VOLATILITY));
+    assertGridEquals(new LocalVolatilityForwardPDESpotGreeksGridCalculator.DeltaCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null),
+        res.get(GridResult.DELTA));
+    assertGridEquals(new LocalVolatilityForwardPDESpotGreeksGridCalculator.GammaCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null),
+        res.get(GridResult.GAMMA));
+    assertGridEquals(new LocalVolatilityForwardPDEStrikeGreeksGridCalculator.DualDeltaCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null),
+        res.get(GridResult.DUAL_DELTA));
+    assertGridEquals(new LocalVolatilityForwardPDEStrikeGreeksGridCalculator.DualGammaCalculator(PDE_CALCULATOR, INTERPOLATOR).getResult(lv, FORWARD_CURVE, option, null),
+        res.get(GridResult.DUAL_GAMMA));
+    assertGridEquals(res.get(GridResult.DELTA), CALCULATOR.getGridCalculator(GridResult.DELTA).getResult(lv, FORWARD_CURVE, option, null));
+  }
+
+  @Test
+  public void testSeveralExpiries() {
+    final LocalVolatilitySurfaceMoneyness lv = getSurface();
+    for (final double expiry : EXPIRIES) {
+      final EuropeanVanillaOption option = new EuropeanVanillaOption(1.0, expiry, true);
+      final Interpolator1DDataBundle vols = CALCULATOR.getGridResults(lv, FORWARD_CURVE, option, EXPIRIES, EnumSet.of(GridResult.IMPLIED_VOLATILITY))
+          .get(GridResult.IMPLIED_VOLATILITY);
+      assertEquals(VOL, INTERPOLATOR.interpolate(vols, 1.0), 1e-3);
+    }
+  }
+
+  @Test
+  public void testConcurrentRequestsShareSolve() throws Exception {
+    final LocalVolatilitySurfaceMoneyness lv = getSurface();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<PDEFullResults1D>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        final boolean isCall = (i & 1) == 0;
+        futures.add(executor.submit(new Callable<PDEFullResults1D>() {
+          @Override
+          public PDEFullResults1D call() {
+            return CALCULATOR.getPDEResults(lv, EXPIRIES, isCall);
+          }
+        }));
+      }
+      final PDEFullResults1D calls = CALCULATOR.getPDEResults(lv, EXPIRIES, true);
+      final PDEFullResults1D puts = CALCULATOR.getPDEResults(lv, EXPIRIES, false);
+      assertNotSame(calls, puts);
+      for (int i = 0; i < futures.size(); i++) {
+        assertSame((i & 1) == 0 ? calls : puts, futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testBucketedVega() {
+    final double[] expiries = new double[] {0.5, 1.0 };
+    final double[][] strikes = new double[][] { {0.8, 0.9, 1.0, 1.1, 1.2 }, {0.7, 0.85, 1.0, 1.15, 1.3 } };
+    final double[][] vols = new double[][] { {0.26, 0.23, 0.21, 0.2, 0.205 }, {0.25, 0.225, 0.21, 0.2, 0.2 } };
+    final StandardSmileSurfaceDataBundle marketData = new StandardSmileSurfaceDataBundle(FORWARD_CURVE, expiries, strikes, vols);
+    final VolatilitySurfaceInterpolator surfaceInterpolator = new VolatilitySurfaceInterpolator();
+    final DupireLocalVolatilityCalculator dupire = new DupireLocalVolatilityCalculator();
+    final LocalVolatilitySurfaceMoneyness lv = dupire.getLocalVolatility(surfaceInterpolator.getVolatilitySurface(marketData));
+    final EuropeanVanillaOption option = new EuropeanVanillaOption(1.05, 0.5, true);
+    final double[][] expected = new LocalVolatilityForwardPDEBucketedVegaCalculator(PDE_CALCULATOR, INTERPOLATOR, dupire, surfaceInterpolator).getResult(lv,
+        FORWARD_CURVE, option, marketData);
+    final double[][] actual = CALCULATOR.getBucketedVega(lv, FORWARD_CURVE, new EuropeanVanillaOption[] {option }, marketData, dupire, surfaceInterpolator)[0];
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].length, actual[i].length);
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(expected[i][j], actual[i][j], 1e-8);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testExpiryNotSolved() {
+    CALCULATOR.getGridResults(getSurface(), FORWARD_CURVE, new EuropeanVanillaOption(1.0, 0.75, true), EXPIRIES, EnumSet.of(GridResult.PRICE));
+  }
+
+  private static void assertGridEquals(final Interpolator1DDataBundle expected, final Interpolator1DDataBundle actual) {
+    final double[] expectedKeys = expected.getKeys();
+    final double[] expectedValues = expected.getValues();
+    final double[] actualValues = actual.getValues();
+    assertEquals(expectedKeys.length, actual.getKeys().length);
+    for (int i = 0; i < expectedKeys.length; i++) {
+      assertEquals(expectedKeys[i], actual.getKeys()[i], EPS);
+      assertEquals(expectedValues[i], actualValues[i], EPS);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.smile.fitting;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRFormulaData;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRHaganVolatilityFunction;
+import com.opengamma.analytics.financial.model.volatility.smile.function.VolatilityFunctionProvider;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the calibration of a SABR cube.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SABRModelCubeFitterTest {
+
+  private static final VolatilityFunctionProvider<SABRFormulaData> SABR = new SABRHaganVolatilityFunction();
+  private static final double[] EXPIRIES = new double[] {0.5, 1.0, 2.0, 5.0 };
+  private static final double[] TENORS = new double[] {1.0, 2.0, 5.0, 10.0 };
+  private static final double[] STRIKE_SHIFTS = new double[] {-0.01, -0.005, -0.0025, 0.0, 0.0025, 0.005, 0.01, 0.02 };
+  private static final double BETA = 0.5;
+  private static final double[] DEFAULT_START = new double[] {0.05, BETA, 0.0, 0.3 };
+  private static final BitSet FIXED_BETA = new BitSet();
+  static {
+    FIXED_BETA.set(1);
+  }
+
+  private static final int NB_EXPIRIES = EXPIRIES.length;
+  private static final int NB_TENORS = TENORS.length;
+  private static final double[][] FORWARDS = new double[NB_EXPIRIES][NB_TENORS];
+  private static final double[][][] STRIKES = new double[NB_EXPIRIES][NB_TENORS][];
+  private static final SABRFormulaData[][] SABR_DATA = new SABRFormulaData[NB_EXPIRIES][NB_TENORS];
+
+  static {
+    for (int loopexp = 0; loopexp < NB_EXPIRIES; loopexp++) {
+      for (int looptenor = 0; looptenor < NB_TENORS; looptenor++) {
+        FORWARDS[loopexp][looptenor] = 0.02 + 0.002 * loopexp + 0.001 * looptenor;
+        STRIKES[loopexp][looptenor] = new double[STRIKE_SHIFTS.length];
+        for (int loopstr = 0; loopstr < STRIKE_SHIFTS.length; loopstr++) {
+          STRIKES[loopexp][looptenor][loopstr] = FORWARDS[loopexp][looptenor] + STRIKE_SHIFTS[loopstr];
+        }
+        SABR_DATA[loopexp][looptenor] = new SABRFormulaData(0.04 + 0.002 * looptenor, BETA, -0.2 + 0.05 * loopexp, 0.4 - 0.02 * looptenor);
+      }
+    }
+  }
+
+  private static final double TOLERANCE_PARAMETER = 1.0E-6;
+
+  private static double[][][] volatilities(final double shift) {
+    final double[][][] vols = new double[NB_EXPIRIES][NB_TENORS][STRIKE_SHIFTS.length];
+    for (int loopexp = 0; loopexp < NB_EXPIRIES; loopexp++) {
+      for (int looptenor = 0; looptenor < NB_TENORS; looptenor++) {
+        for (int loopstr = 0; loopstr < STRIKE_SHIFTS.length; loopstr++) {
+          final EuropeanVanillaOption option = new EuropeanVanillaOption(STRIKES[loopexp][looptenor][loopstr], EXPIRIES[loopexp], true);
+          vols[loopexp][looptenor][loopstr] = SABR.getVolatilityFunction(option, FORWARDS[loopexp][looptenor]).evaluate(SABR_DATA[loopexp][looptenor]) + shift;
+        }
+      }
+    }
+    return vols;
+  }
+
+  private static void assertParameters(final SABRFormulaData[][] expected, final SABRFormulaData[][] fitted, final double tolerance) {
+    for (int loopexp = 0; loopexp < NB_EXPIRIES; loopexp++) {
+      for (int looptenor = 0; looptenor < NB_TENORS; looptenor++) {
+        final String msg = "SABR cube: slice " + loopexp + ", " + looptenor;
+        assertEquals(msg, expected[loopexp][looptenor].getAlpha(), fitted[loopexp][looptenor].getAlpha(), tolerance);
+        assertEquals(msg, expected[loopexp][looptenor].getBeta(), fitted[loopexp][looptenor].getBeta(), tolerance);
+        assertEquals(msg, expected[loopexp][looptenor].getRho(), fitted[loopexp][looptenor].getRho(), tolerance);
+        assertEquals(msg, expected[loopexp][looptenor].getNu(), fitted[loopexp][looptenor].getNu(), tolerance);
+      }
+    }
+  }
+
+  @Test
+  public void exactFit() {
+    final SABRModelCubeFitter fitter = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA);
+    final SABRCubeCalibrationState state = new SABRCubeCalibrationState();
+    final SABRFormulaData[][] fitted = fitter.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(0.0), null, state);
+    assertParameters(SABR_DATA, fitted, TOLERANCE_PARAMETER);
+    for (int loopexp = 0; loopexp < NB_EXPIRIES; loopexp++) {
+      assertEquals("SABR cube: start", SABRCubeCalibrationState.START_DEFAULT, state.getStart(loopexp, 0));
+      for (int looptenor = 1; looptenor < NB_TENORS; looptenor++) {
+        assertEquals("SABR cube: start", SABRCubeCalibrationState.START_NEIGHBOUR, state.getStart(loopexp, looptenor));
+      }
+    }
+    assertEquals("SABR cube: calibrations", 1, state.getNumberOfCalibrations());
+  }
+
+  @Test
+  public void parallel() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final double[][][] vols = volatilities(0.0005);
+      final SABRFormulaData[][] sequential = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA).fit(EXPIRIES, FORWARDS, STRIKES, vols, null);
+      final SABRFormulaData[][] parallel = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA, pool).fit(EXPIRIES, FORWARDS, STRIKES, vols, null);
+      assertParameters(sequential, parallel, 0.0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void warmStart() {
+    final SABRModelCubeFitter fitter = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA);
+    final SABRCubeCalibrationState state = new SABRCubeCalibrationState();
+    fitter.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(0.0001), null, state);
+    final double[][][] vols = volatilities(0.0);
+    final SABRFormulaData[][] fitted = fitter.fit(EXPIRIES, FORWARDS, STRIKES, vols, null, state);
+    assertEquals("SABR cube: warm starts", NB_EXPIRIES * NB_TENORS, state.getNumberOfWarmStarts());
+    assertParameters(SABR_DATA, fitted, TOLERANCE_PARAMETER);
+    final SABRFormulaData[][] fittedCold = fitter.fit(EXPIRIES, FORWARDS, STRIKES, vols, null);
+    assertParameters(fittedCold, fitted, TOLERANCE_PARAMETER);
+  }
+
+  @Test
+  public void dimensionChange() {
+    final SABRModelCubeFitter fitter = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA);
+    final SABRCubeCalibrationState state = new SABRCubeCalibrationState();
+    fitter.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(0.0), null, state);
+    final double[][][] vols = volatilities(0.0);
+    fitter.fit(Arrays.copyOf(EXPIRIES, 2), Arrays.copyOf(FORWARDS, 2), Arrays.copyOf(STRIKES, 2), Arrays.copyOf(vols, 2), null, state);
+    assertEquals("SABR cube: dimension change", 2, state.getNumberOfExpiries());
+    assertEquals("SABR cube: dimension change", 0, state.getNumberOfWarmStarts());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongTenors() {
+    final double[][] forwards = new double[][] {FORWARDS[0], Arrays.copyOf(FORWARDS[1], 2), FORWARDS[2], FORWARDS[3] };
+    new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA).fit(EXPIRIES, forwards, STRIKES, volatilities(0.0), null);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the calibration of a cube from the default start on the calling thread, in parallel and warm-started in parallel.
+   */
+  public void performance() {
+    final ForkJoinPool pool = new ForkJoinPool();
+    final SABRModelCubeFitter fitter = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA);
+    final SABRModelCubeFitter fitterParallel = new SABRModelCubeFitter(SABR, DEFAULT_START, FIXED_BETA, pool);
+    final SABRCubeCalibrationState state = new SABRCubeCalibrationState();
+    final int nbCycles = 50;
+    long startTime;
+    for (int looptest = 0; looptest < 5; looptest++) {
+      startTime = System.currentTimeMillis();
+      for (int loopcycle = 0; loopcycle < nbCycles; loopcycle++) {
+        fitter.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(1.0E-5 * loopcycle), null);
+      }
+      System.out.println("SABR cube: " + nbCycles + " calibrations on the calling thread in " + (System.currentTimeMillis() - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int loopcycle = 0; loopcycle < nbCycles; loopcycle++) {
+        fitterParallel.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(1.0E-5 * loopcycle), null);
+      }
+      System.out.println("SABR cube: " + nbCycles + " calibrations in parallel in " + (System.currentTimeMillis() - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int loopcycle = 0; loopcycle < nbCycles; loopcycle++) {
+        fitterParallel.fit(EXPIRIES, FORWARDS, STRIKES, volatilities(1.0E-5 * loopcycle), null, state);
+      }
+      System.out.println("SABR cube: " + nbCycles + " warm-started calibrations in parallel in " + (System.currentTimeMillis() - startTime) + " ms; " + state);
+    }
+    pool.shutdown();
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.surface;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import com.opengamma.analytics.math.interpolation.GridInterpolator2D;
+import com.opengamma.analytics.math.interpolation.LinearInterpolator1D;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests related to the bulk implied volatility solver.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BlackImpliedVolatilityBulkSolverTest {
+
+  private static final double FORWARD = 100.0;
+  private static final double[] EXPIRY = new double[] {0.05, 0.25, 1.0, 3.0, 10.0 };
+  private static final double[] STRIKE = new double[] {30.0, 60.0, 80.0, 95.0, 100.0, 105.0, 120.0, 150.0, 250.0 };
+  private static final int NB_EXPIRY = EXPIRY.length;
+  private static final int NB_STRIKE = STRIKE.length;
+  private static final double[] FORWARDS = new double[NB_EXPIRY];
+  private static final double[][] STRIKES = new double[NB_EXPIRY][];
+  private static final double[][] VOLS = new double[NB_EXPIRY][NB_STRIKE];
+  private static final double[][] PRICES = new double[NB_EXPIRY][NB_STRIKE];
+  private static final boolean[][] IS_CALL = new boolean[NB_EXPIRY][NB_STRIKE];
+  static {
+    for (int loopexp = 0; loopexp < NB_EXPIRY; loopexp++) {
+      FORWARDS[loopexp] = FORWARD;
+      STRIKES[loopexp] = STRIKE;
+      for (int loopstr = 0; loopstr < NB_STRIKE; loopstr++) {
+        VOLS[loopexp][loopstr] = 0.15 + 0.1 * Math.abs(Math.log(STRIKE[loopstr] / FORWARD)) + 0.05 / (1.0 + EXPIRY[loopexp]);
+        IS_CALL[loopexp][loopstr] = STRIKE[loopstr] >= FORWARD;
+        PRICES[loopexp][loopstr] = BlackFormulaRepository.price(FORWARD, STRIKE[loopstr], EXPIRY[loopexp], VOLS[loopexp][loopstr], IS_CALL[loopexp][loopstr]);
+      }
+    }
+  }
+  private static final double TOLERANCE_VOL = 1.0E-9;
+
+  public void scalar() {
+    final double[] vols = new double[] {0.01, 0.05, 0.2, 0.5, 1.0, 2.0 };
+    for (final double t : EXPIRY) {
+      for (final double k : STRIKE) {
+        for (final double vol : vols) {
+          for (final boolean isCall : new boolean[] {true, false }) {
+            final double price = BlackFormulaRepository.price(FORWARD, k, t, vol, isCall);
+            final double timeValue = price - Math.max(0.0, (isCall ? 1 : -1) * (FORWARD - k));
+            if (timeValue <= 1.0E-4 * price || timeValue < 1.0E-200) {
+              continue; // not enough time value left to solve for
+            }
+            assertEquals("vol " + vol + " strike " + k + " expiry " + t, vol, BlackImpliedVolatilityBulkSolver.impliedVolatility(price, FORWARD, k, t, isCall),
+                TOLERANCE_VOL);
+          }
+        }
+      }
+    }
+  }
+
+  public void intrinsic() {
+    assertEquals(0.0, BlackImpliedVolatilityBulkSolver.impliedVolatility(FORWARD - 90.0, FORWARD, 90.0, 1.0, true), 0.0);
+    assertEquals(0.0, BlackImpliedVolatilityBulkSolver.impliedVolatility(0.0, FORWARD, 90.0, 1.0, false), 0.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void belowIntrinsic() {
+    BlackImpliedVolatilityBulkSolver.impliedVolatility(FORWARD - 91.0, FORWARD, 90.0, 1.0, true);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void aboveForward() {
+    BlackImpliedVolatilityBulkSolver.impliedVolatility(FORWARD, FORWARD, 90.0, 1.0, true);
+  }
+
+  public void batch() {
+    final double[] price = PRICES[2];
+    final double[] forward = new double[NB_STRIKE];
+    final double[] expiry = new double[NB_STRIKE];
+    for (int loopstr = 0; loopstr < NB_STRIKE; loopstr++) {
+      forward[loopstr] = FORWARD;
+      expiry[loopstr] = EXPIRY[2];
+    }
+    final double[] vol = new double[NB_STRIKE];
+    BlackImpliedVolatilityBulkSolver.impliedVolatility(price, forward, STRIKE, expiry, IS_CALL[2], vol);
+    for (int loopstr = 0; loopstr < NB_STRIKE; loopstr++) {
+      assertEquals(BlackImpliedVolatilityBulkSolver.impliedVolatility(price[loopstr], FORWARD, STRIKE[loopstr], EXPIRY[2], IS_CALL[2][loopstr]), vol[loopstr], 0.0);
+      assertEquals(BlackFormulaRepository.impliedVolatility(price[loopstr], FORWARD, STRIKE[loopstr], EXPIRY[2], IS_CALL[2][loopstr]), vol[loopstr], TOLERANCE_VOL);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchWrongLength() {
+    BlackImpliedVolatilityBulkSolver.impliedVolatility(PRICES[0], FORWARDS, STRIKE, EXPIRY, IS_CALL[0], new double[NB_STRIKE]);
+  }
+
+  /**
+   * The expiries solved in parallel give the same volatilities as the sequential solver.
+   */
+  public void surface() {
+    final double[][] vols = new BlackImpliedVolatilityBulkSolver().impliedVolatility(EXPIRY, FORWARDS, STRIKES, PRICES, IS_CALL);
+    final double[][] volsParallel;
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      volsParallel = new BlackImpliedVolatilityBulkSolver(pool).impliedVolatility(EXPIRY, FORWARDS, STRIKES, PRICES, IS_CALL);
+    } finally {
+      pool.shutdown();
+    }
+    for (int loopexp = 0; loopexp < NB_EXPIRY; loopexp++) {
+      for (int loopstr = 0; loopstr < NB_STRIKE; loopstr++) {
+        assertEquals(VOLS[loopexp][loopstr], vols[loopexp][loopstr], TOLERANCE_VOL);
+        assertEquals(vols[loopexp][loopstr], volsParallel[loopexp][loopstr], 0.0);
+      }
+    }
+    final LinearInterpolator1D linear = new LinearInterpolator1D();
+    final BlackVolatilitySurfaceStrike surface = new BlackImpliedVolatilityBulkSolver().getSurface(EXPIRY, FORWARDS, STRIKES, PRICES, IS_CALL,
+        new GridInterpolator2D(linear, linear));
+    for (int loopexp = 0; loopexp < NB_EXPIRY; loopexp++) {
+      for (int loopstr = 0; loopstr < NB_STRIKE; loopstr++) {
+        assertEquals(vols[loopexp][loopstr], surface.getVolatility(EXPIRY[loopexp], STRIKE[loopstr]), 1.0E-14);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void surfaceWrongLength() {
+    new BlackImpliedVolatilityBulkSolver().impliedVolatility(EXPIRY, new double[] {FORWARD }, STRIKES, PRICES, IS_CALL);
+  }
+
+  /**
+   * Compares the bulk solver with the generic root finder on an option chain. "enabled = false" for the standard testing.
+   */
+  @Test(enabled = false)
+  public void performance() {
+    final int nbExpiry = 40;
+    final int nbStrike = 500;
+    final double[] expiry = new double[nbExpiry];
+    final double[] forward = new double[nbExpiry];
+    final double[][] strike = new double[nbExpiry][nbStrike];
+    final double[][] price = new double[nbExpiry][nbStrike];
+    final boolean[][] isCall = new boolean[nbExpiry][nbStrike];
+    for (int loopexp = 0; loopexp < nbExpiry; loopexp++) {
+      expiry[loopexp] = 0.1 + 0.25 * loopexp;
+      forward[loopexp] = FORWARD;
+      for (int loopstr = 0; loopstr < nbStrike; loopstr++) {
+        strike[loopexp][loopstr] = 50.0 + 0.2 * loopstr;
+        isCall[loopexp][loopstr] = strike[loopexp][loopstr] >= FORWARD;
+        price[loopexp][loopstr] = BlackFormulaRepository.price(FORWARD, strike[loopexp][loopstr], expiry[loopexp],
+            0.2 + 0.1 * Math.abs(Math.log(strike[loopexp][loopstr] / FORWARD)), isCall[loopexp][loopstr]);
+      }
+    }
+    final int nbRep = 20;
+    final BlackImpliedVolatilityBulkSolver sequential = new BlackImpliedVolatilityBulkSolver();
+    final BlackImpliedVolatilityBulkSolver parallel = new BlackImpliedVolatilityBulkSolver(new ForkJoinPool());
+    double total = 0.0;
+    long startTime = System.currentTimeMillis();
+    for (int looprep = 0; looprep < nbRep; looprep++) {
+      for (int loopexp = 0; loopexp < nbExpiry; loopexp++) {
+        for (int loopstr = 0; loopstr < nbStrike; loopstr++) {
+          total += BlackFormulaRepository.impliedVolatility(price[loopexp][loopstr], FORWARD, strike[loopexp][loopstr], expiry[loopexp], isCall[loopexp][loopstr]);
+        }
+      }
+    }
+    long endTime = System.currentTimeMillis();
+    System.out.println(nbRep + " surfaces of " + nbExpiry * nbStrike + " options, generic solver: " + (endTime - startTime) + " ms");
+    startTime = System.currentTimeMillis();
+    for (int looprep = 0; looprep < nbRep; looprep++) {
+      total += sequential.impliedVolatility(expiry, forward, strike, price, isCall)[0][0];
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbRep + " surfaces of " + nbExpiry * nbStrike + " options, bulk solver: " + (endTime - startTime) + " ms");
+    startTime = System.currentTimeMillis();
+    for (int looprep = 0; looprep < nbRep; looprep++) {
+      total += parallel.impliedVolatility(expiry, forward, strike, price, isCall)[0][0];
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbRep + " surfaces of " + nbExpiry * nbStrike + " options, bulk solver in parallel: " + (endTime - startTime) + " ms - " + total);
+  }
+
+}
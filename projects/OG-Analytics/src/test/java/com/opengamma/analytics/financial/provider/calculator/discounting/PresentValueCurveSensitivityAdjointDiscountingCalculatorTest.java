@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.discounting;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.swap.provider.SwapFraInstrumentsDataSet;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
+import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the adjoint curve sensitivity calculator against the point sensitivity calculator.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PresentValueCurveSensitivityAdjointDiscountingCalculatorTest {
+
+  private static final MulticurveProviderDiscount MULTICURVES = SwapFraInstrumentsDataSet.MULTICURVES;
+  private static final InstrumentDerivative SWAP_FIXED_IBOR = SwapFraInstrumentsDataSet.SWAP_FIXED_IBOR;
+  private static final InstrumentDerivative SWAP_IBORSPREAD_IBORSPREAD = SwapFraInstrumentsDataSet.SWAP_IBORSPREAD_IBORSPREAD;
+  private static final InstrumentDerivative FRA = SwapFraInstrumentsDataSet.FRA;
+
+  private static final PresentValueDiscountingCalculator PVDC = PresentValueDiscountingCalculator.getInstance();
+  private static final PresentValueAdjointDiscountingCalculator PVADC = PresentValueAdjointDiscountingCalculator.getInstance();
+  private static final PresentValueCurveSensitivityAdjointDiscountingCalculator PSADC = PresentValueCurveSensitivityAdjointDiscountingCalculator.getInstance();
+  private static final ParameterSensitivityParameterCalculator<ParameterProviderInterface> PSPC =
+      new ParameterSensitivityParameterCalculator<>(PresentValueCurveSensitivityDiscountingCalculator.getInstance());
+
+  private static final double TOLERANCE_PV = 1.0E-2;
+  private static final double TOLERANCE_SENSI = 1.0E-2;
+
+  @Test
+  public void presentValue() {
+    final InstrumentDerivative[] instruments = {SWAP_FIXED_IBOR, SWAP_IBORSPREAD_IBORSPREAD, FRA };
+    for (final InstrumentDerivative instrument : instruments) {
+      final MulticurveProviderDiscountAdjoint adjoint = new MulticurveProviderDiscountAdjoint(MULTICURVES);
+      final int pv = instrument.accept(PVADC, adjoint);
+      assertEquals("Adjoint present value: " + instrument.getClass().getSimpleName(), instrument.accept(PVDC, MULTICURVES).getAmount(Currency.USD),
+          adjoint.getTape().getValue(pv), TOLERANCE_PV);
+    }
+  }
+
+  @Test
+  public void swapFixedIbor() {
+    AssertSensitivityObjects.assertEquals("Adjoint sensitivity: fixed/Ibor swap", PSPC.calculateSensitivity(SWAP_FIXED_IBOR, MULTICURVES),
+        PSADC.calculateSensitivity(SWAP_FIXED_IBOR, MULTICURVES), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void swapIborSpreadIborSpread() {
+    AssertSensitivityObjects.assertEquals("Adjoint sensitivity: Ibor/Ibor swap", PSPC.calculateSensitivity(SWAP_IBORSPREAD_IBORSPREAD, MULTICURVES),
+        PSADC.calculateSensitivity(SWAP_IBORSPREAD_IBORSPREAD, MULTICURVES), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void fra() {
+    AssertSensitivityObjects.assertEquals("Adjoint sensitivity: FRA", PSPC.calculateSensitivity(FRA, MULTICURVES),
+        PSADC.calculateSensitivity(FRA, MULTICURVES), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void portfolio() {
+    final InstrumentDerivative[] instruments = {SWAP_FIXED_IBOR, SWAP_IBORSPREAD_IBORSPREAD, FRA };
+    MultipleCurrencyParameterSensitivity expected = new MultipleCurrencyParameterSensitivity();
+    for (final InstrumentDerivative instrument : instruments) {
+      expected = expected.plus(PSPC.calculateSensitivity(instrument, MULTICURVES));
+    }
+    AssertSensitivityObjects.assertEquals("Adjoint sensitivity: portfolio", expected, PSADC.calculateSensitivity(instruments, MULTICURVES), TOLERANCE_SENSI);
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the time and memory of the adjoint and point sensitivity calculations on a portfolio of swaps.
+   */
+  public void performance() {
+    final int nbSwaps = 10000;
+    final int nbTest = 10;
+    final InstrumentDerivative[] swaps = new InstrumentDerivative[nbSwaps];
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      swaps[loopswap] = SwapFraInstrumentsDataSet.swapFixedIbor(SwapFraInstrumentsDataSet.SETTLEMENT_DATE, Period.ofYears(1 + loopswap % 30),
+          SwapFraInstrumentsDataSet.FIXED_RATE + loopswap * 1.0E-7, true);
+    }
+    final Runtime runtime = Runtime.getRuntime();
+    long startTime;
+    long endTime;
+    long memory;
+    MultipleCurrencyParameterSensitivity sensi;
+    for (int looptest = 0; looptest < nbTest; looptest++) {
+      System.gc();
+      memory = runtime.totalMemory() - runtime.freeMemory();
+      startTime = System.currentTimeMillis();
+      sensi = new MultipleCurrencyParameterSensitivity();
+      for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+        sensi = sensi.plus(PSPC.calculateSensitivity(swaps[loopswap], MULTICURVES));
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println("Point sensitivity: " + nbSwaps + " swaps in " + (endTime - startTime) + " ms; heap used after "
+          + (runtime.totalMemory() - runtime.freeMemory() - memory) / 1024 + " kB");
+      System.gc();
+      memory = runtime.totalMemory() - runtime.freeMemory();
+      startTime = System.currentTimeMillis();
+      sensi = PSADC.calculateSensitivity(swaps, MULTICURVES);
+      endTime = System.currentTimeMillis();
+      System.out.println("Adjoint sensitivity: " + nbSwaps + " swaps in " + (endTime - startTime) + " ms; heap used after "
+          + (runtime.totalMemory() - runtime.freeMemory() - memory) / 1024 + " kB");
+    }
+    final MulticurveProviderDiscountAdjoint adjoint = new MulticurveProviderDiscountAdjoint(MULTICURVES);
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      swaps[loopswap].accept(PVADC, adjoint);
+    }
+    System.out.println("Adjoint tape: " + adjoint.getTape().getNumberOfNodes() + " nodes, " + adjoint.getTape().getNumberOfEdges() + " edges, about "
+        + (adjoint.getTape().getNumberOfNodes() * 12L + adjoint.getTape().getNumberOfEdges() * 12L) / 1024 + " kB");
+  }
+
+}
@@ -6,10 +6,13 @@
 package com.opengamma.analytics.financial.provider.curve;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
@@ -314,8 +317,8 @@ public class MulticurveBuildingDiscountingDiscountXCcyCollatTest {
 
   @BeforeSuite
   static void initClass() {
-    CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.add(makeCurvesFromDefinitions(DEFINITIONS_UNITS[0], GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC,
-        PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false)); // USD and EUR curves
+    CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.add(makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, null, DEFINITIONS_UNITS[0], GENERATORS_UNITS[0], NAMES_UNITS[0],
+        MULTICURVE_KNOWN_DATA, PSMQDC, PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false)); // USD and EUR curves
     final MulticurveProviderDiscount knownCurves = CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getFirst().copy();
     knownCurves.removeCurve(EUR);
     final CurveBuildingBlockBundle knownBundle = CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getSecond();
@@ -330,6 +333,104 @@ public class MulticurveBuildingDiscountingDiscountXCcyCollatTest {
     }
   }
 
+  /**
+   * The USD and EUR units are calibrated concurrently. The curves and the blocks are the same as the ones of the sequential calibration.
+   */
+  @Test
+  public void parallelCalibration() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final MulticurveDiscountBuildingRepository repository = new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX, pool);
+      final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> parallel = makeCurvesFromDefinitions(repository, null, DEFINITIONS_UNITS[0], GENERATORS_UNITS[0],
+          NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC, PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+      assertEquals("Parallel calibration: curves", CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getFirst(), parallel.getFirst());
+      assertEquals("Parallel calibration: blocks", CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getSecond(), parallel.getSecond());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * The curves are rebuilt incrementally after a small move of the USD discounting quotes. The units are calibrated from the previous
+   * calibration, with fewer iterations and Jacobian calculations than from the initial guess.
+   */
+  @Test
+  public void incrementalCalibration() {
+    final CurveCalibrationState state = new CurveCalibrationState();
+    final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> first = makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, state, DEFINITIONS_UNITS[0],
+        GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC, PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+    assertEquals("Incremental calibration: first rebuild", CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getFirst(), first.getFirst());
+    assertEquals("Incremental calibration: first rebuild", CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getSecond(), first.getSecond());
+    for (int loopunit = 0; loopunit < NB_UNITS[0]; loopunit++) {
+      assertFalse("Incremental calibration: first rebuild", state.isIncremental(loopunit));
+    }
+    final InstrumentDefinition<?>[][][] definitions = tickDefinitions(1.0E-6);
+    final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> tick = makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, state, definitions,
+        GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC, PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+    final CurveCalibrationState fullState = new CurveCalibrationState();
+    makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, fullState, definitions, GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC, PSMQCSDC,
+        DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+    curveConstructionTest(definitions, tick.getFirst(), false, 0);
+    int nbJacobianIncremental = 0;
+    int nbJacobianFull = 0;
+    for (int loopunit = 0; loopunit < NB_UNITS[0]; loopunit++) {
+      assertTrue("Incremental calibration: unit " + loopunit, state.isIncremental(loopunit));
+      assertTrue("Incremental calibration: unit " + loopunit, state.getNumberOfIterations(loopunit) <= fullState.getNumberOfIterations(loopunit));
+      nbJacobianIncremental += state.getNumberOfJacobianCalculations(loopunit);
+      nbJacobianFull += fullState.getNumberOfJacobianCalculations(loopunit);
+    }
+    assertTrue("Incremental calibration: Jacobian calculations", nbJacobianIncremental < nbJacobianFull);
+    assertEquals("Incremental calibration: number of rebuilds", 2, state.getNumberOfRebuilds());
+  }
+
+  /**
+   * Compares the time of the rebuilds from the initial guess and of the incremental rebuilds on a sequence of small moves. "enabled = false" for the standard testing.
+   */
+  @Test(enabled = false)
+  public void incrementalCalibrationPerformance() {
+    final int nbTicks = 200;
+    final InstrumentDefinition<?>[][][][] definitions = new InstrumentDefinition<?>[nbTicks][][][];
+    for (int looptick = 0; looptick < nbTicks; looptick++) {
+      definitions[looptick] = tickDefinitions(1.0E-6 * Math.sin(looptick));
+    }
+    final CurveCalibrationState state = new CurveCalibrationState();
+    long timeIncremental = 0;
+    long timeFull = 0;
+    int iterationsIncremental = 0;
+    int iterationsFull = 0;
+    for (int looptick = 0; looptick < nbTicks; looptick++) {
+      final CurveCalibrationState fullState = new CurveCalibrationState(); // Rebuild from the initial guess.
+      makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, fullState, definitions[looptick], GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC,
+          PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+      makeCurvesFromDefinitions(CURVE_BUILDING_REPOSITORY, state, definitions[looptick], GENERATORS_UNITS[0], NAMES_UNITS[0], MULTICURVE_KNOWN_DATA, PSMQDC,
+          PSMQCSDC, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, false);
+      timeFull += fullState.getRebuildTime();
+      iterationsFull += fullState.getNumberOfIterations();
+      if (looptick > 0) {
+        timeIncremental += state.getRebuildTime();
+        iterationsIncremental += state.getNumberOfIterations();
+      }
+    }
+    System.out.println("Curve rebuild from the initial guess: " + timeFull / (1000 * nbTicks) + " us and " + (double) iterationsFull / nbTicks + " iterations per rebuild");
+    System.out.println("Incremental curve rebuild: " + timeIncremental / (1000 * (nbTicks - 1)) + " us and " + (double) iterationsIncremental / (nbTicks - 1)
+        + " iterations per rebuild");
+  }
+
+  /**
+   * The definitions of the USD and EUR units, with the USD discounting quotes moved.
+   * @param shift The shift of the quotes.
+   * @return The definitions.
+   */
+  private static InstrumentDefinition<?>[][][] tickDefinitions(final double shift) {
+    final double[] quotes = new double[USD_DSC_FF_MARKET_QUOTES.length];
+    for (int loopins = 0; loopins < quotes.length; loopins++) {
+      quotes[loopins] = USD_DSC_FF_MARKET_QUOTES[loopins] + shift;
+    }
+    final InstrumentDefinition<?>[][][] definitions = DEFINITIONS_UNITS[0].clone();
+    definitions[0] = new InstrumentDefinition<?>[][] {getDefinitions(quotes, USD_DSC_FF_GENERATORS, USD_DSC_FF_ATTR) };
+    return definitions;
+  }
+
   private void curveConstructionTest(final InstrumentDefinition<?>[][][] definitions, final MulticurveProviderDiscount curves, final boolean withToday, final int block) {
     final int nbBlocks = definitions.length;
     for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
@@ -346,8 +447,8 @@ public class MulticurveBuildingDiscountingDiscountXCcyCollatTest {
   }
 
   @SuppressWarnings("unchecked")
-  private static Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> makeCurvesFromDefinitions(final InstrumentDefinition<?>[][][] definitions, final GeneratorYDCurve[][] curveGenerators,
-      final String[][] curveNames, final MulticurveProviderDiscount knownData,
+  private static Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> makeCurvesFromDefinitions(final MulticurveDiscountBuildingRepository repository,
+      final CurveCalibrationState state, final InstrumentDefinition<?>[][][] definitions, final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final MulticurveProviderDiscount knownData,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final LinkedHashMap<String, Currency> dscMap,
       final LinkedHashMap<String, IborIndex[]> fwdIborMap, final LinkedHashMap<String, IndexON[]> fwdOnMap, final boolean withToday) {
@@ -371,7 +472,8 @@ public class MulticurveBuildingDiscountingDiscountXCcyCollatTest {
       curveBundles[i] = new MultiCurveBundle<>(singleCurves);
     }
 
-    return CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivatives(curveBundles, knownData, dscMap, fwdIborMap, fwdOnMap, calculator, sensitivityCalculator);
+    return repository.makeCurvesFromDerivatives(curveBundles, knownData, new CurveBuildingBlockBundle(), dscMap, fwdIborMap, fwdOnMap, calculator,
+        sensitivityCalculator, state);
   }
 
   @SuppressWarnings("unchecked")
@@ -6,6 +6,8 @@
 package com.opengamma.analytics.financial.provider.curve;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -202,7 +204,8 @@ public class MulticurveBuildingDiscountingForwardTest {
   @BeforeSuite
   static void initClass() {
     for (int loopblock = 0; loopblock < NB_BLOCKS; loopblock++) {
-      CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.add(makeCurvesFromDefinitions(DEFINITIONS_UNITS[loopblock], GENERATORS_UNITS[loopblock], NAMES_UNITS[loopblock], KNOWN_DATA, PSMQC, PSMQCSC, false));
+      CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.add(makeCurvesFromDefinitions(null, DEFINITIONS_UNITS[loopblock], GENERATORS_UNITS[loopblock], NAMES_UNITS[loopblock], KNOWN_DATA, PSMQC, PSMQCSC,
+          false));
     }
   }
 
@@ -213,6 +216,52 @@ public class MulticurveBuildingDiscountingForwardTest {
     }
   }
 
+  /**
+   * The curves are rebuilt incrementally after a small move of the USD discounting quotes. The units are calibrated from the previous
+   * calibration, with fewer iterations and Jacobian calculations than from the initial guess.
+   */
+  @Test
+  public void incrementalCalibration() {
+    final CurveCalibrationState state = new CurveCalibrationState();
+    final Pair<MulticurveProviderForward, CurveBuildingBlockBundle> first = makeCurvesFromDefinitions(state, DEFINITIONS_UNITS[0], GENERATORS_UNITS[0], NAMES_UNITS[0], KNOWN_DATA, PSMQC,
+        PSMQCSC, false);
+    curveConstructionTest(DEFINITIONS_UNITS[0], first.getFirst(), false, 0);
+    for (int loopunit = 0; loopunit < NB_UNITS[0]; loopunit++) {
+      assertFalse("Incremental calibration: first rebuild", state.isIncremental(loopunit));
+    }
+    final InstrumentDefinition<?>[][][] definitions = tickDefinitions(1.0E-6);
+    final Pair<MulticurveProviderForward, CurveBuildingBlockBundle> tick = makeCurvesFromDefinitions(state, definitions, GENERATORS_UNITS[0], NAMES_UNITS[0], KNOWN_DATA, PSMQC, PSMQCSC,
+        false);
+    final CurveCalibrationState fullState = new CurveCalibrationState();
+    makeCurvesFromDefinitions(fullState, definitions, GENERATORS_UNITS[0], NAMES_UNITS[0], KNOWN_DATA, PSMQC, PSMQCSC, false);
+    curveConstructionTest(definitions, tick.getFirst(), false, 0);
+    int nbJacobianIncremental = 0;
+    int nbJacobianFull = 0;
+    for (int loopunit = 0; loopunit < NB_UNITS[0]; loopunit++) {
+      assertTrue("Incremental calibration: unit " + loopunit, state.isIncremental(loopunit));
+      assertTrue("Incremental calibration: unit " + loopunit, state.getNumberOfIterations(loopunit) <= fullState.getNumberOfIterations(loopunit));
+      nbJacobianIncremental += state.getNumberOfJacobianCalculations(loopunit);
+      nbJacobianFull += fullState.getNumberOfJacobianCalculations(loopunit);
+    }
+    assertTrue("Incremental calibration: Jacobian calculations", nbJacobianIncremental < nbJacobianFull);
+    assertEquals("Incremental calibration: number of rebuilds", 2, state.getNumberOfRebuilds());
+  }
+
+  /**
+   * The definitions of the units, with the USD discounting quotes moved.
+   * @param shift The shift of the quotes.
+   * @return The definitions.
+   */
+  private static InstrumentDefinition<?>[][][] tickDefinitions(final double shift) {
+    final double[] quotes = new double[DSC_USD_MARKET_QUOTES.length];
+    for (int loopins = 0; loopins < quotes.length; loopins++) {
+      quotes[loopins] = DSC_USD_MARKET_QUOTES[loopins] + shift;
+    }
+    final InstrumentDefinition<?>[][][] definitions = DEFINITIONS_UNITS[0].clone();
+    definitions[0] = new InstrumentDefinition<?>[][] {getDefinitions(quotes, DSC_USD_GENERATORS, DSC_USD_ATTR) };
+    return definitions;
+  }
+
   private void curveConstructionTest(final InstrumentDefinition<?>[][][] definitions, final MulticurveProviderForward curves, final boolean withToday, final int block) {
     final int nbBlocks = definitions.length;
     for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
@@ -258,8 +307,8 @@ public class MulticurveBuildingDiscountingForwardTest {
     }
   }
 
-  private static Pair<MulticurveProviderForward, CurveBuildingBlockBundle> makeCurvesFromDefinitions(final InstrumentDefinition<?>[][][] definitions, final GeneratorYDCurve[][] curveGenerators,
-      final String[][] curveNames, final MulticurveProviderForward knownData, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+  private static Pair<MulticurveProviderForward, CurveBuildingBlockBundle> makeCurvesFromDefinitions(final CurveCalibrationState state, final InstrumentDefinition<?>[][][] definitions,
+      final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final MulticurveProviderForward knownData, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final boolean withToday) {
     final int nbUnits = curveGenerators.length;
     final double[][] parametersGuess = new double[nbUnits][];
@@ -282,7 +331,7 @@ public class MulticurveBuildingDiscountingForwardTest {
       }
     }
     return CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivatives(instruments, generatorFinal, curveNames, parametersGuess, knownData, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, calculator,
-        sensitivityCalculator);
+        sensitivityCalculator, state);
   }
 
   private static InstrumentDerivative[][] convert(final InstrumentDefinition<?>[][] definitions, final int unit, final boolean withToday) {
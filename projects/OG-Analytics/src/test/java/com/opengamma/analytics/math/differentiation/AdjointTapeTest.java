@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.differentiation;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests related to the tape for reverse mode algorithmic differentiation.
+ */
+@Test(groups = TestGroup.UNIT)
+public class AdjointTapeTest {
+
+  private static final double TOLERANCE = 1.0E-12;
+
+  @Test
+  public void expression() {
+    final double x = 0.7;
+    final double y = 1.3;
+    final AdjointTape tape = new AdjointTape();
+    final int xNode = tape.variable(x);
+    final int yNode = tape.variable(y);
+    final int f = tape.divide(tape.exp(tape.multiply(xNode, yNode)), tape.add(xNode, yNode));
+    final double e = Math.exp(x * y);
+    assertEquals("AdjointTape: value", e / (x + y), tape.getValue(f), TOLERANCE);
+    final double[] adjoints = tape.backward(f);
+    assertEquals("AdjointTape: derivative x", (y * e * (x + y) - e) / ((x + y) * (x + y)), adjoints[xNode], TOLERANCE);
+    assertEquals("AdjointTape: derivative y", (x * e * (x + y) - e) / ((x + y) * (x + y)), adjoints[yNode], TOLERANCE);
+  }
+
+  @Test
+  public void sumAndGrowth() {
+    final int nbVariables = 100;
+    final AdjointTape tape = new AdjointTape(1);
+    final int[] terms = new int[nbVariables];
+    double expected = 0.0;
+    for (int loopv = 0; loopv < nbVariables; loopv++) {
+      final int variable = tape.variable(loopv);
+      terms[loopv] = tape.subtract(tape.multiply(variable, variable), tape.multiply(variable, 2.0));
+      expected += loopv * loopv - 2.0 * loopv;
+    }
+    final int total = tape.sum(terms, nbVariables);
+    assertEquals("AdjointTape: sum", expected, tape.getValue(total), TOLERANCE);
+    assertEquals("AdjointTape: nodes", 4 * nbVariables + 1, tape.getNumberOfNodes());
+    assertEquals("AdjointTape: edges", 6 * nbVariables, tape.getNumberOfEdges());
+    final double[] adjoints = tape.backward(total);
+    for (int loopv = 0; loopv < nbVariables; loopv++) {
+      assertEquals("AdjointTape: derivative " + loopv, 2.0 * loopv - 2.0, adjoints[4 * loopv], TOLERANCE);
+    }
+  }
+
+  @Test
+  public void clear() {
+    final AdjointTape tape = new AdjointTape(2);
+    tape.exp(tape.variable(1.0));
+    tape.clear();
+    assertEquals("AdjointTape: clear", 0, tape.getNumberOfNodes());
+    assertEquals("AdjointTape: clear", 0, tape.getNumberOfEdges());
+    final int x = tape.variable(2.0);
+    final int f = tape.multiply(x, x);
+    assertEquals("AdjointTape: reuse", 4.0, tape.getValue(f), TOLERANCE);
+    assertEquals("AdjointTape: reuse", 4.0, tape.backward(f)[x], TOLERANCE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void parentNotOnTape() {
+    final AdjointTape tape = new AdjointTape();
+    tape.variable(1.0);
+    tape.record(1.0, 1, 1.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void outputNotOnTape() {
+    final AdjointTape tape = new AdjointTape();
+    tape.variable(1.0);
+    tape.backward(1);
+  }
+
+}
@@ -144,4 +144,21 @@ public class CombinedInterpolatorExtrapolatorTest {
       assertEquals("dy/dx at " + value, 3d, COMBINED3.firstDerivative(DATA, value), 1e-4);
     }
   }
+
+  @Test
+  public void testInterpolateSorted() {
+    final double[] x = new double[] {-2.0, -0.5, 0.0, 0.0, 1.5, 3.0, 3.6, 9.0, 10.5, 12.0 };
+    final double[] y = COMBINED3.interpolateSorted(DATA, x);
+    for (int i = 0; i < x.length; i++) {
+      assertEquals("interpolateSorted " + x[i], COMBINED3.interpolate(DATA, x[i]), y[i], 1e-15);
+    }
+    final double[] yInside = COMBINED1.interpolateSorted(DATA, new double[] {0.0, 3.6, 9.0 });
+    assertEquals(F.evaluate(3.6), yInside[1], 1e-15);
+    assertEquals(F.evaluate(9.0), yInside[2], 1e-15);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInterpolateSortedNoExtrapolator() {
+    COMBINED1.interpolateSorted(DATA, new double[] {3.6, 10.5 });
+  }
 }
@@ -71,4 +71,19 @@ public class LinearInterpolator1DTest {
     }
     assertEquals(INTERPOLATOR.interpolate(INTERPOLATOR.getDataBundle(data), 3.4), FUNCTION.evaluate(3.4), 1e-15);
   }
+
+  @Test
+  public void interpolateSorted() {
+    final double[] x = new double[] {1.0, 1.0, 1.5, 2.0, 2.25, 2.999, 3.0 };
+    final double[] y = INTERPOLATOR.interpolateSorted(MODEL, x);
+    for (int i = 0; i < x.length; i++) {
+      assertEquals(INTERPOLATOR.interpolate(MODEL, x[i]), y[i], 1e-15);
+    }
+    assertEquals(0, INTERPOLATOR.interpolateSorted(MODEL, new double[0]).length);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void interpolateSortedLowValue() {
+    INTERPOLATOR.interpolateSorted(MODEL, new double[] {0.5, 1.5 });
+  }
 }
@@ -118,4 +118,60 @@ public class NaturalCubicSplineInterpolator1DTest {
     }
 
   }
+
+  @Test
+  public void interpolateSorted() {
+    final int nbPoints = 56;
+    final double[] x = new double[nbPoints];
+    for (int i = 0; i < nbPoints; i++) {
+      x[i] = i / 50.0;
+    }
+    final double[] y = INTERPOLATOR.interpolateSorted(MODEL, x);
+    for (int i = 0; i < nbPoints; i++) {
+      assertEquals("interpolateSorted " + x[i], INTERPOLATOR.interpolate(MODEL, x[i]), y[i], 1.0E-15);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void interpolateSortedNotSorted() {
+    INTERPOLATOR.interpolateSorted(MODEL, new double[] {0.5, 0.2 });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void interpolateSortedHighValue() {
+    INTERPOLATOR.interpolateSorted(MODEL, new double[] {0.5, 1.5 });
+  }
+
+  @Test(enabled = false)
+  /**
+   * Compares the interpolation of sorted points one by one and in one pass.
+   */
+  public void interpolateSortedPerformance() {
+    final int nbPoints = 1000;
+    final int nbRep = 10000;
+    final double[] x = new double[nbPoints];
+    for (int i = 0; i < nbPoints; i++) {
+      x[i] = 1.1 * i / nbPoints;
+    }
+    long startTime;
+    long endTime;
+    double total = 0.0;
+    for (int looptest = 0; looptest < 5; looptest++) {
+      startTime = System.currentTimeMillis();
+      for (int looprep = 0; looprep < nbRep; looprep++) {
+        for (int i = 0; i < nbPoints; i++) {
+          total += INTERPOLATOR.interpolate(MODEL, x[i]);
+        }
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println("Natural cubic spline: " + nbRep + " x " + nbPoints + " points one by one in " + (endTime - startTime) + " ms");
+      startTime = System.currentTimeMillis();
+      for (int looprep = 0; looprep < nbRep; looprep++) {
+        total += INTERPOLATOR.interpolateSorted(MODEL, x)[nbPoints - 1];
+      }
+      endTime = System.currentTimeMillis();
+      System.out.println("Natural cubic spline: " + nbRep + " x " + nbPoints + " points sorted in " + (endTime - startTime) + " ms");
+    }
+    System.out.println(total);
+  }
 }
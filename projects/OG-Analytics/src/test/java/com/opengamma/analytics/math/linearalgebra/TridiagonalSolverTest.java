@@ -61,4 +61,36 @@ public class TridiagonalSolverTest {
 
   }
 
+  @Test
+  public void noAllocationTest() {
+    final int n = 97;
+    final double[] a = new double[n - 1];
+    final double[] b = new double[n];
+    final double[] c = new double[n - 1];
+    final double[] y = new double[n];
+
+    for (int ii = 0; ii < n; ii++) {
+      b[ii] = RANDOM.nextRandom();
+      y[ii] = RANDOM.nextRandom();
+      if (ii < n - 1) {
+        a[ii] = RANDOM.nextRandom();
+        c[ii] = RANDOM.nextRandom();
+      }
+    }
+    final double[] bCopy = b.clone();
+    final double[] yCopy = y.clone();
+
+    final TridiagonalMatrix m = new TridiagonalMatrix(b, a, c);
+    final double[] expected = solvTriDag(m, y);
+    final double[] x = new double[n];
+    final double[] work = new double[n + 5];
+    solvTriDag(b, a, c, y, x, work);
+
+    for (int i = 0; i < n; i++) {
+      assertEquals(expected[i], x[i], 0.0);
+      assertEquals(bCopy[i], b[i], 0.0);
+      assertEquals(yCopy[i], y[i], 0.0);
+    }
+  }
+
 }
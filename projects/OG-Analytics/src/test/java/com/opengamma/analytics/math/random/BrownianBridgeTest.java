@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BrownianBridgeTest {
+  private static final double EPS = 1e-12;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDecreasingTimes() {
+    new BrownianBridge(new double[] {1, 0.5 });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new BrownianBridge(4).getIncrements(new double[3]);
+  }
+
+  public void testOneStep() {
+    assertEquals(0.3, new BrownianBridge(new double[] {2 }).getIncrements(new double[] {0.3 })[0], EPS);
+  }
+
+  public void testTerminalValue() {
+    final double[] times = new double[] {0.1, 0.5, 0.7, 1.3, 2.0 };
+    final BrownianBridge bridge = new BrownianBridge(times);
+    final double[] normals = new double[] {0.7, -1.2, 0.4, 2.1, -0.3 };
+    final double[] increments = bridge.getIncrements(normals);
+    double terminal = increments[0] * Math.sqrt(times[0]);
+    for (int i = 1; i < times.length; i++) {
+      terminal += increments[i] * Math.sqrt(times[i] - times[i - 1]);
+    }
+    assertEquals(normals[0] * Math.sqrt(times[times.length - 1]), terminal, EPS);
+  }
+
+  public void testDistribution() {
+    final double[] times = new double[] {0.1, 0.5, 0.7, 1.3, 2.0 };
+    final BrownianBridge bridge = new BrownianBridge(times);
+    final RandomNumberGenerator generator = new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(MersenneTwister.DEFAULT_SEED));
+    final int n = 100000;
+    final double[] variance = new double[times.length];
+    double covariance = 0;
+    for (int i = 0; i < n; i++) {
+      final double[] increments = bridge.getIncrements(generator.getVector(times.length));
+      for (int j = 0; j < times.length; j++) {
+        variance[j] += increments[j] * increments[j] / n;
+      }
+      covariance += increments[0] * increments[3] / n;
+    }
+    for (int j = 0; j < times.length; j++) {
+      assertEquals(1, variance[j], 0.02);
+    }
+    assertEquals(0, covariance, 0.02);
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CounterBasedRandomEngineTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeSkip() {
+    new CounterBasedRandomEngine(1, 0).skip(-1);
+  }
+
+  public void testSameStream() {
+    final CounterBasedRandomEngine engine1 = new CounterBasedRandomEngine(1, 3);
+    final CounterBasedRandomEngine engine2 = new CounterBasedRandomEngine(1, 3);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(engine1.nextLong(), engine2.nextLong());
+    }
+    assertEquals(100, engine1.getCounter());
+  }
+
+  public void testSkip() {
+    final CounterBasedRandomEngine engine1 = new CounterBasedRandomEngine(1, 3);
+    final CounterBasedRandomEngine engine2 = new CounterBasedRandomEngine(1, 3);
+    for (int i = 0; i < 50; i++) {
+      engine1.nextDouble();
+    }
+    engine2.skip(50);
+    assertEquals(engine1.nextDouble(), engine2.nextDouble(), 0);
+  }
+
+  public void testDifferentStreams() {
+    final CounterBasedRandomEngine engine1 = new CounterBasedRandomEngine(1, 3);
+    final CounterBasedRandomEngine engine2 = new CounterBasedRandomEngine(1, 4);
+    final CounterBasedRandomEngine engine3 = new CounterBasedRandomEngine(2, 3);
+    final long value = engine1.nextLong();
+    assertFalse(value == engine2.nextLong());
+    assertFalse(value == engine3.nextLong());
+  }
+
+  public void testUniform() {
+    final CounterBasedRandomEngine engine = new CounterBasedRandomEngine(1, 0);
+    final int n = 100000;
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      final double x = engine.nextDouble();
+      assertFalse(x <= 0 || x >= 1);
+      sum += x;
+    }
+    assertEquals(0.5, sum / n, 0.01);
+  }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SobolRandomNumberGeneratorTest {
+  private static final double EPS = 1e-12;
+
+  public void testTimesWithoutBridge() {
+    final SobolRandomNumberGenerator byDimension = new SobolRandomNumberGenerator();
+    final SobolRandomNumberGenerator byTimes = new SobolRandomNumberGenerator();
+    final double[] times = new double[] {0.1, 0.5, 0.7, 1.3, 2.0 };
+    for (int i = 0; i < 10; i++) {
+      assertArrayEquals(byDimension.getVector(times.length), byTimes.getVector(times));
+    }
+  }
+
+  public void testEqualTimesBridge() {
+    final SobolRandomNumberGenerator byDimension = new SobolRandomNumberGenerator(true);
+    final SobolRandomNumberGenerator byTimes = new SobolRandomNumberGenerator(true);
+    final double[] times = new double[] {1, 2, 3, 4, 5 };
+    for (int i = 0; i < 10; i++) {
+      assertArrayEquals(byDimension.getVector(times.length), byTimes.getVector(times));
+    }
+  }
+
+  public void testTimesBridge() {
+    final SobolRandomNumberGenerator normals = new SobolRandomNumberGenerator();
+    final SobolRandomNumberGenerator byTimes = new SobolRandomNumberGenerator(true);
+    final double[] times = new double[] {0.1, 0.5, 0.7, 1.3, 2.0 };
+    final BrownianBridge bridge = new BrownianBridge(times);
+    for (int i = 0; i < 10; i++) {
+      assertArrayEquals(bridge.getIncrements(normals.getVector(times.length)), byTimes.getVector(times));
+    }
+  }
+
+  private static void assertArrayEquals(final double[] expected, final double[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], EPS);
+    }
+  }
+
+}
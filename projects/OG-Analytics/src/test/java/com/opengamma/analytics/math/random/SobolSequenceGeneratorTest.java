@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SobolSequenceGeneratorTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testZeroDimension() {
+    new SobolSequenceGenerator(0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testLargeDimension() {
+    new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION + 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeSkip() {
+    new SobolSequenceGenerator(1).skipTo(-1);
+  }
+
+  public void testFirstPoints() {
+    final double[][] expected = new double[][] { {0.5, 0.5, 0.5 }, {0.75, 0.25, 0.25 }, {0.25, 0.75, 0.75 }, {0.375, 0.375, 0.625 }, {0.875, 0.875, 0.125 },
+      {0.625, 0.125, 0.875 }, {0.125, 0.625, 0.375 }, {0.1875, 0.3125, 0.9375 } };
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(3);
+    for (final double[] point : expected) {
+      assertTrue(Arrays.equals(point, generator.nextVector()));
+    }
+    assertEquals(expected.length, generator.getIndex());
+  }
+
+  public void testSkip() {
+    final int dimension = SobolSequenceGenerator.MAX_DIMENSION;
+    final SobolSequenceGenerator generator1 = new SobolSequenceGenerator(dimension);
+    for (int i = 0; i < 1000; i++) {
+      generator1.nextVector();
+    }
+    final SobolSequenceGenerator generator2 = new SobolSequenceGenerator(dimension);
+    generator2.skipTo(1000);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(Arrays.equals(generator1.nextVector(), generator2.nextVector()));
+    }
+  }
+
+  public void testPrimitivePolynomials() {
+    // The polynomials of the Joe-Kuo table, then the next ones in the same order
+    final int[][] expected = new int[][] { {1, 0 }, {2, 1 }, {3, 1 }, {3, 2 }, {4, 1 }, {4, 4 }, {5, 2 }, {5, 4 }, {5, 7 }, {5, 11 }, {5, 13 }, {5, 14 },
+      {6, 1 }, {6, 13 }, {6, 16 }, {6, 19 }, {6, 22 }, {6, 25 }, {7, 1 }, {7, 4 }, {7, 7 }, {7, 8 } };
+    final int[][] polynomials = SobolSequenceGenerator.primitivePolynomials(SobolSequenceGenerator.MAX_DIMENSION - 1);
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue(Arrays.equals(expected[i], polynomials[i]));
+    }
+    // phi(2^s - 1) / s primitive polynomials of degree s
+    final int[] expectedCount = new int[] {0, 1, 1, 2, 2, 6, 6, 18, 16, 48, 60, 176, 144, 630 };
+    final int[] count = new int[expectedCount.length];
+    for (final int[] polynomial : polynomials) {
+      count[polynomial[0]]++;
+    }
+    assertTrue(Arrays.equals(expectedCount, count));
+  }
+
+  public void testMaxDimension() {
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION);
+    final SobolSequenceGenerator generatorSmall = new SobolSequenceGenerator(21);
+    final int n = 4096;
+    final boolean[][] stratum = new boolean[SobolSequenceGenerator.MAX_DIMENSION][n];
+    for (int i = 1; i < n; i++) {
+      final double[] x = generator.nextVector();
+      assertTrue(Arrays.equals(generatorSmall.nextVector(), Arrays.copyOf(x, 21)));
+      // Each dimension puts one of the first 4095 points in each interval of length 1/4096 except the first
+      for (int j = 0; j < x.length; j++) {
+        final int k = (int) (x[j] * n);
+        assertTrue(k > 0 && !stratum[j][k]);
+        stratum[j][k] = true;
+      }
+    }
+  }
+
+  public void testUniform() {
+    final int dimension = SobolSequenceGenerator.MAX_DIMENSION;
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(dimension);
+    final int n = 4095;
+    final double[] mean = new double[dimension];
+    for (int i = 0; i < n; i++) {
+      final double[] x = generator.nextVector();
+      for (int j = 0; j < dimension; j++) {
+        assertTrue(x[j] > 0 && x[j] < 1);
+        mean[j] += x[j] / n;
+      }
+    }
+    for (int j = 0; j < dimension; j++) {
+      assertEquals(0.5, mean[j], 1.0E-10);
+    }
+  }
+
+}
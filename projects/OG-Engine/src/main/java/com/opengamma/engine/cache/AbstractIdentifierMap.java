@@ -38,6 +38,26 @@ public abstract class AbstractIdentifierMap implements IdentifierMap {
     return identifiers;
   }
 
+  /**
+   * Writes the identifiers for the specifications into an array, in the iteration order of the collection. If the map is a {@link BulkIdentifierMap} it will
+   * write directly into the array, otherwise the results of {@link IdentifierMap#getIdentifiers(Collection)} are copied.
+   *
+   * @param map the identifier map to query, not null
+   * @param specifications the specifications to lookup or allocate identifiers for, not null
+   * @param identifiers the array to write the identifiers into, at least as large as the collection, not null
+   */
+  public static void getIdentifiers(final IdentifierMap map, final Collection<ValueSpecification> specifications, final long[] identifiers) {
+    if (map instanceof BulkIdentifierMap) {
+      ((BulkIdentifierMap) map).getIdentifiers(specifications, identifiers);
+    } else {
+      final Object2LongMap<ValueSpecification> result = map.getIdentifiers(specifications);
+      int i = 0;
+      for (ValueSpecification specification : specifications) {
+        identifiers[i++] = result.getLong(specification);
+      }
+    }
+  }
+
   @Override
   public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
     return getValueSpecifications(this, identifiers);
@@ -54,7 +74,18 @@ public abstract class AbstractIdentifierMap implements IdentifierMap {
   public static void convertIdentifiers(final IdentifierMap map, final IdentifierEncodedValueSpecifications object) {
     final Set<ValueSpecification> valueSpecifications = new HashSet<ValueSpecification>();
     object.collectValueSpecifications(valueSpecifications);
-    object.convertValueSpecifications(map.getIdentifiers(valueSpecifications));
+    if (map instanceof BulkIdentifierMap) {
+      final long[] identifiers = new long[valueSpecifications.size()];
+      ((BulkIdentifierMap) map).getIdentifiers(valueSpecifications, identifiers);
+      final Object2LongMap<ValueSpecification> identifierMap = new Object2LongOpenHashMap<ValueSpecification>(identifiers.length);
+      int i = 0;
+      for (ValueSpecification valueSpecification : valueSpecifications) {
+        identifierMap.put(valueSpecification, identifiers[i++]);
+      }
+      object.convertValueSpecifications(identifierMap);
+    } else {
+      object.convertValueSpecifications(map.getIdentifiers(valueSpecifications));
+    }
   }
 
   public static void resolveIdentifiers(final IdentifierMap map, final IdentifierEncodedValueSpecifications object) {
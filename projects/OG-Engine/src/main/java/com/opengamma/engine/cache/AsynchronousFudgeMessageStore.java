@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.fudgemsg.FudgeMsg;
+
+/**
+ * A {@link FudgeMessageStore} that can start bulk operations without waiting for them to complete. This allows a caller to overlap the operation with other
+ * work, for example a query of a local store while a remote one is in progress.
+ */
+public interface AsynchronousFudgeMessageStore extends FudgeMessageStore {
+
+  /**
+   * Starts a lookup of multiple values, as {@link #get(Collection)}.
+   * <p>
+   * The caller must not modify the collection until the result has been obtained from the future.
+   * 
+   * @param identifiers identifiers to query
+   * @return the future map of results, not null. If there is no data for an identifier it will be missing from the map.
+   */
+  Future<Map<Long, FudgeMsg>> getAsynchronously(Collection<Long> identifiers);
+
+  /**
+   * Starts storing multiple values, as {@link #put(Map)}.
+   * 
+   * @param data map of identifier to data values to store
+   * @return the future which completes when the values have been stored, not null
+   */
+  Future<?> putAsynchronously(Map<Long, FudgeMsg> data);
+
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.util.Collection;
+
+import com.opengamma.engine.value.ValueSpecification;
+
+/**
+ * An {@link IdentifierMap} that can write the results of a multiple value lookup directly into a primitive array instead of constructing a map.
+ * <p>
+ * Callers should use {@link AbstractIdentifierMap#getIdentifiers(IdentifierMap, Collection, long[])} which will use this form when it is available and fall
+ * back to {@link IdentifierMap#getIdentifiers(Collection)} otherwise.
+ */
+public interface BulkIdentifierMap extends IdentifierMap {
+
+  /**
+   * Array based version of {@link #getIdentifiers(Collection)}. The identifier of each specification is written to the array in the iteration order of the
+   * collection.
+   *
+   * @param specifications the specifications to lookup or allocate identifiers for, not null
+   * @param identifiers the array to write the identifiers into, at least as large as the collection, not null
+   */
+  void getIdentifiers(Collection<ValueSpecification> specifications, long[] identifiers);
+
+}
@@ -10,6 +10,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -19,12 +20,16 @@ import org.fudgemsg.FudgeMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
 import com.opengamma.util.ehcache.EHCacheUtils;
 
 /**
  * Caches Fudge message objects on top of another Fudge message store. This is an in-memory cache.
+ * <p>
+ * The asynchronous operations are passed to the underlying store if it is an {@link AsynchronousFudgeMessageStore}, otherwise they complete before returning.
  */
-public class CachingFudgeMessageStore implements FudgeMessageStore {
+public class CachingFudgeMessageStore implements AsynchronousFudgeMessageStore {
 
   private static final Logger s_logger = LoggerFactory.getLogger(CachingFudgeMessageStore.class);
 
@@ -85,15 +90,7 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
   @Override
   public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
     final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
-    final List<Long> missing = new ArrayList<Long>(identifiers.size());
-    for (Long identifier : identifiers) {
-      final Element cacheElement = getCache().get(identifier);
-      if (cacheElement != null) {
-        result.put(identifier, (FudgeMsg) cacheElement.getObjectValue());
-      } else {
-        missing.add(identifier);
-      }
-    }
+    final List<Long> missing = getCached(identifiers, result);
     if (missing.isEmpty()) {
       return result;
     }
@@ -103,15 +100,51 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
       result.put(missingIdentifier, data);
       getCache().put(new Element(missingIdentifier, data));
     } else {
-      final Map<Long, FudgeMsg> missingData = getUnderlying().get(missing);
-      for (Map.Entry<Long, FudgeMsg> data : missingData.entrySet()) {
-        result.put(data.getKey(), data.getValue());
-        getCache().put(new Element(data.getKey(), data.getValue()));
-      }
+      cacheMissing(getUnderlying().get(missing), result);
     }
     return result;
   }
 
+  @Override
+  public Future<Map<Long, FudgeMsg>> getAsynchronously(final Collection<Long> identifiers) {
+    if (!(getUnderlying() instanceof AsynchronousFudgeMessageStore)) {
+      return Futures.immediateFuture(get(identifiers));
+    }
+    final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
+    final List<Long> missing = getCached(identifiers, result);
+    if (missing.isEmpty()) {
+      return Futures.immediateFuture(result);
+    }
+    return Futures.lazyTransform(((AsynchronousFudgeMessageStore) getUnderlying()).getAsynchronously(missing),
+        new Function<Map<Long, FudgeMsg>, Map<Long, FudgeMsg>>() {
+          @Override
+          public Map<Long, FudgeMsg> apply(final Map<Long, FudgeMsg> missingData) {
+            cacheMissing(missingData, result);
+            return result;
+          }
+        });
+  }
+
+  private List<Long> getCached(final Collection<Long> identifiers, final Map<Long, FudgeMsg> result) {
+    final List<Long> missing = new ArrayList<Long>(identifiers.size());
+    for (Long identifier : identifiers) {
+      final Element cacheElement = getCache().get(identifier);
+      if (cacheElement != null) {
+        result.put(identifier, (FudgeMsg) cacheElement.getObjectValue());
+      } else {
+        missing.add(identifier);
+      }
+    }
+    return missing;
+  }
+
+  private void cacheMissing(final Map<Long, FudgeMsg> missingData, final Map<Long, FudgeMsg> result) {
+    for (Map.Entry<Long, FudgeMsg> data : missingData.entrySet()) {
+      result.put(data.getKey(), data.getValue());
+      getCache().put(new Element(data.getKey(), data.getValue()));
+    }
+  }
+
   @Override
   public void put(final Map<Long, FudgeMsg> data) {
     getUnderlying().put(data);
@@ -120,4 +153,17 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
     }
   }
 
+  @Override
+  public Future<?> putAsynchronously(final Map<Long, FudgeMsg> data) {
+    if (!(getUnderlying() instanceof AsynchronousFudgeMessageStore)) {
+      put(data);
+      return Futures.immediateFuture(null);
+    }
+    final Future<?> result = ((AsynchronousFudgeMessageStore) getUnderlying()).putAsynchronously(data);
+    for (Map.Entry<Long, FudgeMsg> element : data.entrySet()) {
+      getCache().put(new Element(element.getKey(), element.getValue()));
+    }
+    return result;
+  }
+
 }
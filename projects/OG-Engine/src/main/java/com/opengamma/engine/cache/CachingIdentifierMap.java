@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.cache;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -13,6 +15,7 @@ import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -29,7 +32,7 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * Caches value identifiers on top of another identifier source. This class is internally synchronized.
  */
-public class CachingIdentifierMap implements IdentifierMap {
+public class CachingIdentifierMap implements BulkIdentifierMap {
   private final IdentifierMap _underlying;
   // NOTE kirk 2010-08-06 -- This INTENTIONALLY is not an EHCache instance.
   // Since getting a remote value specification identifier has to be a super-fast operation
@@ -103,6 +106,38 @@ public class CachingIdentifierMap implements IdentifierMap {
     return identifiers;
   }
 
+  @Override
+  public void getIdentifiers(final Collection<ValueSpecification> specs, final long[] identifiers) {
+    List<ValueSpecification> cacheMisses = null;
+    IntList cacheMissIndices = null;
+    int i = 0;
+    for (ValueSpecification spec : specs) {
+      final Long value = _specificationToIdentifier.get(spec);
+      if (value != null) {
+        identifiers[i] = value.longValue();
+      } else {
+        if (cacheMisses == null) {
+          cacheMisses = new ArrayList<ValueSpecification>();
+          cacheMissIndices = new IntArrayList();
+        }
+        cacheMisses.add(MemoryUtils.instance(spec));
+        cacheMissIndices.add(i);
+      }
+      i++;
+    }
+    if (cacheMisses != null) {
+      final long[] values = new long[cacheMisses.size()];
+      AbstractIdentifierMap.getIdentifiers(getUnderlying(), cacheMisses, values);
+      for (i = 0; i < values.length; i++) {
+        final ValueSpecification spec = cacheMisses.get(i);
+        final Long value = values[i];
+        _specificationToIdentifier.put(spec, value);
+        _identifierToSpecification.put(value, spec);
+        identifiers[cacheMissIndices.getInt(i)] = values[i];
+      }
+    }
+  }
+
   @Override
   public ValueSpecification getValueSpecification(final long identifier) {
     final Long key = identifier;
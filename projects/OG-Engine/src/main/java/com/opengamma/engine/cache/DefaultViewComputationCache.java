@@ -5,12 +5,20 @@
  */
 package com.opengamma.engine.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeFieldType;
@@ -25,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.util.ArgumentChecker;
@@ -34,6 +43,9 @@ import com.opengamma.util.tuple.Pairs;
 
 /**
  * An implementation of {@link ViewComputationCache} which backs value storage on a pair of {@link IdentifierMap} and {@link FudgeMessageStore}.
+ * <p>
+ * If the shared store is an {@link AsynchronousFudgeMessageStore}, as it will be when it is remote, operations that select between the private and shared
+ * stores will start the shared operation before the private one and only wait for it afterwards.
  */
 public class DefaultViewComputationCache implements ViewComputationCache,
     Iterable<Pair<ValueSpecification, FudgeMsg>> {
@@ -198,114 +210,162 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     return obj;
   }
 
+  /**
+   * Writes the identifiers for the specifications into an array, using the array based path of the identifier map if it has one.
+   *
+   * @param specifications the specifications to look up, not null
+   * @return the identifiers, in the iteration order of the specifications
+   */
+  protected long[] getIdentifiers(final Collection<ValueSpecification> specifications) {
+    final long[] identifiers = new long[specifications.size()];
+    AbstractIdentifierMap.getIdentifiers(getIdentifierMap(), specifications, identifiers);
+    return identifiers;
+  }
+
+  /**
+   * Removes any repeated specifications from a collection to be looked up. The array based lookups produce one result per element of the collection, so
+   * without this a repeated specification would appear more than once in the returned values.
+   *
+   * @param specifications the specifications to look up, not null
+   * @return the distinct specifications, in their original order, not null
+   */
+  private static Collection<ValueSpecification> distinct(final Collection<ValueSpecification> specifications) {
+    if ((specifications instanceof Set) || (specifications.size() < 2)) {
+      return specifications;
+    }
+    final Set<ValueSpecification> distinct = new LinkedHashSet<ValueSpecification>(specifications);
+    if (distinct.size() == specifications.size()) {
+      return specifications;
+    }
+    return distinct;
+  }
+
+  /**
+   * Deserializes any of the outstanding values present in a store's result. Values that are found are moved to the end of the outstanding region of the
+   * arrays so that the first {@code remaining} elements are still the ones to be found.
+   *
+   * @param rawValues the values from the store
+   * @param specifications the outstanding specifications
+   * @param identifiers the outstanding identifiers
+   * @param remaining the number of outstanding specifications
+   * @param deserializer the deserializer to use
+   * @param returnValues the collection to add the found values to
+   * @return the number of specifications still outstanding
+   */
+  private int resolveValues(final Map<Long, FudgeMsg> rawValues, final ValueSpecification[] specifications, final long[] identifiers, int remaining,
+      final FudgeDeserializer deserializer, final Collection<Pair<ValueSpecification, Object>> returnValues) {
+    if (rawValues.isEmpty()) {
+      return remaining;
+    }
+    int i = 0;
+    while (i < remaining) {
+      final FudgeMsg data = rawValues.get(identifiers[i]);
+      if (data != null) {
+        final ValueSpecification specification = specifications[i];
+        final Object value = deserializeValue(deserializer, data);
+        cacheValueSize(specification, data, value);
+        returnValues.add(Pairs.of(specification, value));
+        remaining--;
+        specifications[i] = specifications[remaining];
+        identifiers[i] = identifiers[remaining];
+      } else {
+        i++;
+      }
+    }
+    return remaining;
+  }
+
   @Override
-  public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications) {
+  public Collection<Pair<ValueSpecification, Object>> getValues(Collection<ValueSpecification> specifications) {
     ArgumentChecker.notNull(specifications, "specifications");
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
-    final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
-    final Collection<Long> identifierValues = identifiers.values();
+    specifications = distinct(specifications);
+    final ValueSpecification[] specificationValues = specifications.toArray(new ValueSpecification[specifications.size()]);
+    final long[] identifiers = getIdentifiers(specifications);
+    final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specificationValues.length);
     final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
-    Map<Long, FudgeMsg> rawValues = getPrivateDataStore().get(identifierValues);
-    if (!rawValues.isEmpty()) {
-      final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
-      while (identifierIterator.hasNext()) {
-        final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-        final FudgeMsg data = rawValues.get(identifier.getValue());
-        if (data != null) {
-          final Object value = deserializeValue(deserializer, data);
-          cacheValueSize(identifier.getKey(), data, value);
-          returnValues.add(Pairs.of(identifier.getKey(), value));
-          identifierIterator.remove();
-        }
-      }
-      if (identifiers.isEmpty()) {
-        return returnValues;
-      }
+    int remaining = identifiers.length;
+    remaining = resolveValues(getPrivateDataStore().get(LongArrayList.wrap(identifiers, remaining)), specificationValues, identifiers, remaining, deserializer,
+        returnValues);
+    if (remaining == 0) {
+      return returnValues;
     }
-    rawValues = getSharedDataStore().get(identifierValues);
-    if (!rawValues.isEmpty()) {
-      final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
-      while (identifierIterator.hasNext()) {
-        final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-        final FudgeMsg data = rawValues.get(identifier.getValue());
-        if (data != null) {
-          final Object value = deserializeValue(deserializer, data);
-          cacheValueSize(identifier.getKey(), data, value);
-          returnValues.add(Pairs.of(identifier.getKey(), value));
-          identifierIterator.remove();
-        }
-      }
-      if (identifiers.isEmpty()) {
-        return returnValues;
-      }
+    remaining = resolveValues(getSharedDataStore().get(LongArrayList.wrap(identifiers, remaining)), specificationValues, identifiers, remaining, deserializer,
+        returnValues);
+    if (remaining == 0) {
+      return returnValues;
     }
     final MissingValueLoader loader = getMissingValueLoader();
     if (loader != null) {
-      rawValues = loader.findMissingValues(identifierValues);
-      if (!rawValues.isEmpty()) {
-        final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
-        while (identifierIterator.hasNext()) {
-          final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-          final FudgeMsg data = rawValues.get(identifier.getValue());
-          if (data != null) {
-            final Object value = deserializeValue(deserializer, data);
-            cacheValueSize(identifier.getKey(), data, value);
-            returnValues.add(Pairs.of(identifier.getKey(), value));
-            identifierIterator.remove();
-          }
-        }
-      }
+      resolveValues(loader.findMissingValues(LongArrayList.wrap(identifiers, remaining)), specificationValues, identifiers, remaining, deserializer,
+          returnValues);
     }
     return returnValues;
   }
 
   @Override
-  public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
+  public Collection<Pair<ValueSpecification, Object>> getValues(Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
     ArgumentChecker.notNull(specifications, "specifications");
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
-    final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
-    List<Long> privateIdentifiers = null;
-    List<Long> sharedIdentifiers = null;
+    specifications = distinct(specifications);
+    final long[] identifiers = getIdentifiers(specifications);
+    final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(identifiers.length);
+    LongList privateIdentifiers = null;
+    LongList sharedIdentifiers = null;
+    int i = 0;
     for (final ValueSpecification specification : specifications) {
       if (filter.isPrivateValue(specification)) {
         if (privateIdentifiers == null) {
-          privateIdentifiers = new ArrayList<Long>(specifications.size());
+          privateIdentifiers = new LongArrayList(identifiers.length);
         }
-        privateIdentifiers.add(identifiers.get(specification));
+        privateIdentifiers.add(identifiers[i++]);
       } else {
         if (sharedIdentifiers == null) {
-          sharedIdentifiers = new ArrayList<Long>(specifications.size());
+          sharedIdentifiers = new LongArrayList(identifiers.length);
         }
-        sharedIdentifiers.add(identifiers.get(specification));
+        sharedIdentifiers.add(identifiers[i++]);
       }
     }
-    final Map<Long, FudgeMsg> rawValues = new HashMap<Long, FudgeMsg>();
-    // TODO Can we overlay the fetch of shared and private data?
+    final Long2ObjectMap<FudgeMsg> rawValues = new Long2ObjectOpenHashMap<FudgeMsg>(identifiers.length);
+    Future<Map<Long, FudgeMsg>> sharedValues = null;
     if (sharedIdentifiers != null) {
-      if (sharedIdentifiers.size() == 1) {
-        final FudgeMsg data = getSharedDataStore().get(sharedIdentifiers.get(0));
-        rawValues.put(sharedIdentifiers.get(0), data);
+      if ((privateIdentifiers != null) && (getSharedDataStore() instanceof AsynchronousFudgeMessageStore)) {
+        // Overlap the fetch of shared data with the private one
+        sharedValues = ((AsynchronousFudgeMessageStore) getSharedDataStore()).getAsynchronously(sharedIdentifiers);
+      } else if (sharedIdentifiers.size() == 1) {
+        final long identifier = sharedIdentifiers.getLong(0);
+        rawValues.put(identifier, getSharedDataStore().get(identifier));
       } else {
         rawValues.putAll(getSharedDataStore().get(sharedIdentifiers));
       }
     }
     if (privateIdentifiers != null) {
-      if (privateIdentifiers.size() == 1) {
-        final FudgeMsg data = getPrivateDataStore().get(privateIdentifiers.get(0));
-        rawValues.put(privateIdentifiers.get(0), data);
-      } else {
-        rawValues.putAll(getPrivateDataStore().get(privateIdentifiers));
+      try {
+        if (privateIdentifiers.size() == 1) {
+          final long identifier = privateIdentifiers.getLong(0);
+          rawValues.put(identifier, getPrivateDataStore().get(identifier));
+        } else {
+          rawValues.putAll(getPrivateDataStore().get(privateIdentifiers));
+        }
+      } catch (RuntimeException e) {
+        if (sharedValues != null) {
+          // Nobody will wait for the shared fetch; don't leave its requests pending
+          sharedValues.cancel(true);
+        }
+        throw e;
       }
     }
+    if (sharedValues != null) {
+      rawValues.putAll(Futures.getUnchecked(sharedValues));
+    }
     final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
-    for (final Map.Entry<ValueSpecification, Long> identifier : identifiers.entrySet()) {
-      final FudgeMsg data = rawValues.get(identifier.getValue());
+    i = 0;
+    for (final ValueSpecification specification : specifications) {
+      final FudgeMsg data = rawValues.get(identifiers[i++]);
       if (data != null) {
         final Object value = deserializeValue(deserializer, data);
-        cacheValueSize(identifier.getKey(), data, value);
-        returnValues.add(Pairs.of(identifier.getKey(), value));
+        cacheValueSize(specification, data, value);
+        returnValues.add(Pairs.of(specification, value));
       } else {
-        returnValues.add(Pairs.of(identifier.getKey(), null));
+        returnValues.add(Pairs.of(specification, (Object) null));
       }
     }
     return returnValues;
@@ -342,14 +402,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     for (final ComputedValue value : values) {
       specifications.add(value.getSpecification());
     }
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
-    final Map<Long, FudgeMsg> data = new HashMap<Long, FudgeMsg>();
+    final long[] identifiers = getIdentifiers(specifications);
+    final Long2ObjectMap<FudgeMsg> data = new Long2ObjectOpenHashMap<FudgeMsg>(identifiers.length);
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+    int i = 0;
     for (final ComputedValue value : values) {
       final Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
       cacheValueSize(value.getSpecification(), valueData, obj);
-      data.put(identifiers.get(value.getSpecification()), valueData);
+      data.put(identifiers[i++], valueData);
     }
     dataStore.put(data);
   }
@@ -371,28 +432,41 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     for (final ComputedValue value : values) {
       specifications.add(value.getSpecification());
     }
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
+    final long[] identifiers = getIdentifiers(specifications);
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
-    Map<Long, FudgeMsg> privateData = null;
-    Map<Long, FudgeMsg> sharedData = null;
+    Long2ObjectMap<FudgeMsg> privateData = null;
+    Long2ObjectMap<FudgeMsg> sharedData = null;
+    int i = 0;
     for (final ComputedValue value : values) {
       final Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
       cacheValueSize(value.getSpecification(), valueData, value.getValue());
       if (filter.isPrivateValue(value.getSpecification())) {
         if (privateData == null) {
-          privateData = new HashMap<Long, FudgeMsg>();
+          privateData = new Long2ObjectOpenHashMap<FudgeMsg>();
         }
-        privateData.put(identifiers.get(value.getSpecification()), valueData);
+        privateData.put(identifiers[i++], valueData);
       } else {
         if (sharedData == null) {
-          sharedData = new HashMap<Long, FudgeMsg>();
+          sharedData = new Long2ObjectOpenHashMap<FudgeMsg>();
         }
-        sharedData.put(identifiers.get(value.getSpecification()), valueData);
+        sharedData.put(identifiers[i++], valueData);
       }
     }
-    // TODO 2010-08-31 Andrew -- can we overlay the shared and private puts ?
     if (sharedData != null) {
+      if ((privateData != null) && (getSharedDataStore() instanceof AsynchronousFudgeMessageStore)) {
+        // Overlap the shared put with the private one
+        final Future<?> sharedPut = ((AsynchronousFudgeMessageStore) getSharedDataStore()).putAsynchronously(sharedData);
+        try {
+          getPrivateDataStore().put(privateData);
+        } catch (RuntimeException e) {
+          // Nobody will wait for the shared put; don't leave its requests pending
+          sharedPut.cancel(true);
+          throw e;
+        }
+        Futures.getUnchecked(sharedPut);
+        return;
+      }
       getSharedDataStore().put(sharedData);
     }
     if (privateData != null) {
@@ -441,6 +515,40 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     return deserializer.fudgeMsgToObject(message);
   }
 
+  /**
+   * Copies values from the shared data store of another cache into the shared data store of this one. The encoded values are passed between the stores as
+   * they are, so are not decoded or re-encoded, and stores that hold the encoded form in memory will reference the same data as the source.
+   * <p>
+   * The caches must use the same identifier map for the values to be copied. This is normally the case for caches obtained from the same source.
+   *
+   * @param source the cache to copy values from, not null
+   * @param specifications the values to copy, not null
+   * @return the values that could not be copied because they were not in the source cache, or because the caches use different identifier maps, not null
+   */
+  public Collection<ValueSpecification> copySharedValues(final DefaultViewComputationCache source, final Collection<ValueSpecification> specifications) {
+    ArgumentChecker.notNull(source, "source");
+    ArgumentChecker.notNull(specifications, "specifications");
+    if ((source.getIdentifierMap() != getIdentifierMap()) || specifications.isEmpty()) {
+      return specifications;
+    }
+    final long[] identifiers = getIdentifiers(specifications);
+    final Map<Long, FudgeMsg> data = source.getSharedDataStore().get(LongArrayList.wrap(identifiers));
+    if (!data.isEmpty()) {
+      getSharedDataStore().put(data);
+    }
+    if (data.size() == identifiers.length) {
+      return Collections.emptyList();
+    }
+    final Collection<ValueSpecification> missing = new ArrayList<ValueSpecification>(identifiers.length - data.size());
+    int i = 0;
+    for (ValueSpecification specification : specifications) {
+      if (!data.containsKey(identifiers[i++])) {
+        missing.add(specification);
+      }
+    }
+    return missing;
+  }
+
   @Override
   public Integer estimateValueSize(final ComputedValue value) {
     if (value.getValue() == null) {
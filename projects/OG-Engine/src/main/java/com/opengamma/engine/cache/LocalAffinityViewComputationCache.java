@@ -0,0 +1,641 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * An implementation of {@link ViewComputationCache} that holds values as live objects for consumers in the same JVM rather than encoding them into the
+ * {@link FudgeMessageStore}s.
+ * <p>
+ * Values are only held once the consumers of the cycle are known - see {@link #setConsumers}. A value that will be read by later job items is held as the
+ * object itself until the last of those reads has been made, whether through this cache, its shared data store or a calculation node's write-behind buffer -
+ * see {@link #valuesConsumed}. Terminal outputs are held for the life of the cache so that the view process can build its results from them directly.
+ * Anything else is encoded as normal.
+ * <p>
+ * A released value is encoded into the store it would otherwise have been written to, so that delta cycles and cache queries can still find it, unless
+ * released values are being discarded. A value that is held live is also encoded on demand if it is requested from the shared data store, which is how
+ * {@link FudgeMessageStoreServer} serves remote calculation nodes.
+ * <p>
+ * Every consumer of a live value is given the same object rather than its own decoded copy. Functions must therefore treat their inputs as immutable, as they
+ * already must for values read from a calculation node's write-behind buffer; a function that modifies an input would change the value seen by the other
+ * consumers and by the view results.
+ */
+public class LocalAffinityViewComputationCache extends DefaultViewComputationCache {
+
+  /**
+   * A value held as a live object.
+   */
+  private static final class LiveValue {
+
+    private final Object _value;
+    private final boolean _private;
+    /**
+     * Set once the last consumer has read the value. Guarded by the {@link LiveValues} instance.
+     */
+    private boolean _released;
+    /**
+     * Set when the value has been encoded into the shared data store on demand. Guarded by the value itself.
+     */
+    private boolean _encoded;
+    /**
+     * Set when a caller has taken responsibility for encoding, or discarding, the released value. Guarded by the value itself.
+     */
+    private boolean _releaseClaimed;
+
+    public LiveValue(final Object value, final boolean isPrivate) {
+      _value = value;
+      _private = isPrivate;
+    }
+
+  }
+
+  /**
+   * The live values and the outstanding consumers of each, shared between the cache and its shared data store.
+   */
+  private static final class LiveValues {
+
+    private final Long2ObjectMap<LiveValue> _values = new Long2ObjectOpenHashMap<LiveValue>();
+    private final Long2IntMap _consumers = new Long2IntOpenHashMap();
+    private final LongSet _pinned = new LongOpenHashSet();
+    private final LongSet _storedPrivate = new LongOpenHashSet();
+    private final LongSet _storedShared = new LongOpenHashSet();
+    private final AtomicLong _encodesAvoided = new AtomicLong();
+    private final AtomicLong _decodesAvoided = new AtomicLong();
+    private final AtomicLong _deferredEncodes = new AtomicLong();
+
+    public synchronized void setConsumers(final long identifier, final int consumers) {
+      if (consumers > 0) {
+        _consumers.put(identifier, consumers);
+      } else {
+        _consumers.remove(identifier);
+      }
+    }
+
+    public synchronized void pin(final long identifier) {
+      _pinned.add(identifier);
+    }
+
+    public synchronized boolean hold(final long identifier, final Object value, final boolean isPrivate) {
+      if ((_consumers.get(identifier) > 0) || _pinned.contains(identifier)) {
+        _values.put(identifier, new LiveValue(value, isPrivate));
+        _encodesAvoided.incrementAndGet();
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    /**
+     * Records a read of a value by one of its consumers. The read is counted even if the value is not held, as it may have been satisfied before the value
+     * was put into the cache, for example from a write-behind buffer, in which case the value is not held when it is put unless other consumers remain.
+     *
+     * @param identifier the value identifier
+     * @param live true if the value is being read as a live object, false if it is being read in its encoded form
+     * @return the live value, or null if it is not held
+     */
+    public synchronized LiveValue consume(final long identifier, final boolean live) {
+      final LiveValue value = _values.get(identifier);
+      if ((value != null) && live) {
+        _decodesAvoided.incrementAndGet();
+      }
+      if (((value == null) || !value._released) && !_pinned.contains(identifier)) {
+        final int consumers = _consumers.get(identifier);
+        if (consumers > 1) {
+          _consumers.put(identifier, consumers - 1);
+        } else if (consumers == 1) {
+          _consumers.remove(identifier);
+          if (value != null) {
+            value._released = true;
+          }
+        }
+      }
+      return value;
+    }
+
+    public synchronized void stored(final long identifier, final boolean isPrivate) {
+      if (isPrivate) {
+        _storedPrivate.add(identifier);
+      } else {
+        _storedShared.add(identifier);
+      }
+    }
+
+    public synchronized long[] getStoredPrivate() {
+      return _storedPrivate.toLongArray();
+    }
+
+    public synchronized long[] getStoredShared() {
+      return _storedShared.toLongArray();
+    }
+
+    public synchronized Long2ObjectMap<LiveValue> getValues() {
+      return new Long2ObjectOpenHashMap<LiveValue>(_values);
+    }
+
+    public synchronized void remove(final long identifier) {
+      _values.remove(identifier);
+    }
+
+    public synchronized int size() {
+      return _values.size();
+    }
+
+    public synchronized void clear() {
+      _values.clear();
+      _consumers.clear();
+      _pinned.clear();
+      _storedPrivate.clear();
+      _storedShared.clear();
+    }
+
+  }
+
+  /**
+   * The shared data store, encoding live values on demand for any reader that goes to it directly.
+   */
+  private static final class LiveValueMessageStore implements FudgeMessageStore {
+
+    private final FudgeMessageStore _underlying;
+    private final boolean _deleteUnderlying;
+    private final LiveValues _live;
+    private final FudgeContext _fudgeContext;
+
+    public LiveValueMessageStore(final FudgeMessageStore underlying, final boolean deleteUnderlying, final LiveValues live, final FudgeContext fudgeContext) {
+      ArgumentChecker.notNull(underlying, "Shared data store");
+      _underlying = underlying;
+      _deleteUnderlying = deleteUnderlying;
+      _live = live;
+      _fudgeContext = fudgeContext;
+    }
+
+    /**
+     * Encodes a live value for a reader of the shared data store, counting the read against the value's consumers. Private values are only read by the
+     * calculation node that produced them so are never served from here.
+     */
+    private FudgeMsg encode(final long identifier, final FudgeSerializer serializer) {
+      final LiveValue value = _live.consume(identifier, false);
+      if ((value == null) || value._private) {
+        return null;
+      }
+      FudgeMsg data;
+      synchronized (value) {
+        if (value._releaseClaimed) {
+          // Being released by another thread which will encode it; it may not be in the store yet
+          data = _underlying.get(identifier);
+          if (data == null) {
+            data = serializeValue(serializer, value._value);
+          }
+        } else {
+          data = serializeValue(serializer, value._value);
+          _live._deferredEncodes.incrementAndGet();
+          // Keep the encoded form so that repeated remote requests, and the release of the value, don't encode it again
+          _underlying.put(identifier, data);
+          _live.stored(identifier, false);
+          value._encoded = true;
+        }
+      }
+      if (value._released) {
+        // This was the last consumer and the encoded form is already in the store
+        _live.remove(identifier);
+      }
+      return data;
+    }
+
+    @Override
+    public FudgeMsg get(final long identifier) {
+      final FudgeMsg data = _underlying.get(identifier);
+      if (data != null) {
+        return data;
+      }
+      return encode(identifier, new FudgeSerializer(_fudgeContext));
+    }
+
+    @Override
+    public Map<Long, FudgeMsg> get(final Collection<Long> identifiers) {
+      Map<Long, FudgeMsg> result = _underlying.get(identifiers);
+      if (result.size() == identifiers.size()) {
+        return result;
+      }
+      result = new HashMap<Long, FudgeMsg>(result);
+      final FudgeSerializer serializer = new FudgeSerializer(_fudgeContext);
+      for (Long identifier : identifiers) {
+        if (!result.containsKey(identifier)) {
+          final FudgeMsg data = encode(identifier, serializer);
+          if (data != null) {
+            result.put(identifier, data);
+          }
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public void put(final long identifier, final FudgeMsg data) {
+      _underlying.put(identifier, data);
+    }
+
+    @Override
+    public void put(final Map<Long, FudgeMsg> data) {
+      _underlying.put(data);
+    }
+
+    @Override
+    public void delete() {
+      if (_deleteUnderlying) {
+        _underlying.delete();
+      }
+    }
+
+  }
+
+  private final LiveValues _live;
+  private boolean _discardReleasedValues;
+
+  public LocalAffinityViewComputationCache(final IdentifierMap identifierMap, final FudgeMessageStore privateDataStore,
+      final FudgeMessageStore sharedDataStore, final FudgeContext fudgeContext) {
+    this(identifierMap, privateDataStore, sharedDataStore, fudgeContext, new LiveValues());
+  }
+
+  private LocalAffinityViewComputationCache(final IdentifierMap identifierMap, final FudgeMessageStore privateDataStore,
+      final FudgeMessageStore sharedDataStore, final FudgeContext fudgeContext, final LiveValues live) {
+    super(identifierMap, privateDataStore, new LiveValueMessageStore(sharedDataStore, sharedDataStore != privateDataStore, live, fudgeContext), fudgeContext);
+    _live = live;
+  }
+
+  /**
+   * Sets whether values are discarded, instead of encoded, when their last consumer has read them. Discarding them avoids the encoding entirely but means
+   * they will not be available to a delta cycle or to queries made against the cache after execution.
+   *
+   * @param discardReleasedValues true to discard released values, false to encode them
+   */
+  public void setDiscardReleasedValues(final boolean discardReleasedValues) {
+    _discardReleasedValues = discardReleasedValues;
+  }
+
+  public boolean isDiscardReleasedValues() {
+    return _discardReleasedValues;
+  }
+
+  /**
+   * Registers the consumers of values that will be put into the cache. This must be called before the values are put, typically with the counts from the
+   * execution plan of the cycle - see {@link com.opengamma.engine.exec.plan.GraphExecutionPlan#getInputConsumerCounts}.
+   *
+   * @param consumers the number of job items that will read each value, not null
+   * @param terminalOutputs the values to hold until the cache is deleted, not null
+   */
+  public void setConsumers(final Object2IntMap<ValueSpecification> consumers, final Collection<ValueSpecification> terminalOutputs) {
+    ArgumentChecker.notNull(consumers, "consumers");
+    ArgumentChecker.notNull(terminalOutputs, "terminalOutputs");
+    final long[] identifiers = getIdentifiers(consumers.keySet());
+    int i = 0;
+    for (ValueSpecification specification : consumers.keySet()) {
+      _live.setConsumers(identifiers[i++], consumers.getInt(specification));
+    }
+    if (!terminalOutputs.isEmpty()) {
+      final long[] terminalIdentifiers = getIdentifiers(terminalOutputs);
+      for (long identifier : terminalIdentifiers) {
+        _live.pin(identifier);
+      }
+    }
+  }
+
+  /**
+   * Records reads of values that were satisfied without going to this cache, for example from a calculation node's write-behind buffer, so that live values
+   * are released after their last consumer rather than held until the cache is deleted.
+   *
+   * @param specifications the values that have been read, not null
+   */
+  public void valuesConsumed(final Collection<ValueSpecification> specifications) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    final long[] identifiers = getIdentifiers(specifications);
+    long[] releasedIdentifiers = null;
+    LiveValue[] releasedValues = null;
+    int released = 0;
+    for (long identifier : identifiers) {
+      final LiveValue value = _live.consume(identifier, false);
+      if ((value != null) && value._released) {
+        if (releasedIdentifiers == null) {
+          releasedIdentifiers = new long[identifiers.length];
+          releasedValues = new LiveValue[identifiers.length];
+        }
+        releasedIdentifiers[released] = identifier;
+        releasedValues[released++] = value;
+      }
+    }
+    if (released > 0) {
+      release(releasedIdentifiers, releasedValues, released);
+    }
+  }
+
+  /**
+   * Returns the number of values that have been held live instead of being encoded when they were put into the cache.
+   *
+   * @return the number of encode operations avoided
+   */
+  public long getEncodesAvoided() {
+    return _live._encodesAvoided.get();
+  }
+
+  /**
+   * Returns the number of values that have been read as live objects instead of being decoded from a message store.
+   *
+   * @return the number of decode operations avoided
+   */
+  public long getDecodesAvoided() {
+    return _live._decodesAvoided.get();
+  }
+
+  /**
+   * Returns the number of live values that have had to be encoded, either because they were released or because they were requested from the shared data
+   * store directly.
+   *
+   * @return the number of deferred encode operations performed
+   */
+  public long getDeferredEncodes() {
+    return _live._deferredEncodes.get();
+  }
+
+  /**
+   * Returns the number of values currently held as live objects.
+   *
+   * @return the number of live values
+   */
+  public int getLiveValueCount() {
+    return _live.size();
+  }
+
+  /**
+   * Encodes, unless they are being discarded, and then drops values that have been released by their last consumer.
+   *
+   * @param identifiers the identifiers of the released values, not null
+   * @param values the released values, not null
+   * @param count the number of released values
+   */
+  private void release(final long[] identifiers, final LiveValue[] values, final int count) {
+    final boolean discard = isDiscardReleasedValues();
+    FudgeSerializer serializer = null;
+    Long2ObjectMap<FudgeMsg> privateData = null;
+    Long2ObjectMap<FudgeMsg> sharedData = null;
+    int encoded = 0;
+    int claimed = 0;
+    for (int i = 0; i < count; i++) {
+      final LiveValue value = values[i];
+      synchronized (value) {
+        if (value._releaseClaimed) {
+          // Already being released by another reader
+          continue;
+        }
+        value._releaseClaimed = true;
+        identifiers[claimed] = identifiers[i];
+        values[claimed++] = value;
+        if (discard || value._encoded) {
+          continue;
+        }
+      }
+      if (serializer == null) {
+        serializer = new FudgeSerializer(getFudgeContext());
+      }
+      final FudgeMsg data = serializeValue(serializer, value._value);
+      encoded++;
+      if (value._private) {
+        if (privateData == null) {
+          privateData = new Long2ObjectOpenHashMap<FudgeMsg>();
+        }
+        privateData.put(identifiers[i], data);
+      } else {
+        if (sharedData == null) {
+          sharedData = new Long2ObjectOpenHashMap<FudgeMsg>();
+        }
+        sharedData.put(identifiers[i], data);
+      }
+    }
+    if (encoded > 0) {
+      _live._deferredEncodes.addAndGet(encoded);
+      if (privateData != null) {
+        getPrivateDataStore().put(privateData);
+        for (long identifier : privateData.keySet()) {
+          _live.stored(identifier, true);
+        }
+      }
+      if (sharedData != null) {
+        getSharedDataStore().put(sharedData);
+        for (long identifier : sharedData.keySet()) {
+          _live.stored(identifier, false);
+        }
+      }
+    }
+    // The encoded form, if any, is now in the store so it is safe for readers to miss the live value
+    for (int i = 0; i < claimed; i++) {
+      _live.remove(identifiers[i]);
+    }
+  }
+
+  @Override
+  public Object getValue(final ValueSpecification specification) {
+    return getValue(specification, null);
+  }
+
+  @Override
+  public Object getValue(final ValueSpecification specification, final CacheSelectHint filter) {
+    ArgumentChecker.notNull(specification, "Specification");
+    final long identifier = getIdentifierMap().getIdentifier(specification);
+    final LiveValue value = _live.consume(identifier, true);
+    if (value != null) {
+      if (value._released) {
+        release(new long[] {identifier }, new LiveValue[] {value }, 1);
+      }
+      return value._value;
+    }
+    if (filter == null) {
+      return super.getValue(specification);
+    } else {
+      return super.getValue(specification, filter);
+    }
+  }
+
+  @Override
+  public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications) {
+    return getValues(specifications, null);
+  }
+
+  @Override
+  public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    final long[] identifiers = getIdentifiers(specifications);
+    final Collection<Pair<ValueSpecification, Object>> result = new ArrayList<Pair<ValueSpecification, Object>>(identifiers.length);
+    Collection<ValueSpecification> missing = null;
+    long[] releasedIdentifiers = null;
+    LiveValue[] releasedValues = null;
+    int released = 0;
+    int i = 0;
+    for (ValueSpecification specification : specifications) {
+      final long identifier = identifiers[i++];
+      final LiveValue value = _live.consume(identifier, true);
+      if (value != null) {
+        result.add(Pairs.of(specification, value._value));
+        if (value._released) {
+          if (releasedIdentifiers == null) {
+            releasedIdentifiers = new long[identifiers.length];
+            releasedValues = new LiveValue[identifiers.length];
+          }
+          releasedIdentifiers[released] = identifier;
+          releasedValues[released++] = value;
+        }
+      } else {
+        if (missing == null) {
+          missing = new ArrayList<ValueSpecification>(identifiers.length - result.size());
+        }
+        missing.add(specification);
+      }
+    }
+    if (missing != null) {
+      if (filter == null) {
+        result.addAll(super.getValues(missing));
+      } else {
+        result.addAll(super.getValues(missing, filter));
+      }
+    }
+    if (released > 0) {
+      release(releasedIdentifiers, releasedValues, released);
+    }
+    return result;
+  }
+
+  @Override
+  protected void putValue(final ComputedValue value, final FudgeMessageStore dataStore) {
+    ArgumentChecker.notNull(value, "value");
+    final long identifier = getIdentifierMap().getIdentifier(value.getSpecification());
+    final boolean isPrivate = (dataStore == getPrivateDataStore());
+    if (!_live.hold(identifier, value.getValue(), isPrivate)) {
+      super.putValue(value, dataStore);
+      _live.stored(identifier, isPrivate);
+    }
+  }
+
+  @Override
+  protected void putValues(final Collection<? extends ComputedValue> values, final FudgeMessageStore dataStore) {
+    ArgumentChecker.notNull(values, "values");
+    final boolean isPrivate = (dataStore == getPrivateDataStore());
+    final long[] identifiers = getIdentifiers(getSpecifications(values));
+    Collection<ComputedValue> encode = null;
+    int i = 0;
+    for (ComputedValue value : values) {
+      final long identifier = identifiers[i++];
+      if (!_live.hold(identifier, value.getValue(), isPrivate)) {
+        if (encode == null) {
+          encode = new ArrayList<ComputedValue>(values.size());
+        }
+        encode.add(value);
+        _live.stored(identifier, isPrivate);
+      }
+    }
+    if (encode != null) {
+      super.putValues(encode, dataStore);
+    }
+  }
+
+  @Override
+  public void putValues(final Collection<? extends ComputedValue> values, final CacheSelectHint filter) {
+    ArgumentChecker.notNull(values, "values");
+    final long[] identifiers = getIdentifiers(getSpecifications(values));
+    Collection<ComputedValue> encode = null;
+    int i = 0;
+    for (ComputedValue value : values) {
+      final long identifier = identifiers[i++];
+      final boolean isPrivate = filter.isPrivateValue(value.getSpecification());
+      if (!_live.hold(identifier, value.getValue(), isPrivate)) {
+        if (encode == null) {
+          encode = new ArrayList<ComputedValue>(values.size());
+        }
+        encode.add(value);
+        _live.stored(identifier, isPrivate);
+      }
+    }
+    if (encode != null) {
+      super.putValues(encode, filter);
+    }
+  }
+
+  private static Collection<ValueSpecification> getSpecifications(final Collection<? extends ComputedValue> values) {
+    final Collection<ValueSpecification> specifications = new ArrayList<ValueSpecification>(values.size());
+    for (ComputedValue value : values) {
+      specifications.add(value.getSpecification());
+    }
+    return specifications;
+  }
+
+  /**
+   * Iterates over the values in the cache in their encoded form. Values held live are encoded for the iteration without being released. This is a snapshot
+   * taken when the method is called, so is what {@link DefaultViewComputationCacheSource#cloneCache} uses to copy the cache.
+   *
+   * @return the values, not null
+   */
+  @Override
+  public Iterator<Pair<ValueSpecification, FudgeMsg>> iterator() {
+    final Long2ObjectMap<LiveValue> live = _live.getValues();
+    final LongArrayList identifiers = new LongArrayList(live.keySet());
+    final Map<Long, FudgeMsg> storedPrivate = getPrivateDataStore().get(LongArrayList.wrap(_live.getStoredPrivate()));
+    final Map<Long, FudgeMsg> storedShared = getSharedDataStore().get(LongArrayList.wrap(_live.getStoredShared()));
+    for (Long identifier : storedPrivate.keySet()) {
+      if (!live.containsKey(identifier.longValue())) {
+        identifiers.add(identifier.longValue());
+      }
+    }
+    for (Long identifier : storedShared.keySet()) {
+      if (!live.containsKey(identifier.longValue()) && !storedPrivate.containsKey(identifier)) {
+        identifiers.add(identifier.longValue());
+      }
+    }
+    final Long2ObjectMap<ValueSpecification> specifications = getIdentifierMap().getValueSpecifications(identifiers);
+    final List<Pair<ValueSpecification, FudgeMsg>> values = new ArrayList<Pair<ValueSpecification, FudgeMsg>>(identifiers.size());
+    final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+    for (Long2ObjectMap.Entry<LiveValue> value : live.long2ObjectEntrySet()) {
+      values.add(Pairs.of(specifications.get(value.getLongKey()), serializeValue(serializer, value.getValue()._value)));
+    }
+    for (int i = live.size(); i < identifiers.size(); i++) {
+      final long identifier = identifiers.getLong(i);
+      FudgeMsg data = storedPrivate.get(identifier);
+      if (data == null) {
+        data = storedShared.get(identifier);
+      }
+      values.add(Pairs.of(specifications.get(identifier), data));
+    }
+    return values.iterator();
+  }
+
+  @Override
+  public void delete() {
+    _live.clear();
+    super.delete();
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.id.UniqueId;
+
+/**
+ * A {@link ViewComputationCacheSource} that creates {@link LocalAffinityViewComputationCache} instances so that calculation nodes in the same JVM as the view
+ * process can exchange values without encoding and decoding them. The same instance must be used by the view processor and the local calculation nodes.
+ * <p>
+ * The number of encode and decode operations avoided is logged, and recorded for the most recent cycle, when the caches for a cycle are released.
+ */
+public class LocalAffinityViewComputationCacheSource extends DefaultViewComputationCacheSource implements LocalAffinityViewComputationCacheSourceMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(LocalAffinityViewComputationCacheSource.class);
+
+  private final ConcurrentMap<ViewComputationCacheKey, LocalAffinityViewComputationCache> _caches = new ConcurrentHashMap<ViewComputationCacheKey, LocalAffinityViewComputationCache>();
+  private final AtomicLong _totalEncodesAvoided = new AtomicLong();
+  private final AtomicLong _totalDecodesAvoided = new AtomicLong();
+  private final AtomicLong _totalDeferredEncodes = new AtomicLong();
+  private volatile long _lastCycleEncodesAvoided;
+  private volatile long _lastCycleDecodesAvoided;
+  private volatile long _lastCycleDeferredEncodes;
+  private volatile boolean _discardReleasedValues;
+
+  public LocalAffinityViewComputationCacheSource(final IdentifierMap identifierMap, final FudgeContext fudgeContext,
+      final FudgeMessageStoreFactory privateDataStoreFactory, final FudgeMessageStoreFactory sharedDataStoreFactory) {
+    super(identifierMap, fudgeContext, privateDataStoreFactory, sharedDataStoreFactory);
+  }
+
+  @Override
+  public LocalAffinityViewComputationCache getCache(final UniqueId viewCycleId, final String calculationConfigurationName) {
+    return getCache(new ViewComputationCacheKey(viewCycleId, calculationConfigurationName));
+  }
+
+  @Override
+  public LocalAffinityViewComputationCache getCache(final ViewComputationCacheKey key) {
+    return (LocalAffinityViewComputationCache) super.getCache(key);
+  }
+
+  @Override
+  protected DefaultViewComputationCache constructCache(final ViewComputationCacheKey key) {
+    final DefaultViewComputationCache cache = super.constructCache(key);
+    _caches.putIfAbsent(key, (LocalAffinityViewComputationCache) cache);
+    return cache;
+  }
+
+  @Override
+  protected DefaultViewComputationCache createViewComputationCache(final IdentifierMap identifierMap, final FudgeMessageStore privateDataStore,
+      final FudgeMessageStore sharedDataStore, final FudgeContext fudgeContext) {
+    final LocalAffinityViewComputationCache cache = new LocalAffinityViewComputationCache(identifierMap, privateDataStore, sharedDataStore, fudgeContext);
+    cache.setDiscardReleasedValues(isDiscardReleasedValues());
+    return cache;
+  }
+
+  @Override
+  public void releaseCaches(final UniqueId viewCycleId) {
+    long encodesAvoided = 0;
+    long decodesAvoided = 0;
+    long deferredEncodes = 0;
+    boolean found = false;
+    final Iterator<Map.Entry<ViewComputationCacheKey, LocalAffinityViewComputationCache>> itr = _caches.entrySet().iterator();
+    while (itr.hasNext()) {
+      final Map.Entry<ViewComputationCacheKey, LocalAffinityViewComputationCache> entry = itr.next();
+      if (viewCycleId.equals(entry.getKey().getViewCycleId())) {
+        final LocalAffinityViewComputationCache cache = entry.getValue();
+        encodesAvoided += cache.getEncodesAvoided();
+        decodesAvoided += cache.getDecodesAvoided();
+        deferredEncodes += cache.getDeferredEncodes();
+        found = true;
+        itr.remove();
+      }
+    }
+    super.releaseCaches(viewCycleId);
+    if (found) {
+      s_logger.info("Cycle {} avoided {} encode(s) and {} decode(s) with {} deferred encode(s)", new Object[] {viewCycleId, encodesAvoided, decodesAvoided,
+          deferredEncodes });
+      _lastCycleEncodesAvoided = encodesAvoided;
+      _lastCycleDecodesAvoided = decodesAvoided;
+      _lastCycleDeferredEncodes = deferredEncodes;
+      _totalEncodesAvoided.addAndGet(encodesAvoided);
+      _totalDecodesAvoided.addAndGet(decodesAvoided);
+      _totalDeferredEncodes.addAndGet(deferredEncodes);
+    }
+  }
+
+  // LocalAffinityViewComputationCacheSourceMBean
+
+  @Override
+  public long getLastCycleEncodesAvoided() {
+    return _lastCycleEncodesAvoided;
+  }
+
+  @Override
+  public long getLastCycleDecodesAvoided() {
+    return _lastCycleDecodesAvoided;
+  }
+
+  @Override
+  public long getLastCycleDeferredEncodes() {
+    return _lastCycleDeferredEncodes;
+  }
+
+  @Override
+  public long getTotalEncodesAvoided() {
+    return _totalEncodesAvoided.get();
+  }
+
+  @Override
+  public long getTotalDecodesAvoided() {
+    return _totalDecodesAvoided.get();
+  }
+
+  @Override
+  public long getTotalDeferredEncodes() {
+    return _totalDeferredEncodes.get();
+  }
+
+  @Override
+  public boolean isDiscardReleasedValues() {
+    return _discardReleasedValues;
+  }
+
+  /**
+   * Sets whether caches created from now on discard values after their last consumer has read them. See
+   * {@link LocalAffinityViewComputationCache#setDiscardReleasedValues}.
+   *
+   * @param discardReleasedValues true to discard released values, false to encode them
+   */
+  @Override
+  public void setDiscardReleasedValues(final boolean discardReleasedValues) {
+    _discardReleasedValues = discardReleasedValues;
+  }
+
+}
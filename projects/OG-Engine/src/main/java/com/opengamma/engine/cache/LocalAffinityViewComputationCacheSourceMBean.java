@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+/**
+ * JMX MBean interface for the serialization avoided by a {@link LocalAffinityViewComputationCacheSource}.
+ */
+public interface LocalAffinityViewComputationCacheSourceMBean {
+
+  long getLastCycleEncodesAvoided();
+
+  long getLastCycleDecodesAvoided();
+
+  long getLastCycleDeferredEncodes();
+
+  long getTotalEncodesAvoided();
+
+  long getTotalDecodesAvoided();
+
+  long getTotalDeferredEncodes();
+
+  boolean isDiscardReleasedValues();
+
+  void setDiscardReleasedValues(boolean discardReleasedValues);
+
+}
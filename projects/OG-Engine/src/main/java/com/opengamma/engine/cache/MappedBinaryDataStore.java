@@ -0,0 +1,423 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} that holds the data outside of the Java heap in memory-mapped segments.
+ * <p>
+ * Values are appended to the current segment, prefixed by their length, and a new segment is mapped when the current one is full. The identifiers are indexed
+ * to the segment and offset of their data in a primitive map so that there is no per-entry object overhead on the heap other than the arrays returned to the
+ * caller. Replacing a value does not reclaim the space used by the previous one; the segments are only released as a whole by {@link #delete}, which suits
+ * the write-once nature of a cycle's computation cache. {@link #delete} unmaps (or frees) the segments immediately rather than leaving them for the garbage
+ * collector, and removes their backing files.
+ * <p>
+ * If no directory is given the segments are allocated as direct buffers instead of being mapped from temporary files.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class MappedBinaryDataStore extends AbstractBinaryDataStore implements MappedBinaryDataStoreMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedBinaryDataStore.class);
+
+  /**
+   * The default size of each segment.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private static final int HEADER_SIZE = 4;
+
+  /**
+   * The {@code sun.misc.Unsafe} instance, if it can release a buffer (Java 9 and later), null otherwise.
+   */
+  private static final Object s_unsafe;
+  /**
+   * {@code sun.misc.Unsafe.invokeCleaner}, if available, null otherwise.
+   */
+  private static final Method s_invokeCleaner;
+  /**
+   * {@code sun.nio.ch.DirectBuffer.cleaner}, if available (Java 8 and earlier), null otherwise.
+   */
+  private static final Method s_cleaner;
+  /**
+   * {@code sun.misc.Cleaner.clean}, if available (Java 8 and earlier), null otherwise.
+   */
+  private static final Method s_clean;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    Method cleaner = null;
+    Method clean = null;
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+    } catch (Exception e) {
+      invokeCleaner = null;
+      try {
+        cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      } catch (Exception e2) {
+        s_logger.info("Can't release mapped segments explicitly; they will be released when garbage collected - {}", e2.getMessage());
+        cleaner = null;
+        clean = null;
+      }
+    }
+    s_unsafe = unsafe;
+    s_invokeCleaner = invokeCleaner;
+    s_cleaner = cleaner;
+    s_clean = clean;
+  }
+
+  /**
+   * A mapped, or allocated, segment.
+   */
+  private static final class Segment {
+
+    private final ByteBuffer _buffer;
+    private final File _file;
+
+    private Segment(final ByteBuffer buffer, final File file) {
+      _buffer = buffer;
+      _file = file;
+    }
+
+  }
+
+  private final File _directory;
+  private final int _segmentSize;
+  private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+  private final Long2LongMap _index = new Long2LongOpenHashMap();
+  private final List<Segment> _segments = new ArrayList<Segment>();
+  private ByteBuffer _current;
+  private int _currentIndex;
+  private int _currentOffset;
+  private long _allocatedBytes;
+  private long _usedBytes;
+
+  /**
+   * Creates a new store.
+   *
+   * @param directory the directory to create the mapped segment files in, null to use direct buffers
+   * @param segmentSize the size of each segment in bytes
+   */
+  public MappedBinaryDataStore(final File directory, final int segmentSize) {
+    ArgumentChecker.isTrue(segmentSize > HEADER_SIZE, "segmentSize");
+    _directory = directory;
+    _segmentSize = segmentSize;
+    _index.defaultReturnValue(-1L);
+  }
+
+  protected File getDirectory() {
+    return _directory;
+  }
+
+  protected int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  private static long location(final int segment, final int offset) {
+    return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static int segment(final long location) {
+    return (int) (location >>> 32);
+  }
+
+  private static int offset(final long location) {
+    return (int) location;
+  }
+
+  /**
+   * Maps, or allocates, a new segment. The backing file, if any, is closed once it is mapped; the mapping remains valid until it is released so no file
+   * handle is held for the life of the segment.
+   *
+   * @param size the size of the segment in bytes
+   * @return the new segment, not null
+   */
+  private Segment allocateSegment(final int size) {
+    if (getDirectory() == null) {
+      return new Segment(ByteBuffer.allocateDirect(size), null);
+    }
+    File file = null;
+    try {
+      file = File.createTempFile("cache", ".seg", getDirectory());
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(size);
+        return new Segment(raf.getChannel().map(MapMode.READ_WRITE, 0, size), file);
+      }
+    } catch (IOException e) {
+      deleteFile(file);
+      throw new OpenGammaRuntimeException("Couldn't map cache segment in " + getDirectory(), e);
+    }
+  }
+
+  /**
+   * Releases a segment, unmapping or freeing its buffer and deleting the backing file. The segment must not be used afterwards.
+   *
+   * @param segment the segment to release, not null
+   */
+  private static void releaseSegment(final Segment segment) {
+    releaseBuffer(segment._buffer);
+    deleteFile(segment._file);
+  }
+
+  /**
+   * Unmaps, or frees, a direct buffer now rather than when it is garbage collected. If the platform doesn't allow this the buffer is left for the garbage
+   * collector.
+   *
+   * @param buffer the buffer, not null
+   */
+  private static void releaseBuffer(final ByteBuffer buffer) {
+    if (!buffer.isDirect()) {
+      return;
+    }
+    try {
+      if (s_invokeCleaner != null) {
+        s_invokeCleaner.invoke(s_unsafe, buffer);
+      } else if (s_cleaner != null) {
+        final Object cleaner = s_cleaner.invoke(buffer);
+        if (cleaner != null) {
+          s_clean.invoke(cleaner);
+        }
+      }
+    } catch (Exception e) {
+      s_logger.debug("Couldn't release segment - leaving it to the garbage collector", e);
+    }
+  }
+
+  private static void deleteFile(final File file) {
+    if ((file != null) && !file.delete()) {
+      s_logger.debug("Couldn't delete mapped segment {} - deleting on exit", file);
+      file.deleteOnExit();
+    }
+  }
+
+  /**
+   * Reserves space for a value, mapping a new segment if necessary. The caller must hold the write lock.
+   *
+   * @param length the length of the value in bytes
+   * @return the location of the reserved space
+   */
+  private long reserve(final int length) {
+    final int required = length + HEADER_SIZE;
+    if ((_current == null) || (_current.capacity() - _currentOffset < required)) {
+      final Segment segment = allocateSegment(Math.max(required, getSegmentSize()));
+      _allocatedBytes += segment._buffer.capacity();
+      _segments.add(segment);
+      _usedBytes += required;
+      if ((_current != null) && (required > getSegmentSize())) {
+        // An over-sized value gets a segment of its own; keep appending to the current one
+        return location(_segments.size() - 1, 0);
+      }
+      _current = segment._buffer;
+      _currentIndex = _segments.size() - 1;
+      _currentOffset = required;
+      return location(_currentIndex, 0);
+    }
+    final int offset = _currentOffset;
+    _currentOffset += required;
+    _usedBytes += required;
+    return location(_currentIndex, offset);
+  }
+
+  /**
+   * Writes a value into the store. The caller must hold the write lock; readers never use the position of the segment buffers directly so it is safe to
+   * write through them without taking a view.
+   *
+   * @param identifier the identifier of the value
+   * @param data the data to write
+   */
+  private void write(final long identifier, final byte[] data) {
+    final long location = reserve(data.length);
+    final ByteBuffer buffer = _segments.get(segment(location))._buffer;
+    buffer.position(offset(location));
+    buffer.putInt(data.length);
+    buffer.put(data);
+    _index.put(identifier, location);
+  }
+
+  /**
+   * Reads a value from the store. The caller must hold the read lock.
+   *
+   * @param identifier the identifier of the value
+   * @param views the views onto the segments for this reader, populated on demand, or null to take a fresh view
+   * @return the data, or null if there is none
+   */
+  private byte[] read(final long identifier, final ByteBuffer[] views) {
+    final long location = _index.get(identifier);
+    if (location < 0) {
+      return null;
+    }
+    final int segment = segment(location);
+    ByteBuffer buffer;
+    if (views == null) {
+      buffer = _segments.get(segment)._buffer.duplicate();
+    } else {
+      buffer = views[segment];
+      if (buffer == null) {
+        buffer = _segments.get(segment)._buffer.duplicate();
+        views[segment] = buffer;
+      }
+    }
+    buffer.position(offset(location));
+    final byte[] data = new byte[buffer.getInt()];
+    buffer.get(data);
+    return data;
+  }
+
+  // BinaryDataStore
+
+  @Override
+  public void delete() {
+    final Lock lock = _lock.writeLock();
+    lock.lock();
+    try {
+      // No reader can hold a view onto a segment once we have the write lock, so it is safe to release them
+      _index.clear();
+      for (Segment segment : _segments) {
+        releaseSegment(segment);
+      }
+      _segments.clear();
+      _current = null;
+      _currentIndex = 0;
+      _currentOffset = 0;
+      _allocatedBytes = 0;
+      _usedBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return read(identifier, null);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      final ByteBuffer[] views = new ByteBuffer[_segments.size()];
+      for (Long identifier : identifiers) {
+        final byte[] data = read(identifier, views);
+        if (data != null) {
+          result.put(identifier, data);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    ArgumentChecker.notNull(data, "data");
+    final Lock lock = _lock.writeLock();
+    lock.lock();
+    try {
+      write(identifier, data);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    final Lock lock = _lock.writeLock();
+    lock.lock();
+    try {
+      for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+        write(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // MappedBinaryDataStoreMBean
+
+  @Override
+  public int getSegmentCount() {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return _segments.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getEntryCount() {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return _index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return _allocatedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long getUsedBytes() {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return _usedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.io.File;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link MappedBinaryDataStore} instances. If an {@link MBeanServer} is set, each store is registered with it for the duration of its life so that
+ * its memory usage can be monitored.
+ */
+public class MappedBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedBinaryDataStoreFactory.class);
+
+  private final File _directory;
+  private final int _segmentSize;
+  private MBeanServer _mbeanServer;
+
+  /**
+   * Creates a factory for stores using direct buffers of the default segment size.
+   */
+  public MappedBinaryDataStoreFactory() {
+    this(null);
+  }
+
+  /**
+   * Creates a factory for stores mapping segments of the default size from temporary files.
+   *
+   * @param directory the directory to create the segment files in, null to use direct buffers
+   */
+  public MappedBinaryDataStoreFactory(final File directory) {
+    this(directory, MappedBinaryDataStore.DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Creates a factory for stores mapping segments from temporary files.
+   *
+   * @param directory the directory to create the segment files in, null to use direct buffers
+   * @param segmentSize the size of each segment in bytes
+   */
+  public MappedBinaryDataStoreFactory(final File directory, final int segmentSize) {
+    ArgumentChecker.isTrue(segmentSize > 0, "segmentSize");
+    if (directory != null) {
+      ArgumentChecker.isTrue(directory.isDirectory(), "directory");
+    }
+    _directory = directory;
+    _segmentSize = segmentSize;
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  public MBeanServer getMBeanServer() {
+    return _mbeanServer;
+  }
+
+  public void setMBeanServer(final MBeanServer mbeanServer) {
+    _mbeanServer = mbeanServer;
+  }
+
+  protected ObjectName createObjectName(final ViewComputationCacheKey cacheKey) throws MalformedObjectNameException {
+    return new ObjectName("com.opengamma:type=MappedBinaryDataStore,viewCycle=" + ObjectName.quote(cacheKey.getViewCycleId().toString())
+        + ",calculationConfiguration=" + ObjectName.quote(cacheKey.getCalculationConfigurationName()));
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    final MBeanServer server = getMBeanServer();
+    if (server == null) {
+      return new MappedBinaryDataStore(getDirectory(), getSegmentSize());
+    }
+    final ObjectName name;
+    try {
+      name = createObjectName(cacheKey);
+    } catch (MalformedObjectNameException e) {
+      s_logger.warn("Couldn't create JMX name for {} - {}", cacheKey, e.getMessage());
+      return new MappedBinaryDataStore(getDirectory(), getSegmentSize());
+    }
+    final MappedBinaryDataStore dataStore = new MappedBinaryDataStore(getDirectory(), getSegmentSize()) {
+      @Override
+      public void delete() {
+        super.delete();
+        try {
+          server.unregisterMBean(name);
+        } catch (JMException e) {
+          s_logger.warn("Couldn't unregister JMX MBean {} - {}", name, e.getMessage());
+        }
+      }
+    };
+    try {
+      server.registerMBean(dataStore, name);
+    } catch (JMException e) {
+      s_logger.warn("Couldn't register JMX MBean {} - {}", name, e.getMessage());
+    }
+    return dataStore;
+  }
+
+}
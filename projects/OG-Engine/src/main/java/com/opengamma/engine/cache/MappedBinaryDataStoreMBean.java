@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+/**
+ * JMX MBean interface for the memory usage of a {@link MappedBinaryDataStore}.
+ */
+public interface MappedBinaryDataStoreMBean {
+
+  int getSegmentCount();
+
+  int getEntryCount();
+
+  long getAllocatedBytes();
+
+  long getUsedBytes();
+
+}
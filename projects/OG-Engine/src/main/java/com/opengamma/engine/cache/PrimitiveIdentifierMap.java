@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An in-memory implementation of {@link IdentifierMap} backed by open-addressing primitive maps. Unlike {@link InMemoryIdentifierMap} no {@link Long} objects
+ * are held, or created for the results of the multiple value lookups, and the lock is only taken once for each bulk operation.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class PrimitiveIdentifierMap extends AbstractIdentifierMap implements BulkIdentifierMap {
+
+  /**
+   * Identifiers are allocated from 1 so that zero can be used to indicate an unknown specification.
+   */
+  private static final long NO_IDENTIFIER = 0L;
+
+  private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+  private final Object2LongMap<ValueSpecification> _identifiers = new Object2LongOpenHashMap<ValueSpecification>();
+  private final Long2ObjectMap<ValueSpecification> _specifications = new Long2ObjectOpenHashMap<ValueSpecification>();
+  private long _nextIdentifier = 1L;
+
+  public PrimitiveIdentifierMap() {
+    _identifiers.defaultReturnValue(NO_IDENTIFIER);
+  }
+
+  /**
+   * Allocates a new identifier if the specification does not already have one. The caller must hold the write lock.
+   *
+   * @param specification the specification to allocate an identifier for
+   * @return the identifier
+   */
+  private long allocateIdentifier(final ValueSpecification specification) {
+    long identifier = _identifiers.getLong(specification);
+    if (identifier == NO_IDENTIFIER) {
+      identifier = _nextIdentifier++;
+      _identifiers.put(specification, identifier);
+      _specifications.put(identifier, specification);
+    }
+    return identifier;
+  }
+
+  @Override
+  public long getIdentifier(final ValueSpecification spec) {
+    ArgumentChecker.notNull(spec, "Value specification");
+    Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      final long identifier = _identifiers.getLong(spec);
+      if (identifier != NO_IDENTIFIER) {
+        return identifier;
+      }
+    } finally {
+      lock.unlock();
+    }
+    lock = _lock.writeLock();
+    lock.lock();
+    try {
+      return allocateIdentifier(spec);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object2LongMap<ValueSpecification> getIdentifiers(final Collection<ValueSpecification> specifications) {
+    final long[] identifiers = new long[specifications.size()];
+    getIdentifiers(specifications, identifiers);
+    final Object2LongMap<ValueSpecification> result = new Object2LongOpenHashMap<ValueSpecification>(identifiers.length);
+    int i = 0;
+    for (ValueSpecification specification : specifications) {
+      result.put(specification, identifiers[i++]);
+    }
+    return result;
+  }
+
+  @Override
+  public void getIdentifiers(final Collection<ValueSpecification> specifications, final long[] identifiers) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    ArgumentChecker.notNull(identifiers, "identifiers");
+    boolean missing = false;
+    Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      int i = 0;
+      for (ValueSpecification specification : specifications) {
+        final long identifier = _identifiers.getLong(specification);
+        identifiers[i++] = identifier;
+        missing |= (identifier == NO_IDENTIFIER);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (!missing) {
+      return;
+    }
+    lock = _lock.writeLock();
+    lock.lock();
+    try {
+      int i = 0;
+      for (ValueSpecification specification : specifications) {
+        if (identifiers[i] == NO_IDENTIFIER) {
+          ArgumentChecker.notNull(specification, "Value specification");
+          identifiers[i] = allocateIdentifier(specification);
+        }
+        i++;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ValueSpecification getValueSpecification(final long identifier) {
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      return _specifications.get(identifier);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
+    final Long2ObjectMap<ValueSpecification> result = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
+    final Lock lock = _lock.readLock();
+    lock.lock();
+    try {
+      final LongIterator itr = identifiers.iterator();
+      while (itr.hasNext()) {
+        final long identifier = itr.nextLong();
+        result.put(identifier, _specifications.get(identifier));
+      }
+    } finally {
+      lock.unlock();
+    }
+    return result;
+  }
+
+  public void clear() {
+    final Lock lock = _lock.writeLock();
+    lock.lock();
+    try {
+      _identifiers.clear();
+      _specifications.clear();
+      // N.B. As with InMemoryIdentifierMap we don't reset the next identifier so that accidental reuse can be detected
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
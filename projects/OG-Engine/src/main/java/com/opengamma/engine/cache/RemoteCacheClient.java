@@ -5,11 +5,15 @@
  */
 package com.opengamma.engine.cache;
 
+import java.util.concurrent.Future;
+
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.mapping.FudgeDeserializer;
 import org.fudgemsg.mapping.FudgeSerializer;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
 import com.opengamma.engine.cache.msg.CacheMessage;
 import com.opengamma.engine.cache.msg.SlaveChannelMessage;
 import com.opengamma.transport.FudgeConnection;
@@ -50,6 +54,22 @@ public class RemoteCacheClient {
       return response;
     }
 
+    private <Request extends CacheMessage, Response extends CacheMessage> Future<Response> sendMessageAsynchronously(final Request request,
+        final Class<Response> responseClass) {
+      final FudgeSerializer scontext = new FudgeSerializer(getMessageSender().getFudgeContext());
+      final long correlationId = getNextCorrelationId();
+      request.setCorrelationId(correlationId);
+      final Future<FudgeMsg> responseMsg = sendRequestAsynchronously(
+          FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(request), request.getClass(), CacheMessage.class), correlationId);
+      return Futures.lazyTransform(responseMsg, new Function<FudgeMsg, Response>() {
+        @Override
+        public Response apply(final FudgeMsg message) {
+          final FudgeDeserializer dcontext = new FudgeDeserializer(getMessageSender().getFudgeContext());
+          return dcontext.fudgeMsgToObject(responseClass, message);
+        }
+      });
+    }
+
     private <Message extends CacheMessage> void postMessage(final Message message) {
       final FudgeSerializer scontext = new FudgeSerializer(getMessageSender().getFudgeContext());
       sendMessage(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(message), message.getClass(), CacheMessage.class));
@@ -101,6 +121,30 @@ public class RemoteCacheClient {
     return _fudgePuts.sendMessage(request, expectedResponse);
   }
 
+  /**
+   * Sends a message on the "get" channel without waiting for the response. Any number of these may be outstanding on the connection at once.
+   * 
+   * @param <T> the response type
+   * @param request the request to send, not null
+   * @param expectedResponse the response type, not null
+   * @return the future response, not null
+   */
+  protected <T extends CacheMessage> Future<T> sendGetMessageAsynchronously(final CacheMessage request, final Class<T> expectedResponse) {
+    return _fudgeGets.sendMessageAsynchronously(request, expectedResponse);
+  }
+
+  /**
+   * Sends a message on the "put" channel without waiting for the response. Any number of these may be outstanding on the connection at once.
+   * 
+   * @param <T> the response type
+   * @param request the request to send, not null
+   * @param expectedResponse the response type, not null
+   * @return the future response, not null
+   */
+  protected <T extends CacheMessage> Future<T> sendPutMessageAsynchronously(final CacheMessage request, final Class<T> expectedResponse) {
+    return _fudgePuts.sendMessageAsynchronously(request, expectedResponse);
+  }
+
   protected FudgeContext getFudgeContext() {
     return _fudgeGets.getMessageSender().getFudgeContext();
   }
@@ -9,24 +9,42 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
 import com.opengamma.engine.cache.msg.CacheMessage;
 import com.opengamma.engine.cache.msg.DeleteRequest;
 import com.opengamma.engine.cache.msg.GetRequest;
 import com.opengamma.engine.cache.msg.GetResponse;
 import com.opengamma.engine.cache.msg.PutRequest;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Client to a {@link FudgeMessageStoreServer}. These are created by a {@link RemoteFudgeMessageStoreFactory}.
  */
-public class RemoteFudgeMessageStore implements FudgeMessageStore {
+public class RemoteFudgeMessageStore implements AsynchronousFudgeMessageStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(RemoteFudgeMessageStore.class);
+
+  /**
+   * The default maximum number of values sent in each message of a bulk operation.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
 
   private final RemoteCacheClient _client;
   private final ViewComputationCacheKey _cacheKey;
+  private int _batchSize = DEFAULT_BATCH_SIZE;
 
   public RemoteFudgeMessageStore(final RemoteCacheClient client, final ViewComputationCacheKey cacheKey) {
     _client = client;
@@ -41,6 +59,21 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
     return _cacheKey;
   }
 
+  /**
+   * Sets the maximum number of values sent in each message of a bulk operation. Larger operations are split into batches which are all sent before waiting
+   * for any of the responses so that the transfer of one batch overlaps with the server processing another.
+   * 
+   * @param batchSize the maximum number of values in each message, greater than zero
+   */
+  public void setBatchSize(final int batchSize) {
+    ArgumentChecker.isTrue(batchSize > 0, "batchSize");
+    _batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
   @Override
   public void delete() {
     // [ENG-256] Don't need the delete messages if we propogate at the releaseCaches level
@@ -59,23 +92,54 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
 
   @Override
   public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
-    final GetRequest request = new GetRequest(getCacheKey().getViewCycleId(), getCacheKey()
-        .getCalculationConfigurationName(), identifiers);
-    final GetResponse response = getRemoteCacheClient().sendGetMessage(request, GetResponse.class);
-    final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
-    final List<FudgeMsg> values = response.getData();
-    if (values.size() != identifiers.size()) {
-      // An error at the server end, possibly an invalid cache (gives a result with just one null in)
-      return Collections.emptyMap();
-    }
-    int i = 0;
-    for (Long identifier : request.getIdentifier()) {
-      final FudgeMsg value = values.get(i++);
-      if (!value.isEmpty()) {
-        result.put(identifier, value);
+    return Futures.getUnchecked(getAsynchronously(identifiers));
+  }
+
+  @Override
+  public Future<Map<Long, FudgeMsg>> getAsynchronously(final Collection<Long> identifiers) {
+    final List<GetRequest> requests = new ArrayList<GetRequest>();
+    final List<Future<GetResponse>> responses = new ArrayList<Future<GetResponse>>();
+    final int batchSize = getBatchSize();
+    if (identifiers.size() <= batchSize) {
+      final GetRequest request = new GetRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), identifiers);
+      requests.add(request);
+      responses.add(getRemoteCacheClient().sendGetMessageAsynchronously(request, GetResponse.class));
+    } else {
+      final Iterator<Long> itr = identifiers.iterator();
+      while (itr.hasNext()) {
+        final List<Long> batch = new ArrayList<Long>(batchSize);
+        do {
+          batch.add(itr.next());
+        } while (itr.hasNext() && (batch.size() < batchSize));
+        final GetRequest request = new GetRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), batch);
+        requests.add(request);
+        responses.add(getRemoteCacheClient().sendGetMessageAsynchronously(request, GetResponse.class));
       }
     }
-    return result;
+    return Futures.lazyTransform(new BatchedFuture<GetResponse>(responses), new Function<List<GetResponse>, Map<Long, FudgeMsg>>() {
+      @Override
+      public Map<Long, FudgeMsg> apply(final List<GetResponse> input) {
+        final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
+        for (int i = 0; i < requests.size(); i++) {
+          final List<Long> requestIdentifiers = requests.get(i).getIdentifier();
+          final List<FudgeMsg> values = input.get(i).getData();
+          if (values.size() != requestIdentifiers.size()) {
+            // An error at the server end, possibly an invalid cache (gives a result with just one null in); the values of this batch are misses but the
+            // other batches may still have answered
+            s_logger.warn("Invalid response to get request for {} value(s) from {}", requestIdentifiers.size(), getCacheKey());
+            continue;
+          }
+          int j = 0;
+          for (Long identifier : requestIdentifiers) {
+            final FudgeMsg value = values.get(j++);
+            if (!value.isEmpty()) {
+              result.put(identifier, value);
+            }
+          }
+        }
+        return result;
+      }
+    });
   }
 
   @Override
@@ -88,15 +152,105 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
 
   @Override
   public void put(Map<Long, FudgeMsg> data) {
-    final List<Long> identifiers = new ArrayList<Long>(data.size());
-    final List<FudgeMsg> values = new ArrayList<FudgeMsg>(data.size());
+    Futures.getUnchecked(putAsynchronously(data));
+  }
+
+  @Override
+  public Future<?> putAsynchronously(final Map<Long, FudgeMsg> data) {
+    final List<Future<CacheMessage>> responses = new ArrayList<Future<CacheMessage>>();
+    final int batchSize = Math.min(getBatchSize(), data.size());
+    List<Long> identifiers = new ArrayList<Long>(batchSize);
+    List<FudgeMsg> values = new ArrayList<FudgeMsg>(batchSize);
     for (Map.Entry<Long, FudgeMsg> entry : data.entrySet()) {
       identifiers.add(entry.getKey());
       values.add(entry.getValue());
+      if (identifiers.size() == batchSize) {
+        final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), identifiers, values);
+        responses.add(getRemoteCacheClient().sendPutMessageAsynchronously(request, CacheMessage.class));
+        identifiers = new ArrayList<Long>(batchSize);
+        values = new ArrayList<FudgeMsg>(batchSize);
+      }
     }
-    final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey()
-        .getCalculationConfigurationName(), identifiers, values);
-    getRemoteCacheClient().sendPutMessage(request, CacheMessage.class);
+    if (!identifiers.isEmpty()) {
+      final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), identifiers, values);
+      responses.add(getRemoteCacheClient().sendPutMessageAsynchronously(request, CacheMessage.class));
+    }
+    return new BatchedFuture<CacheMessage>(responses);
+  }
+
+  /**
+   * Waits for the responses to all of the batches that make up a bulk operation. If any batch fails, times out or is interrupted the remaining batches
+   * are cancelled so that none of them is left pending.
+   */
+  private static final class BatchedFuture<T> implements Future<List<T>> {
+
+    private final List<Future<T>> _batches;
+    private volatile boolean _cancelled;
+
+    private BatchedFuture(final List<Future<T>> batches) {
+      _batches = batches;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      _cancelled = true;
+      return cancelFrom(0, mayInterruptIfRunning);
+    }
+
+    private boolean cancelFrom(final int index, final boolean mayInterruptIfRunning) {
+      boolean cancelled = false;
+      for (int i = index; i < _batches.size(); i++) {
+        cancelled |= _batches.get(i).cancel(mayInterruptIfRunning);
+      }
+      return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return _cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      for (Future<T> batch : _batches) {
+        if (!batch.isDone()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public List<T> get() throws InterruptedException, ExecutionException {
+      final List<T> result = new ArrayList<T>(_batches.size());
+      try {
+        for (Future<T> batch : _batches) {
+          result.add(batch.get());
+        }
+      } finally {
+        if (result.size() < _batches.size()) {
+          cancelFrom(result.size(), true);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public List<T> get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      final List<T> result = new ArrayList<T>(_batches.size());
+      try {
+        for (Future<T> batch : _batches) {
+          result.add(batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        }
+      } finally {
+        if (result.size() < _batches.size()) {
+          cancelFrom(result.size(), true);
+        }
+      }
+      return result;
+    }
+
   }
 
 }
@@ -5,12 +5,15 @@
  */
 package com.opengamma.engine.cache;
 
+import com.opengamma.util.ArgumentChecker;
+
 /**
  * Creates {@link RemoteFudgeMessageStore} clients to connect to a {@link FudgeMessageStoreServer}.
  */
 public class RemoteFudgeMessageStoreFactory implements FudgeMessageStoreFactory {
 
   private final RemoteCacheClient _client;
+  private int _batchSize = RemoteFudgeMessageStore.DEFAULT_BATCH_SIZE;
 
   public RemoteFudgeMessageStoreFactory(final RemoteCacheClient client) {
     _client = client;
@@ -20,9 +23,26 @@ public class RemoteFudgeMessageStoreFactory implements FudgeMessageStoreFactory
     return _client;
   }
 
+  /**
+   * Sets the maximum number of values sent in each message of a bulk operation by the stores created.
+   * 
+   * @param batchSize the maximum number of values in each message, greater than zero
+   * @see RemoteFudgeMessageStore#setBatchSize
+   */
+  public void setBatchSize(final int batchSize) {
+    ArgumentChecker.isTrue(batchSize > 0, "batchSize");
+    _batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
   @Override
   public FudgeMessageStore createMessageStore(final ViewComputationCacheKey cacheKey) {
-    return new RemoteFudgeMessageStore(getRemoteCacheClient(), cacheKey);
+    final RemoteFudgeMessageStore store = new RemoteFudgeMessageStore(getRemoteCacheClient(), cacheKey);
+    store.setBatchSize(getBatchSize());
+    return store;
   }
 
 }
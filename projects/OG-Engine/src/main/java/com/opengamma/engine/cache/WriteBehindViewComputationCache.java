@@ -8,6 +8,7 @@ package com.opengamma.engine.cache;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -181,6 +182,10 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
   }
 
   private final ViewComputationCache _underlying;
+  /**
+   * The underlying cache if it needs to know about reads satisfied from the buffer, otherwise null.
+   */
+  private final LocalAffinityViewComputationCache _consumerTracking;
   private final ExecutorService _executorService;
   /**
    * The in memory map contains all entries that are in the queues and have not been written to the underlying yet as well as values that have been retrieved from the underlying. Use of a soft
@@ -290,6 +295,7 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
     ArgumentChecker.notNull(underlying, "underlying");
     ArgumentChecker.notNull(executorService, "executorService");
     _underlying = underlying;
+    _consumerTracking = (underlying instanceof LocalAffinityViewComputationCache) ? (LocalAffinityViewComputationCache) underlying : null;
     _executorService = executorService;
     _pendingPrivateValues = usePrivate ? new ConcurrentLinkedQueue<Entry>() : null;
     _pendingSharedValues = useShared ? new ConcurrentLinkedQueue<Entry>() : null;
@@ -307,6 +313,17 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
     return _buffer.get(specification);
   }
 
+  /**
+   * Reports reads that were satisfied from the buffer to an underlying cache that counts the reads of each value.
+   *
+   * @param specifications the values read from the buffer, not null
+   */
+  protected void bufferedValuesRead(final Collection<ValueSpecification> specifications) {
+    if (_consumerTracking != null) {
+      _consumerTracking.valuesConsumed(specifications);
+    }
+  }
+
   protected void putPending(final ComputedValue value) {
     putBuffered(value.getSpecification(), value.getValue());
   }
@@ -358,6 +375,7 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
   public Object getValue(final ValueSpecification specification) {
     Object value = getBuffered(specification);
     if (value != null) {
+      bufferedValuesRead(Collections.singleton(specification));
       return value;
     } else {
       value = getUnderlying().getValue(specification);
@@ -372,6 +390,7 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
   public Object getValue(final ValueSpecification specification, final CacheSelectHint filter) {
     Object value = getBuffered(specification);
     if (value != null) {
+      bufferedValuesRead(Collections.singleton(specification));
       return value;
     } else {
       value = getUnderlying().getValue(specification, filter);
@@ -406,6 +425,13 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
         }
         size = cacheMisses.size();
         s_logger.debug("{} pending cache hit(s), {} miss(es)", result.size(), size);
+        if (_consumerTracking != null) {
+          final List<ValueSpecification> hits = new ArrayList<ValueSpecification>(result.size());
+          for (final Pair<ValueSpecification, Object> hit : result) {
+            hits.add(hit.getFirst());
+          }
+          bufferedValuesRead(hits);
+        }
         if (size == 1) {
           final ValueSpecification specification2 = cacheMisses.get(0);
           final Object value = getUnderlying().getValue(specification2);
@@ -453,6 +479,13 @@ public class WriteBehindViewComputationCache implements DeferredViewComputationC
         }
         size = cacheMisses.size();
         s_logger.debug("{} pending cache hit(s), {} miss(es)", result.size(), size);
+        if (_consumerTracking != null) {
+          final List<ValueSpecification> hits = new ArrayList<ValueSpecification>(result.size());
+          for (final Pair<ValueSpecification, Object> hit : result) {
+            hits.add(hit.getFirst());
+          }
+          bufferedValuesRead(hits);
+        }
         if (size == 1) {
           final ValueSpecification specification2 = cacheMisses.get(0);
           final Object value = getUnderlying().getValue(specification2, filter);
@@ -39,4 +39,10 @@ import java.util.concurrent.ConcurrentLinkedQueue;
   public ContextRunnable take() {
     return _list.poll();
   }
+
+  @Override
+  public void detach() {
+    // No per-thread state
+  }
+
 }
@@ -169,6 +169,9 @@ public final class DependencyGraphBuilder implements Cancelable {
    */
   private boolean _disableFailureReporting;
 
+  /** The persistent cache of target digest resolutions, if any */
+  private DigestResolutionCache _digestResolutionCache;
+
   // TODO: We should use an external execution framework rather than the one here; there are far better (and probably more accurate) implementations of
   // the algorithm in other projects I've worked on.
 
@@ -237,6 +240,7 @@ public final class DependencyGraphBuilder implements Cancelable {
    */
   public void setFunctionResolver(final CompiledFunctionResolver functionResolver) {
     _functionResolver = functionResolver;
+    updateDigestResolutions();
   }
 
   /**
@@ -280,6 +284,36 @@ public final class DependencyGraphBuilder implements Cancelable {
     getTerminalValuesCallback().setTargetDigests(targetDigests);
   }
 
+  /**
+   * Sets the persistent cache of target digest resolutions. Resolutions learnt by previous builds against the same function repository will be tried for
+   * targets with matching digests, and any made by this build will be added to it. This has no effect unless target digest rules are also set.
+   * 
+   * @param digestResolutionCache the cache, or null to not use persisted resolutions
+   */
+  public void setDigestResolutionCache(final DigestResolutionCache digestResolutionCache) {
+    _digestResolutionCache = digestResolutionCache;
+    updateDigestResolutions();
+  }
+
+  /**
+   * Returns the persistent cache of target digest resolutions.
+   * 
+   * @return the cache, or null if none is being used
+   */
+  public DigestResolutionCache getDigestResolutionCache() {
+    return _digestResolutionCache;
+  }
+
+  private void updateDigestResolutions() {
+    final DigestResolutionCache cache = getDigestResolutionCache();
+    final CompiledFunctionResolver functions = getFunctionResolver();
+    if ((cache != null) && (functions != null)) {
+      getTerminalValuesCallback().setDigestResolutions(cache.getResolutions(functions));
+    } else {
+      getTerminalValuesCallback().setDigestResolutions(null);
+    }
+  }
+
   public void setComputationTargetCollapser(final ComputationTargetCollapser computationTargetCollapser) {
     getTerminalValuesCallback().setComputationTargetCollapser(computationTargetCollapser);
   }
@@ -667,6 +701,9 @@ public final class DependencyGraphBuilder implements Cancelable {
         }
       } while (!_poison && jobsLeftToRun);
 
+      // Release any state the run queue holds for this thread before it can be considered finished
+      _runQueue.detach();
+
       // Context is used as a build complete lock
       synchronized (getContext()) {
         final boolean abortLoops;
@@ -893,6 +930,9 @@ public final class DependencyGraphBuilder implements Cancelable {
     } catch (final InterruptedException e) {
       throw new OpenGammaRuntimeException("Interrupted", e);
     }
+    if (getDigestResolutionCache() != null) {
+      getDigestResolutionCache().flush();
+    }
     return createDependencyGraph();
   }
 
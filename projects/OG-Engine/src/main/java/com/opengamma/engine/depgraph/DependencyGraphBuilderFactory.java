@@ -54,6 +54,7 @@ public class DependencyGraphBuilderFactory {
   private FunctionExclusionGroups _functionExclusionGroups;
   private TargetDigests _targetDigests;
   private ComputationTargetCollapser _computationTargetCollapser;
+  private DigestResolutionCache _digestResolutionCache;
   private final Executor _executor = createExecutor();
 
   public DependencyGraphBuilderFactory() {
@@ -114,6 +115,14 @@ public class DependencyGraphBuilderFactory {
     return _targetDigests;
   }
 
+  public void setDigestResolutionCache(final DigestResolutionCache digestResolutionCache) {
+    _digestResolutionCache = digestResolutionCache;
+  }
+
+  public DigestResolutionCache getDigestResolutionCache() {
+    return _digestResolutionCache;
+  }
+
   public void setComputationTargetCollapser(final ComputationTargetCollapser computationTargetCollapser) {
     _computationTargetCollapser = computationTargetCollapser;
   }
@@ -133,6 +142,7 @@ public class DependencyGraphBuilderFactory {
     builder.setDisableFailureReporting(!isEnableFailureReporting());
     builder.setFunctionExclusionGroups(getFunctionExclusionGroups());
     builder.setTargetDigests(getTargetDigests());
+    builder.setDigestResolutionCache(getDigestResolutionCache());
     builder.setComputationTargetCollapser(getComputationTargetCollapser());
   }
 
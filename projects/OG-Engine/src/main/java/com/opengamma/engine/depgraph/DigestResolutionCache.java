@@ -0,0 +1,386 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.FudgeMsgReader;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.engine.depgraph.impl.DependencyNodeFunctionImpl;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Disk-backed cache of the resolutions made against target digests, allowing a restarted engine, or a sibling process sharing the same directory, to start
+ * graph construction with the digest resolutions already learnt rather than performing the full back-tracking function selection for the first target of each
+ * digest.
+ * <p>
+ * Resolutions are held for each function repository version, identified by a hash of the resolution rules available from the function resolver, and keyed on
+ * the string form of the target digest and the value name. The string form of each digest must therefore identify it uniquely, as the form produced by
+ * {@link com.opengamma.engine.target.digest.SecurityTypeTargetDigests} does. Stored resolutions are only ever used as candidates for the
+ * {@link TargetDigestStep}, which checks that the function is still applicable to the target and that its results satisfy the requirement's constraints, so
+ * a stale entry costs a failed attempt rather than producing an incorrect graph.
+ * <p>
+ * Each repository version is written to its own file when {@link #flush} is called. The existing file is re-read and merged before writing if another process
+ * has updated it, and the replacement is atomic, so concurrent writers can at worst lose each other's most recent additions.
+ */
+public class DigestResolutionCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DigestResolutionCache.class);
+
+  /**
+   * The maximum number of resolutions held for each digest and value name.
+   */
+  private static final int MAX_DATA_PER_DIGEST = 4;
+
+  private static final String ENTRY_FIELD = "entry";
+  private static final String DIGEST_FIELD = "digest";
+  private static final String VALUE_NAME_FIELD = "valueName";
+  private static final String PROPERTIES_FIELD = "properties";
+  private static final String FUNCTION_IDENTIFIER_FIELD = "function";
+  private static final String FUNCTION_PARAMETERS_FIELD = "parameters";
+
+  /**
+   * Versions calculated for function resolver instances; a resolver is immutable so the version need only be calculated once.
+   */
+  private static final ConcurrentMap<CompiledFunctionResolver, String> s_versions = new MapMaker().weakKeys().makeMap();
+
+  private final File _directory;
+  private final FudgeContext _fudgeContext;
+  private final ConcurrentMap<String, Resolutions> _resolutions = new ConcurrentHashMap<String, Resolutions>();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param directory the directory to hold the resolution files, not null
+   */
+  public DigestResolutionCache(final File directory) {
+    this(directory, OpenGammaFudgeContext.getInstance());
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param directory the directory to hold the resolution files, not null
+   * @param fudgeContext the Fudge context to encode the files with, not null
+   */
+  public DigestResolutionCache(final File directory, final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.isTrue(directory.isDirectory(), "directory");
+    _directory = directory;
+    _fudgeContext = fudgeContext;
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Calculates the version of the function repository used by a resolver. This is a hash of the function identifiers, implementation classes and priorities
+   * of the resolution rules so will change whenever the repository configuration does.
+   *
+   * @param functions the function resolver, not null
+   * @return the version string, not null
+   */
+  public static String getRepositoryVersion(final CompiledFunctionResolver functions) {
+    String version = s_versions.get(functions);
+    if (version == null) {
+      final Collection<ResolutionRule> rules = functions.getAllResolutionRules();
+      final List<String> descriptions = new ArrayList<String>(rules.size());
+      for (ResolutionRule rule : rules) {
+        descriptions.add(rule.getParameterizedFunction().getFunctionId() + ":" + rule.getParameterizedFunction().getFunction().getClass().getName() + ":" + rule.getPriority());
+      }
+      Collections.sort(descriptions);
+      long hash = 1;
+      for (String description : descriptions) {
+        hash = hash * 31 + description.hashCode();
+      }
+      version = Long.toHexString(hash);
+      s_versions.putIfAbsent(functions, version);
+    }
+    return version;
+  }
+
+  /**
+   * Returns the resolutions for the function repository used by a resolver, loading them from disk if this is the first request for that version.
+   *
+   * @param functions the function resolver, not null
+   * @return the resolutions, not null
+   */
+  public Resolutions getResolutions(final CompiledFunctionResolver functions) {
+    ArgumentChecker.notNull(functions, "functions");
+    final String version = getRepositoryVersion(functions);
+    Resolutions resolutions = _resolutions.get(version);
+    if (resolutions == null) {
+      resolutions = new Resolutions(new File(getDirectory(), "digestResolutions-" + version + ".fudge"));
+      final Resolutions existing = _resolutions.putIfAbsent(version, resolutions);
+      if (existing != null) {
+        resolutions = existing;
+      } else {
+        resolutions.load();
+      }
+    }
+    return resolutions;
+  }
+
+  /**
+   * Writes any modified resolutions to disk.
+   */
+  public void flush() {
+    for (Resolutions resolutions : _resolutions.values()) {
+      resolutions.flush();
+    }
+  }
+
+  /**
+   * The resolutions for a single function repository version.
+   */
+  public final class Resolutions {
+
+    private final File _file;
+    private final ConcurrentMap<Pair<String, String>, Pair<ValueProperties[], DependencyNodeFunction[]>> _data =
+        new ConcurrentHashMap<Pair<String, String>, Pair<ValueProperties[], DependencyNodeFunction[]>>();
+    private volatile boolean _modified;
+    private long _lastModified;
+
+    private Resolutions(final File file) {
+      _file = file;
+    }
+
+    /**
+     * Returns the stored resolutions for a digest and value name, most recent first, in the form used by {@link GraphBuildingContext.ResolutionIterator}.
+     *
+     * @param digest the string form of the target digest, not null
+     * @param valueName the value name, not null
+     * @return the resolutions, or null if there are none
+     */
+    public Pair<?, ?> get(final String digest, final String valueName) {
+      final Pair<ValueProperties[], DependencyNodeFunction[]> values = _data.get(Pairs.of(digest, valueName));
+      if (values == null) {
+        return null;
+      }
+      if (values.getFirst().length == 1) {
+        return Pairs.of(values.getFirst()[0], values.getSecond()[0]);
+      }
+      return values;
+    }
+
+    /**
+     * Stores a resolution for a digest and value name, making it the most recent.
+     *
+     * @param digest the string form of the target digest, not null
+     * @param valueName the value name, not null
+     * @param properties the properties of the resolved value, not null
+     * @param function the function that produced the resolved value, not null
+     */
+    public void put(final String digest, final String valueName, final ValueProperties properties, final DependencyNodeFunction function) {
+      if (add(Pairs.of(digest, valueName), properties, function, true)) {
+        _modified = true;
+      }
+    }
+
+    /**
+     * Adds a resolution.
+     *
+     * @param key the digest and value name
+     * @param properties the resolved properties
+     * @param function the function
+     * @param first true to make this the most recent resolution, false to add it as the oldest
+     * @return true if the data was modified, false if the resolution was already present
+     */
+    private boolean add(final Pair<String, String> key, final ValueProperties properties, final DependencyNodeFunction function, final boolean first) {
+      Pair<ValueProperties[], DependencyNodeFunction[]> oldValues = _data.get(key);
+      do {
+        if (oldValues == null) {
+          oldValues = _data.putIfAbsent(key, Pairs.of(new ValueProperties[] {properties }, new DependencyNodeFunction[] {function }));
+          if (oldValues == null) {
+            return true;
+          }
+        } else {
+          final ValueProperties[] oldProperties = oldValues.getFirst();
+          final DependencyNodeFunction[] oldFunctions = oldValues.getSecond();
+          for (int i = 0; i < oldProperties.length; i++) {
+            if (properties.equals(oldProperties[i]) && DependencyNodeFunction.HASHING_STRATEGY.equals(function, oldFunctions[i])) {
+              return false;
+            }
+          }
+          if (!first && (oldProperties.length >= MAX_DATA_PER_DIGEST)) {
+            return false;
+          }
+          final int length = Math.min(oldProperties.length + 1, MAX_DATA_PER_DIGEST);
+          final ValueProperties[] newProperties = new ValueProperties[length];
+          final DependencyNodeFunction[] newFunctions = new DependencyNodeFunction[length];
+          if (first) {
+            newProperties[0] = properties;
+            newFunctions[0] = function;
+            System.arraycopy(oldProperties, 0, newProperties, 1, length - 1);
+            System.arraycopy(oldFunctions, 0, newFunctions, 1, length - 1);
+          } else {
+            System.arraycopy(oldProperties, 0, newProperties, 0, length - 1);
+            System.arraycopy(oldFunctions, 0, newFunctions, 0, length - 1);
+            newProperties[length - 1] = properties;
+            newFunctions[length - 1] = function;
+          }
+          if (_data.replace(key, oldValues, Pairs.of(newProperties, newFunctions))) {
+            return true;
+          }
+          oldValues = _data.get(key);
+        }
+      } while (true);
+    }
+
+    /**
+     * Returns the number of digest and value name combinations held.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+      return _data.size();
+    }
+
+    /**
+     * Reads the file, adding any resolutions not already held. The caller must hold the monitor, or have exclusive access to this instance.
+     *
+     * @return the number of resolutions added
+     */
+    private int read() {
+      if (!_file.exists()) {
+        return 0;
+      }
+      final long lastModified = _file.lastModified();
+      FudgeMsg msg = null;
+      try (InputStream in = new BufferedInputStream(new FileInputStream(_file))) {
+        final FudgeMsgReader reader = getFudgeContext().createMessageReader(in);
+        if (reader.hasNext()) {
+          msg = reader.nextMessage();
+        }
+      } catch (IOException | RuntimeException e) {
+        s_logger.warn("Couldn't read digest resolutions from {} - {}", _file, e.getMessage());
+        return 0;
+      }
+      _lastModified = lastModified;
+      if (msg == null) {
+        return 0;
+      }
+      final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
+      int count = 0;
+      for (FudgeField field : msg.getAllByName(ENTRY_FIELD)) {
+        final FudgeMsg entry = (FudgeMsg) field.getValue();
+        final String digest = entry.getString(DIGEST_FIELD);
+        final String valueName = entry.getString(VALUE_NAME_FIELD);
+        final ValueProperties properties = deserializer.fieldValueToObject(ValueProperties.class, entry.getByName(PROPERTIES_FIELD));
+        final String functionId = entry.getString(FUNCTION_IDENTIFIER_FIELD);
+        final FudgeField parametersField = entry.getByName(FUNCTION_PARAMETERS_FIELD);
+        final FunctionParameters parameters;
+        if (parametersField != null) {
+          parameters = deserializer.fieldValueToObject(FunctionParameters.class, parametersField);
+        } else {
+          parameters = EmptyFunctionParameters.INSTANCE;
+        }
+        if (add(Pairs.of(digest, valueName.intern()), properties, DependencyNodeFunctionImpl.of(functionId, parameters), false)) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    private synchronized void load() {
+      final int count = read();
+      if (count > 0) {
+        s_logger.info("Loaded {} digest resolutions from {}", count, _file);
+      }
+    }
+
+    private MutableFudgeMsg toFudgeMsg() {
+      final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+      final MutableFudgeMsg msg = serializer.newMessage();
+      for (Map.Entry<Pair<String, String>, Pair<ValueProperties[], DependencyNodeFunction[]>> data : _data.entrySet()) {
+        final ValueProperties[] properties = data.getValue().getFirst();
+        final DependencyNodeFunction[] functions = data.getValue().getSecond();
+        for (int i = 0; i < properties.length; i++) {
+          final MutableFudgeMsg entry = serializer.newMessage();
+          entry.add(DIGEST_FIELD, null, data.getKey().getFirst());
+          entry.add(VALUE_NAME_FIELD, null, data.getKey().getSecond());
+          serializer.addToMessage(entry, PROPERTIES_FIELD, null, properties[i]);
+          entry.add(FUNCTION_IDENTIFIER_FIELD, null, functions[i].getFunctionId());
+          if (!EmptyFunctionParameters.INSTANCE.equals(functions[i].getParameters())) {
+            serializer.addToMessageWithClassHeaders(entry, FUNCTION_PARAMETERS_FIELD, null, functions[i].getParameters(), FunctionParameters.class);
+          }
+          msg.add(ENTRY_FIELD, null, entry);
+        }
+      }
+      return msg;
+    }
+
+    /**
+     * Writes the resolutions to disk if they have been modified since they were loaded or last written.
+     */
+    public synchronized void flush() {
+      if (!_modified) {
+        return;
+      }
+      _modified = false;
+      if (_file.exists() && (_file.lastModified() != _lastModified)) {
+        final int count = read();
+        s_logger.debug("Merged {} digest resolutions from {}", count, _file);
+      }
+      try {
+        final File temp = File.createTempFile(_file.getName(), ".tmp", _file.getParentFile());
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+          final FudgeMsgWriter writer = getFudgeContext().createMessageWriter(out);
+          writer.writeMessage(toFudgeMsg());
+          writer.flush();
+        }
+        Files.move(temp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        _lastModified = _file.lastModified();
+        s_logger.info("Wrote {} digest resolutions to {}", _data.size(), _file);
+      } catch (IOException e) {
+        s_logger.warn("Couldn't write digest resolutions to {} - {}", _file, e.getMessage());
+        _modified = true;
+      }
+    }
+
+  }
+
+}
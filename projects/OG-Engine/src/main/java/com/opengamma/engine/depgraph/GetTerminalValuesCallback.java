@@ -160,6 +160,11 @@ import com.opengamma.util.tuple.Pairs;
    */
   private TargetDigests _targetDigests;
 
+  /**
+   * Optional persistent store of target digest resolutions from previous graph builds.
+   */
+  private DigestResolutionCache.Resolutions _digestResolutions;
+
   /**
    * The current graph building context (the callback holds the write lock for the duration of other calls, so can set it here instead of passing it on the stack).
    */
@@ -195,6 +200,10 @@ import com.opengamma.util.tuple.Pairs;
     _targetDigests = targetDigests;
   }
 
+  public void setDigestResolutions(final DigestResolutionCache.Resolutions digestResolutions) {
+    _digestResolutions = digestResolutions;
+  }
+
   /**
    * Looks up an existing production - for which all inputs are resolved - for a potential value specification.
    * <p>
@@ -227,6 +236,9 @@ import com.opengamma.util.tuple.Pairs;
   }
 
   private void storeResolution(final Object targetDigest, final ValueSpecification resolvedValue, final DependencyNodeFunction function) {
+    if (_digestResolutions != null) {
+      _digestResolutions.put(targetDigest.toString(), resolvedValue.getValueName(), resolvedValue.getProperties(), function);
+    }
     ConcurrentMap<String, Pair<?, ?>> info = _targetDigestInfo.get(targetDigest);
     if (info == null) {
       info = new ConcurrentHashMap<String, Pair<?, ?>>();
@@ -305,10 +317,16 @@ import com.opengamma.util.tuple.Pairs;
     }
     final Map<String, Pair<?, ?>> info = _targetDigestInfo.get(targetDigest);
     if (info != null) {
-      return info.get(valueName);
-    } else {
-      return null;
+      final Pair<?, ?> resolutions = info.get(valueName);
+      if (resolutions != null) {
+        return resolutions;
+      }
     }
+    if (_digestResolutions != null) {
+      // Nothing from this build yet; try anything learnt by a previous one
+      return _digestResolutions.get(targetDigest.toString(), valueName);
+    }
+    return null;
   }
 
   public void declareProduction(final ResolvedValue resolvedValue) {
@@ -358,11 +358,11 @@ import com.opengamma.util.tuple.Pairs;
       }
     }
 
-    public ParameterizedFunction getFunction() {
+    public DependencyNodeFunction getFunction() {
       if (_length == 1) {
-        return (ParameterizedFunction) _functions;
+        return (DependencyNodeFunction) _functions;
       } else {
-        return ((ParameterizedFunction[]) _functions)[_index];
+        return ((DependencyNodeFunction[]) _functions)[_index];
       }
     }
 
@@ -175,6 +175,11 @@ import com.opengamma.util.ArgumentChecker;
     return runnable;
   }
 
+  @Override
+  public void detach() {
+    // No per-thread state
+  }
+
   /**
    * Runnable task comparison. In runnable priority order (most preferable to run first):
    * <ul>
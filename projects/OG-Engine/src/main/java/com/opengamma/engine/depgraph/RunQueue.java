@@ -47,4 +47,10 @@ import java.util.Iterator;
    */
   ContextRunnable take();
 
+  /**
+   * Notifies the queue that the calling thread will no longer add or take tasks, for example because a graph building job is stopping. Any state the queue
+   * holds for the thread may be released; tasks added by the thread must remain available to other threads.
+   */
+  void detach();
+
 }
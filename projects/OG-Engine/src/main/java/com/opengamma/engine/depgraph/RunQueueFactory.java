@@ -111,4 +111,20 @@ public abstract class RunQueueFactory {
     };
   }
 
+  /**
+   * Creates queues with a deque for each building thread, with idle threads stealing work from the others. Each thread processes its own tasks in LIFO order,
+   * keeping related resolution steps on the same thread, and there is no single point of contention so this can scale better than
+   * {@link #getConcurrentStack} when a large number of threads are used for graph building.
+   *
+   * @return the factory instance
+   */
+  public static RunQueueFactory getWorkStealing() {
+    return new RunQueueFactory() {
+      @Override
+      protected RunQueue createRunQueue() {
+        return new WorkStealingRunQueue();
+      }
+    };
+  }
+
 }
@@ -40,4 +40,10 @@ import java.util.concurrent.ConcurrentLinkedDeque;
   public ContextRunnable take() {
     return _deque.pollLast();
   }
+
+  @Override
+  public void detach() {
+    // No per-thread state
+  }
+
 }
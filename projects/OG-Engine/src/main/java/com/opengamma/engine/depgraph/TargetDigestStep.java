@@ -56,7 +56,11 @@ import com.opengamma.util.tuple.Triple;
           final ValueProperties properties = _resolutions.getValueProperties();
           if (constraints.isSatisfiedBy(properties)) {
             s_logger.info("Trying digest resolution {} for {}", properties, requirement);
-            final ParameterizedFunction function = _resolutions.getFunction();
+            final ParameterizedFunction function = getParameterizedFunction(context, _resolutions.getFunction());
+            if (function == null) {
+              s_logger.debug("Function {} is no longer available", _resolutions.getFunction());
+              continue;
+            }
             final CompiledFunctionDefinition functionDef = function.getFunction();
             if (!functionDef.getTargetType().isCompatible(target.getType())) {
               s_logger.debug("Function {} type is not compatible with {}", functionDef, target);
@@ -129,6 +133,25 @@ import com.opengamma.util.tuple.Triple;
     return true;
   }
 
+  /**
+   * Returns the function to apply for a digest resolution. Resolutions loaded from a {@link DigestResolutionCache}, or adopted from a previous graph, only
+   * carry the function identifier and parameters so must be resolved to the compiled form.
+   *
+   * @param context the graph building context, not null
+   * @param function the function from the resolution, not null
+   * @return the parameterized function, or null if the function is no longer available from the resolver
+   */
+  private static ParameterizedFunction getParameterizedFunction(final GraphBuildingContext context, final DependencyNodeFunction function) {
+    if (function instanceof ParameterizedFunction) {
+      return (ParameterizedFunction) function;
+    }
+    final CompiledFunctionDefinition functionDef = context.getFunctionDefinition(function.getFunctionId());
+    if (functionDef == null) {
+      return null;
+    }
+    return new ParameterizedFunction(functionDef, function.getParameters());
+  }
+
   @Override
   protected ValueRequirement getDesiredValue() {
     return _desiredValue;
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * Run queue implementation based on a deque for each thread using it. A thread adds tasks to, and takes them from, the tail of its own deque so that the
+ * steps spawned by a resolution are run by the same thread while its working set is still in the processor caches. A thread whose own deque is empty steals
+ * the oldest task from the head of another thread's deque; these are likely to be the largest remaining pieces of work so steals are infrequent.
+ * <p>
+ * Unlike the other implementations there is no single point of contention shared by all threads, at the cost of {@link #isEmpty} and {@link #size} having to
+ * visit the deque of each thread currently using the queue. These visit the deques one at a time so are best-effort snapshots only; a task being stolen, or
+ * moved by {@link #detach}, while they run may be missed or counted twice.
+ * <p>
+ * A thread that stops using the queue must call {@link #detach} so that its deque is released. Any tasks left in it are moved to a shared deque that other
+ * threads steal from.
+ */
+/* package */final class WorkStealingRunQueue implements RunQueue {
+
+  private final List<Deque<ContextRunnable>> _deques = new CopyOnWriteArrayList<Deque<ContextRunnable>>();
+
+  /**
+   * Tasks left behind by threads that have detached. This is always present in {@link #_deques} so that other threads can steal them.
+   */
+  private final Deque<ContextRunnable> _orphans = new ConcurrentLinkedDeque<ContextRunnable>();
+
+  private final ThreadLocal<Deque<ContextRunnable>> _local = new ThreadLocal<Deque<ContextRunnable>>() {
+    @Override
+    protected Deque<ContextRunnable> initialValue() {
+      final Deque<ContextRunnable> deque = new ConcurrentLinkedDeque<ContextRunnable>();
+      _deques.add(deque);
+      return deque;
+    }
+  };
+
+  /**
+   * The deque to try stealing from first. This is only a hint to spread thieves over the victims so is not updated atomically.
+   */
+  private volatile int _nextVictim;
+
+  /* package */WorkStealingRunQueue() {
+    _deques.add(_orphans);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (Deque<ContextRunnable> deque : _deques) {
+      if (!deque.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Deque<ContextRunnable> deque : _deques) {
+      size += deque.size();
+    }
+    return size;
+  }
+
+  @Override
+  public Iterator<ContextRunnable> iterator() {
+    final List<Iterator<ContextRunnable>> iterators = new ArrayList<Iterator<ContextRunnable>>(_deques.size());
+    for (Deque<ContextRunnable> deque : _deques) {
+      iterators.add(deque.iterator());
+    }
+    return Iterators.concat(iterators.iterator());
+  }
+
+  @Override
+  public void add(final ContextRunnable runnable) {
+    _local.get().addLast(runnable);
+  }
+
+  @Override
+  public ContextRunnable take() {
+    final Deque<ContextRunnable> local = _local.get();
+    final ContextRunnable runnable = local.pollLast();
+    if (runnable != null) {
+      return runnable;
+    }
+    return steal(local);
+  }
+
+  @Override
+  public void detach() {
+    final Deque<ContextRunnable> local = _local.get();
+    _local.remove();
+    // Move anything left into the orphans before the deque is removed so that the tasks stay visible to other threads
+    ContextRunnable runnable = local.pollFirst();
+    while (runnable != null) {
+      _orphans.addLast(runnable);
+      runnable = local.pollFirst();
+    }
+    _deques.remove(local);
+  }
+
+  /**
+   * Returns the number of deques currently visited by {@link #isEmpty}, {@link #size} and {@link #take}, including the one holding orphaned tasks.
+   * 
+   * @return the number of deques
+   */
+  /* package */int getDequeCount() {
+    return _deques.size();
+  }
+
+  private ContextRunnable steal(final Deque<ContextRunnable> local) {
+    final Object[] deques = _deques.toArray();
+    final int count = deques.length;
+    final int first = _nextVictim;
+    for (int i = 0; i < count; i++) {
+      final int index = (first + i) % count;
+      @SuppressWarnings("unchecked")
+      final Deque<ContextRunnable> victim = (Deque<ContextRunnable>) deques[index];
+      if (victim != local) {
+        final ContextRunnable runnable = victim.pollFirst();
+        if (runnable != null) {
+          _nextVictim = index + 1;
+          return runnable;
+        }
+      }
+    }
+    return null;
+  }
+
+}
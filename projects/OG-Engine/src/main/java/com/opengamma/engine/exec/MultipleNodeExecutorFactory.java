@@ -137,6 +137,26 @@ public class MultipleNodeExecutorFactory extends PlanBasedGraphExecutorFactory i
     return _basePlanner.getMaximumConcurrency();
   }
 
+  /**
+   * Sets the number of calculation nodes that jobs will be distributed over.
+   * 
+   * @param nodeCount the number of calculation nodes, or 0 if not known
+   * @see MultipleNodeExecutionPlanner#setNodeCount
+   */
+  public void setNodeCount(final int nodeCount) {
+    _basePlanner.setNodeCount(nodeCount);
+  }
+
+  /**
+   * Returns the number of calculation nodes that jobs will be distributed over.
+   * 
+   * @return the number of calculation nodes, or 0 if not known
+   * @see MultipleNodeExecutionPlanner#getNodeCount
+   */
+  public int getNodeCount() {
+    return _basePlanner.getNodeCount();
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     _basePlanner.setFunctionCosts(functionCosts);
   }
@@ -34,7 +34,7 @@ import com.opengamma.util.ArgumentChecker;
  * Set maximum concurrency to the average node count of the job invokers. Requires a {@link JobDispatcher}.
  * </p>
  * <p>
- * TODO: [ENG-200] Tuning of job size and cost parameters
+ * Set the node count to the total node count of the job invokers so that jobs are sized for the calculation nodes available. Requires a {@link JobDispatcher}.
  * </p>
  */
 public class MultipleNodeExecutorTuner implements Runnable {
@@ -133,6 +133,13 @@ public class MultipleNodeExecutorTuner implements Runnable {
           getFactory().setMaximumConcurrency(newMaxConcurrency);
           changed = true;
         }
+        final int nodeCount = getFactory().getNodeCount();
+        final int newNodeCount = (int) Math.ceil(nodesPerInvoker);
+        if (newNodeCount != nodeCount) {
+          s_logger.info("Changing node count to {}", newNodeCount);
+          getFactory().setNodeCount(newNodeCount);
+          changed = true;
+        }
       }
       if (changed) {
         getFactory().invalidateCache();
@@ -8,6 +8,8 @@ package com.opengamma.engine.exec;
 import java.util.Map;
 import java.util.Set;
 
+import com.opengamma.engine.cache.LocalAffinityViewComputationCacheSource;
+import com.opengamma.engine.cache.ViewComputationCacheSource;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.exec.plan.GraphExecutionPlan;
 import com.opengamma.engine.exec.plan.GraphExecutionPlanner;
@@ -44,6 +46,12 @@ public class PlanBasedGraphExecutor implements DependencyGraphExecutor {
   @Override
   public DependencyGraphExecutionFuture execute(final DependencyGraph graph, final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters) {
     final GraphExecutionPlan plan = getPlanner().createPlan(graph, getCycle().getViewProcessContext().getExecutionLogModeSource(), getCycle().getFunctionInitId(), sharedValues, parameters);
+    final ViewComputationCacheSource cacheSource = getCycle().getViewProcessContext().getComputationCacheSource();
+    if (cacheSource instanceof LocalAffinityViewComputationCacheSource) {
+      // Values consumed by the plan, or terminal outputs, can be held as live objects rather than encoded
+      ((LocalAffinityViewComputationCacheSource) cacheSource).getCache(getCycle().getUniqueId(), graph.getCalculationConfigurationName()).setConsumers(
+          plan.getInputConsumerCounts(), graph.getTerminalOutputs().keySet());
+    }
     final PlanExecutor executor = new PlanExecutor(getCycle(), plan);
     executor.start();
     return executor;
@@ -76,6 +76,7 @@ public class PlanExecutor implements JobResultReceiver, Cancelable, DependencyGr
   }
 
   private final SingleComputationCycle _cycle;
+  private final GraphExecutionPlan _plan;
   private final ExecutingGraph _graph;
   private final AtomicInteger _notifyLock = new AtomicInteger();
   private Map<CalculationJobSpecification, ExecutingJob> _executing = new HashMap<CalculationJobSpecification, ExecutingJob>();
@@ -89,6 +90,7 @@ public class PlanExecutor implements JobResultReceiver, Cancelable, DependencyGr
     ArgumentChecker.notNull(cycle, "cycle");
     ArgumentChecker.notNull(plan, "plan");
     _cycle = cycle;
+    _plan = plan;
     _graph = plan.createExecution(cycle.getUniqueId(), cycle.getValuationTime(), cycle.getVersionCorrection());
     _state = State.NOT_STARTED;
     plan.reportStatistics(getStatisticsGatherer());
@@ -262,7 +264,10 @@ public class PlanExecutor implements JobResultReceiver, Cancelable, DependencyGr
         // will already be -1.
         if (_notifyLock.compareAndSet(0, -1)) {
           final long duration = notifyComplete();
-          getStatisticsGatherer().graphExecuted(graph.getCalculationConfiguration(), _nodeCount, _executionTime, duration);
+          if (s_logger.isDebugEnabled() && !Double.isNaN(_plan.getEstimatedDuration())) {
+            s_logger.debug("Executed {} in {}ms, estimated {}ms", new Object[] {this, duration / 1000000, (long) _plan.getEstimatedDuration() / 1000000 });
+          }
+          _plan.reportExecution(getStatisticsGatherer(), _nodeCount, _executionTime, duration);
         }
       }
     }
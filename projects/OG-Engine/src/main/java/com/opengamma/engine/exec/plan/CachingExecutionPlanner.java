@@ -87,6 +87,8 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
 
   private final GraphExecutionPlanner _underlying;
   private final Cache _cache;
+  private double _replanThreshold = 1;
+  private int _replanWarmUpExecutions = 3;
 
   /**
    * Constructs an instance.
@@ -102,6 +104,47 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     _cache = EHCacheUtils.getCacheFromManager(manager, CACHE_NAME);
   }
 
+  /**
+   * Sets the relative change in the execution time of a cached plan that will cause it to be discarded and a new plan created. A significant change suggests that the function costs, or the
+   * calculation nodes available, are no longer what the plan was created for.
+   * 
+   * @param replanThreshold the relative change, for example 1 to replan if the execution time doubles or halves, must be more than 0
+   */
+  public void setReplanThreshold(final double replanThreshold) {
+    ArgumentChecker.isTrue(replanThreshold > 0, "replanThreshold");
+    _replanThreshold = replanThreshold;
+  }
+
+  /**
+   * Returns the relative change in the execution time of a cached plan that will cause it to be discarded and a new plan created.
+   * 
+   * @return the relative change
+   * @see #setReplanThreshold
+   */
+  public double getReplanThreshold() {
+    return _replanThreshold;
+  }
+
+  /**
+   * Sets the number of executions of a cached plan to ignore before recording the execution time that later executions are compared against. The first
+   * executions include JIT compilation of the functions and other code they run, so are slower than those that follow.
+   * 
+   * @param replanWarmUpExecutions the number of executions to ignore, not negative
+   */
+  public void setReplanWarmUpExecutions(final int replanWarmUpExecutions) {
+    _replanWarmUpExecutions = ArgumentChecker.notNegative(replanWarmUpExecutions, "replanWarmUpExecutions");
+  }
+
+  /**
+   * Returns the number of executions of a cached plan to ignore before recording the execution time that later executions are compared against.
+   * 
+   * @return the number of executions
+   * @see #setReplanWarmUpExecutions
+   */
+  public int getReplanWarmUpExecutions() {
+    return _replanWarmUpExecutions;
+  }
+
   public synchronized void invalidate() {
     if (_cache != null) {
       s_logger.info("Clearing execution plan cache of {} items", _cache.getSize());
@@ -119,16 +162,22 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     CacheKey key = new CacheKey(graph, functionInitId, sharedValues, parameters);
     final Element element = _cache.get(key);
     if (element != null) {
-      s_logger.debug("Cache hit");
-      return ((GraphExecutionPlan) element.getObjectValue()).withCalculationConfiguration(graph.getCalculationConfigurationName());
+      final GraphExecutionPlan plan = (GraphExecutionPlan) element.getObjectValue();
+      if (!plan.isDurationChanged(getReplanThreshold(), getReplanWarmUpExecutions())) {
+        s_logger.debug("Cache hit");
+        return plan.withCalculationConfiguration(graph.getCalculationConfigurationName());
+      }
+      s_logger.info("Discarding cached execution plan for {}; execution time has changed significantly", graph);
     } else {
       s_logger.debug("Cache miss");
-      final GraphExecutionPlan plan = _underlying.createPlan(graph, logModeSource, functionInitId, sharedValues, parameters);
-      if (plan != null) {
-        _cache.put(new Element(key, plan));
-      }
-      return plan;
     }
+    final GraphExecutionPlan plan = _underlying.createPlan(graph, logModeSource, functionInitId, sharedValues, parameters);
+    if (plan != null) {
+      _cache.put(new Element(key, plan));
+    } else if (element != null) {
+      _cache.remove(key);
+    }
+    return plan;
   }
 
   /**
@@ -138,6 +187,4 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     _cache.getCacheManager().removeCache(CACHE_NAME);
   }
 
-  // TODO [ENG-269] If the function costs change significantly, invalidate the execution plan cache.
-
 }
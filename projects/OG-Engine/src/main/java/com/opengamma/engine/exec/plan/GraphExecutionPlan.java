@@ -5,16 +5,28 @@
  */
 package com.opengamma.engine.exec.plan;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.threeten.bp.Instant;
 
+import com.opengamma.engine.calcnode.CalculationJobItem;
 import com.opengamma.engine.exec.stats.GraphExecutorStatisticsGatherer;
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
@@ -36,6 +48,15 @@ public class GraphExecutionPlan implements Serializable {
   private final double _meanJobSize;
   private final double _meanJobCycleCost;
   private final double _meanJobIOCost;
+  private final double _estimatedDuration;
+  /**
+   * The baseline, and most recent, execution durations of the plan in nanoseconds, or -1 if not yet recorded. These are shared with any copies of the plan.
+   */
+  private final AtomicLongArray _actualDuration;
+  /**
+   * The number of times the plan has been executed. This is shared with any copies of the plan.
+   */
+  private final AtomicInteger _executionCount;
 
   /**
    * Creates a new execution plan.
@@ -50,6 +71,23 @@ public class GraphExecutionPlan implements Serializable {
    */
   public GraphExecutionPlan(final String calculationConfiguration, final long functionInitializationId, final Collection<PlannedJob> leafJobs, final int totalJobs, final double meanJobSize,
       final double meanJobCycleCost, final double meanJobIOCost) {
+    this(calculationConfiguration, functionInitializationId, leafJobs, totalJobs, meanJobSize, meanJobCycleCost, meanJobIOCost, Double.NaN);
+  }
+
+  /**
+   * Creates a new execution plan.
+   * 
+   * @param calculationConfiguration the configuration name, not null - this will be used for constructing job specifications
+   * @param functionInitializationId [PLAT-2241] this will go soon
+   * @param leafJobs the jobs that will execute first, not null and not containing null - these will refer to other jobs that form part of the full plan
+   * @param totalJobs the total number of jobs in the plan
+   * @param meanJobSize the mean job size
+   * @param meanJobCycleCost the mean of each job's CPU cost
+   * @param meanJobIOCost the mean of each job's I/O cost
+   * @param estimatedDuration the estimated time to execute the plan in nanoseconds, or {@code NaN} if not available
+   */
+  public GraphExecutionPlan(final String calculationConfiguration, final long functionInitializationId, final Collection<PlannedJob> leafJobs, final int totalJobs, final double meanJobSize,
+      final double meanJobCycleCost, final double meanJobIOCost, final double estimatedDuration) {
     ArgumentChecker.notNull(calculationConfiguration, "calculationConfiguration");
     ArgumentChecker.notNull(leafJobs, "leafJobs");
     assert !leafJobs.contains(null);
@@ -60,6 +98,9 @@ public class GraphExecutionPlan implements Serializable {
     _meanJobSize = meanJobSize;
     _meanJobCycleCost = meanJobCycleCost;
     _meanJobIOCost = meanJobIOCost;
+    _estimatedDuration = estimatedDuration;
+    _actualDuration = new AtomicLongArray(new long[] {-1, -1 });
+    _executionCount = new AtomicInteger();
   }
 
   protected GraphExecutionPlan(final String calculationConfiguration, final GraphExecutionPlan copyFrom) {
@@ -71,6 +112,9 @@ public class GraphExecutionPlan implements Serializable {
     _meanJobSize = copyFrom._meanJobSize;
     _meanJobCycleCost = copyFrom._meanJobCycleCost;
     _meanJobIOCost = copyFrom._meanJobIOCost;
+    _estimatedDuration = copyFrom._estimatedDuration;
+    _actualDuration = copyFrom._actualDuration;
+    _executionCount = copyFrom._executionCount;
   }
 
   /**
@@ -119,6 +163,42 @@ public class GraphExecutionPlan implements Serializable {
     return _meanJobIOCost;
   }
 
+  /**
+   * Returns the estimated time to execute the plan, assuming the jobs are distributed in the way the planner intended.
+   * 
+   * @return the estimated duration in nanoseconds, or {@code NaN} if not available
+   */
+  public double getEstimatedDuration() {
+    return _estimatedDuration;
+  }
+
+  /**
+   * Tests whether the time to execute the plan has changed significantly since its baseline execution. This suggests that the function costs, or the calculation nodes available, have changed since
+   * the plan was created and a new plan may perform better.
+   * <p>
+   * The first executions of a plan are slower while the JIT compiler is still warming up the code they run, so these are skipped. The baseline is the most
+   * recent duration at the first test after the warm-up executions have completed; until then the duration is never reported as changed.
+   * 
+   * @param threshold the relative change in duration that is significant, for example 1 if the duration doubling (or halving) is significant
+   * @param warmUpExecutions the number of initial executions to ignore, not negative
+   * @return true if the duration of the most recent execution differs from the baseline by more than the threshold, false otherwise
+   */
+  public boolean isDurationChanged(final double threshold, final int warmUpExecutions) {
+    if (_executionCount.get() <= warmUpExecutions) {
+      return false;
+    }
+    final long last = _actualDuration.get(1);
+    if (last <= 0) {
+      return false;
+    }
+    if (_actualDuration.compareAndSet(0, -1, last)) {
+      return false;
+    }
+    final long first = _actualDuration.get(0);
+    final double ratio = (double) last / (double) first;
+    return (ratio > 1 + threshold) || (ratio * (1 + threshold) < 1);
+  }
+
   /**
    * Creates an execution state from the plan. The state may be used to deliver executable jobs that can be used to evaluate the graph that this plan represents.
    * 
@@ -131,10 +211,55 @@ public class GraphExecutionPlan implements Serializable {
     return new ExecutingGraph(this, cycleId, valuationTime, resolverVersionCorrection);
   }
 
+  /**
+   * Counts the job items in the plan that consume each value as an input. A value that is produced by the plan and absent from the result is not consumed by
+   * any other job item, so will only be needed for the results of the cycle.
+   * 
+   * @return the number of consuming job items for each input value, not null
+   */
+  public Object2IntMap<ValueSpecification> getInputConsumerCounts() {
+    final Object2IntMap<ValueSpecification> counts = new Object2IntOpenHashMap<ValueSpecification>();
+    final Set<PlannedJob> visited = new HashSet<PlannedJob>();
+    final Deque<PlannedJob> pending = new ArrayDeque<PlannedJob>(getLeafJobs());
+    while (!pending.isEmpty()) {
+      final PlannedJob job = pending.removeFirst();
+      if (!visited.add(job)) {
+        continue;
+      }
+      for (CalculationJobItem item : job.getItems()) {
+        for (ValueSpecification input : item.getInputs()) {
+          counts.put(input, counts.getInt(input) + 1);
+        }
+      }
+      if (job.getTails() != null) {
+        Collections.addAll(pending, job.getTails());
+      }
+      if (job.getDependents() != null) {
+        Collections.addAll(pending, job.getDependents());
+      }
+    }
+    return counts;
+  }
+
   public void reportStatistics(final GraphExecutorStatisticsGatherer statistics) {
     statistics.graphProcessed(getCalculationConfiguration(), getTotalJobs(), getMeanJobSize(), getMeanJobCycleCost(), getMeanJobIOCost());
   }
 
+  /**
+   * Records an execution of the plan, reporting the actual duration against the estimate.
+   * 
+   * @param statistics the statistics gatherer to report to, not null
+   * @param nodeCount the number of nodes executed
+   * @param executionTime the total reported execution time of the jobs, in nanoseconds
+   * @param duration the time from first starting the plan to its completion, in nanoseconds
+   */
+  public void reportExecution(final GraphExecutorStatisticsGatherer statistics, final int nodeCount, final long executionTime, final long duration) {
+    // Record the duration before the count so that a count past the warm-up never exposes a warm-up duration
+    _actualDuration.set(1, duration);
+    _executionCount.incrementAndGet();
+    statistics.graphExecuted(getCalculationConfiguration(), nodeCount, executionTime, duration, getEstimatedDuration());
+  }
+
   public void print(final PrintStream out) {
     out.println(getCalculationConfiguration() + ", " + getTotalJobs() + " job(s)");
     final Map<PlannedJob, Integer> jobs = new HashMap<PlannedJob, Integer>();
@@ -48,11 +48,17 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   private static final Logger s_logger = LoggerFactory.getLogger(MultipleNodeExecutionPlanner.class);
   private static final GraphExecutionPlanner s_smallJobPlanner = new SingleNodeExecutionPlanner();
 
+  /**
+   * The number of jobs for each node that merging fragments with shared inputs should leave when the node count is known.
+   */
+  private static final int JOBS_PER_NODE = 4;
+
   private int _minimumJobItems = 1;
   private int _maximumJobItems = Integer.MAX_VALUE;
   private long _minimumJobCost;
   private long _maximumJobCost = Long.MAX_VALUE;
   private int _maximumConcurrency = Integer.MAX_VALUE;
+  private int _nodeCount;
   private FunctionCosts _functionCosts = new FunctionCosts();
 
   /**
@@ -163,6 +169,29 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     return _maximumConcurrency;
   }
 
+  /**
+   * Sets the number of calculation nodes that jobs will be distributed over.
+   * <p>
+   * When set, the estimated cost of jobs formed by merging fragments that would otherwise execute concurrently is limited to a share of the total graph cost so that there are enough jobs to keep
+   * all of the nodes busy.
+   * 
+   * @param nodeCount the number of calculation nodes, or 0 if not known
+   */
+  public void setNodeCount(final int nodeCount) {
+    ArgumentChecker.isTrue(nodeCount >= 0, "nodeCount");
+    _nodeCount = nodeCount;
+  }
+
+  /**
+   * Returns the number of calculation nodes that jobs will be distributed over.
+   * 
+   * @return the number of calculation nodes, or 0 if not known
+   * @see #setNodeCount
+   */
+  public int getNodeCount() {
+    return _nodeCount;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     ArgumentChecker.notNull(functionCosts, "functionCosts");
     _functionCosts = functionCosts;
@@ -243,7 +272,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   /**
    * Finds pairs of nodes with the same input set (i.e. that would execute concurrently) that are below the minimum job size and merge them together.
    */
-  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments) {
+  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments, final long maximumJobCost) {
     final Map<Set<GraphFragment>, GraphFragment> possibleCandidates = new HashMap<Set<GraphFragment>, GraphFragment>();
     final Map<GraphFragment, GraphFragment> validCandidates = new HashMap<GraphFragment, GraphFragment>();
     boolean result = false;
@@ -260,7 +289,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
         }
         final GraphFragment mergeCandidate = possibleCandidates.get(fragment.getInputFragments());
         if (mergeCandidate != null) {
-          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), getMaximumJobCost())) {
+          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), maximumJobCost)) {
             // Defer the merge because we're iterating through the dependent's inputs at the moment
             validCandidates.put(fragment, mergeCandidate);
             // Stop using the merge candidate
@@ -306,6 +335,51 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     } while (true);
   }
 
+  /**
+   * Calculates the maximum cost of a job formed by merging fragments with the same input set. Such fragments could otherwise execute concurrently on different nodes so merging them lengthens the
+   * critical path through the graph unless there is more work than the nodes can run in parallel. Merges are therefore limited to a share of the total graph cost that still leaves a few jobs for
+   * each node to balance the load with.
+   * 
+   * @param allFragments the initial fragments, not null
+   * @return the maximum cost of a merged job
+   */
+  private long getSharedInputJobCost(final Collection<GraphFragment> allFragments) {
+    if (getNodeCount() <= 0) {
+      return getMaximumJobCost();
+    }
+    long totalCost = 0;
+    for (GraphFragment fragment : allFragments) {
+      totalCost += fragment.getJobCost();
+    }
+    final long balancedCost = Math.max(getMinimumJobCost(), totalCost / ((long) getNodeCount() * JOBS_PER_NODE));
+    return Math.min(getMaximumJobCost(), balancedCost);
+  }
+
+  /**
+   * Estimates the time to execute the fragments on the available nodes. This is the longer of the critical path through the fragments and the total cost divided evenly between the nodes.
+   * <p>
+   * This must be called after the fragments are final as the start time of each is cached when it is first calculated.
+   * 
+   * @param allFragments the final fragments, not null
+   * @return the estimated duration, in nanoseconds
+   */
+  private double estimateDuration(final Collection<GraphFragment> allFragments) {
+    long criticalPath = 0;
+    long totalCost = 0;
+    for (GraphFragment fragment : allFragments) {
+      final long finish = fragment.getStartTime() + fragment.getJobCost();
+      if (finish > criticalPath) {
+        criticalPath = finish;
+      }
+      totalCost += fragment.getJobCost();
+    }
+    if (getNodeCount() > 0) {
+      return Math.max(criticalPath, (double) totalCost / (double) getNodeCount());
+    } else {
+      return criticalPath;
+    }
+  }
+
   /**
    * If a fragment has only one dependency, and both it and its dependent are below the maximum job size they are merged.
    */
@@ -461,9 +535,10 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     final Set<GraphFragment> rootFragments = createGraphFragments(graph, gatherer);
     final Set<GraphFragment> allFragments = gatherer.getAllFragments();
     gatherer = null;
+    final long sharedInputJobCost = getSharedInputJobCost(allFragments);
     int failCount = 0;
     do {
-      if (mergeSharedInputs(rootFragments, allFragments)) {
+      if (mergeSharedInputs(rootFragments, allFragments, sharedInputJobCost)) {
         failCount = 0;
       } else {
         if (++failCount >= 2) {
@@ -479,6 +554,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
       }
     } while (true);
     findTailFragments(allFragments);
+    final double estimatedDuration = estimateDuration(allFragments);
     exportPrivateValues(context, allFragments);
     long totalSize = 0;
     long totalInvocationCost = 0;
@@ -495,7 +571,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     }
     final int totalJobs = allFragments.size();
     return new GraphExecutionPlan(graph.getCalculationConfigurationName(), functionInitializationId, jobs, allFragments.size(), (double) totalSize / (double) totalJobs,
-        (double) totalInvocationCost / (double) totalJobs, (double) totalDataCost / (double) totalJobs);
+        (double) totalInvocationCost / (double) totalJobs, (double) totalDataCost / (double) totalJobs, estimatedDuration);
   }
 
   // GraphExecutionPlanner
@@ -19,7 +19,7 @@ public class DiscardingGraphStatisticsGathererProvider implements GraphExecutorS
   public static final GraphExecutorStatisticsGatherer GATHERER_INSTANCE = new GraphExecutorStatisticsGatherer() {
 
     @Override
-    public void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration) {
+    public void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration, double estimatedDuration) {
       // No action
     }
 
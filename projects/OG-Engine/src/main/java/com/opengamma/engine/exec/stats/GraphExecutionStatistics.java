@@ -24,6 +24,9 @@ public class GraphExecutionStatistics {
   private final AtomicLong _executedNodes = new AtomicLong();
   private final AtomicLong _executionTime = new AtomicLong();
   private final AtomicLong _actualTime = new AtomicLong();
+  private final AtomicLong _estimatedGraphs = new AtomicLong();
+  private final AtomicLong _estimatedTime = new AtomicLong();
+  private final AtomicLong _estimatedActualTime = new AtomicLong();
   private final AtomicLong _processedJobs = new AtomicLong();
   private final AtomicLong _processedJobSize = new AtomicLong();
   private final AtomicLong _processedJobCycleCost = new AtomicLong();
@@ -64,6 +67,33 @@ public class GraphExecutionStatistics {
     return _actualTime.get();
   }
 
+  /**
+   * Returns the number of executed graphs that had an estimated duration.
+   * 
+   * @return the number of graphs
+   */
+  public long getEstimatedGraphs() {
+    return _estimatedGraphs.get();
+  }
+
+  /**
+   * Returns the total estimated duration of the executed graphs that had one.
+   * 
+   * @return the estimated time in nanoseconds
+   */
+  public long getEstimatedTime() {
+    return _estimatedTime.get();
+  }
+
+  /**
+   * Returns the total actual duration of the executed graphs that had an estimated duration. This can be compared with {@link #getEstimatedTime}.
+   * 
+   * @return the actual time in nanoseconds
+   */
+  public long getEstimatedActualTime() {
+    return _estimatedActualTime.get();
+  }
+
   public long getProcessedJobs() {
     return _processedJobs.get();
   }
@@ -115,6 +145,29 @@ public class GraphExecutionStatistics {
     }
   }
 
+  public double getAverageEstimatedTime() {
+    final long executions = getEstimatedGraphs();
+    if (executions > 0) {
+      return (double) getEstimatedTime() / (double) executions / 1e9;
+    } else {
+      return 0;
+    }
+  }
+
+  /**
+   * Returns the ratio of the actual to the estimated durations of executed graphs. A value above 1 means that the graphs are taking longer to execute than their plans predicted.
+   * 
+   * @return the ratio, or {@code NaN} if no graphs with estimated durations have been executed
+   */
+  public double getEstimateRatio() {
+    final long estimatedTime = getEstimatedTime();
+    if (estimatedTime > 0) {
+      return (double) getEstimatedActualTime() / (double) estimatedTime;
+    } else {
+      return Double.NaN;
+    }
+  }
+
   public double getAverageJobSize() {
     final long executions = getProcessedGraphs();
     if (executions > 0) {
@@ -142,11 +195,16 @@ public class GraphExecutionStatistics {
     }
   }
 
-  public void recordExecution(final int nodeCount, final long executionTime, final long duration) {
+  public void recordExecution(final int nodeCount, final long executionTime, final long duration, final double estimatedDuration) {
     _executedGraphs.incrementAndGet();
     _executedNodes.addAndGet(nodeCount);
     _executionTime.addAndGet(executionTime);
     _actualTime.addAndGet(duration);
+    if (!Double.isNaN(estimatedDuration)) {
+      _estimatedGraphs.incrementAndGet();
+      _estimatedTime.addAndGet((long) estimatedDuration);
+      _estimatedActualTime.addAndGet(duration);
+    }
     _lastExecutedTime = Instant.now();
   }
 
@@ -171,6 +229,9 @@ public class GraphExecutionStatistics {
     _executedNodes.set(0);
     _executionTime.set(0);
     _actualTime.set(0);
+    _estimatedGraphs.set(0);
+    _estimatedTime.set(0);
+    _estimatedActualTime.set(0);
     _processedJobs.set(0);
     _processedJobSize.set(0);
     _processedJobCycleCost.set(0);
@@ -187,6 +248,9 @@ public class GraphExecutionStatistics {
     decay(_executedNodes, factor);
     decay(_executionTime, factor);
     decay(_actualTime, factor);
+    decay(_estimatedGraphs, factor);
+    decay(_estimatedTime, factor);
+    decay(_estimatedActualTime, factor);
     decay(_processedJobs, factor);
     decay(_processedJobSize, factor);
     decay(_processedJobCycleCost, factor);
@@ -205,6 +269,9 @@ public class GraphExecutionStatistics {
     _executedNodes.set(other.getExecutedNodes());
     _executionTime.set(other.getExecutionTime());
     _actualTime.set(other.getActualTime());
+    _estimatedGraphs.set(other.getEstimatedGraphs());
+    _estimatedTime.set(other.getEstimatedTime());
+    _estimatedActualTime.set(other.getEstimatedActualTime());
     _processedJobs.set(other.getProcessedJobs());
     _processedJobSize.set(other.getProcessedJobSize());
     _processedJobCycleCost.set(other.getProcessedJobCycleCost());
@@ -217,6 +284,9 @@ public class GraphExecutionStatistics {
     _executedNodes.set(future.getExecutedNodes() - getExecutedNodes());
     _executionTime.set(future.getExecutionTime() - getExecutionTime());
     _actualTime.set(future.getActualTime() - getActualTime());
+    _estimatedGraphs.set(future.getEstimatedGraphs() - getEstimatedGraphs());
+    _estimatedTime.set(future.getEstimatedTime() - getEstimatedTime());
+    _estimatedActualTime.set(future.getEstimatedActualTime() - getEstimatedActualTime());
     _processedJobs.set(future.getProcessedJobs() - getProcessedJobs());
     _processedJobSize.set(future.getProcessedJobSize() - getProcessedJobSize());
     _processedJobCycleCost.set(future.getProcessedJobCycleCost() - getProcessedJobCycleCost());
@@ -32,7 +32,8 @@ public interface GraphExecutorStatisticsGatherer {
    * @param nodeCount Total number of nodes in the graph.
    * @param executionTime Total reported execution time, in nanoseconds.
    * @param duration Time from first starting graph processing to completion.
+   * @param estimatedDuration Time estimated for the graph by the execution planner, in nanoseconds, or {@code NaN} if not available
    */
-  void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration);
+  void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration, double estimatedDuration);
 
 }
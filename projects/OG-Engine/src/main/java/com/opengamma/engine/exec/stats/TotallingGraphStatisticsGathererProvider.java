@@ -47,8 +47,8 @@ public class TotallingGraphStatisticsGathererProvider extends PerViewStatisticsG
     }
 
     @Override
-    public void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration) {
-      getOrCreateConfiguration(calcConfig).recordExecution(nodeCount, executionTime, duration);
+    public void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration, double estimatedDuration) {
+      getOrCreateConfiguration(calcConfig).recordExecution(nodeCount, executionTime, duration, estimatedDuration);
     }
 
     @Override
@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.types.IndicatorType;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.exec.DefaultAggregatedExecutionLog;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel.CalculationResult;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel.Column;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.fudgemsg.WriteReplaceHelper;
+
+/**
+ * Fudge message builder for {@link ColumnarViewComputationResultModel}.
+ * <p>
+ * The message keeps the columnar layout of the model. Each target is written once per calculation configuration, the value name and properties once per
+ * column, and the scalar values of a column as a single primitive array. Execution logs and compute node identifiers are written once per column with each
+ * row holding an index into that table.
+ */
+@FudgeBuilderFor(ColumnarViewComputationResultModel.class)
+public class ColumnarViewComputationResultModelFudgeBuilder implements FudgeBuilder<ColumnarViewComputationResultModel> {
+
+  private static final String FIELD_RESULTS = "columnarResults";
+  private static final String FIELD_LIVEDATA = "liveData";
+  private static final String FIELD_TARGETS = "targets";
+  private static final String FIELD_COLUMN = "column";
+  private static final String FIELD_VALUE_NAME = "name";
+  private static final String FIELD_PROPERTIES = "properties";
+  private static final String FIELD_ROWS = "rows";
+  private static final String FIELD_DOUBLES = "doubles";
+  private static final String FIELD_OBJECT_ROWS = "objectRows";
+  private static final String FIELD_OBJECTS = "objects";
+  private static final String FIELD_LOGS = "logs";
+  private static final String FIELD_LOG_INDEX = "logIndex";
+  private static final String FIELD_COMPUTE_NODES = "computeNodes";
+  private static final String FIELD_COMPUTE_NODE_INDEX = "computeNodeIndex";
+  private static final String FIELD_INVOCATION_RESULTS = "invocationResults";
+  private static final String FIELD_MISSING_INPUTS = "missingInputs";
+  private static final String FIELD_ROW = "row";
+
+  private static final InvocationResult[] INVOCATION_RESULTS = InvocationResult.values();
+
+  @Override
+  public MutableFudgeMsg buildMessage(final FudgeSerializer serializer, final ColumnarViewComputationResultModel resultModel) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    message.add(ViewResultModelFudgeBuilder.FIELD_VIEWPROCESSID, resultModel.getViewProcessId());
+    message.add(ViewResultModelFudgeBuilder.FIELD_VIEWCYCLEID, resultModel.getViewCycleId());
+    message.add(ViewResultModelFudgeBuilder.FIELD_CALCULATION_TIME, resultModel.getCalculationTime());
+    serializer.addToMessage(message, ViewResultModelFudgeBuilder.FIELD_VIEW_CYCLE_EXECUTION_OPTIONS, null, resultModel.getViewCycleExecutionOptions());
+    serializer.addToMessage(message, ViewResultModelFudgeBuilder.FIELD_CALCULATION_DURATION, null, resultModel.getCalculationDuration());
+    serializer.addToMessage(message, ViewResultModelFudgeBuilder.FIELD_VERSION_CORRECTION, null, resultModel.getVersionCorrection());
+    final MutableFudgeMsg resultsMsg = message.addSubMessage(FIELD_RESULTS, null);
+    for (String calculationConfiguration : resultModel.getCalculationConfigurationNames()) {
+      resultsMsg.add(null, 1, calculationConfiguration);
+      resultsMsg.add(null, 2, buildCalculationResultMessage(serializer, resultModel.getCalculationResult(calculationConfiguration)));
+    }
+    final MutableFudgeMsg liveDataMsg = message.addSubMessage(FIELD_LIVEDATA, null);
+    for (final ComputedValue value : resultModel.getAllMarketData()) {
+      serializer.addToMessage(liveDataMsg, null, 1, value);
+    }
+    return message;
+  }
+
+  private static MutableFudgeMsg buildCalculationResultMessage(final FudgeSerializer serializer, final CalculationResult result) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    final MutableFudgeMsg targetsMsg = message.addSubMessage(FIELD_TARGETS, null);
+    for (ComputationTargetSpecification target : result.getTargets()) {
+      serializer.addToMessage(targetsMsg, null, null, target);
+    }
+    for (Column column : result.getColumns().values()) {
+      message.add(FIELD_COLUMN, buildColumnMessage(serializer, column));
+    }
+    return message;
+  }
+
+  private static MutableFudgeMsg buildColumnMessage(final FudgeSerializer serializer, final Column column) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    message.add(FIELD_VALUE_NAME, column.getValueName());
+    serializer.addToMessage(message, FIELD_PROPERTIES, null, column.getProperties());
+    final IntArrayList rows = new IntArrayList();
+    final DoubleArrayList doubles = new DoubleArrayList();
+    final IntArrayList objectRows = new IntArrayList();
+    final MutableFudgeMsg objectsMsg = serializer.newMessage();
+    final Object2IntOpenHashMap<AggregatedExecutionLog> logs = new Object2IntOpenHashMap<AggregatedExecutionLog>();
+    final IntArrayList logIndex = new IntArrayList();
+    final Object2IntOpenHashMap<String> computeNodes = new Object2IntOpenHashMap<String>();
+    final IntArrayList computeNodeIndex = new IntArrayList();
+    final IntArrayList invocationResults = new IntArrayList();
+    boolean anyInvocationResults = false;
+    final MutableFudgeMsg logsMsg = serializer.newMessage();
+    final MutableFudgeMsg computeNodesMsg = serializer.newMessage();
+    final MutableFudgeMsg missingInputsMsg = serializer.newMessage();
+    for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+      rows.add(row);
+      if (column.isDouble(row)) {
+        doubles.add(column.getDouble(row));
+      } else {
+        objectRows.add(row);
+        final Object value = column.getValue(row);
+        if (value != null) {
+          serializer.addToMessageWithClassHeaders(objectsMsg, null, null, WriteReplaceHelper.writeReplace(value));
+        } else {
+          objectsMsg.add(null, null, IndicatorType.INSTANCE);
+        }
+      }
+      final AggregatedExecutionLog log = column.getAggregatedExecutionLog(row);
+      if (!logs.containsKey(log)) {
+        logs.put(log, logs.size());
+        serializer.addToMessage(logsMsg, null, null, log);
+      }
+      logIndex.add(logs.getInt(log));
+      final String computeNodeId = column.getComputeNodeId(row);
+      if (computeNodeId != null) {
+        if (!computeNodes.containsKey(computeNodeId)) {
+          computeNodes.put(computeNodeId, computeNodes.size());
+          computeNodesMsg.add(null, null, computeNodeId);
+        }
+        computeNodeIndex.add(computeNodes.getInt(computeNodeId));
+      } else {
+        computeNodeIndex.add(-1);
+      }
+      final InvocationResult invocationResult = column.getInvocationResult(row);
+      if (invocationResult != null) {
+        invocationResults.add(invocationResult.ordinal());
+        anyInvocationResults = true;
+      } else {
+        invocationResults.add(-1);
+      }
+      final Set<ValueSpecification> missingInputs = column.getMissingInputs(row);
+      if (missingInputs != null) {
+        final MutableFudgeMsg missingInputMsg = missingInputsMsg.addSubMessage(null, null);
+        missingInputMsg.add(FIELD_ROW, row);
+        for (ValueSpecification missingInput : missingInputs) {
+          serializer.addToMessage(missingInputMsg, null, 1, missingInput);
+        }
+      }
+    }
+    message.add(FIELD_ROWS, rows.toIntArray());
+    if (!doubles.isEmpty()) {
+      message.add(FIELD_DOUBLES, doubles.toDoubleArray());
+    }
+    if (!objectRows.isEmpty()) {
+      message.add(FIELD_OBJECT_ROWS, objectRows.toIntArray());
+      message.add(FIELD_OBJECTS, objectsMsg);
+    }
+    message.add(FIELD_LOGS, logsMsg);
+    if (logs.size() > 1) {
+      message.add(FIELD_LOG_INDEX, logIndex.toIntArray());
+    }
+    if (!computeNodes.isEmpty()) {
+      message.add(FIELD_COMPUTE_NODES, computeNodesMsg);
+      message.add(FIELD_COMPUTE_NODE_INDEX, computeNodeIndex.toIntArray());
+    }
+    if (anyInvocationResults) {
+      message.add(FIELD_INVOCATION_RESULTS, invocationResults.toIntArray());
+    }
+    if (missingInputsMsg.getNumFields() > 0) {
+      message.add(FIELD_MISSING_INPUTS, missingInputsMsg);
+    }
+    return message;
+  }
+
+  @Override
+  public ColumnarViewComputationResultModel buildObject(final FudgeDeserializer deserializer, final FudgeMsg message) {
+    final ColumnarViewComputationResultModel resultModel = new ColumnarViewComputationResultModel();
+    resultModel.setViewProcessId(message.getValue(UniqueId.class, ViewResultModelFudgeBuilder.FIELD_VIEWPROCESSID));
+    resultModel.setViewCycleId(message.getValue(UniqueId.class, ViewResultModelFudgeBuilder.FIELD_VIEWCYCLEID));
+    resultModel.setViewCycleExecutionOptions(deserializer.fieldValueToObject(ViewCycleExecutionOptions.class,
+        message.getByName(ViewResultModelFudgeBuilder.FIELD_VIEW_CYCLE_EXECUTION_OPTIONS)));
+    resultModel.setCalculationTime(message.getFieldValue(Instant.class, message.getByName(ViewResultModelFudgeBuilder.FIELD_CALCULATION_TIME)));
+    final FudgeField durationField = message.getByName(ViewResultModelFudgeBuilder.FIELD_CALCULATION_DURATION);
+    resultModel.setCalculationDuration(durationField != null ? deserializer.fieldValueToObject(Duration.class, durationField) : null);
+    resultModel.setVersionCorrection(deserializer.fieldValueToObject(VersionCorrection.class, message.getByName(ViewResultModelFudgeBuilder.FIELD_VERSION_CORRECTION)));
+    final FudgeMsg resultsMsg = message.getMessage(FIELD_RESULTS);
+    String calculationConfiguration = null;
+    for (FudgeField field : resultsMsg) {
+      if (field.getOrdinal() == 1) {
+        calculationConfiguration = resultsMsg.getFieldValue(String.class, field);
+      } else if (field.getOrdinal() == 2) {
+        final CalculationResult result = resultModel.getOrCreateCalculationResult(calculationConfiguration);
+        buildCalculationResult(deserializer, (FudgeMsg) field.getValue(), result);
+        resultModel.updateTargets(result);
+      }
+    }
+    for (FudgeField field : message.getMessage(FIELD_LIVEDATA)) {
+      resultModel.addMarketData(deserializer.fieldValueToObject(ComputedValue.class, field));
+    }
+    return resultModel;
+  }
+
+  private static void buildCalculationResult(final FudgeDeserializer deserializer, final FudgeMsg message, final CalculationResult result) {
+    final List<ComputationTargetSpecification> targets = new ArrayList<ComputationTargetSpecification>();
+    for (FudgeField field : message.getMessage(FIELD_TARGETS)) {
+      targets.add(deserializer.fieldValueToObject(ComputationTargetSpecification.class, field));
+    }
+    // Rows are written in target index order, so the first row allocated for each target matches the row it was written with
+    final int[] rowMap = new int[targets.size()];
+    for (int i = 0; i < rowMap.length; i++) {
+      rowMap[i] = result.getOrCreateRow(targets.get(i));
+    }
+    for (FudgeField field : message.getAllByName(FIELD_COLUMN)) {
+      buildColumn(deserializer, (FudgeMsg) field.getValue(), result, rowMap);
+    }
+  }
+
+  private static void buildColumn(final FudgeDeserializer deserializer, final FudgeMsg message, final CalculationResult result, final int[] rowMap) {
+    final String valueName = message.getString(FIELD_VALUE_NAME);
+    final ValueProperties properties = deserializer.fieldValueToObject(ValueProperties.class, message.getByName(FIELD_PROPERTIES));
+    final Column column = result.getOrCreateColumn(valueName, properties);
+    final int[] rows = message.getValue(int[].class, FIELD_ROWS);
+    final double[] doubles = message.getValue(double[].class, FIELD_DOUBLES);
+    final int[] objectRows = message.getValue(int[].class, FIELD_OBJECT_ROWS);
+    final List<FudgeField> objects = (objectRows != null) ? message.getMessage(FIELD_OBJECTS).getAllFields() : null;
+    final List<AggregatedExecutionLog> logs = new ArrayList<AggregatedExecutionLog>();
+    for (FudgeField field : message.getMessage(FIELD_LOGS)) {
+      logs.add(deserializer.fieldValueToObject(DefaultAggregatedExecutionLog.class, field));
+    }
+    final int[] logIndex = message.getValue(int[].class, FIELD_LOG_INDEX);
+    final List<String> computeNodes = new ArrayList<String>();
+    final FudgeMsg computeNodesMsg = message.getMessage(FIELD_COMPUTE_NODES);
+    if (computeNodesMsg != null) {
+      for (FudgeField field : computeNodesMsg) {
+        computeNodes.add(computeNodesMsg.getFieldValue(String.class, field));
+      }
+    }
+    final int[] computeNodeIndex = message.getValue(int[].class, FIELD_COMPUTE_NODE_INDEX);
+    final int[] invocationResults = message.getValue(int[].class, FIELD_INVOCATION_RESULTS);
+    final Map<Integer, Set<ValueSpecification>> missingInputs = new HashMap<Integer, Set<ValueSpecification>>();
+    final FudgeMsg missingInputsMsg = message.getMessage(FIELD_MISSING_INPUTS);
+    if (missingInputsMsg != null) {
+      for (FudgeField field : missingInputsMsg) {
+        final FudgeMsg missingInputMsg = (FudgeMsg) field.getValue();
+        final Set<ValueSpecification> specs = new HashSet<ValueSpecification>();
+        for (FudgeField specField : missingInputMsg.getAllByOrdinal(1)) {
+          specs.add(deserializer.fieldValueToObject(ValueSpecification.class, specField));
+        }
+        missingInputs.put(missingInputMsg.getInt(FIELD_ROW), specs);
+      }
+    }
+    int doubleIndex = 0;
+    int objectIndex = 0;
+    for (int i = 0; i < rows.length; i++) {
+      final int row = rows[i];
+      final Object value;
+      if ((objectRows != null) && (objectIndex < objectRows.length) && (objectRows[objectIndex] == row)) {
+        final FudgeField field = objects.get(objectIndex++);
+        value = (field.getValue() instanceof IndicatorType) ? null : deserializer.fieldValueToObject(field);
+      } else {
+        value = doubles[doubleIndex++];
+      }
+      final AggregatedExecutionLog log = logs.get((logIndex != null) ? logIndex[i] : 0);
+      final String computeNodeId = ((computeNodeIndex != null) && (computeNodeIndex[i] >= 0)) ? computeNodes.get(computeNodeIndex[i]) : null;
+      final InvocationResult invocationResult = ((invocationResults != null) && (invocationResults[i] >= 0)) ? INVOCATION_RESULTS[invocationResults[i]] : null;
+      column.set(rowMap[row], value, log, computeNodeId, missingInputs.get(row), invocationResult);
+    }
+  }
+
+}
@@ -32,12 +32,12 @@ import com.opengamma.id.VersionCorrection;
  * Base operation for {@link ViewDeltaResultModelFudgeBuilder} and {@link ViewComputationResultModelFudgeBuilder}.
  */
 public abstract class ViewResultModelFudgeBuilder {
-  private static final String FIELD_VIEWPROCESSID = "viewProcessId";
-  private static final String FIELD_VIEWCYCLEID = "viewCycleId";
-  private static final String FIELD_VIEW_CYCLE_EXECUTION_OPTIONS = "viewCycleExecutionOptions";
-  private static final String FIELD_CALCULATION_TIME = "calculationTime";
-  private static final String FIELD_CALCULATION_DURATION = "calculationDuration";
-  private static final String FIELD_VERSION_CORRECTION = "versionCorrection";
+  /* package */static final String FIELD_VIEWPROCESSID = "viewProcessId";
+  /* package */static final String FIELD_VIEWCYCLEID = "viewCycleId";
+  /* package */static final String FIELD_VIEW_CYCLE_EXECUTION_OPTIONS = "viewCycleExecutionOptions";
+  /* package */static final String FIELD_CALCULATION_TIME = "calculationTime";
+  /* package */static final String FIELD_CALCULATION_DURATION = "calculationDuration";
+  /* package */static final String FIELD_VERSION_CORRECTION = "versionCorrection";
   private static final String FIELD_RESULTS = "results";
 
   protected static MutableFudgeMsg createResultModelMessage(final FudgeSerializer serializer, final ViewResultModel resultModel) {
@@ -30,6 +30,10 @@ public interface GraphExecutionStatisticsMBean {
 
   Long getActualTime();
 
+  Long getEstimatedTime();
+
+  Long getEstimatedActualTime();
+
   Long getProcessedJobs();
 
   Long getProcessedJobSize();
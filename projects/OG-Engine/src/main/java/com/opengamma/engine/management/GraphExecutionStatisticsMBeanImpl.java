@@ -123,6 +123,18 @@ public class GraphExecutionStatisticsMBeanImpl implements GraphExecutionStatisti
     return graphExecutionStatistics != null ? graphExecutionStatistics.getActualTime() : 0;  
   }
 
+  @Override
+  public Long getEstimatedTime() {
+    com.opengamma.engine.exec.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getEstimatedTime() : null;
+  }
+
+  @Override
+  public Long getEstimatedActualTime() {
+    com.opengamma.engine.exec.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getEstimatedActualTime() : null;
+  }
+
   @Override
   public Long getProcessedJobs() {
     com.opengamma.engine.exec.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
@@ -18,6 +18,7 @@ import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 import com.opengamma.util.tuple.Pair;
 
@@ -49,6 +50,15 @@ public class ViewDeltaResultCalculator {
       final DeltaDefinition deltaDefinition = viewDefinition.getCalculationConfiguration(calcConfigName).getDeltaDefinition();
       final ViewCalculationResultModel resultCalcModel = result.getCalculationResult(calcConfigName);
       final ViewCalculationResultModel previousCalcModel = previousResult != null ? previousResult.getCalculationResult(calcConfigName) : null;
+      if ((resultCalcModel instanceof ColumnarViewComputationResultModel.CalculationResult)
+          && ((previousCalcModel == null) || (previousCalcModel instanceof ColumnarViewComputationResultModel.CalculationResult))) {
+        // Compare the columns directly rather than creating the values for every target
+        for (ComputedValueResult value : ((ColumnarViewComputationResultModel.CalculationResult) resultCalcModel).computeDelta(
+            (ColumnarViewComputationResultModel.CalculationResult) previousCalcModel, deltaDefinition)) {
+          deltaModel.addValue(calcConfigName, value);
+        }
+        continue;
+      }
       for (ComputationTargetSpecification targetSpec : resultCalcModel.getAllTargets()) {
         computeDeltaModel(deltaDefinition, deltaModel, targetSpec, calcConfigName, previousCalcModel, resultCalcModel);
       }
@@ -29,6 +29,7 @@ import org.threeten.bp.Instant;
 import com.google.common.collect.Maps;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.cache.DefaultViewComputationCache;
 import com.opengamma.engine.cache.MissingInput;
 import com.opengamma.engine.cache.MissingOutput;
 import com.opengamma.engine.cache.ViewComputationCache;
@@ -69,7 +70,9 @@ import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.MutableViewComputationResultModel;
 import com.opengamma.engine.view.impl.ViewProcessContext;
 import com.opengamma.engine.view.listener.ComputationResultListener;
 import com.opengamma.id.UniqueId;
@@ -87,6 +90,13 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   private static final Logger s_logger = LoggerFactory.getLogger(SingleComputationCycle.class);
 
+  /**
+   * Whether to build the cycle results with {@link ColumnarViewComputationResultModel} rather than {@link InMemoryViewComputationResultModel}. The columnar
+   * form holds far fewer objects per value and allows the delta calculation to compare the columns directly. It is off by default until its memory use has
+   * been measured against production views; set the {@code SingleComputationCycle.columnarResults} system property to {@code TRUE} to enable it.
+   */
+  private static final boolean COLUMNAR_RESULTS = System.getProperty("SingleComputationCycle.columnarResults", "FALSE").equalsIgnoreCase("TRUE");
+
   /**
    * The default property used to manipulate all root market data prior to cycle execution.
    */
@@ -119,7 +129,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   private volatile SingleComputationCycleExecutor _executor;
 
   // Output
-  private final InMemoryViewComputationResultModel _resultModel;
+  private final MutableViewComputationResultModel _resultModel;
 
   public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
       final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection) {
@@ -139,8 +149,8 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     _resultModel = constructTemplateResultModel();
   }
 
-  protected InMemoryViewComputationResultModel constructTemplateResultModel() {
-    final InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+  protected MutableViewComputationResultModel constructTemplateResultModel() {
+    final MutableViewComputationResultModel result = COLUMNAR_RESULTS ? new ColumnarViewComputationResultModel() : new InMemoryViewComputationResultModel();
     result.setViewCycleId(getCycleId());
     result.setViewProcessId(getViewProcessId());
     result.setViewCycleExecutionOptions(getExecutionOptions());
@@ -258,7 +268,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   @Override
-  public InMemoryViewComputationResultModel getResultModel() {
+  public MutableViewComputationResultModel getResultModel() {
     return _resultModel;
   }
 
@@ -403,8 +413,8 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * Adds suppressed output markers to the result model for all terminal outputs.
    */
   private void generateSuppressedOutputs() {
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
-    final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
+    final MutableViewComputationResultModel fullResultModel = getResultModel();
+    final MutableViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
     for (CompiledViewCalculationConfiguration compiledCalcConfig : getCompiledViewDefinition().getCompiledCalculationConfigurations()) {
       String calcConfigName = compiledCalcConfig.getName();
       for (ValueSpecification valueSpec : compiledCalcConfig.getTerminalOutputSpecifications().keySet()) {
@@ -459,8 +469,8 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     int missingMarketData = 0;
     final Set<ValueSpecification> allRequiredMarketData = getCompiledViewDefinition().getMarketDataRequirements();
     s_logger.debug("Populating {} market data items using snapshot {}", allRequiredMarketData.size(), snapshot);
-    final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final MutableViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
+    final MutableViewComputationResultModel fullResultModel = getResultModel();
     final Map<ValueSpecification, Object> marketDataValues = snapshot.query(allRequiredMarketData);
     if (suppressExecutionOnNoMarketData && allRequiredMarketData.size() > 0 && marketDataValues.size() == 0) {
       // Market data was expected but the snapshot was empty. Don't bother doing anything else, and indicate that
@@ -546,8 +556,8 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       throw new IllegalArgumentException("State of previous cycle must be " + ViewCycleState.EXECUTED);
     }
     final FunctionParametersDelta parameterDelta = FunctionParametersDelta.of(previousCycle.getExecutionOptions(), getExecutionOptions());
-    final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final MutableViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
+    final MutableViewComputationResultModel fullResultModel = getResultModel();
     final CompiledViewDefinition previousViewDefinition = previousCycle.getCompiledViewDefinition();
     final CompiledViewDefinitionWithGraphs viewDefinition = getCompiledViewDefinition();
     for (final DependencyGraphExplorer depGraphExplorer : viewDefinition.getDependencyGraphExplorers()) {
@@ -591,23 +601,39 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
         jobExecutionResultCache.put(unchangedNode, previousExecutionResult);
       }
       if (!specsToCopy.isEmpty()) {
-        final ComputationCycleQuery reusableResultsQuery = new ComputationCycleQuery();
-        reusableResultsQuery.setCalculationConfigurationName(depGraph.getCalculationConfigurationName());
-        reusableResultsQuery.setValueSpecifications(specsToCopy);
-        final ComputationResultsResponse reusableResultsQueryResponse = previousCycle.queryResults(reusableResultsQuery);
-        final Map<ValueSpecification, ComputedValueResult> resultsToReuse = reusableResultsQueryResponse.getResults();
-        final Collection<ComputedValue> newValues = new ArrayList<>(resultsToReuse.size());
+        // Carry the values across in their encoded form where possible; only results, and anything that can't be carried across, need decoding
+        final Collection<ValueSpecification> notCopied = copySharedValues(previousCache, cache, specsToCopy);
+        final Set<ValueSpecification> specsToPut = new HashSet<>(notCopied);
+        final Collection<ValueSpecification> specsToQuery = new ArrayList<>(notCopied);
         final Map<ValueSpecification, ?> terminalOutputs = depGraph.getTerminalOutputs();
-        for (final ComputedValueResult computedValueResult : resultsToReuse.values()) {
-          final ValueSpecification valueSpec = computedValueResult.getSpecification();
-          if (terminalOutputs.containsKey(valueSpec) && getViewDefinition().getResultModelDefinition().shouldOutputResult(valueSpec, depGraph)) {
-            fragmentResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
-            fullResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
+        for (final ValueSpecification valueSpec : specsToCopy) {
+          if (!specsToPut.contains(valueSpec) && isResult(valueSpec, terminalOutputs, depGraph)) {
+            specsToQuery.add(valueSpec);
+          }
+        }
+        s_logger.debug("Carried {} values across from previous cycle by reference, decoding {}", specsToCopy.size() - notCopied.size(), specsToQuery.size());
+        if (!specsToQuery.isEmpty()) {
+          final ComputationCycleQuery reusableResultsQuery = new ComputationCycleQuery();
+          reusableResultsQuery.setCalculationConfigurationName(depGraph.getCalculationConfigurationName());
+          reusableResultsQuery.setValueSpecifications(specsToQuery);
+          final ComputationResultsResponse reusableResultsQueryResponse = previousCycle.queryResults(reusableResultsQuery);
+          final Map<ValueSpecification, ComputedValueResult> resultsToReuse = reusableResultsQueryResponse.getResults();
+          final Collection<ComputedValue> newValues = new ArrayList<>(specsToPut.size());
+          for (final ComputedValueResult computedValueResult : resultsToReuse.values()) {
+            final ValueSpecification valueSpec = computedValueResult.getSpecification();
+            if (isResult(valueSpec, terminalOutputs, depGraph)) {
+              fragmentResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
+              fullResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
+            }
+            if (specsToPut.contains(valueSpec)) {
+              final Object previousValue = computedValueResult.getValue() != null ? computedValueResult.getValue() : MissingOutput.EVALUATION_ERROR;
+              newValues.add(new ComputedValue(valueSpec, previousValue));
+            }
+          }
+          if (!newValues.isEmpty()) {
+            cache.putSharedValues(newValues);
           }
-          final Object previousValue = computedValueResult.getValue() != null ? computedValueResult.getValue() : MissingOutput.EVALUATION_ERROR;
-          newValues.add(new ComputedValue(valueSpec, previousValue));
         }
-        cache.putSharedValues(newValues);
       }
       if (!errors.isEmpty()) {
         cache.putSharedValues(errors);
@@ -619,6 +645,26 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
   }
 
+  private boolean isResult(final ValueSpecification valueSpec, final Map<ValueSpecification, ?> terminalOutputs, final DependencyGraph depGraph) {
+    return terminalOutputs.containsKey(valueSpec) && getViewDefinition().getResultModelDefinition().shouldOutputResult(valueSpec, depGraph);
+  }
+
+  /**
+   * Copies values from the previous cycle's cache without decoding them, if the caches allow it.
+   * 
+   * @param previousCache the cache to copy from, not null
+   * @param cache the cache to copy to, not null
+   * @param specifications the values to copy, not null
+   * @return the values that were not copied, not null
+   */
+  private static Collection<ValueSpecification> copySharedValues(final ViewComputationCache previousCache, final ViewComputationCache cache,
+      final Collection<ValueSpecification> specifications) {
+    if ((previousCache instanceof DefaultViewComputationCache) && (cache instanceof DefaultViewComputationCache)) {
+      return ((DefaultViewComputationCache) cache).copySharedValues((DefaultViewComputationCache) previousCache, specifications);
+    }
+    return specifications;
+  }
+
   private void completeResultModel() {
     getResultModel().setCalculationTime(Instant.now());
     getResultModel().setCalculationDuration(getDuration());
@@ -41,7 +41,7 @@ import com.opengamma.engine.view.AggregatedExecutionLog;
 import com.opengamma.engine.view.ExecutionLog;
 import com.opengamma.engine.view.ExecutionLogMode;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
-import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.MutableViewComputationResultModel;
 import com.opengamma.util.async.Cancelable;
 import com.opengamma.util.log.LogLevel;
 import com.opengamma.util.log.SimpleLogEvent;
@@ -77,7 +77,7 @@ import com.opengamma.util.tuple.Pair;
 
       if (calcConfig != null) {
         SingleComputationCycle cycle = executor.getCycle();
-        final InMemoryViewComputationResultModel fragmentResultModel = cycle.constructTemplateResultModel();
+        final MutableViewComputationResultModel fragmentResultModel = cycle.constructTemplateResultModel();
         calcConfig.buildResults(fragmentResultModel, cycle.getResultModel());
         // TODO: Populate with durations from the component jobs
         fragmentResultModel.setCalculationTime(Instant.now());
@@ -136,7 +136,7 @@ import com.opengamma.util.tuple.Pair;
       return _terminalOutputs;
     }
 
-    public void buildResults(final InMemoryViewComputationResultModel fragmentResultModel, final InMemoryViewComputationResultModel fullResultModel) {
+    public void buildResults(final MutableViewComputationResultModel fragmentResultModel, final MutableViewComputationResultModel fullResultModel) {
       if (_terminalOutputs.isEmpty()) {
         return;
       }
@@ -194,8 +194,8 @@ import com.opengamma.util.tuple.Pair;
             s_logger.info("Discarding fragment completion message - overall execution is complete");
           } else {
             s_logger.debug("Building result fragment");
-            final InMemoryViewComputationResultModel fragmentResultModel = getCycle().constructTemplateResultModel();
-            final InMemoryViewComputationResultModel fullResultModel = getCycle().getResultModel();
+            final MutableViewComputationResultModel fragmentResultModel = getCycle().constructTemplateResultModel();
+            final MutableViewComputationResultModel fullResultModel = getCycle().getResultModel();
             for (ExecutingCalculationConfiguration calcConfig : _executing.values()) {
               calcConfig.buildResults(fragmentResultModel, fullResultModel);
             }
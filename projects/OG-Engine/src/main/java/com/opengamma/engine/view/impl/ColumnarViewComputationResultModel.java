@@ -0,0 +1,757 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.ViewTargetResultModel;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * An implementation of {@link ViewComputationResultModel} that holds the results of each calculation configuration in columns.
+ * <p>
+ * Each calculation configuration has an index of the targets it has results for, and a column for each value name and property combination. A column holds
+ * a primitive double for each target with a scalar result and an object reference otherwise. This avoids a {@link ComputedValueResult}, a
+ * {@link ValueSpecification} and a map entry for each value in the model; these are only created when the results are queried through the
+ * {@link ViewComputationResultModel} methods. Execution logs and compute node identifiers, which are heavily repeated, are only held once per configuration.
+ * <p>
+ * The columns can be compared against those of a previous cycle with {@link CalculationResult#computeDelta} without creating the intermediate objects for
+ * unchanged values.
+ */
+public class ColumnarViewComputationResultModel implements MutableViewComputationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private UniqueId _viewProcessId;
+  private UniqueId _viewCycleId;
+  private ViewCycleExecutionOptions _viewCycleExecutionOptions;
+  private Instant _calculationTime;
+  private Duration _calculationDuration;
+  private VersionCorrection _versionCorrection;
+  private final Map<String, CalculationResult> _resultsByConfiguration = new LinkedHashMap<String, CalculationResult>();
+  private final Set<ComputationTargetSpecification> _targets = new HashSet<ComputationTargetSpecification>();
+  private final Map<ValueSpecification, ComputedValue> _allMarketData = new HashMap<ValueSpecification, ComputedValue>();
+
+  public ColumnarViewComputationResultModel() {
+  }
+
+  public ColumnarViewComputationResultModel(final ViewComputationResultModel copyFrom) {
+    update(copyFrom);
+  }
+
+  @Override
+  public void update(final ViewComputationResultModel delta) {
+    setViewProcessId(delta.getViewProcessId());
+    setViewCycleId(delta.getViewCycleId());
+    setViewCycleExecutionOptions(delta.getViewCycleExecutionOptions());
+    setCalculationTime(delta.getCalculationTime());
+    setCalculationDuration(delta.getCalculationDuration());
+    setVersionCorrection(delta.getVersionCorrection());
+    for (String calculationConfiguration : delta.getCalculationConfigurationNames()) {
+      final ViewCalculationResultModel configResults = delta.getCalculationResult(calculationConfiguration);
+      final CalculationResult result = getOrCreateCalculationResult(calculationConfiguration);
+      for (ComputationTargetSpecification target : configResults.getAllTargets()) {
+        for (ComputedValueResult value : configResults.getAllValues(target)) {
+          result.addValue(value);
+        }
+        _targets.add(target);
+      }
+    }
+    for (ComputedValue marketData : delta.getAllMarketData()) {
+      addMarketData(marketData);
+    }
+  }
+
+  /**
+   * The results for a single calculation configuration.
+   */
+  public static final class CalculationResult implements ViewCalculationResultModel, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ComputationTargetSpecification> _targets = new ArrayList<ComputationTargetSpecification>();
+    private final Object2IntOpenHashMap<ComputationTargetSpecification> _targetIndex = new Object2IntOpenHashMap<ComputationTargetSpecification>();
+    private final Map<Pair<String, ValueProperties>, Column> _columns = new LinkedHashMap<Pair<String, ValueProperties>, Column>();
+    private final Map<Object, Object> _shared = new HashMap<Object, Object>();
+
+    public CalculationResult() {
+      _targetIndex.defaultReturnValue(-1);
+    }
+
+    /**
+     * Returns the row of the target, adding it to the index if it is new.
+     *
+     * @param target the target, not null
+     * @return the row index
+     */
+    public int getOrCreateRow(final ComputationTargetSpecification target) {
+      int row = _targetIndex.getInt(target);
+      if (row < 0) {
+        row = _targets.size();
+        _targets.add(target);
+        _targetIndex.put(target, row);
+      }
+      return row;
+    }
+
+    /**
+     * Returns the row of the target.
+     *
+     * @param target the target, not null
+     * @return the row index, or -1 if there are no results for the target
+     */
+    public int getRow(final ComputationTargetSpecification target) {
+      return _targetIndex.getInt(target);
+    }
+
+    /**
+     * Returns the target index; the position of a target in the list is its row in each of the columns.
+     *
+     * @return the targets, not null
+     */
+    public List<ComputationTargetSpecification> getTargets() {
+      return Collections.unmodifiableList(_targets);
+    }
+
+    /**
+     * Returns the columns, keyed by value name and properties.
+     *
+     * @return the columns, not null
+     */
+    public Map<Pair<String, ValueProperties>, Column> getColumns() {
+      return Collections.unmodifiableMap(_columns);
+    }
+
+    /**
+     * Returns the column for the value name and properties, creating it if it does not exist.
+     *
+     * @param valueName the value name, not null
+     * @param properties the value properties, not null
+     * @return the column, not null
+     */
+    public Column getOrCreateColumn(final String valueName, final ValueProperties properties) {
+      final Pair<String, ValueProperties> key = Pairs.of(valueName, properties);
+      Column column = _columns.get(key);
+      if (column == null) {
+        column = new Column(this, valueName, properties);
+        _columns.put(key, column);
+      }
+      return column;
+    }
+
+    /**
+     * Returns a canonical instance of a repeated object, such as an execution log or compute node identifier, so that only one copy is held.
+     */
+    private <T> T share(final T value) {
+      if (value == null) {
+        return null;
+      }
+      final Object existing = _shared.get(value);
+      if (existing != null) {
+        @SuppressWarnings("unchecked")
+        final T result = (T) existing;
+        return result;
+      }
+      _shared.put(value, value);
+      return value;
+    }
+
+    /**
+     * Adds a value to the appropriate row and column, replacing any previous value.
+     *
+     * @param value the value to add, not null
+     */
+    public void addValue(final ComputedValueResult value) {
+      final ValueSpecification spec = value.getSpecification();
+      final int row = getOrCreateRow(spec.getTargetSpecification());
+      getOrCreateColumn(spec.getValueName(), spec.getProperties()).set(row, value.getValue(), value.getAggregatedExecutionLog(), value.getComputeNodeId(),
+          value.getMissingInputs(), value.getInvocationResult());
+    }
+
+    @Override
+    public Collection<ComputationTargetSpecification> getAllTargets() {
+      return getTargets();
+    }
+
+    @Override
+    public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(final ComputationTargetSpecification target) {
+      final int row = getRow(target);
+      if (row < 0) {
+        return null;
+      }
+      final Map<Pair<String, ValueProperties>, ComputedValueResult> values = new HashMap<Pair<String, ValueProperties>, ComputedValueResult>();
+      for (Map.Entry<Pair<String, ValueProperties>, Column> column : _columns.entrySet()) {
+        if (column.getValue().isPresent(row)) {
+          values.put(column.getKey(), column.getValue().getResult(row));
+        }
+      }
+      return Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public Collection<ComputedValueResult> getAllValues(final ComputationTargetSpecification target) {
+      final int row = getRow(target);
+      if (row < 0) {
+        return null;
+      }
+      final List<ComputedValueResult> values = new ArrayList<ComputedValueResult>();
+      for (Column column : _columns.values()) {
+        if (column.isPresent(row)) {
+          values.add(column.getResult(row));
+        }
+      }
+      return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Compares these results against those of a previous cycle, returning the values that are new or have changed. A value has changed if the delta
+     * definition reports a change or the execution log is different. This gives the same results as comparing {@link #getValues} for each target but only
+     * creates the {@link ComputedValueResult} instances for the values that are returned.
+     *
+     * @param previous the previous results, null if there were none
+     * @param deltaDefinition the delta definition, not null
+     * @return the new or changed values, not null
+     */
+    public List<ComputedValueResult> computeDelta(final CalculationResult previous, final DeltaDefinition deltaDefinition) {
+      ArgumentChecker.notNull(deltaDefinition, "deltaDefinition");
+      final List<ComputedValueResult> delta = new ArrayList<ComputedValueResult>();
+      if (previous == null) {
+        for (Column column : _columns.values()) {
+          for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+            delta.add(column.getResult(row));
+          }
+        }
+        return delta;
+      }
+      // Map our rows to the previous rows once, rather than for every column
+      final int[] previousRows;
+      if (_targets.equals(previous._targets)) {
+        previousRows = null;
+      } else {
+        previousRows = new int[_targets.size()];
+        for (int i = 0; i < previousRows.length; i++) {
+          previousRows[i] = previous.getRow(_targets.get(i));
+        }
+      }
+      for (Map.Entry<Pair<String, ValueProperties>, Column> entry : _columns.entrySet()) {
+        final Column column = entry.getValue();
+        final Column previousColumn = previous._columns.get(entry.getKey());
+        for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+          final int previousRow = (previousRows != null) ? previousRows[row] : row;
+          if ((previousColumn == null) || (previousRow < 0) || !previousColumn.isPresent(previousRow) || column.isDelta(row, previousColumn, previousRow, deltaDefinition)) {
+            delta.add(column.getResult(row));
+          }
+        }
+      }
+      return delta;
+    }
+
+  }
+
+  /**
+   * The values for one value name and property combination, indexed by the target's row in the calculation configuration.
+   * <p>
+   * A column starts sparse, with a map from row to the slot holding the value in its arrays, so a value requested for only a few targets does not allocate
+   * arrays covering every target of the configuration. Once at least half of the rows up to the highest one set have values, the column switches to dense
+   * storage where the slot is the row.
+   */
+  public static final class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double[] NO_DOUBLES = new double[0];
+    private static final Object[] NO_OBJECTS = new Object[0];
+    private static final AggregatedExecutionLog[] NO_LOGS = new AggregatedExecutionLog[0];
+
+    private final CalculationResult _owner;
+    private final String _valueName;
+    private final ValueProperties _properties;
+    private final BitSet _present = new BitSet();
+    private final BitSet _double = new BitSet();
+    /**
+     * The slot of each row with a value, or null once the column is dense.
+     */
+    private Int2IntOpenHashMap _slots = createSlots();
+    private double[] _doubles = NO_DOUBLES;
+    private Object[] _objects = NO_OBJECTS;
+    private AggregatedExecutionLog[] _logs = NO_LOGS;
+    private String[] _computeNodeIds;
+    private Set<?>[] _missingInputs;
+    private InvocationResult[] _invocationResults;
+
+    private Column(final CalculationResult owner, final String valueName, final ValueProperties properties) {
+      _owner = owner;
+      _valueName = valueName;
+      _properties = properties;
+    }
+
+    private static Int2IntOpenHashMap createSlots() {
+      final Int2IntOpenHashMap slots = new Int2IntOpenHashMap();
+      slots.defaultReturnValue(-1);
+      return slots;
+    }
+
+    private static int capacity(final int slot, final int length) {
+      return Math.max(slot + 1, length + (length >> 1));
+    }
+
+    /**
+     * Returns the slot of a row in the arrays.
+     *
+     * @param row the row index
+     * @return the slot, or -1 if the row has no value
+     */
+    private int slot(final int row) {
+      if (_slots == null) {
+        return row;
+      }
+      return _slots.get(row);
+    }
+
+    /**
+     * Returns the slot of a row in the arrays, allocating one if the row has no value. This may switch the column to dense storage.
+     */
+    private int getOrCreateSlot(final int row) {
+      if (_slots == null) {
+        return row;
+      }
+      int slot = _slots.get(row);
+      if (slot >= 0) {
+        return slot;
+      }
+      slot = _slots.size();
+      if ((slot + 1) * 2 > Math.max(row, _present.length() - 1) + 1) {
+        toDense(Math.max(row + 1, _present.length()));
+        return row;
+      }
+      _slots.put(row, slot);
+      return slot;
+    }
+
+    private void toDense(final int length) {
+      final double[] doubles = new double[length];
+      final Object[] objects = new Object[length];
+      final AggregatedExecutionLog[] logs = new AggregatedExecutionLog[length];
+      final String[] computeNodeIds = (_computeNodeIds != null) ? new String[length] : null;
+      final Set<?>[] missingInputs = (_missingInputs != null) ? new Set<?>[length] : null;
+      final InvocationResult[] invocationResults = (_invocationResults != null) ? new InvocationResult[length] : null;
+      for (Int2IntMap.Entry entry : _slots.int2IntEntrySet()) {
+        final int row = entry.getIntKey();
+        final int slot = entry.getIntValue();
+        if (slot < _doubles.length) {
+          doubles[row] = _doubles[slot];
+        }
+        if (slot < _objects.length) {
+          objects[row] = _objects[slot];
+        }
+        logs[row] = _logs[slot];
+        if ((computeNodeIds != null) && (slot < _computeNodeIds.length)) {
+          computeNodeIds[row] = _computeNodeIds[slot];
+        }
+        if ((missingInputs != null) && (slot < _missingInputs.length)) {
+          missingInputs[row] = _missingInputs[slot];
+        }
+        if ((invocationResults != null) && (slot < _invocationResults.length)) {
+          invocationResults[row] = _invocationResults[slot];
+        }
+      }
+      _doubles = _double.isEmpty() ? NO_DOUBLES : doubles;
+      _objects = (_double.cardinality() == _slots.size()) ? NO_OBJECTS : objects;
+      _logs = logs;
+      _computeNodeIds = computeNodeIds;
+      _missingInputs = missingInputs;
+      _invocationResults = invocationResults;
+      _slots = null;
+    }
+
+    /**
+     * Sets the value for a row, replacing any previous value.
+     *
+     * @param row the row index
+     * @param value the value
+     * @param log the aggregated execution log, not null
+     * @param computeNodeId the compute node identifier, or null
+     * @param missingInputs the missing inputs, or null
+     * @param invocationResult the invocation result, or null
+     */
+    public void set(final int row, final Object value, final AggregatedExecutionLog log, final String computeNodeId, final Set<ValueSpecification> missingInputs,
+        final InvocationResult invocationResult) {
+      ArgumentChecker.notNull(log, "log");
+      final int slot = getOrCreateSlot(row);
+      _present.set(row);
+      if (value instanceof Double) {
+        if (slot >= _doubles.length) {
+          _doubles = Arrays.copyOf(_doubles, capacity(slot, _doubles.length));
+        }
+        _doubles[slot] = (Double) value;
+        _double.set(row);
+        if (slot < _objects.length) {
+          _objects[slot] = null;
+        }
+      } else {
+        if (slot >= _objects.length) {
+          _objects = Arrays.copyOf(_objects, capacity(slot, _objects.length));
+        }
+        _objects[slot] = value;
+        _double.clear(row);
+      }
+      if (slot >= _logs.length) {
+        _logs = Arrays.copyOf(_logs, capacity(slot, _logs.length));
+      }
+      _logs[slot] = _owner.share(log);
+      if (computeNodeId != null) {
+        if (_computeNodeIds == null) {
+          _computeNodeIds = new String[capacity(slot, 0)];
+        } else if (slot >= _computeNodeIds.length) {
+          _computeNodeIds = Arrays.copyOf(_computeNodeIds, capacity(slot, _computeNodeIds.length));
+        }
+        _computeNodeIds[slot] = _owner.share(computeNodeId);
+      } else if ((_computeNodeIds != null) && (slot < _computeNodeIds.length)) {
+        _computeNodeIds[slot] = null;
+      }
+      if (missingInputs != null) {
+        if (_missingInputs == null) {
+          _missingInputs = new Set<?>[capacity(slot, 0)];
+        } else if (slot >= _missingInputs.length) {
+          _missingInputs = Arrays.copyOf(_missingInputs, capacity(slot, _missingInputs.length));
+        }
+        _missingInputs[slot] = missingInputs;
+      } else if ((_missingInputs != null) && (slot < _missingInputs.length)) {
+        _missingInputs[slot] = null;
+      }
+      if (invocationResult != null) {
+        if (_invocationResults == null) {
+          _invocationResults = new InvocationResult[capacity(slot, 0)];
+        } else if (slot >= _invocationResults.length) {
+          _invocationResults = Arrays.copyOf(_invocationResults, capacity(slot, _invocationResults.length));
+        }
+        _invocationResults[slot] = invocationResult;
+      } else if ((_invocationResults != null) && (slot < _invocationResults.length)) {
+        _invocationResults[slot] = null;
+      }
+    }
+
+    /**
+     * Tests whether the column holds its values in dense arrays indexed by row.
+     *
+     * @return true if dense, false if the values are held in slots allocated as rows are set
+     */
+    public boolean isDense() {
+      return _slots == null;
+    }
+
+    public String getValueName() {
+      return _valueName;
+    }
+
+    public ValueProperties getProperties() {
+      return _properties;
+    }
+
+    public boolean isPresent(final int row) {
+      return _present.get(row);
+    }
+
+    /**
+     * Returns the next row, on or after the given one, that has a value.
+     *
+     * @param row the first row to consider
+     * @return the row index, or -1 if there are no more values
+     */
+    public int nextRow(final int row) {
+      return _present.nextSetBit(row);
+    }
+
+    /**
+     * Tests whether the value in the row is held as a primitive double.
+     *
+     * @param row the row index
+     * @return true if {@link #getDouble} can be used for the row
+     */
+    public boolean isDouble(final int row) {
+      return _double.get(row);
+    }
+
+    public double getDouble(final int row) {
+      return _doubles[slot(row)];
+    }
+
+    public Object getValue(final int row) {
+      final int slot = slot(row);
+      if (slot < 0) {
+        return null;
+      } else if (_double.get(row)) {
+        return _doubles[slot];
+      } else if (slot < _objects.length) {
+        return _objects[slot];
+      } else {
+        return null;
+      }
+    }
+
+    public AggregatedExecutionLog getAggregatedExecutionLog(final int row) {
+      final int slot = slot(row);
+      return ((slot >= 0) && (slot < _logs.length)) ? _logs[slot] : null;
+    }
+
+    public String getComputeNodeId(final int row) {
+      final int slot = slot(row);
+      return ((_computeNodeIds != null) && (slot >= 0) && (slot < _computeNodeIds.length)) ? _computeNodeIds[slot] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Set<ValueSpecification> getMissingInputs(final int row) {
+      final int slot = slot(row);
+      return ((_missingInputs != null) && (slot >= 0) && (slot < _missingInputs.length)) ? (Set<ValueSpecification>) _missingInputs[slot] : null;
+    }
+
+    public InvocationResult getInvocationResult(final int row) {
+      final int slot = slot(row);
+      return ((_invocationResults != null) && (slot >= 0) && (slot < _invocationResults.length)) ? _invocationResults[slot] : null;
+    }
+
+    /**
+     * Creates the result object for a row.
+     *
+     * @param row the row index, which must have a value
+     * @return the value, not null
+     */
+    public ComputedValueResult getResult(final int row) {
+      final ValueSpecification spec = new ValueSpecification(_valueName, _owner._targets.get(row), _properties);
+      return new ComputedValueResult(spec, getValue(row), getAggregatedExecutionLog(row), getComputeNodeId(row), getMissingInputs(row), getInvocationResult(row));
+    }
+
+    /**
+     * Tests whether a value differs from the same value in a previous cycle using the same rules as {@link DeltaDefinition#isDelta}. The specifications must
+     * be equal as the columns have the same value name, properties and target so only the values and execution logs are compared.
+     */
+    private boolean isDelta(final int row, final Column previous, final int previousRow, final DeltaDefinition deltaDefinition) {
+      if (!ObjectUtils.equals(getAggregatedExecutionLog(row), previous.getAggregatedExecutionLog(previousRow))) {
+        return true;
+      }
+      if (isDouble(row) && previous.isDouble(previousRow)) {
+        final double value = getDouble(row);
+        final double previousValue = previous.getDouble(previousRow);
+        if (Double.doubleToLongBits(value) == Double.doubleToLongBits(previousValue)) {
+          return false;
+        }
+        if (deltaDefinition.getNumberComparer() != null) {
+          return deltaDefinition.getNumberComparer().isDelta(previousValue, value);
+        }
+        return true;
+      }
+      final Object value = getValue(row);
+      final Object previousValue = previous.getValue(previousRow);
+      if (value == previousValue) {
+        return false;
+      }
+      if ((deltaDefinition.getNumberComparer() != null) && (previousValue instanceof Number) && (value instanceof Number)) {
+        return deltaDefinition.getNumberComparer().isDelta((Number) previousValue, (Number) value);
+      }
+      return !ObjectUtils.equals(previousValue, value);
+    }
+
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public UniqueId getViewProcessId() {
+    return _viewProcessId;
+  }
+
+  @Override
+  public void setViewProcessId(UniqueId viewProcessId) {
+    _viewProcessId = viewProcessId;
+  }
+
+  @Override
+  public UniqueId getViewCycleId() {
+    return _viewCycleId;
+  }
+
+  @Override
+  public void setViewCycleId(UniqueId viewCycleId) {
+    _viewCycleId = viewCycleId;
+  }
+
+  @Override
+  public ViewCycleExecutionOptions getViewCycleExecutionOptions() {
+    return _viewCycleExecutionOptions;
+  }
+
+  @Override
+  public void setViewCycleExecutionOptions(ViewCycleExecutionOptions viewCycleExecutionOptions) {
+    _viewCycleExecutionOptions = viewCycleExecutionOptions;
+  }
+
+  @Override
+  public Instant getCalculationTime() {
+    return _calculationTime;
+  }
+
+  @Override
+  public void setCalculationTime(Instant calculationTime) {
+    _calculationTime = calculationTime;
+  }
+
+  @Override
+  public Duration getCalculationDuration() {
+    return _calculationDuration;
+  }
+
+  @Override
+  public void setCalculationDuration(Duration calculationDuration) {
+    _calculationDuration = calculationDuration;
+  }
+
+  @Override
+  public VersionCorrection getVersionCorrection() {
+    return _versionCorrection;
+  }
+
+  @Override
+  public void setVersionCorrection(VersionCorrection versionCorrection) {
+    _versionCorrection = versionCorrection;
+  }
+
+  /**
+   * Returns the results for a calculation configuration, creating an empty result if there is none.
+   *
+   * @param calcConfigurationName the calculation configuration name, not null
+   * @return the results, not null
+   */
+  public CalculationResult getOrCreateCalculationResult(final String calcConfigurationName) {
+    CalculationResult result = _resultsByConfiguration.get(calcConfigurationName);
+    if (result == null) {
+      result = new CalculationResult();
+      _resultsByConfiguration.put(calcConfigurationName, result);
+    }
+    return result;
+  }
+
+  /**
+   * Registers the targets of a calculation result, for example after values have been added to it directly.
+   *
+   * @param result the calculation result, not null
+   */
+  public void updateTargets(final CalculationResult result) {
+    _targets.addAll(result._targets);
+  }
+
+  @Override
+  public void addValue(final String calcConfigurationName, final ComputedValueResult value) {
+    getOrCreateCalculationResult(calcConfigurationName).addValue(value);
+    _targets.add(value.getSpecification().getTargetSpecification());
+  }
+
+  /**
+   * Adds a market data value, replacing any previous item with the same value specification.
+   *
+   * @param marketData the market data value, not null
+   */
+  @Override
+  public void addMarketData(final ComputedValue marketData) {
+    _allMarketData.put(marketData.getSpecification(), marketData);
+  }
+
+  @Override
+  public Set<ComputedValue> getAllMarketData() {
+    return new HashSet<ComputedValue>(_allMarketData.values());
+  }
+
+  @Override
+  public Set<ComputationTargetSpecification> getAllTargets() {
+    return Collections.unmodifiableSet(_targets);
+  }
+
+  @Override
+  public Collection<String> getCalculationConfigurationNames() {
+    return Collections.unmodifiableSet(_resultsByConfiguration.keySet());
+  }
+
+  @Override
+  public CalculationResult getCalculationResult(final String calcConfigurationName) {
+    return _resultsByConfiguration.get(calcConfigurationName);
+  }
+
+  @Override
+  public ViewTargetResultModel getTargetResult(final ComputationTargetSpecification targetSpecification) {
+    ViewTargetResultModelImpl targetResult = null;
+    for (Map.Entry<String, CalculationResult> config : _resultsByConfiguration.entrySet()) {
+      final Collection<ComputedValueResult> values = config.getValue().getAllValues(targetSpecification);
+      if (values != null) {
+        if (targetResult == null) {
+          targetResult = new ViewTargetResultModelImpl();
+        }
+        for (ComputedValueResult value : values) {
+          targetResult.addValue(config.getKey(), value);
+        }
+      }
+    }
+    return targetResult;
+  }
+
+  @Override
+  public List<ViewResultEntry> getAllResults() {
+    final List<ViewResultEntry> results = new ArrayList<ViewResultEntry>();
+    for (Map.Entry<String, CalculationResult> config : _resultsByConfiguration.entrySet()) {
+      for (Column column : config.getValue()._columns.values()) {
+        for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+          results.add(new ViewResultEntry(config.getKey(), column.getResult(row)));
+        }
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Set<String> getAllOutputValueNames() {
+    final Set<String> outputValueNames = new LinkedHashSet<String>();
+    for (CalculationResult config : _resultsByConfiguration.values()) {
+      for (Column column : config._columns.values()) {
+        outputValueNames.add(column.getValueName());
+      }
+    }
+    return outputValueNames;
+  }
+
+}
@@ -18,7 +18,7 @@ import com.opengamma.engine.view.ViewResultModel;
 /**
  * Simple implementation of {@link ViewComputationResultModel}.
  */
-public class InMemoryViewComputationResultModel extends InMemoryViewResultModel implements ViewComputationResultModel {
+public class InMemoryViewComputationResultModel extends InMemoryViewResultModel implements MutableViewComputationResultModel {
 
   private static final long serialVersionUID = 1L;
 
@@ -32,6 +32,7 @@ public class InMemoryViewComputationResultModel extends InMemoryViewResultModel
     super(copyFrom);
   }
 
+  @Override
   public void update(final ViewComputationResultModel delta) {
     super.update(delta);
     for (ComputedValue marketData : delta.getAllMarketData()) {
@@ -44,6 +45,7 @@ public class InMemoryViewComputationResultModel extends InMemoryViewResultModel
    * 
    * @param marketData the market data value, not null
    */
+  @Override
   public void addMarketData(ComputedValue marketData) {
     _allMarketData.put(marketData.getSpecification(), marketData);
   }
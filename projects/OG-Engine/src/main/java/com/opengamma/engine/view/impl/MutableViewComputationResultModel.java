@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * A {@link ViewComputationResultModel} that can be built up as a cycle executes, or merged with other results.
+ */
+public interface MutableViewComputationResultModel extends ViewComputationResultModel {
+
+  void setViewProcessId(UniqueId viewProcessId);
+
+  void setViewCycleId(UniqueId viewCycleId);
+
+  void setViewCycleExecutionOptions(ViewCycleExecutionOptions viewCycleExecutionOptions);
+
+  void setCalculationTime(Instant calculationTime);
+
+  void setCalculationDuration(Duration calculationDuration);
+
+  void setVersionCorrection(VersionCorrection versionCorrection);
+
+  /**
+   * Adds a value, replacing any previous value with the same specification in the calculation configuration.
+   *
+   * @param calcConfigurationName the calculation configuration name, not null
+   * @param value the value, not null
+   */
+  void addValue(String calcConfigurationName, ComputedValueResult value);
+
+  /**
+   * Adds a market data value, replacing any previous item with the same value specification.
+   *
+   * @param marketData the market data value, not null
+   */
+  void addMarketData(ComputedValue marketData);
+
+  /**
+   * Updates the data held in this model with the data from (and about) another result.
+   *
+   * @param delta the results to apply, not null
+   */
+  void update(ViewComputationResultModel delta);
+
+}
@@ -12,8 +12,10 @@ import org.threeten.bp.Instant;
 import com.google.common.base.Function;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
+import com.opengamma.engine.view.impl.MutableViewComputationResultModel;
 
 /**
  * Base class for cycle results.
@@ -23,7 +25,7 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
   private static final Logger s_logger = LoggerFactory.getLogger(AbstractCompletedResultsCall.class);
 
   private ViewComputationResultModel _full;
-  private InMemoryViewComputationResultModel _fullCopy;
+  private MutableViewComputationResultModel _fullCopy;
   private ViewDeltaResultModel _delta;
   private InMemoryViewDeltaResultModel _deltaCopy;
 
@@ -34,9 +36,23 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
   // NOTE: The calculation time is machine time, not valuation time so we know which was computed first, unless the cycle times are
   // smaller than the resolution of the Instant clock.
 
-  protected InMemoryViewComputationResultModel getViewComputationResultModelCopy() {
+  /**
+   * Creates a mutable copy of a result, keeping the columnar form if the result uses it.
+   *
+   * @param full the result to copy, not null
+   * @return the copy, not null
+   */
+  protected static MutableViewComputationResultModel copyOf(final ViewComputationResultModel full) {
+    if (full instanceof ColumnarViewComputationResultModel) {
+      return new ColumnarViewComputationResultModel(full);
+    } else {
+      return new InMemoryViewComputationResultModel(full);
+    }
+  }
+
+  protected MutableViewComputationResultModel getViewComputationResultModelCopy() {
     if (_fullCopy == null) {
-      _fullCopy = new InMemoryViewComputationResultModel(_full);
+      _fullCopy = copyOf(_full);
       _full = _fullCopy;
     }
     return _fullCopy;
@@ -47,7 +63,7 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
     _fullCopy = null;
   }
 
-  protected void setViewComputationResultModelCopy(final InMemoryViewComputationResultModel full) {
+  protected void setViewComputationResultModelCopy(final MutableViewComputationResultModel full) {
     _fullCopy = full;
     _full = full;
   }
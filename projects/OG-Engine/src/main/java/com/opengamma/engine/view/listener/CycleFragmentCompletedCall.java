@@ -11,7 +11,7 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
-import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.MutableViewComputationResultModel;
 
 /**
  * Represents a call to {@link ViewResultListener#cycleFragmentCompleted(ViewResultModel, ViewDeltaResultModel)}
@@ -58,7 +58,7 @@ public class CycleFragmentCompletedCall extends AbstractCompletedResultsCall {
     // This result predates the current value, so swap and merge to get ordering right. Fragments are commutative so ordering shouldn't
     // matter unless results get calculated multiple times with different values for each because of job failure/resubmission.
     s_logger.debug("Applying old result to new baseline result fragment");
-    final InMemoryViewComputationResultModel newResult = new InMemoryViewComputationResultModel(full);
+    final MutableViewComputationResultModel newResult = copyOf(full);
     newResult.update(getViewComputationResultModel());
     setViewComputationResultModelCopy(newResult);
   }
@@ -7,6 +7,7 @@ package com.opengamma.engine.view.worker;
 
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,7 +56,7 @@ public class ParallelRecompilationViewProcessWorker implements ViewProcessWorker
   /**
    * Base class of the context used by the delegate workers.
    */
-  protected abstract class AbstractViewProcessWorkerContext implements ViewProcessWorkerContext {
+  protected abstract class AbstractViewProcessWorkerContext implements ViewProcessWorkerContext, TargetResolverChangeContext {
 
     private final int _id;
     private final ViewCycleExecutionSequence _sequence;
@@ -202,6 +203,13 @@ public class ParallelRecompilationViewProcessWorker implements ViewProcessWorker
       return getContext().getProcessContext();
     }
 
+    // TargetResolverChangeContext
+
+    @Override
+    public final boolean initialiseTargetResolverChanges(final TargetResolverChangeListener listener) {
+      return ParallelRecompilationViewProcessWorker.this.initialiseTargetResolverChanges(this, listener);
+    }
+
     @Override
     public final void viewDefinitionCompiled(ViewExecutionDataProvider dataProvider, CompiledViewDefinitionWithGraphs compiled) {
       if (ParallelRecompilationViewProcessWorker.this.viewDefinitionCompiled(this, compiled)) {
@@ -504,6 +512,11 @@ public class ParallelRecompilationViewProcessWorker implements ViewProcessWorker
   private final ViewCycleExecutionOptions _defaultExecutionOptions;
 
   private TargetResolverChangeListener _resolverChanges;
+  /**
+   * The targets seen to change since the primary's last compilation. The state of these has been consumed from {@link #_resolverChanges} so must be passed to
+   * a secondary worker explicitly.
+   */
+  private final Set<ObjectId> _changedTargets = new HashSet<ObjectId>();
   private int _nextWorkerId;
   private ViewDefinition _viewDefinition;
   private AbstractViewProcessWorkerContext _primary;
@@ -639,10 +652,14 @@ public class ParallelRecompilationViewProcessWorker implements ViewProcessWorker
         }
         final Collection<UniqueId> uids = compiled.getResolvedIdentifiers().values();
         final Set<ObjectId> oids = Sets.newHashSetWithExpectedSize(uids.size());
+        if (tailSequence != null) {
+          _changedTargets.clear();
+        }
         for (UniqueId uid : uids) {
           final ObjectId oid = uid.getObjectId();
-          if (tailSequence != null) {
-            changes |= _resolverChanges.isChanged(oid);
+          if ((tailSequence != null) && _resolverChanges.isChanged(oid)) {
+            _changedTargets.add(oid);
+            changes = true;
           }
           oids.add(oid);
         }
@@ -664,6 +681,26 @@ public class ParallelRecompilationViewProcessWorker implements ViewProcessWorker
     }
   }
 
+  /**
+   * Populates the change listener of a secondary worker from the one monitoring the primary's compilation. The secondary will then only need to check the
+   * resolutions of the targets that have changed to compile incrementally from the primary's graphs, instead of all of them.
+   * 
+   * @param context the context of the worker, not null
+   * @param listener the worker's listener, not null
+   * @return true if the listener was populated, false otherwise
+   */
+  protected synchronized boolean initialiseTargetResolverChanges(final AbstractViewProcessWorkerContext context, final TargetResolverChangeListener listener) {
+    if (_terminated || (context != getSecondary()) || (_resolverChanges == null)) {
+      return false;
+    }
+    final int targets = listener.copyStateFrom(_resolverChanges);
+    for (ObjectId oid : _changedTargets) {
+      listener.setChanged(oid);
+    }
+    s_logger.info("Secondary worker monitoring {} targets of the primary's compilation, {} changed", targets, _changedTargets.size());
+    return true;
+  }
+
   protected synchronized boolean viewDefinitionCompiled(final AbstractViewProcessWorkerContext context, final CompiledViewDefinitionWithGraphs compiled) {
     if (!_terminated) {
       if (getPrimary() == context) {
@@ -284,6 +284,12 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
    */
   private Timer _fullCycleTimer;
 
+  /**
+   * Timers for graph compilation, from the start of validating the previous compilation to the new one being ready.
+   */
+  private Timer _incrementalCompilationTimer;
+  private Timer _fullCompilationTimer;
+
   /**
    * An invalidation call is made by the market data layer to request that a full graph rebuild take place on the next cycle. This is to allow for resolutions that might differ because data
    * availability has changed.
@@ -330,6 +336,8 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
     _thread = new BorrowedThread(context.toString(), _job);
     _deltaCycleTimer = OpenGammaMetricRegistry.getSummaryInstance().timer("SingleThreadViewProcessWorker.cycle.delta");
     _fullCycleTimer = OpenGammaMetricRegistry.getSummaryInstance().timer("SingleThreadViewProcessWorker.cycle.full");
+    _incrementalCompilationTimer = OpenGammaMetricRegistry.getSummaryInstance().timer("SingleThreadViewProcessWorker.compilation.incremental");
+    _fullCompilationTimer = OpenGammaMetricRegistry.getSummaryInstance().timer("SingleThreadViewProcessWorker.compilation.full");
     s_executor.submit(_thread);
   }
 
@@ -905,6 +913,10 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
         }
       };
       getProcessContext().getFunctionCompilationService().getFunctionCompilationContext().getRawComputationTargetResolver().changeManager().addChangeListener(_targetResolverChanges);
+      if (getWorkerContext() instanceof TargetResolverChangeContext) {
+        // Start from the targets already being watched so that an incremental compilation doesn't have to check every resolution
+        ((TargetResolverChangeContext) getWorkerContext()).initialiseTargetResolverChanges(_targetResolverChanges);
+      }
     }
   }
 
@@ -1332,8 +1344,10 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
   }
 
   private CompiledViewDefinitionWithGraphs getCompiledViewDefinition(final Instant valuationTime, final VersionCorrection versionCorrection) {
+    final long startTime = System.nanoTime();
     final long functionInitId = getProcessContext().getFunctionCompilationService().getFunctionCompilationContext().getFunctionInitId();
     updateViewDefinitionIfRequired();
+    boolean incremental = false;
     CompiledViewDefinitionWithGraphs compiledViewDefinition = null;
     final Pair<Lock, Lock> executionCacheLocks = getProcessContext().getExecutionCacheLock().get(_executionCacheKey, valuationTime, versionCorrection);
     executionCacheLocks.getSecond().lock();
@@ -1468,10 +1482,12 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
         }
         if (previousGraphs != null) {
           s_logger.info("Performing incremental graph compilation");
+          incremental = true;
           _compilationTask = ViewDefinitionCompiler.incrementalCompileTask(getViewDefinition(), compilationServices, valuationTime, versionCorrection, previousGraphs, previousResolutions,
               changedPositions, unchangedNodes);
         } else {
           s_logger.info("Performing full graph compilation");
+          incremental = false;
           _compilationTask = ViewDefinitionCompiler.fullCompileTask(getViewDefinition(), compilationServices, valuationTime, versionCorrection);
         }
         try {
@@ -1503,6 +1519,13 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
         }
         break;
       } while (true);
+      final long durationNanos = System.nanoTime() - startTime;
+      if (incremental) {
+        _incrementalCompilationTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+      } else {
+        _fullCompilationTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+      }
+      s_logger.info("{} graph compilation took {}ms", incremental ? "Incremental" : "Full", durationNanos / NANOS_PER_MILLISECOND);
     } catch (final Exception e) {
       if (!getJob().isTerminated()) {
         final String message = MessageFormat.format("Error compiling view definition {0} for time {1}", getViewDefinition().getUniqueId(), valuationTime);
@@ -0,0 +1,23 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker;
+
+/**
+ * Optional extension to {@link ViewProcessWorkerContext} for contexts that have already been monitoring changes to the targets of the compilation a new worker
+ * will start from. Without this a new worker has to re-resolve every target of the previous compilation before it can compile incrementally.
+ */
+public interface TargetResolverChangeContext {
+
+  /**
+   * Populates a worker's change listener with the state of the targets already being monitored. The listener must have been registered for change
+   * notifications before this is called so that nothing is missed between the two.
+   *
+   * @param listener the listener to populate, not null
+   * @return true if the listener was populated, false if all targets will need to be checked
+   */
+  boolean initialiseTargetResolverChanges(TargetResolverChangeListener listener);
+
+}
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.worker;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -87,6 +88,27 @@ public abstract class TargetResolverChangeListener implements ChangeListener {
     _targets.keySet().retainAll(identifiers);
   }
 
+  /**
+   * Copies the watch list, and the state of each target on it, from another listener. Any state already held by this listener takes precedence, so this
+   * listener should be registered for notifications before the copy is made.
+   * 
+   * @param other the listener to copy from, not null
+   * @return the number of targets copied
+   */
+  public int copyStateFrom(final TargetResolverChangeListener other) {
+    int count = 0;
+    for (Map.Entry<ObjectId, TargetState> target : other._targets.entrySet()) {
+      final TargetState state = target.getValue();
+      if (_targets.putIfAbsent(target.getKey(), state) == null) {
+        if (state != TargetState.WAITING) {
+          _hasPending = true;
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Clears out the watch list.
    */
@@ -8,6 +8,7 @@ package com.opengamma.engine.cache;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,6 +16,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.fudgemsg.FudgeContext;
+import org.fudgemsg.wire.FudgeEncoded;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -220,4 +222,43 @@ public class DefaultViewComputationCacheTest {
     assertPutValues(2, CacheSelectHint.sharedValues(Arrays.asList(valueSpecFoo)), CacheSelectHint.privateValues(Arrays.asList(valueSpecFoo)));
   }
 
+  @Test
+  public void testGetValuesDuplicates() {
+    final ValueSpecification valueSpecFoo = new ValueSpecification("foo", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    final ValueSpecification valueSpecBar = new ValueSpecification("bar", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    _viewComputationCache.putSharedValues(Arrays.asList(new ComputedValue(valueSpecFoo, "Foo"), new ComputedValue(valueSpecBar, "Bar")));
+    final List<ValueSpecification> specifications = Arrays.asList(valueSpecFoo, valueSpecBar, valueSpecFoo);
+    Collection<Pair<ValueSpecification, Object>> values = _viewComputationCache.getValues(specifications);
+    assertEquals(2, values.size());
+    values = _viewComputationCache.getValues(specifications, CacheSelectHint.allShared());
+    assertEquals(2, values.size());
+    values = _viewComputationCache.getValues(specifications, CacheSelectHint.allPrivate());
+    assertEquals(2, values.size());
+  }
+
+  @Test
+  public void testCopySharedValues() {
+    final ValueSpecification valueSpecFoo = new ValueSpecification("foo", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    final ValueSpecification valueSpecBar = new ValueSpecification("bar", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    final ValueSpecification valueSpecMissing = new ValueSpecification("missing", ComputationTargetSpecification.NULL,
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    _viewComputationCache.putSharedValues(Arrays.asList(new ComputedValue(valueSpecFoo, "Foo"), new ComputedValue(valueSpecBar, "Bar")));
+    final DefaultViewComputationCache target = new DefaultViewComputationCache(_viewComputationCache.getIdentifierMap(), new DefaultFudgeMessageStore(
+        new InMemoryBinaryDataStore(), FudgeContext.GLOBAL_DEFAULT), new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), FudgeContext.GLOBAL_DEFAULT),
+        FudgeContext.GLOBAL_DEFAULT);
+    final Collection<ValueSpecification> missing = target.copySharedValues(_viewComputationCache, Arrays.asList(valueSpecFoo, valueSpecMissing, valueSpecBar));
+    assertEquals(Arrays.asList(valueSpecMissing), missing);
+    assertEquals("Foo", target.getValue(valueSpecFoo, CacheSelectHint.allShared()));
+    assertEquals("Bar", target.getValue(valueSpecBar, CacheSelectHint.allShared()));
+    // The encoded data is referenced, not copied
+    final long identifier = target.getIdentifierMap().getIdentifier(valueSpecFoo);
+    assertSame(((FudgeEncoded) _viewComputationCache.getSharedDataStore().get(identifier)).getFudgeEncoded(),
+        ((FudgeEncoded) target.getSharedDataStore().get(identifier)).getFudgeEncoded());
+    // Caches with different identifier maps can't share the data
+    final DefaultViewComputationCache other = new DefaultViewComputationCache(new InMemoryIdentifierMap(), new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(),
+        FudgeContext.GLOBAL_DEFAULT), new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), FudgeContext.GLOBAL_DEFAULT), FudgeContext.GLOBAL_DEFAULT);
+    assertEquals(2, other.copySharedValues(_viewComputationCache, Arrays.asList(valueSpecFoo, valueSpecBar)).size());
+    assertNull(other.getValue(valueSpecFoo));
+  }
+
 }
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the {@link LocalAffinityViewComputationCache} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LocalAffinityViewComputationCacheTest {
+
+  private FudgeMessageStore _privateDataStore;
+  private FudgeMessageStore _sharedDataStore;
+  private LocalAffinityViewComputationCache _cache;
+
+  @BeforeMethod
+  public void createCache() {
+    _privateDataStore = new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), FudgeContext.GLOBAL_DEFAULT);
+    _sharedDataStore = new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), FudgeContext.GLOBAL_DEFAULT);
+    _cache = new LocalAffinityViewComputationCache(new PrimitiveIdentifierMap(), _privateDataStore, _sharedDataStore, FudgeContext.GLOBAL_DEFAULT);
+  }
+
+  private static ValueSpecification spec(final String name) {
+    return new ValueSpecification(name, ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+  }
+
+  private long identifier(final ValueSpecification spec) {
+    return _cache.getIdentifierMap().getIdentifier(spec);
+  }
+
+  public void noConsumers() {
+    final ValueSpecification spec = spec("foo");
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertNotNull(_sharedDataStore.get(identifier(spec)));
+    assertEquals("Foo", _cache.getValue(spec, CacheSelectHint.allShared()));
+    assertEquals(0, _cache.getEncodesAvoided());
+    assertEquals(0, _cache.getDecodesAvoided());
+  }
+
+  public void releasedAfterLastConsumer() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 2);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    final Object value = new StringBuilder("Foo");
+    _cache.putValues(Arrays.asList(new ComputedValue(spec, value)), CacheSelectHint.allPrivate());
+    assertNull(_privateDataStore.get(identifier(spec)));
+    assertEquals(1, _cache.getLiveValueCount());
+    assertSame(value, _cache.getValue(spec, CacheSelectHint.allPrivate()));
+    assertEquals(1, _cache.getLiveValueCount());
+    assertSame(value, _cache.getValues(Arrays.asList(spec), CacheSelectHint.allPrivate()).iterator().next().getSecond());
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNotNull(_privateDataStore.get(identifier(spec)));
+    assertEquals(1, _cache.getEncodesAvoided());
+    assertEquals(2, _cache.getDecodesAvoided());
+    assertEquals(1, _cache.getDeferredEncodes());
+  }
+
+  public void releasedAndDiscarded() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 1);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.setDiscardReleasedValues(true);
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertEquals("Foo", _cache.getValue(spec, CacheSelectHint.allShared()));
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNull(_sharedDataStore.get(identifier(spec)));
+    assertEquals(0, _cache.getDeferredEncodes());
+  }
+
+  public void terminalOutputPinned() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 1);
+    _cache.setConsumers(consumers, Collections.singleton(spec));
+    final Object value = new StringBuilder("Foo");
+    _cache.putSharedValue(new ComputedValue(spec, value));
+    assertSame(value, _cache.getValue(spec, CacheSelectHint.allShared()));
+    assertSame(value, _cache.getValue(spec, CacheSelectHint.allShared()));
+    assertSame(value, _cache.getValue(spec));
+    assertEquals(1, _cache.getLiveValueCount());
+    assertEquals(3, _cache.getDecodesAvoided());
+  }
+
+  public void encodedOnDemandForSharedStore() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 1);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    final long identifier = identifier(spec);
+    assertNull(_sharedDataStore.get(identifier));
+    // A remote node reads the shared data store directly
+    assertNotNull(_cache.getSharedDataStore().get(identifier));
+    // That was the only consumer so the encoded form replaces the live value
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNotNull(_cache.getSharedDataStore().get(Arrays.asList(identifier)).get(identifier));
+    assertNotNull(_sharedDataStore.get(identifier));
+    assertEquals(1, _cache.getDeferredEncodes());
+  }
+
+  public void encodedOnceWhenReleasedAfterSharedStoreRead() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 2);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertNotNull(_cache.getSharedDataStore().get(identifier(spec)));
+    assertEquals(1, _cache.getLiveValueCount());
+    assertEquals("Foo", _cache.getValue(spec, CacheSelectHint.allShared()));
+    assertEquals(0, _cache.getLiveValueCount());
+    assertEquals(1, _cache.getDeferredEncodes());
+  }
+
+  public void setConsumersReplacesCounts() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 2);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    consumers.put(spec, 1);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertEquals("Foo", _cache.getValue(spec));
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNotNull(_sharedDataStore.get(identifier(spec)));
+  }
+
+  public void consumedBeforePut() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 1);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    // The only consumer read the value from a write-behind buffer before it reached the cache
+    _cache.valuesConsumed(Collections.singleton(spec));
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNotNull(_sharedDataStore.get(identifier(spec)));
+    assertEquals(0, _cache.getEncodesAvoided());
+  }
+
+  public void consumedAfterPut() {
+    final ValueSpecification spec = spec("foo");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(spec, 2);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    _cache.valuesConsumed(Collections.singleton(spec));
+    assertEquals(1, _cache.getLiveValueCount());
+    _cache.valuesConsumed(Collections.singleton(spec));
+    assertEquals(0, _cache.getLiveValueCount());
+    assertNotNull(_sharedDataStore.get(identifier(spec)));
+    assertEquals(1, _cache.getDeferredEncodes());
+  }
+
+  public void iteratorIncludesLiveValues() {
+    final ValueSpecification live = spec("live");
+    final ValueSpecification encoded = spec("encoded");
+    final ValueSpecification encodedPrivate = spec("private");
+    final Object2IntMap<ValueSpecification> consumers = new Object2IntOpenHashMap<ValueSpecification>();
+    consumers.put(live, 1);
+    _cache.setConsumers(consumers, Collections.<ValueSpecification>emptySet());
+    _cache.putSharedValue(new ComputedValue(live, "Live"));
+    _cache.putSharedValue(new ComputedValue(encoded, "Encoded"));
+    _cache.putPrivateValue(new ComputedValue(encodedPrivate, "Private"));
+    final Map<ValueSpecification, FudgeMsg> values = new HashMap<ValueSpecification, FudgeMsg>();
+    for (Pair<ValueSpecification, FudgeMsg> value : _cache) {
+      values.put(value.getFirst(), value.getSecond());
+    }
+    assertEquals(3, values.size());
+    assertNotNull(values.get(live));
+    assertNotNull(values.get(encoded));
+    assertNotNull(values.get(encodedPrivate));
+    assertEquals(1, _cache.getLiveValueCount());
+  }
+
+  public void cloneCacheIncludesLiveValues() {
+    final LocalAffinityViewComputationCacheSource source = new LocalAffinityViewComputationCacheSource(new InMemoryIdentifierMap(), FudgeContext.GLOBAL_DEFAULT,
+        new DefaultFudgeMessageStoreFactory(new InMemoryBinaryDataStoreFactory(), FudgeContext.GLOBAL_DEFAULT),
+        new DefaultFudgeMessageStoreFactory(new InMemoryBinaryDataStoreFactory(), FudgeContext.GLOBAL_DEFAULT));
+    final UniqueId cycleId = UniqueId.of("Test", "Cycle");
+    final LocalAffinityViewComputationCache cache = source.getCache(cycleId, "Default");
+    final ValueSpecification spec = spec("foo");
+    cache.setConsumers(new Object2IntOpenHashMap<ValueSpecification>(), Collections.singleton(spec));
+    cache.putSharedValue(new ComputedValue(spec, "Foo"));
+    assertEquals(1, cache.getLiveValueCount());
+    final ViewComputationCache clone = source.cloneCache(cycleId, "Default");
+    assertEquals("Foo", clone.getValue(spec));
+    source.releaseCaches(cycleId);
+  }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link MappedBinaryDataStore} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class MappedBinaryDataStoreTest {
+
+  private static byte[] data(final int length, final int seed) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (seed + i);
+    }
+    return data;
+  }
+
+  private void assertPutGet(final MappedBinaryDataStore store) {
+    assertNull(store.get(1L));
+    store.put(1L, data(10, 1));
+    store.put(2L, data(20, 2));
+    assertEquals(store.get(1L), data(10, 1));
+    assertEquals(store.get(2L), data(20, 2));
+    assertEquals(store.getEntryCount(), 2);
+    assertEquals(store.getUsedBytes(), 38L);
+  }
+
+  public void testDirectPutGet() {
+    assertPutGet(new MappedBinaryDataStore(null, 64));
+  }
+
+  public void testMappedPutGet() {
+    assertPutGet(new MappedBinaryDataStore(new File(System.getProperty("java.io.tmpdir")), 64));
+  }
+
+  public void testSegmentOverflow() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(null, 64);
+    for (int i = 0; i < 10; i++) {
+      store.put(i, data(30, i));
+    }
+    // Each 64 byte segment only has room for one 34 byte record
+    assertEquals(store.getSegmentCount(), 10);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(store.get(i), data(30, i));
+    }
+  }
+
+  public void testOversizedValue() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(null, 64);
+    store.put(1L, data(10, 1));
+    store.put(2L, data(100, 2));
+    store.put(3L, data(10, 3));
+    assertEquals(store.getSegmentCount(), 2);
+    assertEquals(store.getAllocatedBytes(), 64L + 104L);
+    assertEquals(store.get(1L), data(10, 1));
+    assertEquals(store.get(2L), data(100, 2));
+    assertEquals(store.get(3L), data(10, 3));
+  }
+
+  public void testReplaceValue() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(null, 64);
+    store.put(1L, data(10, 1));
+    store.put(1L, data(5, 2));
+    assertEquals(store.get(1L), data(5, 2));
+    assertEquals(store.getEntryCount(), 1);
+  }
+
+  public void testBulkPutGet() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(null, 256);
+    final Map<Long, byte[]> values = new HashMap<Long, byte[]>();
+    for (int i = 0; i < 20; i++) {
+      values.put((long) i, data(i * 4, i));
+    }
+    store.put(values);
+    final Map<Long, byte[]> result = store.get(Arrays.asList(0L, 5L, 19L, 20L));
+    assertEquals(result.size(), 3);
+    assertEquals(result.get(0L), data(0, 0));
+    assertEquals(result.get(5L), data(20, 5));
+    assertEquals(result.get(19L), data(76, 19));
+  }
+
+  public void testDelete() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(null, 64);
+    store.put(1L, data(10, 1));
+    store.delete();
+    assertNull(store.get(1L));
+    assertEquals(store.getSegmentCount(), 0);
+    assertEquals(store.getAllocatedBytes(), 0L);
+  }
+
+  public void testDeleteMapped() throws IOException {
+    final File directory = File.createTempFile("cache", ".test");
+    assertTrue(directory.delete());
+    assertTrue(directory.mkdir());
+    try {
+      final MappedBinaryDataStore store = new MappedBinaryDataStore(directory, 64);
+      for (int i = 0; i < 5; i++) {
+        store.put(i, data(30, i));
+      }
+      assertEquals(store.getSegmentCount(), 5);
+      assertEquals(directory.list().length, 5);
+      store.delete();
+      assertEquals(store.getSegmentCount(), 0);
+      assertEquals(store.getAllocatedBytes(), 0L);
+      assertEquals(directory.list().length, 0);
+      assertNull(store.get(1L));
+      // The store can be used again after a delete
+      store.put(1L, data(10, 1));
+      assertEquals(store.get(1L), data(10, 1));
+      store.delete();
+      assertEquals(directory.list().length, 0);
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link PrimitiveIdentifierMap} class.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class PrimitiveIdentifierMapTest extends AbstractIdentifierMapTest {
+
+  @Override
+  protected IdentifierMap createIdentifierMap(String testName) {
+    return new PrimitiveIdentifierMap();
+  }
+
+  @Test(groups = TestGroup.UNIT)
+  public void arrayOperation() {
+    final PrimitiveIdentifierMap idMap = new PrimitiveIdentifierMap();
+    final List<ValueSpecification> valueSpecs = new ArrayList<ValueSpecification>();
+    for (int i = 0; i < 10; i++) {
+      valueSpecs.add(getValueSpec("value-" + i));
+    }
+    // Allocate some of the identifiers up front so that the array path has a mix of hits and misses
+    final long first = idMap.getIdentifier(valueSpecs.get(3));
+    final long second = idMap.getIdentifier(valueSpecs.get(7));
+    final long[] identifiers = new long[valueSpecs.size()];
+    idMap.getIdentifiers(valueSpecs, identifiers);
+    assertEquals(first, identifiers[3]);
+    assertEquals(second, identifiers[7]);
+    final Object2LongMap<ValueSpecification> identifierMap = idMap.getIdentifiers(valueSpecs);
+    for (int i = 0; i < identifiers.length; i++) {
+      assertEquals(identifierMap.getLong(valueSpecs.get(i)), identifiers[i]);
+      assertEquals(valueSpecs.get(i), idMap.getValueSpecification(identifiers[i]));
+    }
+  }
+
+  @Test(groups = TestGroup.UNIT)
+  public void cachingArrayOperation() {
+    final PrimitiveIdentifierMap underlying = new PrimitiveIdentifierMap();
+    final CachingIdentifierMap idMap = new CachingIdentifierMap(underlying);
+    final List<ValueSpecification> valueSpecs = new ArrayList<ValueSpecification>();
+    for (int i = 0; i < 5; i++) {
+      valueSpecs.add(getValueSpec("value-" + i));
+    }
+    final long cached = idMap.getIdentifier(valueSpecs.get(2));
+    final long[] identifiers = new long[valueSpecs.size()];
+    AbstractIdentifierMap.getIdentifiers(idMap, valueSpecs, identifiers);
+    assertEquals(cached, identifiers[2]);
+    for (int i = 0; i < identifiers.length; i++) {
+      assertEquals(underlying.getIdentifier(valueSpecs.get(i)), identifiers[i]);
+    }
+  }
+
+}
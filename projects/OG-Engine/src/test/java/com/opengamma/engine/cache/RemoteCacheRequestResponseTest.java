@@ -10,16 +10,21 @@ import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.fudgemsg.FudgeContext;
@@ -29,6 +34,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import com.google.common.util.concurrent.Futures;
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.cache.FudgeMessageStore;
 import com.opengamma.engine.cache.IdentifierMap;
@@ -38,6 +45,9 @@ import com.opengamma.engine.cache.RemoteFudgeMessageStore;
 import com.opengamma.engine.cache.RemoteIdentifierMap;
 import com.opengamma.engine.cache.ViewComputationCacheKey;
 import com.opengamma.engine.cache.ViewComputationCacheServer;
+import com.opengamma.engine.cache.msg.CacheMessage;
+import com.opengamma.engine.cache.msg.GetRequest;
+import com.opengamma.engine.cache.msg.GetResponse;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValuePropertyNames;
 import com.opengamma.engine.value.ValueSpecification;
@@ -258,6 +268,114 @@ public class RemoteCacheRequestResponseTest {
     assertEquals(inputValue2.getAllFields(), outputMap.get(identifier2).getAllFields());
   }
 
+  @Test(timeOut = 10000l)
+  public void batchedPutLoad() throws Exception {
+    InMemoryViewComputationCacheSource cache = new InMemoryViewComputationCacheSource(s_fudgeContext);
+    ViewComputationCacheServer server = new ViewComputationCacheServer(cache);
+    DirectFudgeConnection conduit = new DirectFudgeConnection(cache.getFudgeContext());
+    conduit.connectEnd2(server);
+    RemoteCacheClient client = new RemoteCacheClient(conduit.getEnd1());
+    RemoteFudgeMessageStore dataStore = new RemoteFudgeMessageStore(client, new ViewComputationCacheKey(UniqueId.of("Test", "ViewCycle1"), "Config1"));
+    dataStore.setBatchSize(3);
+    final Map<Long, FudgeMsg> inputMap = new HashMap<Long, FudgeMsg>();
+    for (long i = 1; i <= 10; i++) {
+      final MutableFudgeMsg inputValue = s_fudgeContext.newMessage();
+      inputValue.add("value", i);
+      inputMap.put(i, inputValue);
+    }
+    dataStore.putAsynchronously(inputMap).get();
+    final Map<Long, FudgeMsg> outputMap = dataStore.getAsynchronously(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L)).get();
+    assertEquals(10, outputMap.size());
+    for (long i = 1; i <= 10; i++) {
+      assertEquals(inputMap.get(i).getAllFields(), outputMap.get(i).getAllFields());
+    }
+    assertEquals(10, dataStore.get(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L)).size());
+  }
+
+  @Test(timeOut = 10000l)
+  public void batchedGetInvalidBatch() throws Exception {
+    InMemoryViewComputationCacheSource cache = new InMemoryViewComputationCacheSource(s_fudgeContext);
+    ViewComputationCacheServer server = new ViewComputationCacheServer(cache);
+    DirectFudgeConnection conduit = new DirectFudgeConnection(cache.getFudgeContext());
+    conduit.connectEnd2(server);
+    RemoteCacheClient client = new RemoteCacheClient(conduit.getEnd1()) {
+      @SuppressWarnings("unchecked")
+      @Override
+      protected <T extends CacheMessage> Future<T> sendGetMessageAsynchronously(final CacheMessage request, final Class<T> expectedResponse) {
+        if ((request instanceof GetRequest) && ((GetRequest) request).getIdentifier().contains(4L)) {
+          // The response the server gives for an invalid cache
+          return (Future<T>) Futures.immediateFuture(new GetResponse(Collections.singleton(FudgeContext.EMPTY_MESSAGE)));
+        }
+        return super.sendGetMessageAsynchronously(request, expectedResponse);
+      }
+    };
+    RemoteFudgeMessageStore dataStore = new RemoteFudgeMessageStore(client, new ViewComputationCacheKey(UniqueId.of("Test", "ViewCycle1"), "Config1"));
+    dataStore.setBatchSize(3);
+    final Map<Long, FudgeMsg> inputMap = new HashMap<Long, FudgeMsg>();
+    for (long i = 1; i <= 10; i++) {
+      final MutableFudgeMsg inputValue = s_fudgeContext.newMessage();
+      inputValue.add("value", i);
+      inputMap.put(i, inputValue);
+    }
+    dataStore.put(inputMap);
+    // The batch of 4, 5 and 6 is lost but the others are still returned
+    final Map<Long, FudgeMsg> outputMap = dataStore.get(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+    assertEquals(7, outputMap.size());
+    for (long i = 1; i <= 10; i++) {
+      if ((i >= 4) && (i <= 6)) {
+        assertFalse(outputMap.containsKey(i));
+      } else {
+        assertEquals(inputMap.get(i).getAllFields(), outputMap.get(i).getAllFields());
+      }
+    }
+  }
+
+  @Test(timeOut = 10000l)
+  public void batchedPutCancel() throws Exception {
+    // No server end so the requests are never answered
+    DirectFudgeConnection conduit = new DirectFudgeConnection(s_fudgeContext);
+    RemoteCacheClient client = new RemoteCacheClient(conduit.getEnd1());
+    RemoteFudgeMessageStore dataStore = new RemoteFudgeMessageStore(client, new ViewComputationCacheKey(UniqueId.of("Test", "ViewCycle1"), "Config1"));
+    dataStore.setBatchSize(3);
+    final Map<Long, FudgeMsg> inputMap = new HashMap<Long, FudgeMsg>();
+    for (long i = 1; i <= 10; i++) {
+      final MutableFudgeMsg inputValue = s_fudgeContext.newMessage();
+      inputValue.add("value", i);
+      inputMap.put(i, inputValue);
+    }
+    final Future<?> put = dataStore.putAsynchronously(inputMap);
+    assertFalse(put.isDone());
+    assertTrue(put.cancel(true));
+    assertTrue(put.isCancelled());
+    assertTrue(put.isDone());
+    try {
+      put.get();
+      fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+    // Nothing left pending
+    assertFalse(put.cancel(true));
+  }
+
+  @Test(timeOut = 10000l)
+  public void batchedGetTimeout() throws Exception {
+    // No server end so the requests are never answered
+    DirectFudgeConnection conduit = new DirectFudgeConnection(s_fudgeContext);
+    RemoteCacheClient client = new RemoteCacheClient(conduit.getEnd1());
+    RemoteFudgeMessageStore dataStore = new RemoteFudgeMessageStore(client, new ViewComputationCacheKey(UniqueId.of("Test", "ViewCycle1"), "Config1"));
+    dataStore.setBatchSize(3);
+    final Future<Map<Long, FudgeMsg>> get = dataStore.getAsynchronously(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+    try {
+      get.get(10, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (OpenGammaRuntimeException e) {
+      // expected; the first batch timed out
+    }
+    // The batches after the one that timed out were cancelled; nothing left pending
+    assertFalse(get.cancel(true));
+  }
+
   @Test(timeOut = 10000l)
   public void singleThreadPutLoadPurgeLoad() throws InterruptedException {
     InMemoryViewComputationCacheSource cache = new InMemoryViewComputationCacheSource(s_fudgeContext);
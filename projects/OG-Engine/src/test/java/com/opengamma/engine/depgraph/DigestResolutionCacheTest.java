@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.DefaultComputationTargetResolver;
+import com.opengamma.engine.depgraph.impl.DependencyNodeFunctionImpl;
+import com.opengamma.engine.function.AbstractFunction;
+import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.ParameterizedFunction;
+import com.opengamma.engine.function.resolver.ApplyToAllTargets;
+import com.opengamma.engine.function.resolver.DefaultCompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.test.PrimitiveTestFunction;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the {@link DigestResolutionCache} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DigestResolutionCacheTest {
+
+  private static ParameterizedFunction function(final CompiledFunctionDefinition cfd, final String uid) {
+    ((AbstractFunction) cfd).setUniqueId(uid);
+    return new ParameterizedFunction(cfd, cfd.getFunctionDefinition().getDefaultParameters());
+  }
+
+  private static DefaultCompiledFunctionResolver createResolver(final int priority) {
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    context.setRawComputationTargetResolver(new DefaultComputationTargetResolver());
+    context.setComputationTargetResolver(context.getRawComputationTargetResolver().atVersionCorrection(VersionCorrection.of(Instant.now(), Instant.now())));
+    final DefaultCompiledFunctionResolver resolver = new DefaultCompiledFunctionResolver(context);
+    resolver.addRule(new ResolutionRule(function(new PrimitiveTestFunction("req1"), "1"), ApplyToAllTargets.INSTANCE, priority));
+    resolver.compileRules();
+    return resolver;
+  }
+
+  private static ValueProperties properties(final String function) {
+    return ValueProperties.with(ValuePropertyNames.FUNCTION, function).get();
+  }
+
+  private static void delete(final File directory) {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  public void testRepositoryVersion() {
+    assertEquals(DigestResolutionCache.getRepositoryVersion(createResolver(100)), DigestResolutionCache.getRepositoryVersion(createResolver(100)));
+    assertFalse(DigestResolutionCache.getRepositoryVersion(createResolver(100)).equals(DigestResolutionCache.getRepositoryVersion(createResolver(200))));
+  }
+
+  public void testMostRecentFirst() throws IOException {
+    final File directory = Files.createTempDirectory("digestResolutions").toFile();
+    try {
+      final DigestResolutionCache.Resolutions resolutions = new DigestResolutionCache(directory).getResolutions(createResolver(100));
+      assertNull(resolutions.get("SWAP", "req1"));
+      resolutions.put("SWAP", "req1", properties("1"), DependencyNodeFunctionImpl.of("1", EmptyFunctionParameters.INSTANCE));
+      Pair<?, ?> values = resolutions.get("SWAP", "req1");
+      assertEquals(values.getFirst(), properties("1"));
+      assertEquals(((DependencyNodeFunction) values.getSecond()).getFunctionId(), "1");
+      for (int i = 2; i <= 6; i++) {
+        resolutions.put("SWAP", "req1", properties(Integer.toString(i)), DependencyNodeFunctionImpl.of("1", EmptyFunctionParameters.INSTANCE));
+      }
+      // Repeating an existing resolution doesn't change the order
+      resolutions.put("SWAP", "req1", properties("5"), DependencyNodeFunctionImpl.of("1", EmptyFunctionParameters.INSTANCE));
+      values = resolutions.get("SWAP", "req1");
+      final ValueProperties[] stored = (ValueProperties[]) values.getFirst();
+      assertEquals(stored.length, 4);
+      assertEquals(stored[0], properties("6"));
+      assertEquals(stored[3], properties("3"));
+      assertNull(resolutions.get("SWAP", "req2"));
+      assertNull(resolutions.get("FRA", "req1"));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  public void testPersistence() throws IOException {
+    final File directory = Files.createTempDirectory("digestResolutions").toFile();
+    try {
+      final DigestResolutionCache cache = new DigestResolutionCache(directory);
+      DigestResolutionCache.Resolutions resolutions = cache.getResolutions(createResolver(100));
+      resolutions.put("SWAP", "req1", properties("1"), DependencyNodeFunctionImpl.of("1", EmptyFunctionParameters.INSTANCE));
+      resolutions.put("SWAP", "req1", properties("2"), DependencyNodeFunctionImpl.of("2", EmptyFunctionParameters.INSTANCE));
+      resolutions.put("FRA", "req1", properties("3"), DependencyNodeFunctionImpl.of("3", EmptyFunctionParameters.INSTANCE));
+      cache.flush();
+      assertEquals(directory.listFiles().length, 1);
+      // A restarted, or sibling, process with the same repository sees the resolutions
+      resolutions = new DigestResolutionCache(directory).getResolutions(createResolver(100));
+      assertEquals(resolutions.size(), 2);
+      final Pair<?, ?> values = resolutions.get("SWAP", "req1");
+      assertEquals(((ValueProperties[]) values.getFirst())[0], properties("2"));
+      assertEquals(((DependencyNodeFunction[]) values.getSecond())[0].getFunctionId(), "2");
+      assertEquals(((ValueProperties[]) values.getFirst())[1], properties("1"));
+      assertEquals(resolutions.get("FRA", "req1").getFirst(), properties("3"));
+      // A different repository does not
+      resolutions = new DigestResolutionCache(directory).getResolutions(createResolver(200));
+      assertEquals(resolutions.size(), 0);
+    } finally {
+      delete(directory);
+    }
+  }
+
+  public void testMergeOnFlush() throws IOException {
+    final File directory = Files.createTempDirectory("digestResolutions").toFile();
+    try {
+      final DigestResolutionCache cache1 = new DigestResolutionCache(directory);
+      final DigestResolutionCache cache2 = new DigestResolutionCache(directory);
+      cache1.getResolutions(createResolver(100)).put("SWAP", "req1", properties("1"), DependencyNodeFunctionImpl.of("1", EmptyFunctionParameters.INSTANCE));
+      cache2.getResolutions(createResolver(100)).put("FRA", "req1", properties("2"), DependencyNodeFunctionImpl.of("2", EmptyFunctionParameters.INSTANCE));
+      cache1.flush();
+      cache2.flush();
+      final DigestResolutionCache.Resolutions resolutions = new DigestResolutionCache(directory).getResolutions(createResolver(100));
+      assertEquals(resolutions.size(), 2);
+      assertTrue(resolutions.get("SWAP", "req1") != null);
+      assertTrue(resolutions.get("FRA", "req1") != null);
+    } finally {
+      delete(directory);
+    }
+  }
+
+}
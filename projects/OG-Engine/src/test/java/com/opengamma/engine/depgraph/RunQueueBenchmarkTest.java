@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Compares the {@link RunQueue} implementations on a synthetic graph build of 100,000 requirements. Each step does a small amount of work and then schedules
+ * the resolution of two further requirements, giving a binary tree of steps in the way that resolving a function's inputs fans out. Throughput for each queue
+ * and thread count is written to the log.
+ */
+@Test(groups = TestGroup.UNIT_SLOW)
+public class RunQueueBenchmarkTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(RunQueueBenchmarkTest.class);
+
+  private static final int REQUIREMENTS = 100000;
+
+  private static final int WORK = 200;
+
+  private static final int[] THREADS = {1, 2, 4, 8, 16 };
+
+  private static final int RUNS = 3;
+
+  private ExecutorService _executor;
+
+  @BeforeClass
+  public void init() {
+    _executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterClass
+  public void done() {
+    _executor.shutdownNow();
+    _executor = null;
+  }
+
+  private static final class Step implements ContextRunnable {
+
+    private final RunQueue _queue;
+    private final int _index;
+    private double _result;
+
+    public Step(final RunQueue queue, final int index) {
+      _queue = queue;
+      _index = index;
+    }
+
+    @Override
+    public boolean tryRun(final GraphBuildingContext context) {
+      double result = _index;
+      for (int i = 0; i < WORK; i++) {
+        result = Math.sqrt(result + i);
+      }
+      _result = result;
+      final int child = (_index << 1) + 1;
+      if (child < REQUIREMENTS) {
+        _queue.add(new Step(_queue, child));
+        if (child + 1 < REQUIREMENTS) {
+          _queue.add(new Step(_queue, child + 1));
+        }
+      }
+      return _result >= 0;
+    }
+
+  }
+
+  private static int work(final RunQueue queue, final AtomicInteger completed) {
+    int total = 0;
+    int count = 0;
+    do {
+      final ContextRunnable step = queue.take();
+      if (step != null) {
+        step.tryRun(null);
+        total++;
+        // Publish the count in batches so that the counter isn't a point of contention for the queues being measured
+        if (++count == 64) {
+          completed.addAndGet(count);
+          count = 0;
+        }
+      } else {
+        if (count > 0) {
+          completed.addAndGet(count);
+          count = 0;
+        }
+        Thread.yield();
+      }
+    } while (completed.get() < REQUIREMENTS);
+    return total;
+  }
+
+  private long run(final RunQueueFactory factory, final int threads) throws Exception {
+    final RunQueue queue = factory.createRunQueue();
+    final AtomicInteger completed = new AtomicInteger();
+    final long start = System.nanoTime();
+    queue.add(new Step(queue, 0));
+    final List<Future<Integer>> workers = new ArrayList<Future<Integer>>(threads - 1);
+    for (int i = 1; i < threads; i++) {
+      workers.add(_executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return work(queue, completed);
+        }
+      }));
+    }
+    int total = work(queue, completed);
+    for (Future<Integer> worker : workers) {
+      total += worker.get();
+    }
+    final long time = System.nanoTime() - start;
+    assertEquals(total, REQUIREMENTS);
+    assertEquals(queue.size(), 0);
+    return time;
+  }
+
+  private void benchmark(final String name, final RunQueueFactory factory) throws Exception {
+    for (int threads : THREADS) {
+      long best = Long.MAX_VALUE;
+      for (int i = 0; i < RUNS; i++) {
+        best = Math.min(best, run(factory, threads));
+      }
+      s_logger.info("{}, {} threads, {}ms, {} steps/s", new Object[] {name, threads, best / 1000000, (long) ((double) REQUIREMENTS * 1e9 / best) });
+    }
+  }
+
+  public void testLinkedListFIFO() throws Exception {
+    benchmark("LinkedListRunQueue.FIFO", RunQueueFactory.getFifoLinkedList());
+  }
+
+  public void testLinkedListLIFO() throws Exception {
+    benchmark("LinkedListRunQueue.LIFO", RunQueueFactory.getLifoLinkedList());
+  }
+
+  public void testConcurrentLinkedQueue() throws Exception {
+    benchmark("ConcurrentLinkedQueueRunQueue", RunQueueFactory.getConcurrentLinkedQueue());
+  }
+
+  public void testStackRunQueue() throws Exception {
+    benchmark("StackRunQueue", RunQueueFactory.getConcurrentStack());
+  }
+
+  public void testOrderedRunQueue() throws Exception {
+    benchmark("OrderedRunQueue", RunQueueFactory.getOrdered());
+  }
+
+  public void testWorkStealingRunQueue() throws Exception {
+    benchmark("WorkStealingRunQueue", RunQueueFactory.getWorkStealing());
+  }
+
+}
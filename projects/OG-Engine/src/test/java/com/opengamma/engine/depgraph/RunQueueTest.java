@@ -11,6 +11,7 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -188,4 +189,63 @@ public class RunQueueTest {
     testLIFO(RunQueueFactory.getOrdered());
   }
 
+  public void testWorkStealingRunQueue() {
+    testSpeed(RunQueueFactory.getWorkStealing());
+    // A single thread sees its own deque in LIFO order
+    testLIFO(RunQueueFactory.getWorkStealing());
+  }
+
+  public void testWorkStealingRunQueueSteal() throws Exception {
+    final RunQueue queue = RunQueueFactory.getWorkStealing().createRunQueue();
+    final ContextRunnable r1 = runnable();
+    final ContextRunnable r2 = runnable();
+    final ContextRunnable r3 = runnable();
+    queue.add(r1);
+    queue.add(r2);
+    queue.add(r3);
+    // Another thread steals the oldest task
+    assertSame(_executor.submit(new Callable<ContextRunnable>() {
+      @Override
+      public ContextRunnable call() {
+        assertFalse(queue.isEmpty());
+        assertEquals(queue.size(), 3);
+        return queue.take();
+      }
+    }).get(), r1);
+    assertSame(queue.take(), r3);
+    assertSame(queue.take(), r2);
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testWorkStealingRunQueueDetach() throws Exception {
+    final WorkStealingRunQueue queue = new WorkStealingRunQueue();
+    final ContextRunnable r1 = runnable();
+    final ContextRunnable r2 = runnable();
+    final ContextRunnable r3 = runnable();
+    assertEquals(queue.getDequeCount(), 1);
+    // Another thread leaves tasks in its deque when it detaches
+    assertSame(_executor.submit(new Callable<ContextRunnable>() {
+      @Override
+      public ContextRunnable call() {
+        queue.add(r1);
+        queue.add(r2);
+        queue.add(r3);
+        assertEquals(queue.getDequeCount(), 2);
+        final ContextRunnable runnable = queue.take();
+        queue.detach();
+        return runnable;
+      }
+    }).get(), r3);
+    assertEquals(queue.getDequeCount(), 1);
+    assertFalse(queue.isEmpty());
+    assertEquals(queue.size(), 2);
+    // The tasks left behind can still be stolen, oldest first
+    assertSame(queue.take(), r1);
+    assertEquals(queue.getDequeCount(), 2);
+    assertSame(queue.take(), r2);
+    assertTrue(queue.isEmpty());
+    queue.detach();
+    assertEquals(queue.getDequeCount(), 1);
+  }
+
 }
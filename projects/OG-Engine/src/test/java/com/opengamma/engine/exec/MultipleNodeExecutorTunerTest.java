@@ -48,10 +48,13 @@ public class MultipleNodeExecutorTunerTest {
     capabilities.put("B", Arrays.asList(Capability.instanceOf("Bar"), Capability.parameterInstanceOf(PlatformCapabilities.NODE_COUNT, 4d)));
     tuner.run();
     Mockito.verify(factory, Mockito.times(1)).setMaximumConcurrency(7);
+    Mockito.verify(factory, Mockito.times(1)).setNodeCount(14);
     Mockito.verify(factory, Mockito.times(1)).invalidateCache();
     Mockito.when(factory.getMaximumConcurrency()).thenReturn(7);
+    Mockito.when(factory.getNodeCount()).thenReturn(14);
     tuner.run();
     Mockito.verify(factory, Mockito.times(1)).setMaximumConcurrency(7);
+    Mockito.verify(factory, Mockito.times(1)).setNodeCount(14);
     Mockito.verify(factory, Mockito.times(1)).invalidateCache();
   }
 
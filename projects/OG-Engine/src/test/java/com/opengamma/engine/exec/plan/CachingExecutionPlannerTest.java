@@ -34,6 +34,7 @@ import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
 import com.opengamma.engine.exec.plan.CachingExecutionPlanner.CacheKey;
+import com.opengamma.engine.exec.stats.GraphExecutorStatisticsGatherer;
 import com.opengamma.engine.function.EmptyFunctionParameters;
 import com.opengamma.engine.function.FunctionParameters;
 import com.opengamma.engine.target.ComputationTargetType;
@@ -197,4 +198,36 @@ public class CachingExecutionPlannerTest {
     }
   }
 
+  public void testCache_replan() {
+    final CachingExecutionPlanner cache = new CachingExecutionPlanner(createExecutionPlanner(), _cacheManager);
+    cache.setReplanWarmUpExecutions(1);
+    try {
+      final GraphExecutorStatisticsGatherer statistics = Mockito.mock(GraphExecutorStatisticsGatherer.class);
+      final GraphExecutionPlan plan1 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      // The warm-up execution is slow; it must not become the baseline
+      plan1.reportExecution(statistics, 1, 100L, 5000L);
+      GraphExecutionPlan plan2 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan2, plan1);
+      plan2.reportExecution(statistics, 1, 100L, 1000L);
+      plan2 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan2, plan1);
+      plan2.reportExecution(statistics, 1, 100L, 1500L);
+      plan2 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan2, plan1);
+      // More than double the baseline, but not of the warm-up execution
+      plan2.reportExecution(statistics, 1, 100L, 2500L);
+      final GraphExecutionPlan plan3 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertNotSame(plan3, plan1);
+      Mockito.verify(statistics, Mockito.times(4)).graphExecuted(Mockito.eq("Default"), Mockito.eq(1), Mockito.eq(100L), Mockito.anyLong(), Mockito.eq(Double.NaN));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+
 }
@@ -532,4 +532,18 @@ public class MultipleNodeExecutionPlannerTest {
     assertEquals(gatherColours(plan), 3);
   }
 
+  public void testEstimatedDuration() {
+    final MultipleNodeExecutionPlanner planner = createPlanner(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    final GraphExecutionPlan plan = plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3));
+    final double criticalPath = plan.getEstimatedDuration();
+    assertFalse(Double.isNaN(criticalPath));
+    assertTrue(criticalPath > 0);
+    // A single node must execute all of the jobs so can't be quicker than the critical path
+    planner.setNodeCount(1);
+    assertTrue(plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3)).getEstimatedDuration() >= criticalPath);
+    // Enough nodes to run everything concurrently are limited by the critical path
+    planner.setNodeCount(100);
+    assertEquals(plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3)).getEstimatedDuration(), criticalPath);
+  }
+
 }
@@ -31,11 +31,11 @@ public class TotallingGraphStatisticsGathererProviderTest {
     UniqueId vp1Id = UniqueId.of("Test", "ViewProcess1");
     UniqueId vp2Id = UniqueId.of("Test", "ViewProcess2");
     _provider.getStatisticsGatherer(vp1Id).graphProcessed("Config 1", 10, 20.0, 30.0, 40.0);
-    _provider.getStatisticsGatherer(vp1Id).graphExecuted("Config 1", 200, 300, 400);
+    _provider.getStatisticsGatherer(vp1Id).graphExecuted("Config 1", 200, 300, 400, Double.NaN);
     _provider.getStatisticsGatherer(vp2Id).graphProcessed("Config 1", 20, 40.0, 50.0, 60.0);
-    _provider.getStatisticsGatherer(vp2Id).graphExecuted("Config 1", 400, 500, 600);
+    _provider.getStatisticsGatherer(vp2Id).graphExecuted("Config 1", 400, 500, 600, Double.NaN);
     _provider.getStatisticsGatherer(vp2Id).graphProcessed("Config 2", 20, 40.0, 50.0, 60.0);
-    _provider.getStatisticsGatherer(vp2Id).graphExecuted("Config 2", 400, 500, 600);
+    _provider.getStatisticsGatherer(vp2Id).graphExecuted("Config 2", 400, 500, 600, 300.0);
     final List<Statistics> statsList = _provider.getViewStatistics ();
     assertNotNull (statsList);
     assertEquals (2, statsList.size ());
@@ -54,9 +54,12 @@ public class TotallingGraphStatisticsGathererProviderTest {
           if (graphStats.getCalcConfigName().equals ("Config 1")) {
             mask |= 2;
             assertEquals (vp2Id, graphStats.getViewProcessId());
+            assertEquals (0, graphStats.getEstimatedGraphs());
           } else if (graphStats.getCalcConfigName().equals ("Config 2")) {
             mask |= 4;
             assertEquals (vp2Id, graphStats.getViewProcessId());
+            assertEquals (1, graphStats.getEstimatedGraphs());
+            assertEquals (2.0, graphStats.getEstimateRatio(), 1e-10);
           } else {
             Assert.fail ();
           }
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.calcnode.MutableExecutionLog;
+import com.opengamma.engine.exec.DefaultAggregatedExecutionLog;
+import com.opengamma.engine.fudgemsg.ColumnarViewComputationResultModelFudgeBuilder;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.engine.view.NumberDeltaComparer;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.log.LogLevel;
+import com.opengamma.util.log.SimpleLogEvent;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModel} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarViewComputationResultModelTest {
+
+  private static final ValueProperties PROPERTIES = ValueProperties.with(ValuePropertyNames.FUNCTION, "F").get();
+
+  private static final AggregatedExecutionLog NO_LOG = DefaultAggregatedExecutionLog.indicatorLogMode(EnumSet.noneOf(LogLevel.class));
+
+  private static final AggregatedExecutionLog WARNING_LOG = DefaultAggregatedExecutionLog.indicatorLogMode(
+      MutableExecutionLog.single(new SimpleLogEvent(LogLevel.WARN, "test"), ExecutionLogMode.FULL).getLogLevels());
+
+  private static ComputationTargetSpecification target(final int i) {
+    return new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", Integer.toString(i)));
+  }
+
+  private static ComputedValueResult value(final String valueName, final int target, final Object value) {
+    return new ComputedValueResult(new ValueSpecification(valueName, target(target), PROPERTIES), value, NO_LOG);
+  }
+
+  private static InMemoryViewComputationResultModel createModel(final double offset) {
+    final InMemoryViewComputationResultModel model = new InMemoryViewComputationResultModel();
+    model.setCalculationTime(Instant.ofEpochMilli(500));
+    for (int i = 0; i < 10; i++) {
+      model.addValue("Default", value("PV", i, 100d + i + offset));
+      if ((i & 1) == 0) {
+        model.addValue("Default", value("Delta", i, "Delta" + i));
+      }
+    }
+    model.addValue("Default", new ComputedValueResult(new ValueSpecification("Delta", target(1), PROPERTIES), null, WARNING_LOG, "node1",
+        Collections.singleton(new ValueSpecification("Missing", target(1), PROPERTIES)), InvocationResult.MISSING_INPUTS));
+    model.addValue("Other", value("PV", 20, 1d));
+    return model;
+  }
+
+  private static void assertSameResults(final ColumnarViewComputationResultModel actual, final InMemoryViewComputationResultModel expected) {
+    assertEquals(actual.getCalculationTime(), expected.getCalculationTime());
+    assertEquals(actual.getAllTargets(), expected.getAllTargets());
+    assertEquals(new HashSet<String>(actual.getCalculationConfigurationNames()), expected.getCalculationConfigurationNames());
+    assertEquals(actual.getAllOutputValueNames(), expected.getAllOutputValueNames());
+    assertEquals(new HashSet<Object>(actual.getAllResults()), new HashSet<Object>(expected.getAllResults()));
+    for (String config : expected.getCalculationConfigurationNames()) {
+      for (ComputationTargetSpecification target : expected.getCalculationResult(config).getAllTargets()) {
+        assertEquals(actual.getCalculationResult(config).getValues(target), expected.getCalculationResult(config).getValues(target));
+      }
+    }
+  }
+
+  public void testCopy() {
+    final InMemoryViewComputationResultModel expected = createModel(0);
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(expected);
+    assertSameResults(model, expected);
+    assertEquals(model.getCalculationResult("Default").getColumns().size(), 2);
+    assertTrue(model.getCalculationResult("Default").getColumns().values().iterator().next().isDouble(0));
+    assertEquals(new HashSet<Object>(model.getTargetResult(target(2)).getAllValues("Default")),
+        Sets.newHashSet(value("PV", 2, 102d), value("Delta", 2, "Delta2")));
+    assertNull(model.getTargetResult(target(2)).getAllValues("Other"));
+    assertNull(model.getTargetResult(target(30)));
+    assertNull(model.getCalculationResult("Default").getValues(target(30)));
+  }
+
+  public void testComputeDelta() {
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel(createModel(0));
+    final InMemoryViewComputationResultModel resultInMemory = createModel(0);
+    resultInMemory.addValue("Default", value("PV", 3, 104.5d));
+    resultInMemory.addValue("Default", value("PV", 4, 104.001d));
+    resultInMemory.addValue("Default", new ComputedValueResult(new ValueSpecification("PV", target(5), PROPERTIES), 105d, WARNING_LOG));
+    resultInMemory.addValue("Default", value("Delta", 6, "Changed"));
+    resultInMemory.addValue("Default", value("PV", 11, 1d));
+    resultInMemory.addValue("Default", value("Theta", 0, 1d));
+    final ColumnarViewComputationResultModel result = new ColumnarViewComputationResultModel(resultInMemory);
+    final DeltaDefinition deltaDefinition = new DeltaDefinition();
+    List<ComputedValueResult> delta = result.getCalculationResult("Default").computeDelta(previous.getCalculationResult("Default"), deltaDefinition);
+    assertEquals(new HashSet<ComputedValueResult>(delta), Sets.newHashSet(value("PV", 3, 104.5d), value("PV", 4, 104.001d),
+        new ComputedValueResult(new ValueSpecification("PV", target(5), PROPERTIES), 105d, WARNING_LOG), value("Delta", 6, "Changed"),
+        value("PV", 11, 1d), value("Theta", 0, 1d)));
+    deltaDefinition.setNumberComparer(new NumberDeltaComparer(2));
+    delta = result.getCalculationResult("Default").computeDelta(previous.getCalculationResult("Default"), deltaDefinition);
+    assertEquals(delta.size(), 5);
+    assertFalse(delta.contains(value("PV", 4, 104.001d)));
+    assertTrue(previous.getCalculationResult("Default").computeDelta(previous.getCalculationResult("Default"), deltaDefinition).isEmpty());
+    assertEquals(result.getCalculationResult("Other").computeDelta(null, deltaDefinition), Collections.singletonList(value("PV", 20, 1d)));
+  }
+
+  public void testFudgeEncoding() {
+    final InMemoryViewComputationResultModel expected = createModel(0);
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(expected);
+    final ColumnarViewComputationResultModelFudgeBuilder builder = new ColumnarViewComputationResultModelFudgeBuilder();
+    final FudgeContext context = OpenGammaFudgeContext.getInstance();
+    final byte[] data = context.toByteArray(builder.buildMessage(new FudgeSerializer(context), model));
+    final FudgeMsg msg = context.deserialize(data).getMessage();
+    final ColumnarViewComputationResultModel decoded = builder.buildObject(new FudgeDeserializer(context), msg);
+    assertSameResults(decoded, expected);
+    final ComputedValueResult missing = decoded.getCalculationResult("Default").getValues(target(1)).get(Pairs.of("Delta", PROPERTIES));
+    assertEquals(missing.getComputeNodeId(), "node1");
+    assertEquals(missing.getInvocationResult(), InvocationResult.MISSING_INPUTS);
+    assertEquals(missing.getMissingInputs(), Collections.singleton(new ValueSpecification("Missing", target(1), PROPERTIES)));
+  }
+
+  public void testSparseColumn() {
+    final InMemoryViewComputationResultModel expected = new InMemoryViewComputationResultModel();
+    expected.setCalculationTime(Instant.ofEpochMilli(500));
+    for (int i = 0; i < 1000; i++) {
+      expected.addValue("Default", value("PV", i, (double) i));
+    }
+    expected.addValue("Default", value("Rare", 900, 1d));
+    expected.addValue("Default", value("Rare", 950, "Text"));
+    expected.addValue("Default", value("Rare", 10, 2d));
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(expected);
+    assertSameResults(model, expected);
+    final ColumnarViewComputationResultModel.CalculationResult result = model.getCalculationResult("Default");
+    assertTrue(result.getColumns().get(Pairs.of("PV", PROPERTIES)).isDense());
+    final ColumnarViewComputationResultModel.Column rare = result.getColumns().get(Pairs.of("Rare", PROPERTIES));
+    assertFalse(rare.isDense());
+    assertFalse(rare.isPresent(500));
+    assertNull(rare.getValue(500));
+    assertNull(rare.getAggregatedExecutionLog(500));
+    final InMemoryViewComputationResultModel changed = new InMemoryViewComputationResultModel();
+    changed.setCalculationTime(Instant.ofEpochMilli(500));
+    for (int i = 0; i < 1000; i++) {
+      changed.addValue("Default", value("PV", i, (double) i));
+    }
+    changed.addValue("Default", value("Rare", 900, 1.5d));
+    changed.addValue("Default", value("Rare", 950, "Text"));
+    changed.addValue("Default", value("Rare", 10, 2d));
+    final List<ComputedValueResult> delta = new ColumnarViewComputationResultModel(changed).getCalculationResult("Default").computeDelta(result,
+        new DeltaDefinition());
+    assertEquals(delta, Collections.singletonList(value("Rare", 900, 1.5d)));
+    final FudgeContext context = OpenGammaFudgeContext.getInstance();
+    final ColumnarViewComputationResultModelFudgeBuilder builder = new ColumnarViewComputationResultModelFudgeBuilder();
+    final byte[] data = context.toByteArray(builder.buildMessage(new FudgeSerializer(context), model));
+    assertSameResults(builder.buildObject(new FudgeDeserializer(context), context.deserialize(data).getMessage()), expected);
+  }
+
+  public void testSparseColumnBecomesDense() {
+    final InMemoryViewComputationResultModel expected = new InMemoryViewComputationResultModel();
+    for (int i = 0; i < 100; i++) {
+      expected.addValue("Default", value("PV", i, (double) i));
+    }
+    for (int i = 99; i >= 0; i--) {
+      if (i % 3 != 2) {
+        expected.addValue("Default", value("Rare", i, (i % 3 == 0) ? "Text" + i : (Object) (double) i));
+      }
+    }
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(expected);
+    assertSameResults(model, expected);
+    final ColumnarViewComputationResultModel.Column rare = model.getCalculationResult("Default").getColumns().get(Pairs.of("Rare", PROPERTIES));
+    assertTrue(rare.isDense());
+    assertEquals(rare.getValue(99), "Text99");
+    assertEquals(rare.getValue(97), 97d);
+    assertNull(rare.getValue(98));
+  }
+
+}
@@ -5,14 +5,25 @@
  */
 package com.opengamma.engine.view.listener;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
 
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 import com.opengamma.util.test.TestGroup;
@@ -47,4 +58,26 @@ public class CycleFragmentCompletedCallTest extends AbstractCompletedResultsCall
     Mockito.verify(mock, Mockito.only()).cycleFragmentCompleted(full, delta);
   }
 
+  private ViewComputationResultModel createColumnar(final Instant calculationTime, final String valueName, final double value) {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.setCalculationTime(calculationTime);
+    final ValueSpecification spec = new ValueSpecification(valueName, ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+    model.addValue("Default", new ComputedValueResult(new ComputedValue(spec, value), AggregatedExecutionLog.EMPTY));
+    return model;
+  }
+
+  public void testColumnarFragmentsStayColumnar() {
+    final Instant now = Instant.now();
+    CycleFragmentCompletedCall instance = create(createColumnar(now, "A", 1d), null);
+    instance.update(createColumnar(now.plusSeconds(1L), "B", 2d), null);
+    assertTrue(instance.getFullFragment() instanceof ColumnarViewComputationResultModel);
+    assertEquals(instance.getFullFragment().getAllResults().size(), 2);
+    assertEquals(instance.getFullFragment().getCalculationTime(), now.plusSeconds(1L));
+    instance = create(createColumnar(now.plusSeconds(1L), "A", 1d), null);
+    instance.update(createColumnar(now, "B", 2d), null);
+    assertTrue(instance.getFullFragment() instanceof ColumnarViewComputationResultModel);
+    assertEquals(instance.getFullFragment().getAllResults().size(), 2);
+    assertEquals(instance.getFullFragment().getCalculationTime(), now.plusSeconds(1L));
+  }
+
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeType;
+import com.opengamma.id.ObjectId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link TargetResolverChangeListener} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class TargetResolverChangeListenerTest {
+
+  private static final ObjectId FOO = ObjectId.of("Test", "Foo");
+  private static final ObjectId BAR = ObjectId.of("Test", "Bar");
+  private static final ObjectId COW = ObjectId.of("Test", "Cow");
+
+  private static TargetResolverChangeListener listener() {
+    return new TargetResolverChangeListener() {
+      @Override
+      protected void onChanged() {
+        // No-op
+      }
+    };
+  }
+
+  public void unwatchedIsChanged() {
+    final TargetResolverChangeListener listener = listener();
+    assertTrue(listener.isChanged(FOO));
+    assertFalse(listener.isChanged(FOO));
+  }
+
+  public void copyStateFrom() {
+    final TargetResolverChangeListener primary = listener();
+    primary.isChanged(FOO);
+    primary.isChanged(BAR);
+    primary.entityChanged(new ChangeEvent(ChangeType.CHANGED, BAR, null, null, Instant.now()));
+    final TargetResolverChangeListener secondary = listener();
+    // A change received by the new listener before the copy takes precedence
+    secondary.setChanged(FOO);
+    assertEquals(secondary.copyStateFrom(primary), 1);
+    assertTrue(secondary.isChanged(FOO));
+    assertTrue(secondary.isChanged(BAR));
+    assertTrue(secondary.isChanged(COW));
+    final TargetResolverChangeListener tertiary = listener();
+    assertEquals(tertiary.copyStateFrom(primary), 2);
+    assertFalse(tertiary.isChanged(FOO));
+    assertTrue(tertiary.isChanged(BAR));
+  }
+
+}
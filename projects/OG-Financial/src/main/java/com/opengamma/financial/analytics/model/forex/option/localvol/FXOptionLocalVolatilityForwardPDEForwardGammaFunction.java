@@ -6,8 +6,9 @@
 package com.opengamma.financial.analytics.model.forex.option.localvol;
 
 import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDECalculator;
+import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDECombinedCalculator;
+import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDECombinedCalculator.GridResult;
 import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDESingleResultCalculator;
-import com.opengamma.analytics.financial.model.volatility.local.LocalVolatilityForwardPDESpotGreeksGridCalculator;
 import com.opengamma.analytics.financial.model.volatility.local.PDELocalVolatilityCalculator;
 import com.opengamma.analytics.math.interpolation.Interpolator1D;
 import com.opengamma.engine.value.ValueRequirementNames;
@@ -28,7 +29,7 @@ public class FXOptionLocalVolatilityForwardPDEForwardGammaFunction extends FXOpt
 
   @Override
   protected PDELocalVolatilityCalculator<?> getPDECalculator(final LocalVolatilityForwardPDECalculator pdeCalculator, final Interpolator1D interpolator) {
-    return new LocalVolatilityForwardPDESingleResultCalculator(new LocalVolatilityForwardPDESpotGreeksGridCalculator.GammaCalculator(pdeCalculator, interpolator), interpolator);
+    return new LocalVolatilityForwardPDESingleResultCalculator(new LocalVolatilityForwardPDECombinedCalculator(pdeCalculator, interpolator).getGridCalculator(GridResult.GAMMA), interpolator);
   }
 
 }
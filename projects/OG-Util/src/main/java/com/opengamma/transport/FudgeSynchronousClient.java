@@ -6,8 +6,10 @@
 package com.opengamma.transport;
 
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -132,29 +134,35 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
    * @return the result
    */
   protected FudgeMsg sendRequestAndWaitForResponse(FudgeMsg requestMsg, long correlationId) {
-    ClientRequestHolder requestHolder = new ClientRequestHolder();
+    return sendRequest(requestMsg, correlationId).waitForResponse(getTimeoutInMilliseconds());
+  }
+
+  /**
+   * Sends the message without waiting for the response. Any number of requests may be outstanding on the
+   * underlying transport at once; each is matched to its response by the correlation id.
+   * <p>
+   * The future will wait up to the timeout of this client for the response when {@link Future#get()} is
+   * called.
+   * 
+   * @param requestMsg  the message, not null
+   * @param correlationId  the message id
+   * @return the future result, not null
+   */
+  protected Future<FudgeMsg> sendRequestAsynchronously(FudgeMsg requestMsg, long correlationId) {
+    return sendRequest(requestMsg, correlationId);
+  }
+
+  private ClientRequestHolder sendRequest(FudgeMsg requestMsg, long correlationId) {
+    ClientRequestHolder requestHolder = new ClientRequestHolder(correlationId);
     _pendingRequests.put(correlationId, requestHolder);
+    s_logger.debug("Sending message {}", correlationId);
     try {
-      s_logger.debug("Sending message {}", correlationId);
       getMessageSender().send(requestMsg);
-      try {
-        s_logger.debug("Blocking for message result");
-        requestHolder.latch.await(getTimeoutInMilliseconds(), TimeUnit.MILLISECONDS);
-      } catch (InterruptedException e) {
-        Thread.interrupted();
-        s_logger.error("Interrupted");
-      }
-      if (requestHolder.resultValue == null) {
-        s_logger.warn("Didn't get response to {} in {}ms", correlationId, getTimeoutInMilliseconds());
-        throw new OpenGammaRuntimeException("Didn't receive a response message to " + correlationId + " in " + getTimeoutInMilliseconds() + "ms");
-      }
-      assert getCorrelationIdFromReply(requestHolder.resultValue) == correlationId;
-      s_logger.debug("Received result {}", requestHolder.resultValue);
-      return requestHolder.resultValue;
-    } finally {
+    } catch (RuntimeException e) {
       _pendingRequests.remove(correlationId);
-      s_logger.debug("Request {} complete", correlationId);
+      throw e;
     }
+    return requestHolder;
   }
 
   protected void sendMessage(FudgeMsg message) {
@@ -185,8 +193,7 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
       s_logger.warn("Got a response on non-pending correlation Id {}", correlationId);
       return;
     }
-    requestHolder.resultValue = reply;
-    requestHolder.latch.countDown();
+    requestHolder.setResult(reply);
   }
 
   /**
@@ -199,11 +206,87 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
 
   //-------------------------------------------------------------------------
   /**
-   * Data holder.
+   * Data holder for a pending request.
    */
-  private static final class ClientRequestHolder {
-    public FudgeMsg resultValue; // CSIGNORE: simple holder object
-    public final CountDownLatch latch = new CountDownLatch(1); // CSIGNORE: simple holder object
+  private final class ClientRequestHolder implements Future<FudgeMsg> {
+    private final long _correlationId;
+    private volatile FudgeMsg _resultValue;
+    private volatile boolean _cancelled;
+    private final CountDownLatch _latch = new CountDownLatch(1);
+
+    private ClientRequestHolder(final long correlationId) {
+      _correlationId = correlationId;
+    }
+
+    private void setResult(final FudgeMsg resultValue) {
+      _resultValue = resultValue;
+      _latch.countDown();
+    }
+
+    private FudgeMsg waitForResponse(final long timeoutMilliseconds) {
+      try {
+        try {
+          s_logger.debug("Blocking for message result");
+          _latch.await(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.interrupted();
+          s_logger.error("Interrupted");
+        }
+        final FudgeMsg resultValue = _resultValue;
+        if (resultValue == null) {
+          if (_cancelled) {
+            throw new CancellationException("Request " + _correlationId + " was cancelled");
+          }
+          s_logger.warn("Didn't get response to {} in {}ms", _correlationId, timeoutMilliseconds);
+          throw new OpenGammaRuntimeException("Didn't receive a response message to " + _correlationId + " in " + timeoutMilliseconds + "ms");
+        }
+        assert getCorrelationIdFromReply(resultValue) == _correlationId;
+        s_logger.debug("Received result {}", resultValue);
+        return resultValue;
+      } finally {
+        _pendingRequests.remove(_correlationId);
+        s_logger.debug("Request {} complete", _correlationId);
+      }
+    }
+
+    /**
+     * Stops waiting for the response. The request is no longer pending so a late response is discarded.
+     * 
+     * @param mayInterruptIfRunning  ignored, any thread waiting for the response is released
+     * @return true if the request was cancelled, false if it was no longer pending
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      if (_pendingRequests.remove(_correlationId) == null) {
+        // Already completed, timed out or cancelled
+        return false;
+      }
+      _cancelled = true;
+      _latch.countDown();
+      s_logger.debug("Request {} cancelled", _correlationId);
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return _cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return (_resultValue != null) || _cancelled;
+    }
+
+    @Override
+    public FudgeMsg get() {
+      return waitForResponse(getTimeoutInMilliseconds());
+    }
+
+    @Override
+    public FudgeMsg get(final long timeout, final TimeUnit unit) {
+      return waitForResponse(unit.toMillis(timeout));
+    }
+
   }
 
 }